@@ -2,6 +2,7 @@ plugins {
     id("java")
 //    id("org.jetbrains.kotlin.jvm") version "1.8.21"
     id("org.jetbrains.intellij") version "1.13.3"
+    id("me.champeau.jmh") version "0.7.1"
 }
 
 group = "com.nd"
@@ -12,6 +13,8 @@ repositories {
 }
 
 dependencies {
+    // The session reader and the event records, see codegrits-reader
+    implementation(project(":codegrits-reader"))
     // https://mvnrepository.com/artifact/com.opencsv/opencsv
     implementation("com.opencsv:opencsv:5.7.1")
     // implementation("org.bytedeco:javacv-platform:1.5.9") // NOTE: This is too large
@@ -20,6 +23,20 @@ dependencies {
     implementation("org.bytedeco:ffmpeg-platform:6.0-1.5.9")
 }
 
+// Micro-benchmarks in src/jmh/java, run with ./gradlew jmh
+// e.g., -PjmhIncludes=EyeTrackerBenchmark -PjmhProfilers=gc
+jmh {
+    jmhVersion.set("1.36")
+    resultFormat.set("JSON")
+    (findProperty("jmhIncludes") as String?)?.let { includes.set(listOf(it)) }
+    (findProperty("jmhProfilers") as String?)?.let { profilers.set(it.split(",")) }
+}
+
+// The tracker benchmarks run without the IDE, but on the classes of the IntelliJ Platform, e.g., PSI and the editor
+configurations.named("jmhImplementation") {
+    extendsFrom(configurations["idea"], configurations["ideaPlugins"])
+}
+
 // Configure Gradle IntelliJ Plugin
 // Read more: https://plugins.jetbrains.com/docs/intellij/tools-gradle-intellij-plugin.html
 intellij {
@@ -71,6 +88,9 @@ tasks {
         from(sourceSets.main.get().java) {
             include("**/api/**/*.java")
         }
+        from(project(":codegrits-reader").file("src/main/java")) {
+            include("**/api/**/*.java")
+        }
         destinationDirectory.set(layout.buildDirectory.dir("libs"))
         archiveClassifier.set("src")
     }
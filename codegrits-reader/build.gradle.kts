@@ -0,0 +1,41 @@
+plugins {
+    id("java-library")
+    id("me.champeau.jmh")
+}
+
+group = "com.nd"
+version = "0.2.0"
+
+repositories {
+    mavenCentral()
+}
+
+// The reader of the session data, without the IDE, for analysis tools outside the plugin
+dependencies {
+    // https://mvnrepository.com/artifact/com.opencsv/opencsv
+    api("com.opencsv:opencsv:5.7.1")
+}
+
+java {
+    withSourcesJar()
+}
+
+// Micro-benchmarks in src/jmh/java, run with ./gradlew :codegrits-reader:jmh
+// e.g., -PjmhIncludes=SessionReaderBenchmark -PjmhProfilers=gc
+jmh {
+    jmhVersion.set("1.36")
+    resultFormat.set("JSON")
+    (findProperty("jmhIncludes") as String?)?.let { includes.set(listOf(it)) }
+    (findProperty("jmhProfilers") as String?)?.let { profilers.set(it.split(",")) }
+}
+
+tasks {
+    withType<JavaCompile> {
+        sourceCompatibility = "17"
+        targetCompatibility = "17"
+    }
+
+    jar {
+        archiveBaseName.set("codegrits-reader")
+    }
+}
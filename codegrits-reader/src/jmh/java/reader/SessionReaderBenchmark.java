@@ -0,0 +1,132 @@
+package reader;
+
+import api.event.GazeEvent;
+import api.event.TrackerEvent;
+import api.event.TrackerEvents;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This class benchmarks reading a 10-minute session of 120 Hz gazes and IDE events with {@link SessionReader}, which
+ * pull-parses the events into records, and with {@link TimeIndex} and {@link TrackerEvents}, which build a DOM element
+ * for each event first and read the IDE events section by section. Run it with {@code -prof gc} to compare the
+ * allocation per event:
+ * <pre>
+ * ./gradlew :codegrits-reader:jmh -PjmhIncludes=SessionReaderBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SessionReaderBenchmark {
+    private static final long START_TIMESTAMP = 1_700_000_000_000L;
+    private static final int SAMPLE_PERIOD = 8;
+    private static final int MINUTES = 10;
+
+    private Path directory;
+    private SessionReader sessionReader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("codegrits");
+        int gazeCount = MINUTES * 60_000 / SAMPLE_PERIOD;
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("eye_tracking.xml"))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<eye_tracking>\n"
+                    + "    <setting eye_tracker=\"Mouse\" sample_frequency=\"120.0\"/>\n    <gazes>\n");
+            for (int i = 0; i < gazeCount; i++) {
+                long timestamp = START_TIMESTAMP + (long) i * SAMPLE_PERIOD;
+                writer.write("        <gaze timestamp=\"" + timestamp + "\" timestamp_us=\"" + timestamp * 1000 + "\">\n"
+                        + "            <left_eye gaze_point_x=\"0.5\" gaze_point_y=\"0.5\" gaze_validity=\"1.0\" "
+                        + "pupil_diameter=\"3.1\" pupil_validity=\"1.0\"/>\n"
+                        + "            <right_eye gaze_point_x=\"0.5\" gaze_point_y=\"0.5\" gaze_validity=\"1.0\" "
+                        + "pupil_diameter=\"3.2\" pupil_validity=\"1.0\"/>\n"
+                        + "            <location column=\"12\" line=\"" + i % 100 + "\" path=\"/src/Main.java\" "
+                        + "x=\"640\" y=\"400\"/>\n"
+                        + "            <ast_structure token=\"main\" type=\"IDENTIFIER\">\n"
+                        + "                <level end=\"3:20\" start=\"3:16\" tag=\"PsiIdentifier:main\"/>\n"
+                        + "                <level end=\"9:5\" start=\"3:4\" tag=\"PsiMethod:main\"/>\n"
+                        + "            </ast_structure>\n        </gaze>\n");
+            }
+            writer.write("    </gazes>\n</eye_tracking>\n");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("ide_tracking.xml"))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<ide_tracking>\n"
+                    + "    <environment ide_name=\"IntelliJ IDEA\" project_name=\"Main\"/>\n");
+            for (String section : new String[]{"actions", "typings", "carets"}) {
+                writer.write("    <" + section + ">\n");
+                for (int i = 0; i < MINUTES * 600; i++) {
+                    long timestamp = START_TIMESTAMP + i * 100L + section.length();
+                    String attributes = "path=\"/src/Main.java\" timestamp=\"" + timestamp + "\" timestamp_us=\""
+                            + timestamp * 1000 + "\"";
+                    writer.write(switch (section) {
+                        case "actions" -> "        <action id=\"EditorBackSpace\" " + attributes + "/>\n";
+                        case "typings" -> "        <typing character=\"a\" column=\"" + i % 80 + "\" line=\"3\" "
+                                + attributes + "/>\n";
+                        default -> "        <caret column=\"" + i % 80 + "\" id=\"caretPositionChanged\" line=\"3\" "
+                                + attributes + "/>\n";
+                    });
+                }
+                writer.write("    </" + section + ">\n");
+            }
+            writer.write("</ide_tracking>\n");
+        }
+        TimeIndexWriter.write(directory.resolve("eye_tracking.xml"));
+        TimeIndexWriter.write(directory.resolve("ide_tracking.xml"));
+        sessionReader = SessionReader.open(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readGazes(Blackhole blackhole) throws IOException {
+        try (EventCursor<GazeEvent> gazes = sessionReader.readGazes(Long.MIN_VALUE)) {
+            while (gazes.hasNext()) {
+                blackhole.consume(gazes.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public void readGazeElements(Blackhole blackhole) throws IOException {
+        TimeIndex timeIndex = TimeIndex.open(directory.resolve("eye_tracking.xml"));
+        try (TimeIndex.Cursor gazes = timeIndex.openCursor("gazes", Long.MIN_VALUE)) {
+            while (gazes.hasNext()) {
+                blackhole.consume(TrackerEvents.toGazeEvent(gazes.next()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readIDEEvents(Blackhole blackhole) throws IOException {
+        try (EventCursor<TrackerEvent> events = sessionReader.readIDEEvents(Long.MIN_VALUE)) {
+            while (events.hasNext()) {
+                blackhole.consume(events.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public void readIDEEventElements(Blackhole blackhole) throws IOException {
+        TimeIndex timeIndex = TimeIndex.open(directory.resolve("ide_tracking.xml"));
+        timeIndex.read(Long.MIN_VALUE, Long.MAX_VALUE,
+                element -> blackhole.consume(TrackerEvents.fromElement(element)));
+    }
+}
@@ -0,0 +1,95 @@
+package reader;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks a 30-second query on an {@code eye_tracking.xml} of a 120 Hz session, with the
+ * {@link TimeIndex} and by streaming the whole file with StAX, which is the fastest way to query without the index.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimeIndexBenchmark {
+    private static final long START_TIMESTAMP = 1_700_000_000_000L;
+    private static final int SAMPLE_PERIOD = 8;
+
+    @Param({"10", "120"})
+    public int minutes;
+
+    private Path directory;
+    private Path streamFile;
+    private TimeIndex timeIndex;
+    private long queryStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("codegrits");
+        streamFile = directory.resolve("eye_tracking.xml");
+        int gazeCount = minutes * 60_000 / SAMPLE_PERIOD;
+        try (BufferedWriter writer = Files.newBufferedWriter(streamFile)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<eye_tracking>\n"
+                    + "    <setting eye_tracker=\"Mouse\" sample_frequency=\"120.0\"/>\n    <gazes>\n");
+            for (int i = 0; i < gazeCount; i++) {
+                long timestamp = START_TIMESTAMP + (long) i * SAMPLE_PERIOD;
+                writer.write("        <gaze timestamp=\"" + timestamp + "\" timestamp_us=\"" + timestamp * 1000 + "\">\n"
+                        + "            <left_eye gaze_point_x=\"0.5\" gaze_point_y=\"0.5\" gaze_validity=\"1.0\" "
+                        + "pupil_diameter=\"3.1\" pupil_validity=\"1.0\"/>\n"
+                        + "            <right_eye gaze_point_x=\"0.5\" gaze_point_y=\"0.5\" gaze_validity=\"1.0\" "
+                        + "pupil_diameter=\"3.2\" pupil_validity=\"1.0\"/>\n"
+                        + "            <location column=\"12\" line=\"" + i % 100 + "\" path=\"/src/Main.java\" "
+                        + "x=\"640\" y=\"400\"/>\n"
+                        + "            <ast_structure token=\"main\" type=\"IDENTIFIER\">\n"
+                        + "                <level end=\"3:20\" start=\"3:16\" tag=\"PsiIdentifier:main\"/>\n"
+                        + "                <level end=\"9:5\" start=\"3:4\" tag=\"PsiMethod:main\"/>\n"
+                        + "            </ast_structure>\n        </gaze>\n");
+            }
+            writer.write("    </gazes>\n</eye_tracking>\n");
+        }
+        TimeIndexWriter.write(streamFile);
+        timeIndex = TimeIndex.open(streamFile);
+        queryStart = START_TIMESTAMP + minutes * 30_000L; // the middle of the session
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(TimeIndex.getIndexFile(streamFile));
+        Files.deleteIfExists(streamFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void indexedQuery(Blackhole blackhole) throws IOException {
+        timeIndex.read("gazes", queryStart, queryStart + 30_000, blackhole::consume);
+    }
+
+    @Benchmark
+    public void fullParse(Blackhole blackhole) throws IOException, XMLStreamException {
+        try (InputStream inputStream = Files.newInputStream(streamFile)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("gaze")) {
+                    long timestamp = Long.parseLong(reader.getAttributeValue(null, "timestamp"));
+                    if (timestamp >= queryStart && timestamp <= queryStart + 30_000) {
+                        blackhole.consume(timestamp);
+                    }
+                }
+            }
+            reader.close();
+        }
+    }
+}
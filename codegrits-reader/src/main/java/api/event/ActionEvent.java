@@ -0,0 +1,15 @@
+package api.event;
+
+/**
+ * This record is an IDE action ({@code AnAction}) performed by the developer.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param id             The id of the action, e.g., {@code EditorPaste}.
+ * @param path           The path of the file, or {@code null}.
+ */
+public record ActionEvent(long timestampNanos, String id, String path) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.ACTION;
+    }
+}
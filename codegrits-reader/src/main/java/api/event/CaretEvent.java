@@ -0,0 +1,16 @@
+package api.event;
+
+/**
+ * This record is a change of the caret position in the code editor.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param path           The path of the file, or {@code null}.
+ * @param line           The new line of the caret.
+ * @param column         The new column of the caret.
+ */
+public record CaretEvent(long timestampNanos, String path, int line, int column) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.CARET;
+    }
+}
@@ -0,0 +1,57 @@
+package api.event;
+
+/**
+ * This enum lists the types of the {@link TrackerEvent}s. The names match the XML elements of the tracking data.
+ */
+public enum EventType {
+    GAZE("gaze", GazeEvent.class),
+    FIXATION("fixation", FixationEvent.class),
+    ACTION("action", ActionEvent.class),
+    TYPING("typing", TypingEvent.class),
+    FILE("file", FileEvent.class),
+    MOUSE("mouse", MouseEvent.class),
+    CARET("caret", CaretEvent.class),
+    SELECTION("selection", SelectionEvent.class),
+    VISIBLE_AREA("visible_area", VisibleAreaEvent.class);
+
+    private final String elementName;
+    private final Class<? extends TrackerEvent> eventClass;
+
+    EventType(String elementName, Class<? extends TrackerEvent> eventClass) {
+        this.elementName = elementName;
+        this.eventClass = eventClass;
+    }
+
+    /**
+     * Get the name of the XML element of the event type.
+     *
+     * @return The name of the XML element.
+     */
+    public String getElementName() {
+        return elementName;
+    }
+
+    /**
+     * Get the record class of the event type.
+     *
+     * @return The record class.
+     */
+    public Class<? extends TrackerEvent> getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * Get the event type of an XML element name.
+     *
+     * @param elementName The name of the XML element.
+     * @return The event type, or {@code null} if there is none.
+     */
+    public static EventType fromElementName(String elementName) {
+        for (EventType type : values()) {
+            if (type.elementName.equals(elementName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,16 @@
+package api.event;
+
+/**
+ * This record is a file opened, closed, or selected in the editor.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param id             {@code fileOpened}, {@code fileClosed}, or {@code selectionChanged}.
+ * @param path           The path of the file, or the new path for {@code selectionChanged}.
+ * @param oldPath        The old path for {@code selectionChanged}, or {@code null}.
+ */
+public record FileEvent(long timestampNanos, String id, String path, String oldPath) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.FILE;
+    }
+}
@@ -0,0 +1,25 @@
+package api.event;
+
+/**
+ * This record is a fixation detected from the gaze samples by {@code utils.FixationDetector}. It is published when
+ * the fixation ends. The fixation is detected from the raw gaze points, so it is not mapped to the code editor; the
+ * {@link GazeEvent}s in the same time range carry the locations.
+ *
+ * @param timestampNanos The start of the fixation on the session timeline in nanoseconds.
+ * @param durationNanos  The duration of the fixation in nanoseconds.
+ * @param screenX        The x coordinate of the centroid on the screen, in the unit of {@code screen_size}.
+ * @param screenY        The y coordinate of the centroid on the screen, in the unit of {@code screen_size}.
+ * @param sampleCount    The number of gaze samples in the fixation.
+ */
+public record FixationEvent(long timestampNanos, long durationNanos, double screenX, double screenY,
+                            int sampleCount) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.FIXATION;
+    }
+
+    @Override
+    public String path() {
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package api.event;
+
+import java.util.List;
+
+/**
+ * This record is a gaze sample of the eye tracker. The location and the AST structure are only available when the
+ * gaze is mapped to the code editor; otherwise {@code remark} tells why.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param leftX          The x coordinate of the left eye on the screen, from 0 to 1.
+ * @param leftY          The y coordinate of the left eye on the screen, from 0 to 1.
+ * @param rightX         The x coordinate of the right eye on the screen, from 0 to 1.
+ * @param rightY         The y coordinate of the right eye on the screen, from 0 to 1.
+ * @param leftPupil      The pupil diameter of the left eye in mm.
+ * @param rightPupil     The pupil diameter of the right eye in mm.
+ * @param path           The path of the file, or {@code null} if not mapped.
+ * @param line           The line of the gaze, or -1 if not mapped.
+ * @param column         The column of the gaze, or -1 if not mapped.
+ * @param x              The x coordinate of the gaze on the screen in pixels, or -1 if not mapped.
+ * @param y              The y coordinate of the gaze on the screen in pixels, or -1 if not mapped.
+ * @param token          The token of the gaze, or {@code null} if not mapped.
+ * @param tokenType      The type of the token, or {@code null} if not mapped.
+ * @param astLevels      The tags of the AST levels from the leaf upwards, empty if not mapped or same as the last gaze.
+ * @param remark         The remark of the gaze, or {@code null}.
+ */
+public record GazeEvent(long timestampNanos, double leftX, double leftY, double rightX, double rightY,
+                        double leftPupil, double rightPupil, String path, int line, int column, int x, int y,
+                        String token, String tokenType, List<String> astLevels, String remark) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.GAZE;
+    }
+
+    /**
+     * Check whether the gaze is mapped to a location in the code editor.
+     *
+     * @return {@code true} if the gaze is mapped.
+     */
+    public boolean isMapped() {
+        return path != null && line >= 0;
+    }
+}
@@ -0,0 +1,18 @@
+package api.event;
+
+/**
+ * This record is a mouse event in the code editor.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param id             {@code mousePressed}, {@code mouseClicked}, {@code mouseReleased}, {@code mouseMoved}, or
+ *                       {@code mouseDragged}.
+ * @param path           The path of the file, or {@code null}.
+ * @param x              The x coordinate on the screen.
+ * @param y              The y coordinate on the screen.
+ */
+public record MouseEvent(long timestampNanos, String id, String path, int x, int y) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.MOUSE;
+    }
+}
@@ -0,0 +1,20 @@
+package api.event;
+
+/**
+ * This record is a change of the selection in the code editor.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param path           The path of the file, or {@code null}.
+ * @param startLine      The line of the start of the selection.
+ * @param startColumn    The column of the start of the selection.
+ * @param endLine        The line of the end of the selection.
+ * @param endColumn      The column of the end of the selection.
+ * @param selectedText   The selected text, or {@code null}.
+ */
+public record SelectionEvent(long timestampNanos, String path, int startLine, int startColumn, int endLine,
+                             int endColumn, String selectedText) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.SELECTION;
+    }
+}
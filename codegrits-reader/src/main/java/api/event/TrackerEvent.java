@@ -0,0 +1,29 @@
+package api.event;
+
+/**
+ * This interface is the common type of the immutable events published by the trackers through the
+ * {@code api.RealtimeEventBus}. An event is shared by reference between all subscribers, so it must never be modified
+ * after being published.
+ */
+public interface TrackerEvent {
+    /**
+     * Get the type of the event.
+     *
+     * @return The type of the event.
+     */
+    EventType type();
+
+    /**
+     * Get the timestamp of the event on the {@code utils.SessionClock} timeline.
+     *
+     * @return The Unix time in nanoseconds.
+     */
+    long timestampNanos();
+
+    /**
+     * Get the path of the file the event is related to, relative to the project path if possible.
+     *
+     * @return The path, or {@code null} if the event is not related to any file.
+     */
+    String path();
+}
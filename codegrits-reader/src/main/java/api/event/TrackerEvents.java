@@ -0,0 +1,150 @@
+package api.event;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class converts the XML elements of the trackers into {@link TrackerEvent}s. The conversion is only done when
+ * there is a subscriber, so the trackers do not pay for it otherwise.
+ */
+public final class TrackerEvents {
+
+    private TrackerEvents() {
+    }
+
+    /**
+     * Convert an XML element of the IDE tracker or the eye tracker into an event.
+     *
+     * @param element The XML element.
+     * @return The event, or {@code null} if the element is not an event, e.g., {@code archive}.
+     */
+    public static TrackerEvent fromElement(Element element) {
+        EventType type = EventType.fromElementName(element.getTagName());
+        if (type == null) {
+            return null;
+        }
+        long timestampNanos = getTimestampNanos(element);
+        String path = getString(element, "path");
+        return switch (type) {
+            case GAZE -> toGazeEvent(element);
+            case ACTION -> new ActionEvent(timestampNanos, getString(element, "id"), path);
+            case TYPING -> {
+                String character = element.getAttribute("character");
+                yield new TypingEvent(timestampNanos, character.isEmpty() ? '\0' : character.charAt(0), path,
+                        getInt(element, "line"), getInt(element, "column"));
+            }
+            case FILE -> {
+                String newPath = getString(element, "new_path");
+                yield new FileEvent(timestampNanos, getString(element, "id"), newPath != null ? newPath : path,
+                        getString(element, "old_path"));
+            }
+            case MOUSE -> new MouseEvent(timestampNanos, getString(element, "id"), path,
+                    getInt(element, "x"), getInt(element, "y"));
+            case CARET -> new CaretEvent(timestampNanos, path, getInt(element, "line"), getInt(element, "column"));
+            case SELECTION -> {
+                int[] start = getPosition(element.getAttribute("start_position"));
+                int[] end = getPosition(element.getAttribute("end_position"));
+                yield new SelectionEvent(timestampNanos, path, start[0], start[1], end[0], end[1],
+                        getString(element, "selected_text"));
+            }
+            case VISIBLE_AREA -> new VisibleAreaEvent(timestampNanos, path, getInt(element, "x"),
+                    getInt(element, "y"), getInt(element, "width"), getInt(element, "height"));
+            case FIXATION -> null;
+        };
+    }
+
+    /**
+     * Convert a {@code gaze} element of the eye tracker into a gaze event, including its location and AST structure
+     * if the gaze is mapped.
+     *
+     * @param gaze The {@code gaze} element.
+     * @return The gaze event.
+     */
+    public static GazeEvent toGazeEvent(Element gaze) {
+        Element leftEye = getChild(gaze, "left_eye");
+        Element rightEye = getChild(gaze, "right_eye");
+        Element location = getChild(gaze, "location");
+        Element astStructure = getChild(gaze, "ast_structure");
+        List<String> astLevels = List.of();
+        if (astStructure != null) {
+            NodeList levels = astStructure.getElementsByTagName("level");
+            List<String> tags = new ArrayList<>(levels.getLength());
+            for (int i = 0; i < levels.getLength(); i++) {
+                tags.add(((Element) levels.item(i)).getAttribute("tag"));
+            }
+            astLevels = List.copyOf(tags);
+        }
+        return new GazeEvent(getTimestampNanos(gaze),
+                getDouble(leftEye, "gaze_point_x"), getDouble(leftEye, "gaze_point_y"),
+                getDouble(rightEye, "gaze_point_x"), getDouble(rightEye, "gaze_point_y"),
+                getDouble(leftEye, "pupil_diameter"), getDouble(rightEye, "pupil_diameter"),
+                location != null ? getString(location, "path") : null,
+                location != null ? getInt(location, "line") : -1,
+                location != null ? getInt(location, "column") : -1,
+                location != null ? getInt(location, "x") : -1,
+                location != null ? getInt(location, "y") : -1,
+                astStructure != null ? astStructure.getAttribute("token") : null,
+                astStructure != null ? astStructure.getAttribute("type") : null,
+                astLevels, getString(gaze, "remark"));
+    }
+
+    /**
+     * Get the timestamp of an element in nanoseconds, from {@code timestamp_us} if present and from
+     * {@code timestamp} otherwise.
+     *
+     * @param element The XML element.
+     * @return The Unix time in nanoseconds.
+     */
+    public static long getTimestampNanos(Element element) {
+        String timestampMicros = element.getAttribute("timestamp_us");
+        if (!timestampMicros.isEmpty()) {
+            return Long.parseLong(timestampMicros) * 1_000;
+        }
+        String timestamp = element.getAttribute("timestamp");
+        return timestamp.isEmpty() ? 0 : Long.parseLong(timestamp) * 1_000_000;
+    }
+
+    private static Element getChild(Element element, String tagName) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && ((Element) child).getTagName().equals(tagName)) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+
+    private static String getString(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static int getInt(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value == null || value.isEmpty() ? -1 : Integer.parseInt(value);
+    }
+
+    private static double getDouble(Element element, String name) {
+        if (element == null) {
+            return Double.NaN;
+        }
+        String value = element.getAttribute(name);
+        // the Python process prints "nan" for invalid samples
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("nan")) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static int[] getPosition(String position) {
+        int separator = position.indexOf(':');
+        if (separator < 0) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{Integer.parseInt(position.substring(0, separator)),
+                Integer.parseInt(position.substring(separator + 1))};
+    }
+}
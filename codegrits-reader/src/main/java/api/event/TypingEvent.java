@@ -0,0 +1,17 @@
+package api.event;
+
+/**
+ * This record is a character typed in the code editor.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param character      The typed character.
+ * @param path           The path of the file, or {@code null}.
+ * @param line           The line of the caret, or -1.
+ * @param column         The column of the caret, or -1.
+ */
+public record TypingEvent(long timestampNanos, char character, String path, int line, int column) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.TYPING;
+    }
+}
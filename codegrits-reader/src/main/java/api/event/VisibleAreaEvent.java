@@ -0,0 +1,18 @@
+package api.event;
+
+/**
+ * This record is a change of the visible area of the main code editor, e.g., by scrolling.
+ *
+ * @param timestampNanos The timestamp on the session timeline in nanoseconds.
+ * @param path           The path of the file, or {@code null}.
+ * @param x              The horizontal scroll offset.
+ * @param y              The vertical scroll offset.
+ * @param width          The width of the visible area.
+ * @param height         The height of the visible area.
+ */
+public record VisibleAreaEvent(long timestampNanos, String path, int x, int y, int width, int height) implements TrackerEvent {
+    @Override
+    public EventType type() {
+        return EventType.VISIBLE_AREA;
+    }
+}
@@ -0,0 +1,256 @@
+package reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This class looks up the archives of a session by path and timestamp. The state of a file at a timestamp is its
+ * latest archive at or before the timestamp; instead of listing the {@code archives} directory and parsing
+ * {@code ide_tracking.xml}, the lookup is a binary search over the paths and then over the timestamps of the path in a
+ * memory-mapped index file, {@code archives/index.bin}.
+ * <p>
+ * The index is little-endian. The header holds the magic {@code 0x43474149} (int), the version (short), the header
+ * size (short), the number of paths (int), the number of entries (int), and the offsets of the path table, the
+ * entries, and the path strings (long each). Each record of the path table holds the offset and the length of the
+ * UTF-8 bytes of the path (int each) in the strings, the index of its first entry, and its number of entries (int
+ * each). The records are sorted by the bytes of the path, and each entry is the timestamp of an archive in
+ * milliseconds (long), sorted within each path. The archive file is {@code archives/[timestamp].archive}.
+ */
+public class ArchiveIndex {
+    public static final String FILE_NAME = "index.bin";
+    public static final int MAGIC = 0x43474149;
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 40;
+    public static final int PATH_RECORD_SIZE = 16;
+    /**
+     * This variable is the path of the console archives, which have no file.
+     */
+    public static final String CONSOLE_PATH = "unknown";
+    private final Path archivesDirectory;
+    private final ByteBuffer buffer;
+    private final int pathCount;
+    private final int entryCount;
+    private final int pathTableOffset;
+    private final int entriesOffset;
+    private final int stringsOffset;
+
+    private ArchiveIndex(Path archivesDirectory, ByteBuffer buffer) throws IOException {
+        this.archivesDirectory = archivesDirectory;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Invalid archive index in " + archivesDirectory);
+        }
+        pathCount = buffer.getInt(8);
+        entryCount = buffer.getInt(12);
+        pathTableOffset = (int) buffer.getLong(16);
+        entriesOffset = (int) buffer.getLong(24);
+        stringsOffset = (int) buffer.getLong(32);
+    }
+
+    /**
+     * Open the archive index of a session. If the session has no index, e.g., it was recorded before the index was
+     * introduced, the index is built from its {@code ide_tracking.xml} and written first.
+     *
+     * @param sessionDirectory The directory of the session, which contains {@code ide_tracking.xml} and
+     *                         {@code archives}.
+     * @return The archive index.
+     */
+    public static ArchiveIndex open(Path sessionDirectory) throws IOException {
+        Path archivesDirectory = sessionDirectory.resolve("archives");
+        Path indexFile = archivesDirectory.resolve(FILE_NAME);
+        if (!Files.exists(indexFile)) {
+            ArchiveIndexWriter.fromXML(sessionDirectory.resolve("ide_tracking.xml")).write(indexFile);
+        }
+        try (FileChannel channel = FileChannel.open(indexFile)) {
+            return new ArchiveIndex(archivesDirectory, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getPathCount() {
+        return pathCount;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Get all paths of the archives, in the order of their UTF-8 bytes.
+     *
+     * @return The paths.
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<>(pathCount);
+        for (int i = 0; i < pathCount; i++) {
+            paths.add(getPath(i));
+        }
+        return paths;
+    }
+
+    private String getPath(int pathIndex) {
+        int record = pathTableOffset + pathIndex * PATH_RECORD_SIZE;
+        byte[] bytes = new byte[buffer.getInt(record + 4)];
+        buffer.get(stringsOffset + buffer.getInt(record), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find the record of a path in the path table by binary search.
+     *
+     * @param path The path.
+     * @return The offset of the record, or {@code -1} if the path has no archives.
+     */
+    private int findPathRecord(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = pathCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = pathTableOffset + middle * PATH_RECORD_SIZE;
+            int comparison = compare(stringsOffset + buffer.getInt(record), buffer.getInt(record + 4), bytes);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int offset, int length, byte[] bytes) {
+        int commonLength = Math.min(length, bytes.length);
+        for (int i = 0; i < commonLength; i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(offset + i), bytes[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, bytes.length);
+    }
+
+    /**
+     * Get the timestamps of all archives of a path.
+     *
+     * @param path The path of the file relative to the project, e.g., {@code /src/Main.java}.
+     * @return The sorted timestamps in milliseconds, empty if the path has no archives.
+     */
+    public long[] getTimestamps(String path) {
+        int record = findPathRecord(path);
+        if (record < 0) {
+            return new long[0];
+        }
+        long[] timestamps = new long[buffer.getInt(record + 12)];
+        int firstEntry = buffer.getInt(record + 8);
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = buffer.getLong(entriesOffset + (firstEntry + i) * Long.BYTES);
+        }
+        return timestamps;
+    }
+
+    /**
+     * Find the latest archive of a path at or before a timestamp, i.e., the archive of the state of the file at the
+     * timestamp.
+     *
+     * @param path      The path of the file relative to the project.
+     * @param timestamp The timestamp in milliseconds.
+     * @return The timestamp of the archive, or {@code -1} if the path has no archive before the timestamp.
+     */
+    public long findArchiveTimestamp(String path, long timestamp) {
+        int record = findPathRecord(path);
+        if (record < 0) {
+            return -1;
+        }
+        int low = buffer.getInt(record + 8), high = low + buffer.getInt(record + 12) - 1;
+        long found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long archiveTimestamp = buffer.getLong(entriesOffset + middle * Long.BYTES);
+            if (archiveTimestamp <= timestamp) {
+                found = archiveTimestamp;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the archive file of the state of a file at a timestamp.
+     *
+     * @param path      The path of the file relative to the project.
+     * @param timestamp The timestamp in milliseconds.
+     * @return The archive file, or {@code null} if the path has no archive before the timestamp.
+     */
+    public Path findArchive(String path, long timestamp) {
+        long archiveTimestamp = findArchiveTimestamp(path, timestamp);
+        return archiveTimestamp < 0 ? null : archivesDirectory.resolve(archiveTimestamp + ".archive");
+    }
+
+    /**
+     * Reconstruct the content of a file at a timestamp from its archive.
+     *
+     * @param path      The path of the file relative to the project.
+     * @param timestamp The timestamp in milliseconds.
+     * @return The content of the file, or {@code null} if the path has no archive before the timestamp.
+     */
+    public String readFile(String path, long timestamp) throws IOException {
+        Path archive = findArchive(path, timestamp);
+        return archive == null ? null : Files.readString(archive);
+    }
+
+    /**
+     * Iterate over all archives, path by path in the order of {@link #getPaths()}, and in the order of time within
+     * each path. The index is decoded as the archives are read, so each path is decoded once.
+     *
+     * @return The iterator of the archives.
+     */
+    public Iterator<Archive> archives() {
+        return new Iterator<>() {
+            private int pathIndex = -1;
+            private String path;
+            private int entry, endEntry;
+
+            @Override
+            public boolean hasNext() {
+                while (entry >= endEntry && pathIndex + 1 < pathCount) {
+                    pathIndex++;
+                    int record = pathTableOffset + pathIndex * PATH_RECORD_SIZE;
+                    path = getPath(pathIndex);
+                    entry = buffer.getInt(record + 8);
+                    endEntry = entry + buffer.getInt(record + 12);
+                }
+                return entry < endEntry;
+            }
+
+            @Override
+            public Archive next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long timestamp = buffer.getLong(entriesOffset + entry++ * Long.BYTES);
+                return new Archive(path, timestamp, archivesDirectory.resolve(timestamp + ".archive"));
+            }
+        };
+    }
+
+    /**
+     * This record is an archive of a file.
+     *
+     * @param path      The path of the file relative to the project, or {@link #CONSOLE_PATH}.
+     * @param timestamp The timestamp of the archive in milliseconds.
+     * @param file      The archive file, {@code archives/[timestamp].archive}.
+     */
+    public record Archive(String path, long timestamp, Path file) {
+    }
+}
@@ -0,0 +1,157 @@
+package reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * This class collects the archives of a session and writes their {@link ArchiveIndex}. The IDE tracker adds each
+ * archive as it is written and writes the index when the tracking stops; the index of an older session can be built
+ * from its {@code ide_tracking.xml} with {@link #fromXML(Path)}.
+ */
+public class ArchiveIndexWriter {
+    private final Map<String, long[]> timestamps = new HashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    /**
+     * Add an archive.
+     *
+     * @param path      The path of the file relative to the project, or {@link ArchiveIndex#CONSOLE_PATH} for the
+     *                  console.
+     * @param timestamp The timestamp of the archive in milliseconds, i.e., the name of the archive file.
+     */
+    public synchronized void add(String path, long timestamp) {
+        long[] pathTimestamps = timestamps.computeIfAbsent(path, key -> new long[8]);
+        int count = counts.getOrDefault(path, 0);
+        if (count == pathTimestamps.length) {
+            pathTimestamps = Arrays.copyOf(pathTimestamps, count * 2);
+            timestamps.put(path, pathTimestamps);
+        }
+        pathTimestamps[count] = timestamp;
+        counts.put(path, count + 1);
+    }
+
+    public synchronized int size() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Write the index. The paths are sorted by their UTF-8 bytes, and the timestamps of each path are sorted without
+     * duplicates. The index is written to a temporary file first, so a reader never maps a partial index.
+     *
+     * @param file The index file, usually {@code archives/index.bin} in the session directory.
+     */
+    public synchronized void write(Path file) throws IOException {
+        byte[][] paths = new byte[timestamps.size()][];
+        int i = 0;
+        for (String path : timestamps.keySet()) {
+            paths[i++] = path.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(paths, Arrays::compareUnsigned);
+
+        long[][] sortedTimestamps = new long[paths.length][];
+        int entryCount = 0, stringsLength = 0;
+        for (i = 0; i < paths.length; i++) {
+            String path = new String(paths[i], StandardCharsets.UTF_8);
+            long[] pathTimestamps = Arrays.copyOf(timestamps.get(path), counts.get(path));
+            Arrays.sort(pathTimestamps);
+            int unique = 0;
+            for (int j = 0; j < pathTimestamps.length; j++) {
+                if (j == 0 || pathTimestamps[j] != pathTimestamps[j - 1]) {
+                    pathTimestamps[unique++] = pathTimestamps[j];
+                }
+            }
+            sortedTimestamps[i] = Arrays.copyOf(pathTimestamps, unique);
+            entryCount += unique;
+            stringsLength += paths[i].length;
+        }
+
+        long pathTableOffset = ArchiveIndex.HEADER_SIZE;
+        long entriesOffset = pathTableOffset + (long) paths.length * ArchiveIndex.PATH_RECORD_SIZE;
+        long stringsOffset = entriesOffset + (long) entryCount * Long.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (stringsOffset + stringsLength)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ArchiveIndex.MAGIC);
+        buffer.putShort(ArchiveIndex.VERSION);
+        buffer.putShort((short) ArchiveIndex.HEADER_SIZE);
+        buffer.putInt(paths.length);
+        buffer.putInt(entryCount);
+        buffer.putLong(pathTableOffset);
+        buffer.putLong(entriesOffset);
+        buffer.putLong(stringsOffset);
+
+        int firstEntry = 0, stringOffset = 0;
+        for (i = 0; i < paths.length; i++) {
+            int position = (int) pathTableOffset + i * ArchiveIndex.PATH_RECORD_SIZE;
+            buffer.putInt(position, stringOffset);
+            buffer.putInt(position + 4, paths[i].length);
+            buffer.putInt(position + 8, firstEntry);
+            buffer.putInt(position + 12, sortedTimestamps[i].length);
+            for (long timestamp : sortedTimestamps[i]) {
+                buffer.putLong((int) entriesOffset + firstEntry++ * Long.BYTES, timestamp);
+            }
+            buffer.put((int) stringsOffset + stringOffset, paths[i]);
+            stringOffset += paths[i].length;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Collect the archives of the {@code <archive>} elements of an {@code ide_tracking.xml} file. The failed file
+     * archives, which have no archive file, are skipped.
+     *
+     * @param ideTrackingFile The {@code ide_tracking.xml} file.
+     * @return The writer with the archives.
+     */
+    public static ArchiveIndexWriter fromXML(Path ideTrackingFile) throws IOException {
+        ArchiveIndexWriter writer = new ArchiveIndexWriter();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try (InputStream inputStream = Files.newInputStream(ideTrackingFile)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("archives")) {
+                        break; // the archives precede the other events
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("archive")) {
+                        continue;
+                    }
+                    String timestamp = reader.getAttributeValue(null, "timestamp");
+                    String path = reader.getAttributeValue(null, "path");
+                    String remark = reader.getAttributeValue(null, "remark");
+                    if (timestamp != null && (remark == null || !remark.endsWith("Fail"))) {
+                        writer.add(path != null ? path : ArchiveIndex.CONSOLE_PATH, Long.parseLong(timestamp));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Invalid IDE tracking file: " + ideTrackingFile, e);
+        }
+        return writer;
+    }
+}
@@ -0,0 +1,14 @@
+package reader;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * This interface is a lazy iterator over the events of a session, which holds open files until it is closed. The
+ * events are read as the cursor advances, so a cursor never loads a stream file. An {@link java.io.IOException} while
+ * advancing is thrown as an {@link java.io.UncheckedIOException}.
+ *
+ * @param <T> The type of the events.
+ */
+public interface EventCursor<T> extends Iterator<T>, Closeable {
+}
@@ -0,0 +1,187 @@
+package reader;
+
+import api.event.*;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class pull-parses the events of the stream files into {@link TrackerEvent}s, directly from the attributes of a
+ * {@link XMLStreamReader}. Unlike {@link TrackerEvents#fromElement(org.w3c.dom.Element)}, it builds no DOM element
+ * for an event, so an event costs only its record and its strings.
+ */
+final class EventParser {
+
+    private EventParser() {
+    }
+
+    /**
+     * Read an event from the reader, which is at its start tag, up to its end tag.
+     *
+     * @param reader The reader.
+     * @return The event, or {@code null} if the element is not an event, e.g., {@code archive}.
+     */
+    static TrackerEvent read(XMLStreamReader reader) throws XMLStreamException {
+        EventType type = EventType.fromElementName(reader.getLocalName());
+        if (type == EventType.GAZE) {
+            return readGaze(reader);
+        }
+        TrackerEvent event = type == null ? null : readIDEEvent(reader, type);
+        skipElement(reader);
+        return event;
+    }
+
+    private static TrackerEvent readIDEEvent(XMLStreamReader reader, EventType type) {
+        long timestampNanos = getTimestampNanos(reader);
+        String path = getString(reader, "path");
+        return switch (type) {
+            case ACTION -> new ActionEvent(timestampNanos, getString(reader, "id"), path);
+            case TYPING -> {
+                String character = reader.getAttributeValue(null, "character");
+                yield new TypingEvent(timestampNanos, character == null || character.isEmpty() ? '\0'
+                        : character.charAt(0), path, getInt(reader, "line"), getInt(reader, "column"));
+            }
+            case FILE -> {
+                String newPath = getString(reader, "new_path");
+                yield new FileEvent(timestampNanos, getString(reader, "id"), newPath != null ? newPath : path,
+                        getString(reader, "old_path"));
+            }
+            case MOUSE -> new MouseEvent(timestampNanos, getString(reader, "id"), path, getInt(reader, "x"),
+                    getInt(reader, "y"));
+            case CARET -> new CaretEvent(timestampNanos, path, getInt(reader, "line"), getInt(reader, "column"));
+            case SELECTION -> {
+                int[] start = getPosition(reader.getAttributeValue(null, "start_position"));
+                int[] end = getPosition(reader.getAttributeValue(null, "end_position"));
+                yield new SelectionEvent(timestampNanos, path, start[0], start[1], end[0], end[1],
+                        getString(reader, "selected_text"));
+            }
+            case VISIBLE_AREA -> new VisibleAreaEvent(timestampNanos, path, getInt(reader, "x"), getInt(reader, "y"),
+                    getInt(reader, "width"), getInt(reader, "height"));
+            case GAZE, FIXATION -> null;
+        };
+    }
+
+    /**
+     * Read a {@code gaze} element and its children, as {@link TrackerEvents#toGazeEvent(org.w3c.dom.Element)}.
+     */
+    private static GazeEvent readGaze(XMLStreamReader reader) throws XMLStreamException {
+        long timestampNanos = getTimestampNanos(reader);
+        String remark = getString(reader, "remark");
+        double leftX = Double.NaN, leftY = Double.NaN, rightX = Double.NaN, rightY = Double.NaN;
+        double leftPupil = Double.NaN, rightPupil = Double.NaN;
+        String path = null, token = null, tokenType = null;
+        int line = -1, column = -1, x = -1, y = -1;
+        List<String> astLevels = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            depth++;
+            switch (reader.getLocalName()) {
+                case "left_eye" -> {
+                    leftX = getDouble(reader, "gaze_point_x");
+                    leftY = getDouble(reader, "gaze_point_y");
+                    leftPupil = getDouble(reader, "pupil_diameter");
+                }
+                case "right_eye" -> {
+                    rightX = getDouble(reader, "gaze_point_x");
+                    rightY = getDouble(reader, "gaze_point_y");
+                    rightPupil = getDouble(reader, "pupil_diameter");
+                }
+                case "location" -> {
+                    path = getString(reader, "path");
+                    line = getInt(reader, "line");
+                    column = getInt(reader, "column");
+                    x = getInt(reader, "x");
+                    y = getInt(reader, "y");
+                }
+                case "ast_structure" -> {
+                    token = getAttribute(reader, "token");
+                    tokenType = getAttribute(reader, "type");
+                    astLevels = new ArrayList<>();
+                }
+                case "level" -> {
+                    if (astLevels != null) {
+                        astLevels.add(getAttribute(reader, "tag"));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new GazeEvent(timestampNanos, leftX, leftY, rightX, rightY, leftPupil, rightPupil, path, line, column,
+                x, y, token, tokenType, astLevels != null ? List.copyOf(astLevels) : List.of(), remark);
+    }
+
+    /**
+     * Skip the rest of an element, up to its end tag.
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Get the timestamp of the element at the reader in nanoseconds, from {@code timestamp_us} if present and from
+     * {@code timestamp} otherwise, as {@link TrackerEvents#getTimestampNanos(org.w3c.dom.Element)}.
+     *
+     * @return The Unix time in nanoseconds, or {@link Long#MIN_VALUE} if the element has no timestamp.
+     */
+    static long getTimestampNanos(XMLStreamReader reader) {
+        String timestampMicros = reader.getAttributeValue(null, "timestamp_us");
+        if (timestampMicros != null && !timestampMicros.isEmpty()) {
+            return Long.parseLong(timestampMicros) * 1_000;
+        }
+        String timestamp = reader.getAttributeValue(null, "timestamp");
+        return timestamp == null || timestamp.isEmpty() ? Long.MIN_VALUE : Long.parseLong(timestamp) * 1_000_000;
+    }
+
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    private static String getString(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static int getInt(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null || value.isEmpty() ? -1 : Integer.parseInt(value);
+    }
+
+    private static double getDouble(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        // the Python process prints "nan" for invalid samples
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("nan")) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static int[] getPosition(String position) {
+        int separator = position == null ? -1 : position.indexOf(':');
+        if (separator < 0) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{Integer.parseInt(position.substring(0, separator)),
+                Integer.parseInt(position.substring(separator + 1))};
+    }
+}
@@ -0,0 +1,244 @@
+package reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class aligns the frames of the screen recording with the gazes. For each display, the frames are numbered from
+ * {@code 0} in the order of time across all clips, and each frame has its clip, its number in the clip, its
+ * presentation time in the video clip, its time on the session clock, and the range of the {@code gaze_id} of the
+ * gazes shown on it, i.e., the gazes of {@code eye_tracking.xml} in their order. The frames are fixed-size records of a
+ * memory-mapped file, {@code screen_recording/frames.idx}, so seeking to a frame is O(1). The index is written by
+ * {@link FrameIndexWriter}.
+ * <p>
+ * The index is little-endian. The header holds the magic {@code 0x43474649} (int), the version (short), the header
+ * size (short), the number of displays and the number of gazes (int each), the lengths of {@code frames.csv} and
+ * {@code eye_tracking.xml} (long each, {@code -1} without eye tracking), the offsets of the display table, the clip
+ * table, and the frame table (int each), and the total number of frames (int). Each record of the display table holds
+ * the display index, the frame rate, the index of its first clip and its number of clips, and the index of its first
+ * frame and its number of frames (int each). Each record of the clip table holds the clip number, the frame of the
+ * display at which the clip starts, and its number of frames (int each). Each record of the frame table holds the
+ * start and end timestamps and the presentation time, in microseconds (long each), and the clip number, the frame
+ * number in the clip, the first {@code gaze_id}, and the {@code gaze_id} after the last (int each).
+ */
+public class FrameIndex {
+    public static final String FILE_NAME = "frames.idx";
+    public static final int MAGIC = 0x43474649;
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 48;
+    public static final int DISPLAY_RECORD_SIZE = 24;
+    public static final int CLIP_RECORD_SIZE = 12;
+    public static final int FRAME_RECORD_SIZE = 40;
+
+    private final ByteBuffer buffer;
+    private final int displayCount;
+    private final int gazeCount;
+    private final int displayTableOffset;
+    private final int clipTableOffset;
+    private final int frameTableOffset;
+
+    private FrameIndex(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        displayCount = buffer.getInt(8);
+        gazeCount = buffer.getInt(12);
+        displayTableOffset = buffer.getInt(32);
+        clipTableOffset = buffer.getInt(36);
+        frameTableOffset = buffer.getInt(40);
+    }
+
+    /**
+     * Get the index file of a session.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The index file, {@code screen_recording/frames.idx}.
+     */
+    public static Path getIndexFile(Path sessionDirectory) {
+        return sessionDirectory.resolve("screen_recording").resolve(FILE_NAME);
+    }
+
+    /**
+     * Open the frame index of a session. If there is no index, or the index does not match the lengths of
+     * {@code frames.csv} and {@code eye_tracking.xml}, the session is indexed first.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The frame index.
+     */
+    public static FrameIndex open(Path sessionDirectory) throws IOException {
+        Path indexFile = getIndexFile(sessionDirectory);
+        Path framesFile = sessionDirectory.resolve("screen_recording").resolve("frames.csv");
+        Path eyeTrackingFile = sessionDirectory.resolve("eye_tracking.xml");
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Files.exists(indexFile)) {
+                try (FileChannel channel = FileChannel.open(indexFile)) {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    if (buffer.limit() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION
+                            && buffer.getLong(16) == Files.size(framesFile) && buffer.getLong(24)
+                            == (Files.exists(eyeTrackingFile) ? Files.size(eyeTrackingFile) : -1)) {
+                        return new FrameIndex(buffer);
+                    }
+                }
+            }
+            FrameIndexWriter.write(sessionDirectory);
+        }
+        throw new IOException("Invalid frame index of " + sessionDirectory);
+    }
+
+    /**
+     * Get the indices of the recorded displays.
+     *
+     * @return The display indices, sorted.
+     */
+    public int[] getDisplays() {
+        int[] displays = new int[displayCount];
+        for (int i = 0; i < displayCount; i++) {
+            displays[i] = buffer.getInt(displayTableOffset + i * DISPLAY_RECORD_SIZE);
+        }
+        return displays;
+    }
+
+    private int findDisplay(int display) {
+        for (int i = 0; i < displayCount; i++) {
+            int record = displayTableOffset + i * DISPLAY_RECORD_SIZE;
+            if (buffer.getInt(record) == display) {
+                return record;
+            }
+        }
+        throw new IllegalArgumentException("No frames of display " + display);
+    }
+
+    /**
+     * Get the number of gazes of the session when it was indexed.
+     *
+     * @return The number of gazes.
+     */
+    public int getGazeCount() {
+        return gazeCount;
+    }
+
+    public int getFrameRate(int display) {
+        return buffer.getInt(findDisplay(display) + 4);
+    }
+
+    public int getFrameCount(int display) {
+        return buffer.getInt(findDisplay(display) + 20);
+    }
+
+    /**
+     * Get a frame of a display.
+     *
+     * @param display The display index.
+     * @param frame   The frame of the display, from {@code 0} to {@link #getFrameCount(int)} (exclusive).
+     * @return The frame.
+     */
+    public Frame getFrame(int display, int frame) {
+        int displayRecord = findDisplay(display);
+        if (frame < 0 || frame >= buffer.getInt(displayRecord + 20)) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of display " + display);
+        }
+        int record = frameTableOffset + (buffer.getInt(displayRecord + 16) + frame) * FRAME_RECORD_SIZE;
+        return new Frame(buffer.getInt(record + 24), buffer.getInt(record + 28), buffer.getLong(record),
+                buffer.getLong(record + 8), buffer.getLong(record + 16), buffer.getInt(record + 32),
+                buffer.getInt(record + 36));
+    }
+
+    /**
+     * Find a frame of a display by its clip and its number in the clip, e.g., the frame of a video player.
+     *
+     * @param display     The display index.
+     * @param clip        The clip number.
+     * @param frameNumber The frame number in the clip, from {@code 1}.
+     * @return The frame of the display, or {@code -1} if there is no such frame.
+     */
+    public int findFrame(int display, int clip, int frameNumber) {
+        int displayRecord = findDisplay(display);
+        int low = buffer.getInt(displayRecord + 8), high = low + buffer.getInt(displayRecord + 12) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = clipTableOffset + middle * CLIP_RECORD_SIZE;
+            int middleClip = buffer.getInt(record);
+            if (middleClip < clip) {
+                low = middle + 1;
+            } else if (middleClip > clip) {
+                high = middle - 1;
+            } else {
+                return frameNumber >= 1 && frameNumber <= buffer.getInt(record + 8)
+                        ? buffer.getInt(record + 4) + frameNumber - 1 : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the frame of a display shown at a time, e.g., the frame of a gaze.
+     *
+     * @param display         The display index.
+     * @param timestampMicros The time in microseconds.
+     * @return The frame of the display, or {@code -1} if no frame was recorded at the time, e.g., while paused.
+     */
+    public int findFrameAt(int display, long timestampMicros) {
+        int displayRecord = findDisplay(display);
+        int firstFrame = buffer.getInt(displayRecord + 16);
+        int low = 0, high = buffer.getInt(displayRecord + 20) - 1, found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(frameTableOffset + (firstFrame + middle) * FRAME_RECORD_SIZE) <= timestampMicros) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found < 0 || buffer.getLong(frameTableOffset + (firstFrame + found) * FRAME_RECORD_SIZE + 8)
+                <= timestampMicros) {
+            return -1;
+        }
+        return found;
+    }
+
+    /**
+     * Find the first frame of a display grabbed at or after a time, e.g., to read the frames from the time on.
+     *
+     * @param display         The display index.
+     * @param timestampMicros The time in microseconds.
+     * @return The frame of the display, or {@link #getFrameCount(int)} if all frames were grabbed before the time.
+     */
+    public int findFrameFrom(int display, long timestampMicros) {
+        int displayRecord = findDisplay(display);
+        int firstFrame = buffer.getInt(displayRecord + 16);
+        int low = 0, high = buffer.getInt(displayRecord + 20) - 1, found = high + 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(frameTableOffset + (firstFrame + middle) * FRAME_RECORD_SIZE) >= timestampMicros) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * This class is a frame of the screen recording.
+     *
+     * @param clip                The clip number, i.e., the video clip {@code clip_[clip].mp4} of the display.
+     * @param frameNumber         The frame number in the clip, from {@code 1}.
+     * @param timestampMicros     The time when the frame was grabbed, in microseconds.
+     * @param endTimestampMicros  The time when the next frame was grabbed or the clip was closed, in microseconds.
+     * @param presentationMicros  The presentation time of the frame in the video clip, in microseconds.
+     * @param firstGaze           The {@code gaze_id} of the first gaze on the frame.
+     * @param endGaze             The {@code gaze_id} after the last gaze on the frame, equal to {@code firstGaze} if
+     *                            there is none.
+     */
+    public record Frame(int clip, int frameNumber, long timestampMicros, long endTimestampMicros,
+                        long presentationMicros, int firstGaze, int endGaze) {
+        public int getGazeCount() {
+            return endGaze - firstGaze;
+        }
+    }
+}
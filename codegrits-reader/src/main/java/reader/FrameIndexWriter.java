@@ -0,0 +1,286 @@
+package reader;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * This class writes the {@link FrameIndex} of a session from {@code screen_recording/frames.csv},
+ * {@code screen_recording/clips.csv}, and {@code eye_tracking.xml}. A frame is shown from its timestamp to the next
+ * frame of its clip, or to the {@code Pause} or {@code Stop} marker that closes its clip, and its gazes are the gazes
+ * in that time. Since both the frames of a display and the gazes are in the order of time, the gazes of all frames are
+ * found in one linear merge of the two sequences.
+ */
+public class FrameIndexWriter {
+    /**
+     * This variable is the frame rate of the clips recorded before {@code clips.csv} had the {@code frame_rate}
+     * column.
+     */
+    public static final int DEFAULT_FRAME_RATE = 4;
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private FrameIndexWriter() {
+    }
+
+    /**
+     * Index the frames of a session and write the index to {@code screen_recording/frames.idx}.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The index file.
+     */
+    public static Path write(Path sessionDirectory) throws IOException {
+        Path framesFile = sessionDirectory.resolve("screen_recording").resolve("frames.csv");
+        Path clipsFile = sessionDirectory.resolve("screen_recording").resolve("clips.csv");
+        Path eyeTrackingFile = sessionDirectory.resolve("eye_tracking.xml");
+        TreeMap<Integer, DisplayFrames> displays = new TreeMap<>();
+        Map<Integer, Long> clipEnds = new HashMap<>();
+        readFrames(framesFile, displays, clipEnds);
+        readFrameRates(clipsFile, displays);
+        long[] gazeTimestamps = Files.exists(eyeTrackingFile) ? readGazeTimestamps(eyeTrackingFile) : new long[0];
+
+        int frameCount = 0, clipCount = 0;
+        for (DisplayFrames frames : displays.values()) {
+            frames.join(clipEnds, gazeTimestamps);
+            frameCount += frames.size;
+            clipCount += frames.clipCount;
+        }
+        int displayTableOffset = FrameIndex.HEADER_SIZE;
+        int clipTableOffset = displayTableOffset + displays.size() * FrameIndex.DISPLAY_RECORD_SIZE;
+        int frameTableOffset = clipTableOffset + clipCount * FrameIndex.CLIP_RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(frameTableOffset + frameCount * FrameIndex.FRAME_RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FrameIndex.MAGIC);
+        buffer.putShort(FrameIndex.VERSION);
+        buffer.putShort((short) FrameIndex.HEADER_SIZE);
+        buffer.putInt(displays.size());
+        buffer.putInt(gazeTimestamps.length);
+        buffer.putLong(Files.size(framesFile));
+        buffer.putLong(Files.exists(eyeTrackingFile) ? Files.size(eyeTrackingFile) : -1);
+        buffer.putInt(displayTableOffset);
+        buffer.putInt(clipTableOffset);
+        buffer.putInt(frameTableOffset);
+        buffer.putInt(frameCount);
+
+        int displayRecord = displayTableOffset, clipRecord = clipTableOffset, frameRecord = frameTableOffset;
+        int firstClip = 0, firstFrame = 0;
+        for (Map.Entry<Integer, DisplayFrames> entry : displays.entrySet()) {
+            DisplayFrames frames = entry.getValue();
+            buffer.putInt(displayRecord, entry.getKey());
+            buffer.putInt(displayRecord + 4, frames.frameRate);
+            buffer.putInt(displayRecord + 8, firstClip);
+            buffer.putInt(displayRecord + 12, frames.clipCount);
+            buffer.putInt(displayRecord + 16, firstFrame);
+            buffer.putInt(displayRecord + 20, frames.size);
+            displayRecord += FrameIndex.DISPLAY_RECORD_SIZE;
+            for (int i = 0; i < frames.size; i++) {
+                if (i == 0 || frames.clips[i] != frames.clips[i - 1]) {
+                    buffer.putInt(clipRecord, frames.clips[i]);
+                    buffer.putInt(clipRecord + 4, i);
+                    int end = i;
+                    while (end < frames.size && frames.clips[end] == frames.clips[i]) {
+                        end++;
+                    }
+                    buffer.putInt(clipRecord + 8, end - i);
+                    clipRecord += FrameIndex.CLIP_RECORD_SIZE;
+                }
+                buffer.putLong(frameRecord, frames.timestamps[i]);
+                buffer.putLong(frameRecord + 8, frames.endTimestamps[i]);
+                buffer.putLong(frameRecord + 16, (frames.frameNumbers[i] - 1) * 1_000_000L / frames.frameRate);
+                buffer.putInt(frameRecord + 24, frames.clips[i]);
+                buffer.putInt(frameRecord + 28, frames.frameNumbers[i]);
+                buffer.putInt(frameRecord + 32, frames.firstGazes[i]);
+                buffer.putInt(frameRecord + 36, frames.endGazes[i]);
+                frameRecord += FrameIndex.FRAME_RECORD_SIZE;
+            }
+            firstClip += frames.clipCount;
+            firstFrame += frames.size;
+        }
+
+        Path indexFile = FrameIndex.getIndexFile(sessionDirectory);
+        Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return indexFile;
+    }
+
+    /**
+     * Read the frames of each display and the end of each clip, i.e., the timestamp of its {@code Pause} or
+     * {@code Stop} marker, from {@code frames.csv}.
+     */
+    private static void readFrames(Path file, Map<Integer, DisplayFrames> displays, Map<Integer, Long> clipEnds)
+            throws IOException {
+        try (Reader fileReader = Files.newBufferedReader(file); CSVReader reader = new CSVReader(fileReader)) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return;
+            }
+            List<String> columns = Arrays.asList(header);
+            int timestampColumn = columns.indexOf("timestamp"), frameColumn = columns.indexOf("frame_number");
+            int clipColumn = columns.indexOf("clip_number"), displayColumn = columns.indexOf("display");
+            int timestampUsColumn = columns.indexOf("timestamp_us");
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (row.length <= clipColumn) {
+                    continue; // a row cut off by a crash
+                }
+                long timestamp = timestampUsColumn >= 0 && timestampUsColumn < row.length
+                        && !row[timestampUsColumn].isEmpty() ? Long.parseLong(row[timestampUsColumn])
+                        : Long.parseLong(row[timestampColumn]) * 1000;
+                int clip = Integer.parseInt(row[clipColumn]);
+                String frame = row[frameColumn];
+                if (frame.equals("Pause") || frame.equals("Stop")) {
+                    clipEnds.putIfAbsent(clip, timestamp);
+                } else if (!frame.equals("Start") && !frame.equals("Resume")) {
+                    int display = displayColumn >= 0 && displayColumn < row.length && !row[displayColumn].isEmpty()
+                            ? Integer.parseInt(row[displayColumn]) : 0;
+                    displays.computeIfAbsent(display, key -> new DisplayFrames())
+                            .add(timestamp, clip, Integer.parseInt(frame));
+                }
+            }
+        } catch (CsvValidationException | NumberFormatException e) {
+            throw new IOException("Invalid frame file: " + file, e);
+        }
+    }
+
+    private static void readFrameRates(Path file, Map<Integer, DisplayFrames> displays) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader fileReader = Files.newBufferedReader(file); CSVReader reader = new CSVReader(fileReader)) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return;
+            }
+            List<String> columns = Arrays.asList(header);
+            int displayColumn = columns.indexOf("display"), frameRateColumn = columns.indexOf("frame_rate");
+            if (frameRateColumn < 0) {
+                return;
+            }
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (row.length > frameRateColumn && displays.containsKey(Integer.parseInt(row[displayColumn]))) {
+                    displays.get(Integer.parseInt(row[displayColumn])).frameRate = Integer.parseInt(row[frameRateColumn]);
+                }
+            }
+        } catch (CsvValidationException | NumberFormatException e) {
+            throw new IOException("Invalid clip file: " + file, e);
+        }
+    }
+
+    /**
+     * Read the timestamps of the gazes in microseconds, in the order of the file, i.e., the order of their
+     * {@code gaze_id}.
+     */
+    private static long[] readGazeTimestamps(Path file) throws IOException {
+        long[] timestamps = new long[1024];
+        int count = 0;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    } else if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (depth == 3 && reader.getLocalName().equals("gaze")) {
+                            if (count == timestamps.length) {
+                                timestamps = Arrays.copyOf(timestamps, count * 2);
+                            }
+                            String timestampUs = reader.getAttributeValue(null, "timestamp_us");
+                            timestamps[count++] = timestampUs != null ? Long.parseLong(timestampUs)
+                                    : Long.parseLong(reader.getAttributeValue(null, "timestamp")) * 1000;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Invalid stream file: " + file, e);
+        }
+        return Arrays.copyOf(timestamps, count);
+    }
+
+    /**
+     * This class collects the frames of a display in the order of time.
+     */
+    private static final class DisplayFrames {
+        private int size = 0, clipCount = 0;
+        private int frameRate = DEFAULT_FRAME_RATE;
+        private long[] timestamps = new long[256];
+        private long[] endTimestamps;
+        private int[] clips = new int[256];
+        private int[] frameNumbers = new int[256];
+        private int[] firstGazes, endGazes;
+
+        private void add(long timestamp, int clip, int frameNumber) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                clips = Arrays.copyOf(clips, size * 2);
+                frameNumbers = Arrays.copyOf(frameNumbers, size * 2);
+            }
+            if (size == 0 || clips[size - 1] != clip) {
+                clipCount++;
+            }
+            timestamps[size] = timestamp;
+            clips[size] = clip;
+            frameNumbers[size] = frameNumber;
+            size++;
+        }
+
+        /**
+         * Find the end of each frame and the range of its gazes in one merge of the frames and the gazes. A frame
+         * ends at the next frame of its clip, or at the end of its clip, or after one frame period if the clip was
+         * not closed, e.g., when the IDE crashed.
+         */
+        private void join(Map<Integer, Long> clipEnds, long[] gazeTimestamps) {
+            endTimestamps = new long[size];
+            firstGazes = new int[size];
+            endGazes = new int[size];
+            int gaze = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && clips[i + 1] == clips[i]) {
+                    endTimestamps[i] = timestamps[i + 1];
+                } else {
+                    endTimestamps[i] = Math.max(timestamps[i],
+                            clipEnds.getOrDefault(clips[i], timestamps[i] + 1_000_000L / frameRate));
+                }
+                while (gaze < gazeTimestamps.length && gazeTimestamps[gaze] < timestamps[i]) {
+                    gaze++;
+                }
+                firstGazes[i] = gaze;
+                while (gaze < gazeTimestamps.length && gazeTimestamps[gaze] < endTimestamps[i]) {
+                    gaze++;
+                }
+                endGazes[i] = gaze;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package reader;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * This class reads the catalog of the sessions of an output directory, {@code catalog.csv}, and queries it. The
+ * catalog has one row per session with its time range and duration, its labels, the streams present, the environment
+ * of the IDE, the number of events of each kind, and the sizes of its data (see {@link SessionCatalogWriter#COLUMNS}),
+ * so a query does not open any session file. The catalog is written by {@link SessionCatalogWriter}.
+ */
+public class SessionCatalog {
+    public static final String FILE_NAME = "catalog.csv";
+
+    private final List<String> columns;
+    private final Map<String, Integer> columnIndices = new HashMap<>();
+    private final List<String[]> rows;
+
+    private SessionCatalog(List<String> columns, List<String[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndices.put(columns.get(i), i);
+        }
+    }
+
+    /**
+     * Get the catalog file of an output directory.
+     *
+     * @param outputDirectory The output directory, i.e., the parent directory of the sessions.
+     * @return The catalog file, {@code catalog.csv}.
+     */
+    public static Path getCatalogFile(Path outputDirectory) {
+        return outputDirectory.resolve(FILE_NAME);
+    }
+
+    /**
+     * Open the catalog of an output directory.
+     *
+     * @param outputDirectory The output directory.
+     * @return The catalog, empty if there is no catalog file.
+     */
+    public static SessionCatalog open(Path outputDirectory) throws IOException {
+        Path file = getCatalogFile(outputDirectory);
+        if (!Files.exists(file)) {
+            return new SessionCatalog(List.of(SessionCatalogWriter.COLUMNS), new ArrayList<>());
+        }
+        try (Reader fileReader = Files.newBufferedReader(file); CSVReader reader = new CSVReader(fileReader)) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return new SessionCatalog(List.of(SessionCatalogWriter.COLUMNS), new ArrayList<>());
+            }
+            List<String[]> rows = new ArrayList<>();
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                rows.add(row.length == header.length ? row : Arrays.copyOf(row, header.length));
+            }
+            return new SessionCatalog(List.of(header), rows);
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid catalog file: " + file, e);
+        }
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the rows of the sessions, sorted by session.
+     *
+     * @return The rows, in the order of {@link #getColumns()}.
+     */
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    /**
+     * Find the row of a session.
+     *
+     * @param session The name of the session directory.
+     * @return The row, or {@code null} if the session is not in the catalog.
+     */
+    public String[] find(String session) {
+        for (String[] row : rows) {
+            if (session.equals(row[0])) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a value of a row.
+     *
+     * @param row    The row.
+     * @param column The column.
+     * @return The value, or an empty string if the catalog has no such column, e.g., one written by an older version.
+     */
+    public String get(String[] row, String column) {
+        Integer index = columnIndices.get(column);
+        return index == null || row[index] == null ? "" : row[index];
+    }
+
+    /**
+     * Find the sessions that match all conditions.
+     *
+     * @param conditions The conditions.
+     * @return The matching rows, sorted by session.
+     */
+    public List<String[]> query(List<Condition> conditions) {
+        for (Condition condition : conditions) {
+            if (!columnIndices.containsKey(condition.column())) {
+                throw new IllegalArgumentException("Unknown column: " + condition.column());
+            }
+        }
+        List<String[]> matches = new ArrayList<>();
+        for (String[] row : rows) {
+            boolean isMatch = true;
+            for (Condition condition : conditions) {
+                if (!condition.test(get(row, condition.column()))) {
+                    isMatch = false;
+                    break;
+                }
+            }
+            if (isMatch) {
+                matches.add(row);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * This record is a condition on a column of the catalog. The operators are {@code =}, {@code !=}, {@code <},
+     * {@code <=}, {@code >}, {@code >=}, which compare numbers if both sides are numbers and text otherwise, and
+     * {@code ~}, which matches an element of a list column, e.g., a label of {@code labels}.
+     *
+     * @param column   The column.
+     * @param operator The operator.
+     * @param value    The value to compare with.
+     */
+    public record Condition(String column, String operator, String value) {
+        private static final String[] OPERATORS = {">=", "<=", "!=", "=", ">", "<", "~"};
+
+        /**
+         * Parse a condition, e.g., {@code duration_ms>1200000} or {@code labels~reading}.
+         *
+         * @param condition The condition.
+         * @return The condition.
+         */
+        public static Condition parse(String condition) {
+            for (int i = 0; i < condition.length(); i++) {
+                for (String operator : OPERATORS) {
+                    if (condition.startsWith(operator, i)) {
+                        return new Condition(condition.substring(0, i).trim(), operator,
+                                condition.substring(i + operator.length()).trim());
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Invalid condition: " + condition);
+        }
+
+        /**
+         * Test a value of the column.
+         *
+         * @param actual The value of the column.
+         * @return Whether the value satisfies the condition.
+         */
+        public boolean test(String actual) {
+            if (operator.equals("~")) {
+                return Arrays.asList(actual.split(";")).contains(value);
+            }
+            int comparison;
+            try {
+                comparison = Double.compare(Double.parseDouble(actual), Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                comparison = actual.compareTo(value);
+            }
+            return switch (operator) {
+                case "=" -> comparison == 0;
+                case "!=" -> comparison != 0;
+                case "<" -> comparison < 0;
+                case "<=" -> comparison <= 0;
+                case ">" -> comparison > 0;
+                default -> comparison >= 0;
+            };
+        }
+    }
+}
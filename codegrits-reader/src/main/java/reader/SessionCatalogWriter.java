@@ -0,0 +1,253 @@
+package reader;
+
+import com.opencsv.CSVWriter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * This class describes sessions and writes them to the {@link SessionCatalog} of their output directory. The
+ * description of a session is read from the {@link TimeIndex} of its stream files and the start of
+ * {@code ide_tracking.xml}, so the stream files are not parsed, except for the {@code <actions>} section for the
+ * labels. The IDE updates the catalog when a session stops; the catalog of older sessions can be built with
+ * {@code tools.CatalogQuery --update}.
+ */
+public class SessionCatalogWriter {
+    static final String[] ENVIRONMENT_ATTRIBUTES = {"ide_name", "ide_version", "os_name", "java_version",
+            "project_name", "project_path", "screen_size", "scale_x", "scale_y"};
+    /**
+     * These variables are the sections of the stream files that are counted, and their columns in the catalog.
+     */
+    static final String[] IDE_SECTIONS = {"archives", "actions", "typings", "files", "mouses", "carets",
+            "selections", "visible_areas"};
+    static final String[] COUNT_COLUMNS = {"archive_count", "action_count", "typing_count", "file_count",
+            "mouse_count", "caret_count", "selection_count", "visible_area_count", "gaze_count"};
+    static final String[] SIZE_COLUMNS = {"ide_tracking_bytes", "eye_tracking_bytes", "archives_bytes",
+            "screen_recording_bytes", "total_bytes"};
+    public static final String[] COLUMNS;
+
+    static {
+        List<String> columns = new ArrayList<>(List.of("session", "start_timestamp", "end_timestamp", "duration_ms",
+                "labels", "streams"));
+        columns.addAll(List.of(ENVIRONMENT_ATTRIBUTES));
+        columns.addAll(List.of(COUNT_COLUMNS));
+        columns.addAll(List.of(SIZE_COLUMNS));
+        COLUMNS = columns.toArray(new String[0]);
+    }
+
+    /**
+     * This variable holds the prefixes of the ids of the label actions, i.e., {@code CodeGRITS.AddLabel.[label]} as
+     * registered when the plugin starts, and {@code CodeGRITS.AddLabelAction.[label]} as registered when the labels are
+     * changed in the configuration dialog.
+     */
+    private static final List<String> LABEL_ACTION_PREFIXES = List.of("CodeGRITS.AddLabel.[",
+            "CodeGRITS.AddLabelAction.[");
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Describe a session as a row of the catalog.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The row, in the order of {@link #COLUMNS}.
+     */
+    public static String[] describe(Path sessionDirectory) throws IOException {
+        Map<String, String> row = new HashMap<>();
+        row.put("session", sessionDirectory.getFileName().toString());
+        Path ideTrackingFile = sessionDirectory.resolve("ide_tracking.xml");
+        Path eyeTrackingFile = sessionDirectory.resolve("eye_tracking.xml");
+        long startTimestamp = Long.MAX_VALUE, endTimestamp = Long.MIN_VALUE;
+        List<String> streams = new ArrayList<>();
+        if (Files.exists(ideTrackingFile)) {
+            streams.add("ide_tracking");
+            TimeIndex timeIndex = TimeIndex.open(ideTrackingFile);
+            for (int i = 0; i < IDE_SECTIONS.length; i++) {
+                row.put(COUNT_COLUMNS[i], String.valueOf(timeIndex.getEventCount(IDE_SECTIONS[i])));
+                long[] range = timeIndex.getTimeRange(IDE_SECTIONS[i]);
+                if (range != null) {
+                    startTimestamp = Math.min(startTimestamp, range[0]);
+                    endTimestamp = Math.max(endTimestamp, range[1]);
+                }
+            }
+            Set<String> labels = new LinkedHashSet<>();
+            timeIndex.read("actions", Long.MIN_VALUE, Long.MAX_VALUE, action -> {
+                String id = action.getAttribute("id");
+                for (String prefix : LABEL_ACTION_PREFIXES) {
+                    if (id.startsWith(prefix) && id.endsWith("]")) {
+                        labels.add(id.substring(prefix.length(), id.length() - 1));
+                        break;
+                    }
+                }
+            });
+            row.put("labels", String.join(";", labels));
+            row.putAll(readEnvironment(ideTrackingFile));
+        }
+        if (Files.exists(eyeTrackingFile)) {
+            streams.add("eye_tracking");
+            TimeIndex timeIndex = TimeIndex.open(eyeTrackingFile);
+            row.put("gaze_count", String.valueOf(timeIndex.getEventCount("gazes")));
+            long[] range = timeIndex.getTimeRange("gazes");
+            if (range != null) {
+                startTimestamp = Math.min(startTimestamp, range[0]);
+                endTimestamp = Math.max(endTimestamp, range[1]);
+            }
+        }
+        for (String stream : new String[]{"eye_tracking_remapped.xml", "archives", "screen_recording",
+                "latency.csv"}) {
+            if (Files.exists(sessionDirectory.resolve(stream))) {
+                streams.add(stream.replaceFirst("\\.(xml|csv)$", ""));
+            }
+        }
+        row.put("streams", String.join(";", streams));
+        if (startTimestamp <= endTimestamp) {
+            row.put("start_timestamp", String.valueOf(startTimestamp));
+            row.put("end_timestamp", String.valueOf(endTimestamp));
+            row.put("duration_ms", String.valueOf(endTimestamp - startTimestamp));
+        }
+        long ideTrackingBytes = getSize(ideTrackingFile), eyeTrackingBytes = getSize(eyeTrackingFile);
+        long archivesBytes = getSize(sessionDirectory.resolve("archives"));
+        long screenRecordingBytes = getSize(sessionDirectory.resolve("screen_recording"));
+        row.put("ide_tracking_bytes", String.valueOf(ideTrackingBytes));
+        row.put("eye_tracking_bytes", String.valueOf(eyeTrackingBytes));
+        row.put("archives_bytes", String.valueOf(archivesBytes));
+        row.put("screen_recording_bytes", String.valueOf(screenRecordingBytes));
+        row.put("total_bytes", String.valueOf(getSize(sessionDirectory)));
+        String[] values = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            values[i] = row.getOrDefault(COLUMNS[i], "");
+        }
+        return values;
+    }
+
+    /**
+     * Read the attributes of the {@code <environment>} of an {@code ide_tracking.xml} file, which is at its start.
+     */
+    private static Map<String, String> readEnvironment(Path file) throws IOException {
+        Map<String, String> environment = new HashMap<>();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("environment")) {
+                        for (String attribute : ENVIRONMENT_ATTRIBUTES) {
+                            String value = reader.getAttributeValue(null, attribute);
+                            if (value != null) {
+                                environment.put(attribute, value);
+                            }
+                        }
+                        break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid stream file: " + file, e);
+        }
+        return environment;
+    }
+
+    /**
+     * Get the size of a file, or the total size of the files in a directory.
+     *
+     * @return The size in bytes, or {@code 0} if the path does not exist.
+     */
+    private static long getSize(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        if (!Files.isDirectory(path)) {
+            return Files.size(path);
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Check whether the row of a session is out of date, i.e., its stream files have changed since it was described,
+     * or the catalog was written with other columns, e.g., by an older version.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @param catalog          The catalog.
+     * @param row              The row of the session in the catalog.
+     * @return Whether the session should be described again.
+     */
+    public static boolean isStale(Path sessionDirectory, SessionCatalog catalog, String[] row) throws IOException {
+        return !catalog.getColumns().equals(List.of(COLUMNS))
+                || !catalog.get(row, "ide_tracking_bytes")
+                .equals(String.valueOf(getSize(sessionDirectory.resolve("ide_tracking.xml"))))
+                || !catalog.get(row, "eye_tracking_bytes")
+                .equals(String.valueOf(getSize(sessionDirectory.resolve("eye_tracking.xml"))));
+    }
+
+    /**
+     * Describe a session and add it to the catalog of its output directory, i.e., its parent directory.
+     *
+     * @param sessionDirectory The directory of the session.
+     */
+    public static void update(Path sessionDirectory) throws IOException {
+        Path session = sessionDirectory.toAbsolutePath().normalize();
+        merge(session.getParent(), Collections.singletonList(describe(session)));
+    }
+
+    /**
+     * Add rows to the catalog of an output directory, replacing the rows of the same sessions. The catalog file is
+     * locked while it is updated, since several IDEs may write to the same output directory, and written to a
+     * temporary file first, so a reader never sees a partial catalog.
+     *
+     * @param outputDirectory The output directory.
+     * @param rows            The rows, in the order of {@link #COLUMNS}.
+     */
+    public static synchronized void merge(Path outputDirectory, List<String[]> rows) throws IOException {
+        Path file = SessionCatalog.getCatalogFile(outputDirectory);
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                TreeMap<String, String[]> sessions = new TreeMap<>();
+                SessionCatalog catalog = SessionCatalog.open(outputDirectory);
+                for (String[] row : catalog.getRows()) {
+                    String[] values = new String[COLUMNS.length];
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        values[i] = catalog.get(row, COLUMNS[i]);
+                    }
+                    sessions.put(values[0], values);
+                }
+                for (String[] row : rows) {
+                    sessions.put(row[0], row);
+                }
+                Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8);
+                     CSVWriter csvWriter = new CSVWriter(writer)) {
+                    csvWriter.writeNext(COLUMNS);
+                    for (String[] row : sessions.values()) {
+                        csvWriter.writeNext(row);
+                    }
+                }
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+}
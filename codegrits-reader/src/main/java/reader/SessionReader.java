@@ -0,0 +1,315 @@
+package reader;
+
+import api.event.EventType;
+import api.event.GazeEvent;
+import api.event.TrackerEvent;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * This class reads the data of a session without the IDE, as typed, lazy, streaming cursors over its IDE events,
+ * gazes, archives, and frames. The events of the XML files are pull-parsed into {@code api.event} records, without
+ * building DOM elements, and the cursors seek with the {@link TimeIndex} of the files; the archives and the frames are
+ * read from their memory-mapped indexes, {@link ArchiveIndex} and {@link FrameIndex}.
+ * <pre>
+ * SessionReader session = SessionReader.open(sessionDirectory);
+ * try (EventCursor&lt;GazeEvent&gt; gazes = session.readGazes(startTimestamp)) {
+ *     while (gazes.hasNext()) {
+ *         GazeEvent gaze = gazes.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class SessionReader {
+    public static final String IDE_TRACKING_FILE_NAME = "ide_tracking.xml";
+    public static final String EYE_TRACKING_FILE_NAME = "eye_tracking.xml";
+
+    private final Path sessionDirectory;
+
+    private SessionReader(Path sessionDirectory) {
+        this.sessionDirectory = sessionDirectory;
+    }
+
+    /**
+     * Open a session.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The reader of the session.
+     */
+    public static SessionReader open(Path sessionDirectory) throws IOException {
+        if (!Files.isDirectory(sessionDirectory)) {
+            throw new IOException("Not a session directory: " + sessionDirectory);
+        }
+        return new SessionReader(sessionDirectory);
+    }
+
+    public Path getSessionDirectory() {
+        return sessionDirectory;
+    }
+
+    /**
+     * Read the events of all sections of {@code ide_tracking.xml} from a time on, merged in the order of time.
+     *
+     * @param startTimestamp The time in milliseconds from which the events are read, inclusive.
+     * @return The cursor of the events, empty if the session has no {@code ide_tracking.xml}. It must be closed.
+     */
+    public EventCursor<TrackerEvent> readIDEEvents(long startTimestamp) throws IOException {
+        Path streamFile = sessionDirectory.resolve(IDE_TRACKING_FILE_NAME);
+        List<XMLEventCursor<TrackerEvent>> cursors = new ArrayList<>();
+        if (Files.exists(streamFile)) {
+            TimeIndex timeIndex = TimeIndex.open(streamFile);
+            try {
+                for (String section : timeIndex.getSections()) {
+                    if (timeIndex.getEventCount(section) > 0) {
+                        cursors.add(new XMLEventCursor<>(streamFile, timeIndex.openSection(section, startTimestamp),
+                                TrackerEvent.class, startTimestamp));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                for (XMLEventCursor<TrackerEvent> cursor : cursors) {
+                    cursor.close();
+                }
+                throw e;
+            }
+        }
+        return new MergedCursor(cursors);
+    }
+
+    /**
+     * Read the events of a type from a time on, e.g., the {@code CaretEvent}s of the {@code carets} section of
+     * {@code ide_tracking.xml}, or the {@link GazeEvent}s of {@code eye_tracking.xml}.
+     *
+     * @param eventClass     The record class of the events.
+     * @param startTimestamp The time in milliseconds from which the events are read, inclusive.
+     * @return The cursor of the events, empty if the session has none. It must be closed.
+     */
+    public <T extends TrackerEvent> EventCursor<T> readEvents(Class<T> eventClass, long startTimestamp)
+            throws IOException {
+        EventType type = null;
+        for (EventType eventType : EventType.values()) {
+            if (eventType.getEventClass() == eventClass) {
+                type = eventType;
+            }
+        }
+        if (type == null || type == EventType.FIXATION) {
+            throw new IllegalArgumentException("No recorded events of " + eventClass.getSimpleName());
+        }
+        Path streamFile = sessionDirectory.resolve(type == EventType.GAZE ? EYE_TRACKING_FILE_NAME
+                : IDE_TRACKING_FILE_NAME);
+        TimeIndex.Slice slice = Files.exists(streamFile)
+                ? TimeIndex.open(streamFile).openSection(type.getElementName() + "s", startTimestamp) : null;
+        return new XMLEventCursor<>(streamFile, slice, eventClass, startTimestamp);
+    }
+
+    /**
+     * Read the gazes of {@code eye_tracking.xml} from a time on.
+     *
+     * @param startTimestamp The time in milliseconds from which the gazes are read, inclusive.
+     * @return The cursor of the gazes, empty if the session has no {@code eye_tracking.xml}. It must be closed.
+     */
+    public EventCursor<GazeEvent> readGazes(long startTimestamp) throws IOException {
+        return readEvents(GazeEvent.class, startTimestamp);
+    }
+
+    /**
+     * Read the archives of the session, path by path and in the order of time within each path.
+     *
+     * @return The iterator of the archives, empty if the session has no archives.
+     */
+    public Iterator<ArchiveIndex.Archive> readArchives() throws IOException {
+        if (!Files.exists(sessionDirectory.resolve("archives"))) {
+            return Collections.emptyIterator();
+        }
+        return ArchiveIndex.open(sessionDirectory).archives();
+    }
+
+    /**
+     * Read the frames of the screen recording of a display from a time on.
+     *
+     * @param display        The display index, {@code 0} for the default display.
+     * @param startTimestamp The time in milliseconds from which the frames are read, inclusive.
+     * @return The iterator of the frames, empty if the session has no frames of the display.
+     */
+    public Iterator<FrameIndex.Frame> readFrames(int display, long startTimestamp) throws IOException {
+        if (!Files.exists(sessionDirectory.resolve("screen_recording").resolve("frames.csv"))) {
+            return Collections.emptyIterator();
+        }
+        FrameIndex frameIndex = FrameIndex.open(sessionDirectory);
+        if (Arrays.stream(frameIndex.getDisplays()).noneMatch(recorded -> recorded == display)) {
+            return Collections.emptyIterator();
+        }
+        int frameCount = frameIndex.getFrameCount(display);
+        int firstFrame = frameIndex.findFrameFrom(display,
+                startTimestamp == Long.MIN_VALUE ? Long.MIN_VALUE : startTimestamp * 1_000);
+        return new Iterator<>() {
+            private int frame = firstFrame;
+
+            @Override
+            public boolean hasNext() {
+                return frame < frameCount;
+            }
+
+            @Override
+            public FrameIndex.Frame next() {
+                if (frame >= frameCount) {
+                    throw new NoSuchElementException();
+                }
+                return frameIndex.getFrame(display, frame++);
+            }
+        };
+    }
+
+    /**
+     * Open the unified {@link Timeline} of the session from a time on.
+     *
+     * @param startTimestamp The time in milliseconds from which the events are read, inclusive.
+     * @return The timeline, which must be closed.
+     */
+    public Timeline openTimeline(long startTimestamp) throws IOException {
+        return Timeline.open(sessionDirectory, startTimestamp);
+    }
+
+    /**
+     * This class is a cursor over the events of a type in a section of a stream file, which reads one event ahead.
+     */
+    private static final class XMLEventCursor<T extends TrackerEvent> implements EventCursor<T> {
+        private final Path streamFile;
+        private final TimeIndex.Slice slice;
+        private final Class<T> eventClass;
+        private final long startTimestampNanos;
+        private int order;
+        private T next;
+
+        private XMLEventCursor(Path streamFile, TimeIndex.Slice slice, Class<T> eventClass, long startTimestamp)
+                throws IOException {
+            this.streamFile = streamFile;
+            this.slice = slice;
+            this.eventClass = eventClass;
+            this.startTimestampNanos = startTimestamp == Long.MIN_VALUE ? Long.MIN_VALUE
+                    : startTimestamp * 1_000_000;
+            try {
+                advance();
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void advance() throws IOException {
+            next = null;
+            if (slice == null) {
+                return;
+            }
+            XMLStreamReader reader = slice.reader;
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    TrackerEvent event = EventParser.read(reader);
+                    if (eventClass.isInstance(event) && event.timestampNanos() >= startTimestampNanos) {
+                        next = eventClass.cast(event);
+                        return;
+                    }
+                }
+            } catch (XMLStreamException | NumberFormatException e) {
+                throw new IOException("Invalid stream file: " + streamFile, e);
+            }
+        }
+
+        private T peek() {
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T event = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return event;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (slice != null) {
+                slice.close();
+            }
+        }
+    }
+
+    /**
+     * This class merges the cursors of the sections of a stream file in the order of time with a heap of their next
+     * events. Events with the same time are in the order of the sections.
+     */
+    private static final class MergedCursor implements EventCursor<TrackerEvent> {
+        private final List<XMLEventCursor<TrackerEvent>> cursors;
+        private final PriorityQueue<XMLEventCursor<TrackerEvent>> heap;
+
+        private MergedCursor(List<XMLEventCursor<TrackerEvent>> cursors) {
+            this.cursors = cursors;
+            heap = new PriorityQueue<>(Math.max(1, cursors.size()), Comparator
+                    .comparingLong((XMLEventCursor<TrackerEvent> cursor) -> cursor.peek().timestampNanos())
+                    .thenComparingInt(cursor -> cursor.order));
+            for (int i = 0; i < cursors.size(); i++) {
+                XMLEventCursor<TrackerEvent> cursor = cursors.get(i);
+                cursor.order = i;
+                if (cursor.hasNext()) {
+                    heap.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public TrackerEvent next() {
+            XMLEventCursor<TrackerEvent> cursor = heap.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            TrackerEvent event = cursor.next();
+            if (cursor.hasNext()) {
+                heap.add(cursor);
+            }
+            return event;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+            for (XMLEventCursor<TrackerEvent> cursor : cursors) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+            heap.clear();
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+}
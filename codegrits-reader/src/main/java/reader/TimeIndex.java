@@ -0,0 +1,487 @@
+package reader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * This class reads the events of a stream file, e.g., {@code eye_tracking.xml} or {@code ide_tracking.xml}, in a time
+ * window without parsing the file from the start. The sparse index {@code [stream file].idx}, written by
+ * {@link TimeIndexWriter}, holds the byte offset of every {@code interval}-th event of each section; a query seeks to
+ * the last entry before the window and parses only the slice of the file up to the first entry after the window.
+ * <p>
+ * The index is little-endian. The header holds the magic {@code 0x43475449} (int), the version (short), the header
+ * size (short), the interval (int), the number of sections (int), the length of the stream file (long), and the
+ * offsets of the section table, the entries, and the section names (int each). Each record of the section table holds
+ * the offset and the length of the UTF-8 bytes of its name (int each), the index of its first entry and its number of
+ * entries (int each), and its number of events, the offset of its first event and its end offset (long each). Each
+ * entry holds the offset of its event, the maximum timestamp of the events of the section before it, and the minimum
+ * timestamp of the events of the section from it on (long each).
+ */
+public class TimeIndex {
+    public static final int MAGIC = 0x43475449;
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 36;
+    public static final int SECTION_RECORD_SIZE = 40;
+    public static final int ENTRY_SIZE = 24;
+    public static final int CURSOR_BUFFER_SIZE = 64 * 1024;
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final Path streamFile;
+    private final ByteBuffer buffer;
+    private final int sectionCount;
+    private final int sectionTableOffset;
+    private final int entriesOffset;
+    private final int stringsOffset;
+
+    private TimeIndex(Path streamFile, ByteBuffer buffer) {
+        this.streamFile = streamFile;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        sectionCount = buffer.getInt(12);
+        sectionTableOffset = buffer.getInt(24);
+        entriesOffset = buffer.getInt(28);
+        stringsOffset = buffer.getInt(32);
+    }
+
+    /**
+     * Get the index file of a stream file.
+     *
+     * @param streamFile The stream file.
+     * @return The index file, {@code [stream file].idx}.
+     */
+    public static Path getIndexFile(Path streamFile) {
+        return streamFile.resolveSibling(streamFile.getFileName() + ".idx");
+    }
+
+    /**
+     * Open the index of a stream file. If there is no index, or the index does not match the length of the file, the
+     * file is indexed first.
+     *
+     * @param streamFile The stream file.
+     * @return The index.
+     */
+    public static TimeIndex open(Path streamFile) throws IOException {
+        Path indexFile = getIndexFile(streamFile);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Files.exists(indexFile)) {
+                try (FileChannel channel = FileChannel.open(indexFile)) {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    if (buffer.limit() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION
+                            && buffer.getLong(16) == Files.size(streamFile)) {
+                        return new TimeIndex(streamFile, buffer);
+                    }
+                }
+            }
+            TimeIndexWriter.write(streamFile);
+        }
+        throw new IOException("Invalid time index of " + streamFile);
+    }
+
+    /**
+     * Get the names of the sections of the stream, e.g., {@code gazes}, in the order of the file.
+     *
+     * @return The names of the sections.
+     */
+    public List<String> getSections() {
+        List<String> sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            int record = sectionTableOffset + i * SECTION_RECORD_SIZE;
+            byte[] name = new byte[buffer.getInt(record + 4)];
+            buffer.get(stringsOffset + buffer.getInt(record), name);
+            sections.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return sections;
+    }
+
+    /**
+     * Get the number of events of a section.
+     *
+     * @param section The name of the section.
+     * @return The number of events, or {@code 0} if there is no such section.
+     */
+    public long getEventCount(String section) {
+        int record = findSection(section);
+        return record < 0 ? 0 : buffer.getLong(record + 16);
+    }
+
+    /**
+     * Get the timestamps of the first and the last event of a section. Only the events after the last entry are
+     * parsed.
+     *
+     * @param section The name of the section.
+     * @return The minimum and the maximum timestamp in milliseconds, or {@code null} if the section has no events.
+     */
+    public long[] getTimeRange(String section) throws IOException {
+        int record = findSection(section);
+        if (record < 0 || buffer.getInt(record + 12) == 0) {
+            return null;
+        }
+        int lastEntry = getEntry(buffer.getInt(record + 8) + buffer.getInt(record + 12) - 1);
+        long[] range = {buffer.getLong(getEntry(buffer.getInt(record + 8)) + 16), buffer.getLong(lastEntry + 8)};
+        parseSlice(buffer.getLong(lastEntry), buffer.getLong(record + 32), Long.MIN_VALUE, Long.MAX_VALUE,
+                element -> range[1] = Math.max(range[1], Long.parseLong(element.getAttribute("timestamp"))));
+        return range;
+    }
+
+    private int findSection(String section) {
+        List<String> sections = getSections();
+        int index = sections.indexOf(section);
+        return index < 0 ? -1 : sectionTableOffset + index * SECTION_RECORD_SIZE;
+    }
+
+    /**
+     * Read the events of all sections in a time window. The events are passed in the order of the file, i.e., section
+     * by section.
+     *
+     * @param startTimestamp The start of the window in milliseconds, inclusive.
+     * @param endTimestamp   The end of the window in milliseconds, inclusive.
+     * @param consumer       The consumer of the event elements.
+     */
+    public void read(long startTimestamp, long endTimestamp, Consumer<Element> consumer) throws IOException {
+        for (int i = 0; i < sectionCount; i++) {
+            readSection(sectionTableOffset + i * SECTION_RECORD_SIZE, startTimestamp, endTimestamp, consumer);
+        }
+    }
+
+    /**
+     * Read the events of a section in a time window, e.g., the gazes of {@code eye_tracking.xml}. The event elements
+     * are complete, with their child elements, and can be converted with {@code api.event.TrackerEvents}.
+     *
+     * @param section        The name of the section.
+     * @param startTimestamp The start of the window in milliseconds, inclusive.
+     * @param endTimestamp   The end of the window in milliseconds, inclusive.
+     * @param consumer       The consumer of the event elements.
+     */
+    public void read(String section, long startTimestamp, long endTimestamp, Consumer<Element> consumer)
+            throws IOException {
+        int record = findSection(section);
+        if (record >= 0) {
+            readSection(record, startTimestamp, endTimestamp, consumer);
+        }
+    }
+
+    private void readSection(int record, long startTimestamp, long endTimestamp, Consumer<Element> consumer)
+            throws IOException {
+        int firstEntry = buffer.getInt(record + 8), entryCount = buffer.getInt(record + 12);
+        if (entryCount == 0) {
+            return;
+        }
+        int start = findStartEntry(record, startTimestamp);
+        // the first entry from which all events are later than the window
+        int low = start + 1, high = entryCount - 1;
+        int end = entryCount;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(getEntry(firstEntry + middle) + 16) > endTimestamp) {
+                end = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        long startOffset = buffer.getLong(getEntry(firstEntry + start));
+        long endOffset = end < entryCount ? buffer.getLong(getEntry(firstEntry + end)) : buffer.getLong(record + 32);
+        parseSlice(startOffset, endOffset, startTimestamp, endTimestamp, consumer);
+    }
+
+    /**
+     * Find the last entry of a section before which all events are earlier than a time.
+     *
+     * @return The index of the entry in the section.
+     */
+    private int findStartEntry(int record, long startTimestamp) {
+        int firstEntry = buffer.getInt(record + 8);
+        int low = 0, high = buffer.getInt(record + 12) - 1, start = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(getEntry(firstEntry + middle) + 8) < startTimestamp) {
+                start = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return start;
+    }
+
+    private int getEntry(int entry) {
+        return entriesOffset + entry * ENTRY_SIZE;
+    }
+
+    /**
+     * Parse the events in a slice of the stream file, wrapped in a root element, and pass those in the window.
+     */
+    private void parseSlice(long startOffset, long endOffset, long startTimestamp, long endTimestamp,
+                            Consumer<Element> consumer) throws IOException {
+        Document document;
+        try {
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+        try (FileChannel channel = FileChannel.open(streamFile)) {
+            XMLStreamReader reader = openSlice(channel, startOffset, endOffset);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    Element element = readElement(reader, document);
+                    String timestamp = element.getAttribute("timestamp");
+                    if (timestamp.isEmpty()) {
+                        continue;
+                    }
+                    long eventTimestamp = Long.parseLong(timestamp);
+                    if (eventTimestamp >= startTimestamp && eventTimestamp <= endTimestamp) {
+                        consumer.accept(element);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Invalid stream file: " + streamFile, e);
+        }
+    }
+
+    /**
+     * Open a reader over a slice of the stream file, wrapped in a root element, after the start tag of the root.
+     */
+    private static XMLStreamReader openSlice(FileChannel channel, long startOffset, long endOffset)
+            throws IOException, XMLStreamException {
+        channel.position(startOffset);
+        InputStream slice = new SequenceInputStream(new ByteArrayInputStream("<slice>".getBytes()),
+                new SequenceInputStream(new BufferedInputStream(new LimitedInputStream(
+                        Channels.newInputStream(channel), endOffset - startOffset), CURSOR_BUFFER_SIZE),
+                        new ByteArrayInputStream("</slice>".getBytes())));
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(slice, "UTF-8");
+        reader.nextTag(); // <slice>
+        return reader;
+    }
+
+    /**
+     * Open a cursor over the events of a section from a time on, in the order of the file. The cursor parses the
+     * section as it is read, through a buffer of {@link #CURSOR_BUFFER_SIZE} bytes, so it never loads the section.
+     *
+     * @param section        The name of the section.
+     * @param startTimestamp The time in milliseconds from which the events are read, inclusive.
+     * @return The cursor, without events if there is no such section. It must be closed.
+     */
+    public Cursor openCursor(String section, long startTimestamp) throws IOException {
+        return new Cursor(streamFile, openSection(section, startTimestamp), startTimestamp);
+    }
+
+    /**
+     * Open a reader over the events of a section from the last entry before a time on, up to the end of the section.
+     *
+     * @return The slice, or {@code null} if the section has no events.
+     */
+    Slice openSection(String section, long startTimestamp) throws IOException {
+        int record = findSection(section);
+        if (record < 0 || buffer.getInt(record + 12) == 0) {
+            return null;
+        }
+        long startOffset = buffer.getLong(getEntry(buffer.getInt(record + 8) + findStartEntry(record,
+                startTimestamp)));
+        FileChannel channel = FileChannel.open(streamFile);
+        try {
+            return new Slice(channel, openSlice(channel, startOffset, buffer.getLong(record + 32)));
+        } catch (XMLStreamException e) {
+            channel.close();
+            throw new IOException("Invalid stream file: " + streamFile, e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path getStreamFile() {
+        return streamFile;
+    }
+
+    /**
+     * Read an element and its children from the reader, which is at its start tag, up to its end tag.
+     */
+    private static Element readElement(XMLStreamReader reader, Document document) throws XMLStreamException {
+        Element element = document.createElement(reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                element.appendChild(readElement(reader, document));
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return element;
+            } else if (event == XMLStreamConstants.CHARACTERS && !reader.isWhiteSpace()) {
+                element.appendChild(document.createTextNode(reader.getText()));
+            }
+        }
+    }
+
+    /**
+     * This class is a cursor over the events of a section, opened by {@link #openCursor(String, long)}. It reads one
+     * event ahead, and the event elements are complete, as those of {@link #read(String, long, long, Consumer)}.
+     */
+    public static final class Cursor implements EventCursor<Element> {
+        private final Path streamFile;
+        private final Slice slice;
+        private final XMLStreamReader reader;
+        private final long startTimestamp;
+        private final Document document;
+        private Element next;
+
+        private Cursor(Path streamFile, Slice slice, long startTimestamp) throws IOException {
+            this.streamFile = streamFile;
+            this.slice = slice;
+            this.reader = slice != null ? slice.reader : null;
+            this.startTimestamp = startTimestamp;
+            try {
+                document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+                advance();
+            } catch (ParserConfigurationException e) {
+                close();
+                throw new RuntimeException(e);
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void advance() throws IOException {
+            next = null;
+            if (reader == null) {
+                return;
+            }
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    Element element = readElement(reader, document);
+                    String timestamp = element.getAttribute("timestamp");
+                    if (!timestamp.isEmpty() && Long.parseLong(timestamp) >= startTimestamp) {
+                        next = element;
+                        return;
+                    }
+                }
+            } catch (XMLStreamException | NumberFormatException e) {
+                throw new IOException("Invalid stream file: " + streamFile, e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Element next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Element element = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return element;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (slice != null) {
+                slice.close();
+            }
+        }
+    }
+
+    /**
+     * This class is a reader over a slice of the stream file with its channel, which is closed with it.
+     */
+    static final class Slice implements Closeable {
+        private final FileChannel channel;
+        final XMLStreamReader reader;
+
+        private Slice(FileChannel channel, XMLStreamReader reader) {
+            this.channel = channel;
+            this.reader = reader;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * This class is an input stream that ends after a number of bytes.
+     */
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream inputStream;
+        private long remaining;
+
+        private LimitedInputStream(InputStream inputStream, long remaining) {
+            this.inputStream = inputStream;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = inputStream.read();
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = inputStream.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class writes the {@link TimeIndex} of a stream file, e.g., {@code eye_tracking.xml}. It scans the bytes of the
+ * file once with a minimal tag scanner, without parsing the XML, and records the byte offset of every
+ * {@code interval}-th event of each section, e.g., {@code <gazes>} or {@code <carets>}. The events are the elements at
+ * the third level of the document, and their {@code timestamp} attribute is their time in milliseconds.
+ */
+public class TimeIndexWriter {
+    public static final int DEFAULT_INTERVAL = 256;
+    private static final byte[] TIMESTAMP_ATTRIBUTE = "timestamp=".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final int interval;
+    private final List<Section> sections = new ArrayList<>();
+    private Section section;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private TimeIndexWriter(int interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Index a stream file with {@link #DEFAULT_INTERVAL} and write the index next to it.
+     *
+     * @param streamFile The stream file.
+     * @return The index file.
+     */
+    public static Path write(Path streamFile) throws IOException {
+        return write(streamFile, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Index a stream file and write the index next to it, as {@code [stream file].idx}.
+     *
+     * @param streamFile The stream file.
+     * @param interval   The number of events between two entries of the index.
+     * @return The index file.
+     */
+    public static Path write(Path streamFile, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive: " + interval);
+        }
+        TimeIndexWriter writer = new TimeIndexWriter(interval);
+        long streamLength;
+        try (InputStream inputStream = Files.newInputStream(streamFile)) {
+            streamLength = writer.scan(inputStream);
+        }
+        Path indexFile = TimeIndex.getIndexFile(streamFile);
+        writer.writeIndex(indexFile, streamLength);
+        return indexFile;
+    }
+
+    /**
+     * Scan the tags of the stream. Attribute values may contain {@code >}, so the quotes are tracked within a tag.
+     * Only the tags of the first three levels are buffered, since only their names and timestamps are needed.
+     *
+     * @param inputStream The stream.
+     * @return The length of the stream in bytes.
+     */
+    private long scan(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] tag = new byte[256];
+        int tagLength = 0;
+        long position = 0, tagStart = 0;
+        int depth = 0;
+        boolean inTag = false, isSkipping = false;
+        byte quote = 0, previous = 0, beforePrevious = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++, position++) {
+                byte b = buffer[i];
+                if (!inTag) {
+                    if (b == '<') {
+                        inTag = true;
+                        tagStart = position;
+                        tagLength = 0;
+                        isSkipping = depth > 2;
+                        quote = 0;
+                    }
+                } else if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                    if (!isSkipping) {
+                        tag = append(tag, tagLength++, b);
+                    }
+                } else if (b == '>' && !isOpenSpecialTag(tag, tagLength, previous, beforePrevious)) {
+                    inTag = false;
+                    depth = endTag(tag, tagLength, tagStart, position + 1, previous == '/', depth);
+                } else {
+                    if ((b == '"' || b == '\'') && (tagLength == 0 || tag[0] != '!')) {
+                        quote = b;
+                    }
+                    if (!isSkipping || tagLength < 8) {
+                        tag = append(tag, tagLength++, b);
+                    }
+                }
+                beforePrevious = previous;
+                previous = b;
+            }
+        }
+        if (section != null) {
+            closeSection(position);
+        }
+        return position;
+    }
+
+    private static byte[] append(byte[] tag, int length, byte b) {
+        if (length == tag.length) {
+            tag = Arrays.copyOf(tag, length * 2);
+        }
+        tag[length] = b;
+        return tag;
+    }
+
+    /**
+     * Check if a {@code >} is inside a comment or a CDATA section, which only end with {@code -->} and {@code ]]>}.
+     */
+    private static boolean isOpenSpecialTag(byte[] tag, int length, byte previous, byte beforePrevious) {
+        if (length >= 3 && tag[0] == '!' && tag[1] == '-' && tag[2] == '-') {
+            return length < 5 || previous != '-' || beforePrevious != '-';
+        }
+        if (length >= 8 && tag[0] == '!' && tag[1] == '[') {
+            return previous != ']' || beforePrevious != ']';
+        }
+        return false;
+    }
+
+    /**
+     * Process a complete tag.
+     *
+     * @return The depth after the tag.
+     */
+    private int endTag(byte[] tag, int length, long tagStart, long tagEnd, boolean isSelfClosing, int depth) {
+        if (length == 0 || tag[0] == '?' || tag[0] == '!') {
+            return depth;
+        }
+        if (tag[0] == '/') {
+            if (depth == 2 && section != null) {
+                closeSection(tagStart);
+            }
+            return depth - 1;
+        }
+        if (depth == 1) {
+            section = new Section(getName(tag, length), tagEnd);
+            lastTimestamp = Long.MIN_VALUE;
+            if (isSelfClosing) {
+                closeSection(tagEnd);
+            }
+        } else if (depth == 2 && section != null) {
+            addEvent(tagStart, getTimestamp(tag, length));
+        }
+        return isSelfClosing ? depth : depth + 1;
+    }
+
+    private static String getName(byte[] tag, int length) {
+        int end = 0;
+        while (end < length && tag[end] != ' ' && tag[end] != '/' && tag[end] != '\t' && tag[end] != '\n'
+                && tag[end] != '\r') {
+            end++;
+        }
+        return new String(tag, 0, end, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the value of the {@code timestamp} attribute of a tag.
+     *
+     * @return The timestamp, or {@link Long#MIN_VALUE} if there is none.
+     */
+    private static long getTimestamp(byte[] tag, int length) {
+        outer:
+        for (int i = 1; i + TIMESTAMP_ATTRIBUTE.length + 1 < length; i++) {
+            if (tag[i - 1] != ' ' && tag[i - 1] != '\t' && tag[i - 1] != '\n' && tag[i - 1] != '\r') {
+                continue;
+            }
+            for (int j = 0; j < TIMESTAMP_ATTRIBUTE.length; j++) {
+                if (tag[i + j] != TIMESTAMP_ATTRIBUTE[j]) {
+                    continue outer;
+                }
+            }
+            long timestamp = 0;
+            boolean hasDigits = false;
+            for (int k = i + TIMESTAMP_ATTRIBUTE.length + 1; k < length && tag[k] >= '0' && tag[k] <= '9'; k++) {
+                timestamp = timestamp * 10 + (tag[k] - '0');
+                hasDigits = true;
+            }
+            return hasDigits ? timestamp : Long.MIN_VALUE;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private void addEvent(long offset, long timestamp) {
+        if (timestamp == Long.MIN_VALUE) {
+            timestamp = lastTimestamp; // an event without a timestamp is kept with the previous event
+        }
+        lastTimestamp = timestamp;
+        section.add(offset, timestamp, interval);
+    }
+
+    private void closeSection(long endOffset) {
+        section.endOffset = endOffset;
+        sections.add(section);
+        section = null;
+    }
+
+    private void writeIndex(Path indexFile, long streamLength) throws IOException {
+        byte[][] names = new byte[sections.size()][];
+        int entryCount = 0, stringsLength = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = sections.get(i).name.getBytes(StandardCharsets.UTF_8);
+            entryCount += sections.get(i).entryCount;
+            stringsLength += names[i].length;
+        }
+        int sectionTableOffset = TimeIndex.HEADER_SIZE;
+        int entriesOffset = sectionTableOffset + names.length * TimeIndex.SECTION_RECORD_SIZE;
+        int stringsOffset = entriesOffset + entryCount * TimeIndex.ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(stringsOffset + stringsLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(TimeIndex.MAGIC);
+        buffer.putShort(TimeIndex.VERSION);
+        buffer.putShort((short) TimeIndex.HEADER_SIZE);
+        buffer.putInt(interval);
+        buffer.putInt(names.length);
+        buffer.putLong(streamLength);
+        buffer.putInt(sectionTableOffset);
+        buffer.putInt(entriesOffset);
+        buffer.putInt(stringsOffset);
+
+        int firstEntry = 0, stringOffset = 0;
+        for (int i = 0; i < names.length; i++) {
+            Section section = sections.get(i);
+            int record = sectionTableOffset + i * TimeIndex.SECTION_RECORD_SIZE;
+            buffer.putInt(record, stringOffset);
+            buffer.putInt(record + 4, names[i].length);
+            buffer.putInt(record + 8, firstEntry);
+            buffer.putInt(record + 12, section.entryCount);
+            buffer.putLong(record + 16, section.eventCount);
+            buffer.putLong(record + 24, section.startOffset);
+            buffer.putLong(record + 32, section.endOffset);
+            long minTimestamp = Long.MAX_VALUE;
+            for (int k = section.entryCount - 1; k >= 0; k--) {
+                minTimestamp = Math.min(minTimestamp, section.blockMinTimestamps[k]);
+                int entry = entriesOffset + (firstEntry + k) * TimeIndex.ENTRY_SIZE;
+                buffer.putLong(entry, section.offsets[k]);
+                buffer.putLong(entry + 8, section.maxTimestampsBefore[k]);
+                buffer.putLong(entry + 16, minTimestamp);
+            }
+            firstEntry += section.entryCount;
+            buffer.put(stringsOffset + stringOffset, names[i]);
+            stringOffset += names[i].length;
+        }
+
+        Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This class collects the entries of a section. Each entry is the offset of the first event of a block of
+     * {@code interval} events, the maximum timestamp of the events before the block, and the minimum timestamp of the
+     * block, which becomes the minimum timestamp of the events from the block on when the index is written. The
+     * events are thus found even if their timestamps are not strictly in order.
+     */
+    private static final class Section {
+        private final String name;
+        private final long startOffset;
+        private long endOffset;
+        private long eventCount = 0;
+        private int entryCount = 0;
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long[] offsets = new long[16];
+        private long[] maxTimestampsBefore = new long[16];
+        private long[] blockMinTimestamps = new long[16];
+
+        private Section(String name, long startOffset) {
+            this.name = name;
+            this.startOffset = startOffset;
+        }
+
+        private void add(long offset, long timestamp, int interval) {
+            if (eventCount % interval == 0) {
+                if (entryCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, entryCount * 2);
+                    maxTimestampsBefore = Arrays.copyOf(maxTimestampsBefore, entryCount * 2);
+                    blockMinTimestamps = Arrays.copyOf(blockMinTimestamps, entryCount * 2);
+                }
+                offsets[entryCount] = offset;
+                maxTimestampsBefore[entryCount] = maxTimestamp;
+                blockMinTimestamps[entryCount] = timestamp;
+                entryCount++;
+            }
+            blockMinTimestamps[entryCount - 1] = Math.min(blockMinTimestamps[entryCount - 1], timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            eventCount++;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package reader;
+
+import api.event.TrackerEvents;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * This class is the unified timeline of a session. It merges the events of all streams, i.e., each section of
+ * {@code ide_tracking.xml}, e.g., {@code actions} or {@code carets}, the {@code gazes} of {@code eye_tracking.xml}, and
+ * the {@code frames} of {@code screen_recording/frames.csv}, into one sequence in the order of time. Each stream is read
+ * by its own cursor with a bounded buffer, and the streams are merged with a heap of their next events, so the files
+ * are never loaded and reading an event costs {@code O(log k)} for {@code k} streams. The events of each stream are in
+ * the order of time, as they are recorded; events with the same time are in the order of the streams above.
+ * <pre>
+ * try (Timeline timeline = Timeline.open(sessionDirectory, typingTimestamp - 2000)) {
+ *     while (timeline.hasNext()) {
+ *         Timeline.Event event = timeline.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class Timeline implements EventCursor<Timeline.Event> {
+    public static final String GAZE_STREAM = "gazes";
+    public static final String FRAME_STREAM = "frames";
+
+    private final List<Source> sources = new ArrayList<>();
+    private final PriorityQueue<Source> heap = new PriorityQueue<>(Comparator
+            .comparingLong((Source source) -> source.next.timestampMicros()).thenComparingInt(source -> source.order));
+
+    private Timeline() {
+    }
+
+    /**
+     * Open the timeline of a session from its start.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @return The timeline, which must be closed.
+     */
+    public static Timeline open(Path sessionDirectory) throws IOException {
+        return open(sessionDirectory, Long.MIN_VALUE);
+    }
+
+    /**
+     * Open the timeline of a session from a time on. The cursors of the XML files seek to the time with their
+     * {@link TimeIndex}.
+     *
+     * @param sessionDirectory The directory of the session.
+     * @param startTimestamp   The time in milliseconds from which the events are read, inclusive.
+     * @return The timeline, which must be closed.
+     */
+    public static Timeline open(Path sessionDirectory, long startTimestamp) throws IOException {
+        Timeline timeline = new Timeline();
+        try {
+            Path ideTrackingFile = sessionDirectory.resolve("ide_tracking.xml");
+            if (Files.exists(ideTrackingFile)) {
+                TimeIndex timeIndex = TimeIndex.open(ideTrackingFile);
+                for (String section : timeIndex.getSections()) {
+                    if (timeIndex.getEventCount(section) == 0) {
+                        continue; // e.g., <environment>
+                    }
+                    timeline.add(new CursorSource(section, timeIndex.openCursor(section, startTimestamp)));
+                }
+            }
+            Path eyeTrackingFile = sessionDirectory.resolve("eye_tracking.xml");
+            if (Files.exists(eyeTrackingFile)) {
+                timeline.add(new CursorSource(GAZE_STREAM,
+                        TimeIndex.open(eyeTrackingFile).openCursor(GAZE_STREAM, startTimestamp)));
+            }
+            Path framesFile = sessionDirectory.resolve("screen_recording").resolve("frames.csv");
+            if (Files.exists(framesFile)) {
+                timeline.add(new FrameSource(framesFile, startTimestamp));
+            }
+        } catch (IOException | RuntimeException e) {
+            timeline.close();
+            throw e;
+        }
+        return timeline;
+    }
+
+    private void add(Source source) throws IOException {
+        source.order = sources.size();
+        sources.add(source);
+        source.advance();
+        if (source.next != null) {
+            heap.add(source);
+        }
+    }
+
+    /**
+     * Get the streams of the timeline.
+     *
+     * @return The names of the streams, e.g., {@code actions}, {@code gazes}, and {@code frames}.
+     */
+    public List<String> getStreams() {
+        List<String> streams = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            streams.add(source.stream);
+        }
+        return streams;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public Event next() {
+        Source source = heap.poll();
+        if (source == null) {
+            throw new NoSuchElementException();
+        }
+        Event event = source.next;
+        try {
+            source.advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (source.next != null) {
+            heap.add(source);
+        }
+        return event;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (Source source : sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        heap.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * This record is an event of the timeline.
+     *
+     * @param timestampMicros The time of the event in microseconds, from {@code timestamp_us} if present.
+     * @param stream          The stream of the event, e.g., {@code carets}, {@code gazes}, or {@code frames}.
+     * @param element         The event element with its child elements, e.g., {@code <caret>}, or {@code <frame>}
+     *                        with the columns of {@code frames.csv} as its attributes.
+     */
+    public record Event(long timestampMicros, String stream, Element element) {
+    }
+
+    /**
+     * This class is a stream of the timeline with its next event.
+     */
+    private abstract static class Source implements Closeable {
+        private final String stream;
+        private int order;
+        private Event next;
+
+        private Source(String stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Read the next event into {@link #next}, or {@code null} at the end of the stream.
+         */
+        private void advance() throws IOException {
+            Element element = read();
+            next = element == null ? null : new Event(TrackerEvents.getTimestampNanos(element) / 1000, stream,
+                    element);
+        }
+
+        abstract Element read() throws IOException;
+    }
+
+    /**
+     * This class is a stream of a section of an XML file.
+     */
+    private static final class CursorSource extends Source {
+        private final TimeIndex.Cursor cursor;
+
+        private CursorSource(String stream, TimeIndex.Cursor cursor) {
+            super(stream);
+            this.cursor = cursor;
+        }
+
+        @Override
+        Element read() {
+            return cursor.hasNext() ? cursor.next() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            cursor.close();
+        }
+    }
+
+    /**
+     * This class is the stream of the rows of {@code frames.csv}, including the {@code Start}, {@code Pause},
+     * {@code Resume}, and {@code Stop} markers in {@code frame_number}.
+     */
+    private static final class FrameSource extends Source {
+        private final Path file;
+        private final Reader fileReader;
+        private final CSVReader reader;
+        private final String[] columns;
+        private final long startTimestamp;
+        private final Document document;
+
+        private FrameSource(Path file, long startTimestamp) throws IOException {
+            super(FRAME_STREAM);
+            this.file = file;
+            this.startTimestamp = startTimestamp;
+            fileReader = Files.newBufferedReader(file);
+            reader = new CSVReader(fileReader);
+            try {
+                String[] header = reader.readNext();
+                columns = header != null ? header : new String[0];
+                document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            } catch (CsvValidationException e) {
+                reader.close();
+                throw new IOException("Invalid frame file: " + file, e);
+            } catch (ParserConfigurationException e) {
+                reader.close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        Element read() throws IOException {
+            try {
+                String[] row;
+                while ((row = reader.readNext()) != null) {
+                    Element frame = document.createElement("frame");
+                    for (int i = 0; i < Math.min(row.length, columns.length); i++) {
+                        if (!row[i].isEmpty()) {
+                            frame.setAttribute(columns[i], row[i]);
+                        }
+                    }
+                    String timestamp = frame.getAttribute("timestamp");
+                    if (!timestamp.isEmpty() && Long.parseLong(timestamp) >= startTimestamp) {
+                        return frame;
+                    }
+                }
+                return null;
+            } catch (CsvValidationException | NumberFormatException e) {
+                throw new IOException("Invalid frame file: " + file, e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+            fileReader.close();
+        }
+    }
+}
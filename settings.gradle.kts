@@ -5,4 +5,5 @@ pluginManagement {
     }
 }
 
-rootProject.name = "CodeGRITS"
\ No newline at end of file
+rootProject.name = "CodeGRITS"
+include("codegrits-reader")
@@ -0,0 +1,72 @@
+package api;
+
+import api.event.CaretEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the {@link RealtimeEventBus} with 1, 4 and 16 subscribers. {@code publish} measures the
+ * throughput of a publisher while the subscribers keep up in the background. {@code publishAndDeliver} measures the
+ * latency from publishing an event until all subscribers have received it; the sample mode reports its percentiles.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RealtimeEventBusBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int subscribers;
+
+    private RealtimeEventBus eventBus;
+    private RealtimeEventBus.Subscription[] subscriptions;
+    /**
+     * This variable holds the column of the last caret event received by each subscriber, padded to avoid false
+     * sharing between the subscriber threads.
+     */
+    private volatile long[] received;
+    private long sequence = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventBus = new RealtimeEventBus(RealtimeEventBus.DEFAULT_CAPACITY);
+        subscriptions = new RealtimeEventBus.Subscription[subscribers];
+        long[] lastColumns = new long[subscribers * 16];
+        received = lastColumns;
+        for (int i = 0; i < subscribers; i++) {
+            int slot = i * 16;
+            subscriptions[i] = eventBus.subscribe(CaretEvent.class, event -> {
+                lastColumns[slot] = event.column();
+                received = lastColumns; // publish the write to the benchmark thread
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (RealtimeEventBus.Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void publish() {
+        eventBus.publish(new CaretEvent(System.nanoTime(), "Main.java", 1, (int) ++sequence));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void publishAndDeliver() {
+        int column = (int) ++sequence;
+        eventBus.publish(new CaretEvent(System.nanoTime(), "Main.java", 1, column));
+        for (int i = 0; i < subscribers; i++) {
+            while (received[i * 16] < column) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
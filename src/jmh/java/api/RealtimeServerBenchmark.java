@@ -0,0 +1,84 @@
+package api;
+
+import api.event.CaretEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the {@link RealtimeServer} end to end against the {@link RealtimeClient}: an event is
+ * published on the bus, encoded, written to the socket, read and decoded by the client. {@code stream} measures the
+ * events per second the client receives while the publisher does not wait; {@code roundTrip} measures the latency of
+ * a single event, and the sample mode reports its p99.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RealtimeServerBenchmark {
+
+    @Param({"tcp", "unix"})
+    public String transport;
+
+    private RealtimeEventBus eventBus;
+    private RealtimeServer server;
+    private RealtimeClient client;
+    private Path socketPath;
+    private volatile int received = 0;
+    private int sequence = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        eventBus = new RealtimeEventBus(RealtimeEventBus.DEFAULT_CAPACITY);
+        String address = "0";
+        if (transport.equals("unix")) {
+            socketPath = Files.createTempDirectory("codegrits").resolve("realtime.sock");
+            address = socketPath.toString();
+        }
+        server = new RealtimeServer(address);
+        server.start(eventBus);
+        if (server.getLocalAddress() instanceof InetSocketAddress inetAddress) {
+            address = String.valueOf(inetAddress.getPort());
+        }
+        client = new RealtimeClient(address);
+        client.start(event -> received = ((CaretEvent) event).column());
+        while (server.getConnectedClients() == 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        if (socketPath != null) {
+            Files.deleteIfExists(socketPath.getParent());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void stream() {
+        eventBus.publish(new CaretEvent(System.nanoTime(), "src/Main.java", 1, ++sequence));
+        // keep the client within the send buffer, so that it is not disconnected as a slow client
+        while (sequence - received > 10_000) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() {
+        int column = ++sequence;
+        eventBus.publish(new CaretEvent(System.nanoTime(), "src/Main.java", 1, column));
+        while (received < column) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package trackers;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Element;
+import utils.SessionClock;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.awt.*;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the hot paths of the {@link EyeTracker}, which run for every gaze sample: parsing a message of
+ * the Python process into a gaze element, processing it as in a session that records the raw gazes only, and the
+ * upward traversal of the AST for a mapped gaze. The AST is a synthetic chain of PSI elements of a given depth, with
+ * an editor of 80 columns per line, both built as proxies, so the benchmark runs without the IDE. Run it with the GC
+ * profiler to see the allocation per gaze:
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=EyeTrackerBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EyeTrackerBenchmark {
+    private static final int LINE_LENGTH = 80;
+
+    private EyeTracker eyeTracker;
+    private String tobiiMessage;
+    private String mouseMessage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParserConfigurationException {
+        SessionClock.start();
+        long pythonNanos = System.nanoTime();
+        SessionClock.addPythonClockSample(pythonNanos, pythonNanos + 100_000, pythonNanos + 50_000);
+        long timestamp = SessionClock.currentTimeMillis();
+        tobiiMessage = timestamp + "; 0.4812, 0.5123, 1, 3.112, 1; 0.4901, 0.5087, 1, 3.204, 1; " + pythonNanos
+                + ", 123456789012, " + timestamp * 1_000;
+        mouseMessage = timestamp + "; 0.5, 0.5, 1.0, 0, 0.0; 0.5, 0.5, 1.0, 0, 0.0; " + pythonNanos;
+        eyeTracker = new EyeTracker(new Dimension(1920, 1080));
+        eyeTracker.isTracking = true;
+        eyeTracker.isRawGazeOnly = true;
+    }
+
+    @Benchmark
+    public Element getRawGazeElementTobii() {
+        return eyeTracker.getRawGazeElement(tobiiMessage);
+    }
+
+    @Benchmark
+    public Element getRawGazeElementMouse() {
+        return eyeTracker.getRawGazeElement(mouseMessage);
+    }
+
+    /**
+     * The gaze appended to the document is removed again, so the document does not grow during the benchmark.
+     */
+    @Benchmark
+    public void processRawData() {
+        eyeTracker.processRawData(tobiiMessage, System.nanoTime());
+        eyeTracker.gazes.removeChild(eyeTracker.gazes.getLastChild());
+    }
+
+    @Benchmark
+    public Element getASTStructureElement(PsiTree psiTree) {
+        eyeTracker.editor = psiTree.editor;
+        return eyeTracker.getASTStructureElement(psiTree.leaf);
+    }
+
+    /**
+     * This class is a synthetic AST of a file, from an identifier up to the file through {@code depth} levels. Each
+     * level spans one more line on both sides than the level below it.
+     */
+    @State(Scope.Benchmark)
+    public static class PsiTree {
+        private static final IElementType IDENTIFIER = new IElementType("IDENTIFIER", null);
+        private static final IElementType CODE_BLOCK = new IElementType("CODE_BLOCK", null);
+
+        @Param({"8", "32"})
+        public int depth;
+
+        private Editor editor;
+        private PsiElement leaf;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int fileLength = (2 * depth + 1) * LINE_LENGTH;
+            PsiElement parent = createElement(PsiFile.class, "PsiJavaFile:Main.java", "",
+                    new TextRange(0, fileLength), null, CODE_BLOCK);
+            for (int level = 1; level < depth; level++) {
+                TextRange range = new TextRange(level * LINE_LENGTH + 4, fileLength - level * LINE_LENGTH);
+                parent = createElement(PsiElement.class, "PsiCodeBlock", "{...}", range, parent, CODE_BLOCK);
+            }
+            int start = depth * LINE_LENGTH + 16;
+            leaf = createElement(PsiElement.class, "PsiIdentifier:main", "main", new TextRange(start, start + 4),
+                    parent, IDENTIFIER);
+            editor = (Editor) Proxy.newProxyInstance(Editor.class.getClassLoader(), new Class<?>[]{Editor.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("offsetToLogicalPosition")) {
+                            int offset = (int) args[0];
+                            return new LogicalPosition(offset / LINE_LENGTH, offset % LINE_LENGTH);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private static PsiElement createElement(Class<? extends PsiElement> type, String name, String text,
+                                                TextRange range, PsiElement parent, IElementType elementType) {
+            ASTNode node = (ASTNode) Proxy.newProxyInstance(ASTNode.class.getClassLoader(),
+                    new Class<?>[]{ASTNode.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getElementType" -> elementType;
+                        case "toString" -> name;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+            return (PsiElement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getText" -> text;
+                        case "getTextLength" -> range.getLength();
+                        case "getTextRange" -> range;
+                        case "getParent" -> parent;
+                        case "getNode" -> node;
+                        case "toString" -> name;
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package trackers;
+
+import com.intellij.openapi.editor.LogicalPosition;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This class benchmarks the hot paths of the {@link IDETracker}: the XML elements built by its listeners for every
+ * caret move, mouse move, keystroke, and action, and archiving a file, which the timer does every time a file changes.
+ * The tracker is built without the IDE. The elements appended to the document are removed again, so the document does
+ * not grow during the benchmark, while the archives written in an iteration are deleted after it. Run it with the GC
+ * profiler to see the allocation per event:
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=IDETrackerBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IDETrackerBenchmark {
+    private static final String PROJECT_PATH = "/home/developer/IdeaProjects/CodeGRITS";
+    private static final LogicalPosition POSITION = new LogicalPosition(42, 17);
+
+    private Path directory;
+    private String sourceFilePath;
+    private String sourceText;
+    private IDETracker ideTracker;
+    private long timestamp = 1_700_000_000_000L;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("codegrits");
+        StringBuilder text = new StringBuilder("package trackers;\n\npublic class Main {\n");
+        for (int i = 0; i < 100; i++) {
+            text.append("    private int field").append(i).append(" = ").append(i).append("; // line ").append(i)
+                    .append('\n');
+        }
+        sourceText = text.append("}\n").toString();
+        Path sourceFile = directory.resolve("Main.java");
+        Files.writeString(sourceFile, sourceText);
+        sourceFilePath = sourceFile.toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws ParserConfigurationException, IOException {
+        Files.createDirectories(directory.resolve("session").resolve("archives"));
+        ideTracker = new IDETracker(directory.resolve("session").toString());
+        ideTracker.setProjectPath(PROJECT_PATH);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws IOException {
+        delete(directory.resolve("session"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(directory);
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Element addCaretElement() {
+        Element caretElement = ideTracker.addCaretElement(PROJECT_PATH + "/src/Main.java", POSITION);
+        ideTracker.carets.removeChild(caretElement);
+        return caretElement;
+    }
+
+    @Benchmark
+    public Element getMouseElement() {
+        Element mouseElement = ideTracker.getMouseElement("mouseMoved", PROJECT_PATH + "/src/Main.java", 640, 400);
+        ideTracker.mouses.appendChild(mouseElement);
+        ideTracker.mouses.removeChild(mouseElement);
+        return mouseElement;
+    }
+
+    @Benchmark
+    public Element addTypingElement() {
+        Element typingElement = ideTracker.addTypingElement('a', PROJECT_PATH + "/src/Main.java", POSITION);
+        ideTracker.typings.removeChild(typingElement);
+        return typingElement;
+    }
+
+    @Benchmark
+    public Element addActionElement() {
+        Element actionElement = ideTracker.addActionElement("EditorBackSpace", PROJECT_PATH + "/src/Main.java");
+        ideTracker.actions.removeChild(actionElement);
+        return actionElement;
+    }
+
+    /**
+     * Archive the changed text of a file, as the timer does.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void archiveFileText() {
+        ideTracker.archiveFile(sourceFilePath, String.valueOf(timestamp++), "contentChanged", sourceText);
+    }
+
+    /**
+     * Archive a file by copying it, as when a file is opened or closed.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void archiveFileCopy() {
+        ideTracker.archiveFile(sourceFilePath, String.valueOf(timestamp++), "fileOpened", null);
+    }
+}
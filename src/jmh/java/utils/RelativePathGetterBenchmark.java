@@ -0,0 +1,31 @@
+package utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks {@link RelativePathGetter#getRelativePath(String, String)}, which the trackers call for every
+ * event with a file, for a file in the project and a file outside it.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RelativePathGetterBenchmark {
+    private final String projectPath = "/home/developer/IdeaProjects/CodeGRITS";
+    private final String projectFilePath = projectPath + "/src/main/java/trackers/EyeTracker.java";
+    private final String externalFilePath = "/home/developer/.jdks/corretto-17/lib/src.zip!/java/lang/String.java";
+
+    @Benchmark
+    public String getRelativePathInProject() {
+        return RelativePathGetter.getRelativePath(projectFilePath, projectPath);
+    }
+
+    @Benchmark
+    public String getRelativePathOutsideProject() {
+        return RelativePathGetter.getRelativePath(externalFilePath, projectPath);
+    }
+}
@@ -0,0 +1,95 @@
+package utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks {@link XMLWriter#writeToXML(Document, String)} on the document of an eye-tracking session of
+ * 10,000 and 100,000 mapped gazes, i.e., about 1.5 and 15 minutes at 120 Hz, which is written when the tracking stops.
+ * Run it with the GC profiler to see the allocation per document:
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=XMLWriterBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XMLWriterBenchmark {
+    private static final long START_TIMESTAMP = 1_700_000_000_000L;
+
+    @Param({"10000", "100000"})
+    public int gazeCount;
+
+    private Path file;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParserConfigurationException, IOException {
+        file = Files.createTempFile("eye_tracking", ".xml");
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = document.createElement("eye_tracking");
+        document.appendChild(root);
+        Element setting = document.createElement("setting");
+        setting.setAttribute("eye_tracker", "Mouse");
+        setting.setAttribute("sample_frequency", "120.0");
+        root.appendChild(setting);
+        Element gazes = document.createElement("gazes");
+        root.appendChild(gazes);
+        for (int i = 0; i < gazeCount; i++) {
+            long timestamp = START_TIMESTAMP + i * 8L;
+            Element gaze = document.createElement("gaze");
+            gaze.setAttribute("timestamp", String.valueOf(timestamp));
+            gaze.setAttribute("timestamp_us", String.valueOf(timestamp * 1_000));
+            for (String eye : new String[]{"left_eye", "right_eye"}) {
+                Element eyeElement = document.createElement(eye);
+                eyeElement.setAttribute("gaze_point_x", "0.4812");
+                eyeElement.setAttribute("gaze_point_y", "0.5123");
+                eyeElement.setAttribute("gaze_validity", "1.0");
+                eyeElement.setAttribute("pupil_diameter", "3.112");
+                eyeElement.setAttribute("pupil_validity", "1.0");
+                gaze.appendChild(eyeElement);
+            }
+            Element location = document.createElement("location");
+            location.setAttribute("x", "924");
+            location.setAttribute("y", "553");
+            location.setAttribute("line", String.valueOf(i % 200));
+            location.setAttribute("column", "16");
+            location.setAttribute("path", "/src/main/java/trackers/EyeTracker.java");
+            gaze.appendChild(location);
+            Element astStructure = document.createElement("ast_structure");
+            astStructure.setAttribute("token", "main");
+            astStructure.setAttribute("type", "IDENTIFIER");
+            for (String tag : new String[]{"PsiIdentifier:main", "PsiMethod:main", "PsiClass:Main"}) {
+                Element level = document.createElement("level");
+                level.setAttribute("tag", tag);
+                level.setAttribute("start", "3:4");
+                level.setAttribute("end", "9:5");
+                astStructure.appendChild(level);
+            }
+            gaze.appendChild(astStructure);
+            gazes.appendChild(gaze);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeToXML() throws TransformerException {
+        XMLWriter.writeToXML(document, file.toString());
+    }
+}
@@ -1,5 +1,6 @@
 package actions;
 
+import api.RealtimeDataImpl;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -7,15 +8,23 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import components.ConfigDialog;
 import entity.Config;
 import org.jetbrains.annotations.NotNull;
+import reader.SessionCatalog;
+import reader.SessionCatalogWriter;
 import trackers.EyeTracker;
 import trackers.IDETracker;
 import trackers.ScreenRecorder;
+import trackers.SyntheticGazeSource;
 import utils.AvailabilityChecker;
+import utils.JFREvents;
+import utils.LatencyMonitor;
+import utils.SessionClock;
+import utils.TelemetryMonitor;
 
 import javax.swing.*;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Objects;
 
 /**
@@ -35,6 +44,10 @@ public class StartStopTrackingAction extends AnAction {
      * This variable is the eye tracker.
      */
     private static EyeTracker eyeTracker;
+    /**
+     * This variable is the output directory of the current session.
+     */
+    private static String sessionOutputPath;
     /**
      * This variable is the screen recorder.
      */
@@ -71,7 +84,7 @@ public class StartStopTrackingAction extends AnAction {
         }
         try {
             if (!isTracking) {
-                if (config.getCheckBoxes().get(1)) {
+                if (config.getCheckBoxes().get(1) && config.getEyeTrackerDevice() != EyeTracker.SYNTHETIC_DEVICE_INDEX) {
                     if (!AvailabilityChecker.checkPythonEnvironment(config.getPythonInterpreter())) {
                         JOptionPane.showMessageDialog(null, "Python interpreter not found. Please configure the plugin first.");
                         return;
@@ -81,20 +94,45 @@ public class StartStopTrackingAction extends AnAction {
                         return;
                     }
                 }
+                SyntheticGazeSource syntheticGazeSource = null;
+                if (config.getCheckBoxes().get(1) && config.getEyeTrackerDevice() == EyeTracker.SYNTHETIC_DEVICE_INDEX) {
+                    try {
+                        syntheticGazeSource = SyntheticGazeSource.parse(config.getSyntheticGazeSource(),
+                                config.getSampleFreq());
+                    } catch (IllegalArgumentException ex) {
+                        JOptionPane.showMessageDialog(null, ex.getMessage());
+                        return;
+                    }
+                }
 
                 isTracking = true;
+                SessionClock.start();
+                LatencyMonitor.getInstance().reset();
+                TelemetryMonitor.getInstance().reset();
+                JFREvents.setEnabled(config.isJfrEventsEnabled());
                 ConfigAction.setIsEnabled(false);
                 AddLabelActionGroup.setIsEnabled(true);
                 String projectPath = e.getProject() != null ? e.getProject().getBasePath() : "";
                 String realDataOutputPath = Objects.equals(config.getDataOutputPath(), ConfigDialog.selectDataOutputPlaceHolder)
                         ? projectPath : config.getDataOutputPath();
                 realDataOutputPath += "/" + System.currentTimeMillis() + "/";
+                sessionOutputPath = realDataOutputPath;
 
                 if (config.getCheckBoxes().get(2)) {
                     screenRecorder.setDataOutputPath(realDataOutputPath);
+                    screenRecorder.setDisplays(config.getScreenRecordingDisplays());
+                    screenRecorder.setMode(config.getScreenRecordingMode());
+                    screenRecorder.setRingSeconds(config.getScreenRecordingBufferSeconds());
                     screenRecorder.startRecording();
                 }
 
+                if (!config.getRealtimeServerAddress().isEmpty()) {
+                    RealtimeDataImpl.getInstance().startServer(config.getRealtimeServerAddress());
+                }
+                if (!config.getRealtimeSharedMemoryPath().isEmpty()) {
+                    RealtimeDataImpl.getInstance().startSharedMemory(config.getRealtimeSharedMemoryPath());
+                }
+
                 iDETracker = IDETracker.getInstance();
                 iDETracker.setProjectPath(projectPath);
                 iDETracker.setDataOutputPath(realDataOutputPath);
@@ -107,6 +145,8 @@ public class StartStopTrackingAction extends AnAction {
                     eyeTracker.setPythonInterpreter(config.getPythonInterpreter());
                     eyeTracker.setSampleFrequency(config.getSampleFreq());
                     eyeTracker.setDeviceIndex(config.getEyeTrackerDevice());
+                    eyeTracker.setRawGazeOnly(config.getGazeMappingMode() == 1);
+                    eyeTracker.setSyntheticGazeSource(syntheticGazeSource);
                     eyeTracker.setPythonScriptTobii();
                     eyeTracker.setPythonScriptMouse();
                     eyeTracker.startTracking(e.getProject());
@@ -125,12 +165,33 @@ public class StartStopTrackingAction extends AnAction {
                     screenRecorder.stopRecording();
                 }
                 eyeTracker = null;
+                RealtimeDataImpl.getInstance().stopServer();
+                RealtimeDataImpl.getInstance().stopSharedMemory();
+                LatencyMonitor.getInstance().writeToCSV(sessionOutputPath);
+                TelemetryMonitor.getInstance().writeToJson(sessionOutputPath);
+                JFREvents.setEnabled(false);
+                updateSessionCatalog(Path.of(sessionOutputPath));
             }
         } catch (ParserConfigurationException | TransformerException | IOException | InterruptedException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Add the stopped session to the {@link SessionCatalog} of the output directory in the background.
+     *
+     * @param session The directory of the session.
+     */
+    private static void updateSessionCatalog(Path session) {
+        new Thread(() -> {
+            try {
+                SessionCatalogWriter.update(session);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, "CodeGRITS Session Catalog").start();
+    }
+
     public static boolean isTracking() {
         return isTracking;
     }
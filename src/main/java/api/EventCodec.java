@@ -0,0 +1,275 @@
+package api;
+
+import api.event.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is the binary codec of the {@link TrackerEvent}s streamed by the {@link RealtimeServer}. All numbers are
+ * big-endian. Each frame is length-prefixed:
+ * <pre>
+ * int    length of the rest of the frame
+ * byte   event type, the ordinal of {@link EventType}
+ * long   timestamp in nanoseconds
+ * ...    the fields of the event in the order of its record components
+ * </pre>
+ * An {@code int} or {@code double} field is written as is, a {@code char} as two bytes, and a string as its length in
+ * bytes ({@code -1} for {@code null}) followed by its UTF-8 bytes. The AST levels of a gaze are written as their count
+ * followed by the strings. A frame projected by a {@link SubscriptionFilter} only contains the fields in its field
+ * mask.
+ */
+public final class EventCodec {
+    /**
+     * This variable is the size of the length prefix of a frame.
+     */
+    public static final int LENGTH_SIZE = 4;
+    /**
+     * This variable is the flag in the type byte of a frame projected to a subset of the fields.
+     */
+    static final int PROJECTED = 0x80;
+
+    private EventCodec() {
+    }
+
+    /**
+     * Encode an event as a frame at the position of the buffer.
+     *
+     * @param event  The event.
+     * @param buffer The buffer, which must be big-endian.
+     * @throws BufferOverflowException If the frame does not fit into the buffer.
+     */
+    public static void encode(TrackerEvent event, ByteBuffer buffer) {
+        encode(event, buffer, SubscriptionFilter.ALL_FIELDS);
+    }
+
+    /**
+     * Encode an event as a frame at the position of the buffer, keeping only the fields in the field mask (see
+     * {@link SubscriptionFilter#getFieldMask(EventType)}). A projected frame sets the highest bit of the type byte and
+     * writes the field mask (int) after the timestamp.
+     *
+     * @param event     The event.
+     * @param buffer    The buffer, which must be big-endian.
+     * @param fieldMask The field mask, or {@link SubscriptionFilter#ALL_FIELDS}.
+     * @throws BufferOverflowException If the frame does not fit into the buffer.
+     */
+    public static void encode(TrackerEvent event, ByteBuffer buffer, int fieldMask) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        boolean isProjected = fieldMask != SubscriptionFilter.ALL_FIELDS;
+        buffer.put((byte) (event.type().ordinal() | (isProjected ? PROJECTED : 0)));
+        buffer.putLong(event.timestampNanos());
+        if (isProjected) {
+            buffer.putInt(fieldMask);
+        }
+        int m = fieldMask;
+        if (event instanceof GazeEvent gaze) {
+            putDouble(buffer, m, 0, gaze.leftX());
+            putDouble(buffer, m, 1, gaze.leftY());
+            putDouble(buffer, m, 2, gaze.rightX());
+            putDouble(buffer, m, 3, gaze.rightY());
+            putDouble(buffer, m, 4, gaze.leftPupil());
+            putDouble(buffer, m, 5, gaze.rightPupil());
+            putString(buffer, m, 6, gaze.path());
+            putInt(buffer, m, 7, gaze.line());
+            putInt(buffer, m, 8, gaze.column());
+            putInt(buffer, m, 9, gaze.x());
+            putInt(buffer, m, 10, gaze.y());
+            putString(buffer, m, 11, gaze.token());
+            putString(buffer, m, 12, gaze.tokenType());
+            if (has(m, 13)) {
+                buffer.putInt(gaze.astLevels().size());
+                for (String level : gaze.astLevels()) {
+                    putString(buffer, level);
+                }
+            }
+            putString(buffer, m, 14, gaze.remark());
+        } else if (event instanceof FixationEvent fixation) {
+            if (has(m, 0)) {
+                buffer.putLong(fixation.durationNanos());
+            }
+            putDouble(buffer, m, 1, fixation.screenX());
+            putDouble(buffer, m, 2, fixation.screenY());
+            putInt(buffer, m, 3, fixation.sampleCount());
+        } else if (event instanceof ActionEvent action) {
+            putString(buffer, m, 0, action.id());
+            putString(buffer, m, 1, action.path());
+        } else if (event instanceof TypingEvent typing) {
+            if (has(m, 0)) {
+                buffer.putChar(typing.character());
+            }
+            putString(buffer, m, 1, typing.path());
+            putInt(buffer, m, 2, typing.line());
+            putInt(buffer, m, 3, typing.column());
+        } else if (event instanceof FileEvent file) {
+            putString(buffer, m, 0, file.id());
+            putString(buffer, m, 1, file.path());
+            putString(buffer, m, 2, file.oldPath());
+        } else if (event instanceof MouseEvent mouse) {
+            putString(buffer, m, 0, mouse.id());
+            putString(buffer, m, 1, mouse.path());
+            putInt(buffer, m, 2, mouse.x());
+            putInt(buffer, m, 3, mouse.y());
+        } else if (event instanceof CaretEvent caret) {
+            putString(buffer, m, 0, caret.path());
+            putInt(buffer, m, 1, caret.line());
+            putInt(buffer, m, 2, caret.column());
+        } else if (event instanceof SelectionEvent selection) {
+            putString(buffer, m, 0, selection.path());
+            putInt(buffer, m, 1, selection.startLine());
+            putInt(buffer, m, 2, selection.startColumn());
+            putInt(buffer, m, 3, selection.endLine());
+            putInt(buffer, m, 4, selection.endColumn());
+            putString(buffer, m, 5, selection.selectedText());
+        } else if (event instanceof VisibleAreaEvent visibleArea) {
+            putString(buffer, m, 0, visibleArea.path());
+            putInt(buffer, m, 1, visibleArea.x());
+            putInt(buffer, m, 2, visibleArea.y());
+            putInt(buffer, m, 3, visibleArea.width());
+            putInt(buffer, m, 4, visibleArea.height());
+        }
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    /**
+     * Encode an event as a frame into a new array.
+     *
+     * @param event The event.
+     * @return The frame.
+     */
+    public static byte[] encode(TrackerEvent event) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (true) {
+            try {
+                encode(event, buffer);
+                byte[] frame = new byte[buffer.position()];
+                buffer.flip().get(frame);
+                return frame;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Decode the frame at the position of the buffer. The position is moved to the end of the frame. The fields left
+     * out by a projection are {@code null}, -1, {@link Double#NaN}, or empty.
+     *
+     * @param buffer The buffer holding at least one complete frame, which must be big-endian.
+     * @return The event, or {@code null} if the event type is unknown, e.g., sent by a newer version.
+     */
+    public static TrackerEvent decode(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+        int typeByte = buffer.get() & 0xFF;
+        int typeIndex = typeByte & ~PROJECTED;
+        long timestampNanos = buffer.getLong();
+        int m = (typeByte & PROJECTED) != 0 ? buffer.getInt() : SubscriptionFilter.ALL_FIELDS;
+        EventType[] types = EventType.values();
+        TrackerEvent event = null;
+        if (typeIndex < types.length) {
+            event = switch (types[typeIndex]) {
+                case GAZE -> {
+                    double leftX = getDouble(buffer, m, 0), leftY = getDouble(buffer, m, 1),
+                            rightX = getDouble(buffer, m, 2), rightY = getDouble(buffer, m, 3),
+                            leftPupil = getDouble(buffer, m, 4), rightPupil = getDouble(buffer, m, 5);
+                    String path = getString(buffer, m, 6);
+                    int line = getInt(buffer, m, 7), column = getInt(buffer, m, 8), x = getInt(buffer, m, 9),
+                            y = getInt(buffer, m, 10);
+                    String token = getString(buffer, m, 11);
+                    String tokenType = getString(buffer, m, 12);
+                    List<String> levels = List.of();
+                    if (has(m, 13)) {
+                        int levelCount = buffer.getInt();
+                        List<String> tags = new ArrayList<>(levelCount);
+                        for (int i = 0; i < levelCount; i++) {
+                            tags.add(getString(buffer));
+                        }
+                        levels = List.copyOf(tags);
+                    }
+                    yield new GazeEvent(timestampNanos, leftX, leftY, rightX, rightY, leftPupil, rightPupil, path,
+                            line, column, x, y, token, tokenType, levels, getString(buffer, m, 14));
+                }
+                case FIXATION -> new FixationEvent(timestampNanos, has(m, 0) ? buffer.getLong() : -1,
+                        getDouble(buffer, m, 1), getDouble(buffer, m, 2), getInt(buffer, m, 3));
+                case ACTION -> new ActionEvent(timestampNanos, getString(buffer, m, 0), getString(buffer, m, 1));
+                case TYPING -> new TypingEvent(timestampNanos, has(m, 0) ? buffer.getChar() : '\0',
+                        getString(buffer, m, 1), getInt(buffer, m, 2), getInt(buffer, m, 3));
+                case FILE -> new FileEvent(timestampNanos, getString(buffer, m, 0), getString(buffer, m, 1),
+                        getString(buffer, m, 2));
+                case MOUSE -> new MouseEvent(timestampNanos, getString(buffer, m, 0), getString(buffer, m, 1),
+                        getInt(buffer, m, 2), getInt(buffer, m, 3));
+                case CARET -> new CaretEvent(timestampNanos, getString(buffer, m, 0), getInt(buffer, m, 1),
+                        getInt(buffer, m, 2));
+                case SELECTION -> new SelectionEvent(timestampNanos, getString(buffer, m, 0), getInt(buffer, m, 1),
+                        getInt(buffer, m, 2), getInt(buffer, m, 3), getInt(buffer, m, 4), getString(buffer, m, 5));
+                case VISIBLE_AREA -> new VisibleAreaEvent(timestampNanos, getString(buffer, m, 0),
+                        getInt(buffer, m, 1), getInt(buffer, m, 2), getInt(buffer, m, 3), getInt(buffer, m, 4));
+            };
+        }
+        buffer.position(end);
+        return event;
+    }
+
+    private static boolean has(int fieldMask, int field) {
+        return (fieldMask & (1 << field)) != 0;
+    }
+
+    private static void putDouble(ByteBuffer buffer, int fieldMask, int field, double value) {
+        if (has(fieldMask, field)) {
+            buffer.putDouble(value);
+        }
+    }
+
+    private static void putInt(ByteBuffer buffer, int fieldMask, int field, int value) {
+        if (has(fieldMask, field)) {
+            buffer.putInt(value);
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, int fieldMask, int field, String value) {
+        if (has(fieldMask, field)) {
+            putString(buffer, value);
+        }
+    }
+
+    private static double getDouble(ByteBuffer buffer, int fieldMask, int field) {
+        return has(fieldMask, field) ? buffer.getDouble() : Double.NaN;
+    }
+
+    private static int getInt(ByteBuffer buffer, int fieldMask, int field) {
+        return has(fieldMask, field) ? buffer.getInt() : -1;
+    }
+
+    private static String getString(ByteBuffer buffer, int fieldMask, int field) {
+        return has(fieldMask, field) ? getString(buffer) : null;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (!buffer.hasArray()) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,381 @@
+package api;
+
+import api.event.TrackerEvent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * This class is a {@link Flow.Publisher} of the events of the {@link RealtimeEventBus}, with demand-driven
+ * backpressure. Each subscriber receives at most as many events as it has requested. The events that arrive while there
+ * is no demand are kept in a bounded buffer per subscription, and an {@link OverflowStrategy} decides what happens when
+ * the buffer is full.
+ * <p>
+ * The publishing is asynchronous: the events are taken from the bus by the thread of the bus subscription, which
+ * only adds them to the buffer, and the subscribers are called on the executor of the publisher. The trackers thus
+ * never wait for the subscribers, and the signals to each subscriber are serialized as required by
+ * {@link Flow.Subscriber}.
+ *
+ * @param <T> The type of the events.
+ */
+public class EventPublisher<T extends TrackerEvent> implements Flow.Publisher<T>, AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+
+    /**
+     * This enum is what a subscription does with a new event when its buffer is full.
+     */
+    public enum OverflowStrategy {
+        /**
+         * Drop the new event and keep the buffered events.
+         */
+        DROP,
+        /**
+         * Drop the oldest buffered event, so the buffer always holds the latest events.
+         */
+        LATEST,
+        /**
+         * Keep only the latest event of each key, e.g., of each event type or file; a new event replaces the buffered
+         * event with the same key. When the buffer is full of events with other keys, the oldest one is dropped.
+         */
+        CONFLATE
+    }
+
+    private final RealtimeEventBus eventBus;
+    private final Class<T> type;
+    private final SubscriptionFilter filter;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean isClosed = false;
+
+    /**
+     * The constructor of the publisher of all events of a type, e.g., {@code GazeEvent.class}.
+     *
+     * @param eventBus The event bus.
+     * @param type     The class of the events.
+     */
+    public EventPublisher(RealtimeEventBus eventBus, Class<T> type) {
+        this(eventBus, type, new SubscriptionFilter(SubscriptionFilter.toTypeMask(type), null, 0, null), null);
+    }
+
+    /**
+     * The constructor of the publisher.
+     *
+     * @param eventBus The event bus.
+     * @param type     The class of the events; the events of the filter must be instances of it.
+     * @param filter   The filter of the events.
+     * @param executor The executor that calls the subscribers, or {@code null} for a pool of daemon threads, which
+     *                 exit when idle.
+     */
+    public EventPublisher(RealtimeEventBus eventBus, Class<T> type, SubscriptionFilter filter, Executor executor) {
+        this.eventBus = eventBus;
+        this.type = type;
+        this.filter = filter;
+        this.executor = executor != null ? executor : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "CodeGRITS Event Publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribe with a buffer of {@link #DEFAULT_BUFFER_SIZE} events that drops the new events when full.
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, OverflowStrategy.DROP, null);
+    }
+
+    /**
+     * Subscribe with a buffer of the given size and overflow strategy.
+     *
+     * @param subscriber    The subscriber.
+     * @param bufferSize    The maximum number of buffered events.
+     * @param strategy      The overflow strategy.
+     * @param conflationKey The key of an event for {@link OverflowStrategy#CONFLATE}, e.g., {@code TrackerEvent::path},
+     *                      or {@code null} for the event type.
+     * @return The subscription, which is also passed to {@link Flow.Subscriber#onSubscribe(Flow.Subscription)}.
+     */
+    public Subscription subscribe(Flow.Subscriber<? super T> subscriber, int bufferSize, OverflowStrategy strategy,
+                                  Function<? super T, ?> conflationKey) {
+        Objects.requireNonNull(subscriber);
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive: " + bufferSize);
+        }
+        Subscription subscription = new Subscription(subscriber, bufferSize, strategy,
+                conflationKey == null ? TrackerEvent::type : conflationKey);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Complete all subscriptions after their buffered events are delivered. Later subscriptions are completed at once.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * This class is the subscription of one subscriber, with its buffer and demand.
+     */
+    public class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final int bufferSize;
+        private final OverflowStrategy strategy;
+        private final Function<? super T, ?> conflationKey;
+        /**
+         * This variable is the buffer of {@link OverflowStrategy#DROP} and {@link OverflowStrategy#LATEST}.
+         */
+        private final ArrayDeque<T> queue;
+        /**
+         * This variable is the buffer of {@link OverflowStrategy#CONFLATE}, in the order of the first event of each
+         * key.
+         */
+        private final LinkedHashMap<Object, T> conflated;
+        private final AtomicLong requested = new AtomicLong();
+        /**
+         * This variable counts the pending drain requests, so that only one drain runs at a time.
+         */
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile RealtimeEventBus.Subscription busSubscription;
+        private volatile boolean isCancelled = false;
+        private volatile boolean isCompleted = false;
+        private volatile Throwable error;
+        private volatile long deliveredEvents = 0, droppedEvents = 0, conflatedEvents = 0;
+
+        private Subscription(Flow.Subscriber<? super T> subscriber, int bufferSize, OverflowStrategy strategy,
+                             Function<? super T, ?> conflationKey) {
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.strategy = strategy;
+            this.conflationKey = conflationKey;
+            queue = strategy == OverflowStrategy.CONFLATE ? null : new ArrayDeque<>(Math.min(bufferSize, 1024));
+            conflated = strategy == OverflowStrategy.CONFLATE ? new LinkedHashMap<>() : null;
+        }
+
+        /**
+         * Call {@link Flow.Subscriber#onSubscribe(Flow.Subscription)} and subscribe to the bus. This counts as a running
+         * drain, so the signals requested during {@code onSubscribe} are delivered after it returns.
+         */
+        private void start() {
+            pendingDrains.set(1);
+            executor.execute(() -> {
+                try {
+                    subscriber.onSubscribe(this);
+                } catch (Throwable e) {
+                    terminate();
+                    e.printStackTrace();
+                    return;
+                }
+                if (isClosed) {
+                    isCompleted = true;
+                } else if (!isCancelled) {
+                    busSubscription = eventBus.subscribe(filter, event -> offer(type.cast(event)));
+                    if (isCancelled || isCompleted) {
+                        busSubscription.close(); // cancelled or completed while subscribing
+                    }
+                }
+                runDrain();
+            });
+        }
+
+        /**
+         * Add an event to the buffer, applying the overflow strategy. This method is called by the thread of the bus
+         * subscription and never waits for the subscriber.
+         *
+         * @param event The event.
+         */
+        private void offer(T event) {
+            synchronized (this) {
+                if (strategy == OverflowStrategy.CONFLATE) {
+                    Object key = conflationKey.apply(event);
+                    if (conflated.containsKey(key)) {
+                        conflated.put(key, event);
+                        conflatedEvents++;
+                    } else {
+                        if (conflated.size() >= bufferSize) {
+                            Iterator<Map.Entry<Object, T>> oldest = conflated.entrySet().iterator();
+                            oldest.next();
+                            oldest.remove();
+                            droppedEvents++;
+                        }
+                        conflated.put(key, event);
+                    }
+                } else if (queue.size() < bufferSize) {
+                    queue.add(event);
+                } else if (strategy == OverflowStrategy.LATEST) {
+                    queue.poll();
+                    queue.add(event);
+                    droppedEvents++;
+                } else {
+                    droppedEvents++;
+                    return;
+                }
+            }
+            if (requested.get() > 0) {
+                drain();
+            }
+        }
+
+        private synchronized T poll() {
+            if (queue != null) {
+                return queue.poll();
+            }
+            Iterator<T> iterator = conflated.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            T event = iterator.next();
+            iterator.remove();
+            return event;
+        }
+
+        private synchronized boolean isEmpty() {
+            return queue != null ? queue.isEmpty() : conflated.isEmpty();
+        }
+
+        /**
+         * Schedule a drain of the buffer on the executor, unless one is already running.
+         */
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::runDrain);
+                } catch (RejectedExecutionException e) {
+                    pendingDrains.set(0);
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Deliver the buffered events as long as there is demand, and the completion or error at the end of the
+         * buffer. Only one drain runs at a time, so the subscriber is never called concurrently.
+         */
+        private void runDrain() {
+            int missed = 1;
+            do {
+                while (!isCancelled) {
+                    if (error != null) {
+                        terminate();
+                        subscriber.onError(error);
+                        return;
+                    }
+                    if (requested.get() == 0) {
+                        break;
+                    }
+                    T event = poll();
+                    if (event == null) {
+                        break;
+                    }
+                    requested.decrementAndGet();
+                    try {
+                        subscriber.onNext(event);
+                    } catch (Throwable e) {
+                        cancel();
+                        e.printStackTrace();
+                        return;
+                    }
+                    deliveredEvents++;
+                }
+                if (!isCancelled && isCompleted && isEmpty()) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Request more events.
+         *
+         * @param n The number of events, or {@link Long#MAX_VALUE} for no backpressure.
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("The number of requested events must be positive: " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        /**
+         * Cancel the subscription. The buffered events are discarded.
+         */
+        @Override
+        public void cancel() {
+            if (!isCancelled) {
+                terminate();
+            }
+        }
+
+        private void terminate() {
+            isCancelled = true;
+            if (busSubscription != null) {
+                busSubscription.close();
+            }
+            subscriptions.remove(this);
+            synchronized (this) {
+                if (queue != null) {
+                    queue.clear();
+                } else {
+                    conflated.clear();
+                }
+            }
+        }
+
+        private void complete() {
+            isCompleted = true;
+            if (busSubscription != null) {
+                busSubscription.close();
+            }
+            drain();
+        }
+
+        public long getRequested() {
+            return requested.get();
+        }
+
+        public long getDeliveredEvents() {
+            return deliveredEvents;
+        }
+
+        /**
+         * Get the number of events dropped because the buffer was full.
+         *
+         * @return The number of events.
+         */
+        public long getDroppedEvents() {
+            return droppedEvents;
+        }
+
+        /**
+         * Get the number of events replaced by a later event with the same key, with {@link OverflowStrategy#CONFLATE}.
+         *
+         * @return The number of events.
+         */
+        public long getConflatedEvents() {
+            return conflatedEvents;
+        }
+    }
+}
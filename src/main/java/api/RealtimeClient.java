@@ -0,0 +1,199 @@
+package api;
+
+import api.event.TrackerEvent;
+import utils.SessionClock;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * This class is the reference client of the {@link RealtimeServer}. It can be embedded in an analysis tool, or run
+ * from the command line to measure the events per second and the latency of the stream:
+ * <pre>
+ * java -cp CodeGRITS.jar api.RealtimeClient [ADDRESS] [SECONDS] [FILTER]
+ * </pre>
+ * The optional filter is a {@link SubscriptionFilter} specification, e.g., {@code types=fixation;paths=/src/**}.
+ * The latency is the time from the timestamp of an event to its decoding by the client, both on the wall-clock based
+ * session timeline, so it is only accurate to the agreement of the clocks of the two processes.
+ */
+public class RealtimeClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+    private Thread thread;
+    private volatile boolean isRunning = false;
+
+    /**
+     * The constructor of the client. The client connects and checks the header of the stream.
+     *
+     * @param address The address, see {@link RealtimeServer#toSocketAddress(String)}.
+     */
+    public RealtimeClient(String address) throws IOException {
+        SocketAddress socketAddress = RealtimeServer.toSocketAddress(address);
+        channel = socketAddress instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        channel.connect(socketAddress);
+        buffer.limit(0);
+        fill(6);
+        if (buffer.getInt() != RealtimeServer.MAGIC) {
+            channel.close();
+            throw new IOException("Not a CodeGRITS real-time data server: " + address);
+        }
+        short version = buffer.getShort();
+        if (version > RealtimeServer.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported stream version " + version);
+        }
+    }
+
+    /**
+     * The constructor of the client that only receives the events accepted by a filter.
+     *
+     * @param address The address, see {@link RealtimeServer#toSocketAddress(String)}.
+     * @param filter  The filter, evaluated by the server.
+     */
+    public RealtimeClient(String address, SubscriptionFilter filter) throws IOException {
+        this(address);
+        setFilter(filter);
+    }
+
+    /**
+     * Send a filter to the server, which replaces the previous filter of this client.
+     *
+     * @param filter The filter.
+     */
+    public void setFilter(SubscriptionFilter filter) throws IOException {
+        byte[] specification = filter.toSpecification().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer request = ByteBuffer.allocate(Integer.BYTES + specification.length);
+        request.putInt(specification.length).put(specification).flip();
+        synchronized (channel) {
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+        }
+    }
+
+    /**
+     * Start reading the events on a background thread.
+     *
+     * @param consumer The consumer of the events.
+     */
+    public void start(Consumer<? super TrackerEvent> consumer) {
+        isRunning = true;
+        thread = new Thread(() -> {
+            try {
+                while (isRunning) {
+                    TrackerEvent event = read();
+                    if (event != null) {
+                        consumer.accept(event);
+                    }
+                }
+            } catch (IOException e) {
+                if (isRunning) {
+                    e.printStackTrace();
+                }
+            }
+        }, "CodeGRITS Realtime Client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Read the next event, blocking until a complete frame is received.
+     *
+     * @return The event, or {@code null} if its type is unknown.
+     * @throws EOFException If the server closed the stream.
+     */
+    public TrackerEvent read() throws IOException {
+        fill(EventCodec.LENGTH_SIZE);
+        int length = buffer.getInt(buffer.position());
+        fill(EventCodec.LENGTH_SIZE + length);
+        return EventCodec.decode(buffer);
+    }
+
+    /**
+     * Read from the channel until at least the given number of bytes are buffered.
+     *
+     * @param bytes The number of bytes.
+     */
+    private void fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The server closed the stream");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        channel.close();
+    }
+
+    /**
+     * Connect to a server and print the events per second and the latency percentiles once per second.
+     *
+     * @param args The address (default {@code 12346}), the duration in seconds (default 10), and the filter
+     *             specification (default all events).
+     */
+    public static void main(String[] args) throws IOException {
+        String address = args.length > 0 ? args[0] : "12346";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        SubscriptionFilter filter = args.length > 2 ? SubscriptionFilter.parse(args[2]) : SubscriptionFilter.ALL;
+        try (RealtimeClient client = new RealtimeClient(address, filter)) {
+            long[] latencies = new long[1 << 20];
+            int count = 0;
+            long totalEvents = 0;
+            long windowStart = System.nanoTime();
+            long end = windowStart + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                TrackerEvent event = client.read();
+                if (event != null) {
+                    if (count < latencies.length) {
+                        latencies[count] = SessionClock.nanoTime() - event.timestampNanos();
+                    }
+                    count++;
+                }
+                long now = System.nanoTime();
+                if (now - windowStart >= 1_000_000_000L) {
+                    printStatistics(latencies, count, now - windowStart);
+                    totalEvents += count;
+                    count = 0;
+                    windowStart = now;
+                }
+            }
+            totalEvents += count;
+            System.out.println("total events: " + totalEvents);
+        }
+    }
+
+    private static void printStatistics(long[] latencies, int count, long windowNanos) {
+        int samples = Math.min(count, latencies.length);
+        Arrays.sort(latencies, 0, samples);
+        double eventsPerSecond = count * 1e9 / windowNanos;
+        if (samples == 0) {
+            System.out.printf("%.0f events/s%n", eventsPerSecond);
+            return;
+        }
+        System.out.printf("%.0f events/s, latency p50 %.1f us, p99 %.1f us, max %.1f us%n", eventsPerSecond,
+                latencies[samples / 2] / 1e3, latencies[(int) (samples * 0.99)] / 1e3, latencies[samples - 1] / 1e3);
+    }
+}
@@ -1,29 +1,45 @@
 package api;
 
+import api.event.EventType;
+import api.event.FixationEvent;
+import api.event.GazeEvent;
+import api.event.TrackerEvent;
+import entity.Config;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import trackers.EyeTracker;
 import trackers.IDETracker;
+import trackers.SyntheticGazeSource;
+import utils.DwellAggregator;
+import utils.LatencyMonitor;
+import utils.RelativePathGetter;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.Socket;
+import java.nio.file.Path;
 import java.util.function.Consumer;
 
 /**
- * This class provides the API for getting real-time data from the IDE and eye tracker.
+ * This class provides the API for getting real-time data from the IDE and eye tracker. The data is delivered as typed
+ * {@link TrackerEvent}s through the {@link RealtimeEventBus}; each subscriber has its own thread, so a slow subscriber
+ * never blocks the trackers.
  */
 public class RealtimeDataImpl {
 
     // make it singleton
     private static RealtimeDataImpl realtimeData = new RealtimeDataImpl();
-    Socket socket;
-    InputStream dataInputStream;
     private Consumer<String> ideTrackerDataHandler;
     private Consumer<String> eyeTrackerDataHandler;
+    private RealtimeEventBus.Subscription ideTrackerSubscription;
+    private RealtimeEventBus.Subscription eyeTrackerSubscription;
+    private RealtimeServer server;
+    private SharedMemoryExporter sharedMemoryExporter;
+    private EventPublisher<GazeEvent> eyeTrackerPublisher;
+    private EventPublisher<TrackerEvent> ideTrackerPublisher;
     private static IDETracker ideTracker;
     private static EyeTracker eyeTracker;
 
@@ -38,55 +54,295 @@ public class RealtimeDataImpl {
         System.out.println("Hello World!");
     }
 
+    /**
+     * Subscribe to all events of the trackers.
+     *
+     * @param consumer The consumer of the events, called on the thread of the subscription.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    public RealtimeEventBus.Subscription subscribe(Consumer<? super TrackerEvent> consumer) {
+        return RealtimeEventBus.getInstance().subscribe(consumer);
+    }
+
+    /**
+     * Subscribe to the events of a type, e.g., {@code GazeEvent.class}.
+     *
+     * @param type     The class of the events.
+     * @param consumer The consumer of the events, called on the thread of the subscription.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    public <T extends TrackerEvent> RealtimeEventBus.Subscription subscribe(Class<T> type, Consumer<? super T> consumer) {
+        return RealtimeEventBus.getInstance().subscribe(type, consumer);
+    }
+
+    /**
+     * Subscribe to the events accepted by a filter, e.g., {@code SubscriptionFilter.parse("types=fixation;paths=/src/**")}.
+     * The trackers do not build the events that no subscription accepts.
+     *
+     * @param filter   The filter of the events.
+     * @param consumer The consumer of the events, called on the thread of the subscription.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    public RealtimeEventBus.Subscription subscribe(SubscriptionFilter filter, Consumer<? super TrackerEvent> consumer) {
+        return RealtimeEventBus.getInstance().subscribe(filter, consumer);
+    }
+
+    /**
+     * Get the publisher of the gazes, with demand-driven backpressure. Each subscriber requests the gazes it can
+     * handle; the others are buffered per subscription and dropped by its {@link EventPublisher.OverflowStrategy}, e.g.,
+     * {@code getEyeTrackerPublisher().subscribe(subscriber, 1, EventPublisher.OverflowStrategy.LATEST, null)} to always
+     * get the latest gaze.
+     *
+     * @return The publisher.
+     */
+    public synchronized EventPublisher<GazeEvent> getEyeTrackerPublisher() {
+        if (eyeTrackerPublisher == null) {
+            eyeTrackerPublisher = new EventPublisher<>(RealtimeEventBus.getInstance(), GazeEvent.class);
+        }
+        return eyeTrackerPublisher;
+    }
+
+    /**
+     * Get the publisher of the IDE events, i.e., all events except gazes and fixations, with demand-driven backpressure.
+     *
+     * @return The publisher.
+     */
+    public synchronized EventPublisher<TrackerEvent> getIDETrackerPublisher() {
+        if (ideTrackerPublisher == null) {
+            int typeMask = SubscriptionFilter.ALL_TYPES & ~SubscriptionFilter.toTypeMask(EventType.GAZE, EventType.FIXATION);
+            ideTrackerPublisher = new EventPublisher<>(RealtimeEventBus.getInstance(), TrackerEvent.class,
+                    new SubscriptionFilter(typeMask, null, 0, null), null);
+        }
+        return ideTrackerPublisher;
+    }
+
+    /**
+     * Start the local streaming server, which streams all events of the trackers to external tools. See
+     * {@link RealtimeServer} for the protocol and {@link RealtimeClient} for a reference client.
+     *
+     * @param address A TCP port on the loopback interface, e.g., {@code 12346}, or the path of a Unix domain socket.
+     */
+    public synchronized void startServer(String address) throws IOException {
+        stopServer();
+        server = new RealtimeServer(address);
+        server.start(RealtimeEventBus.getInstance());
+    }
+
+    /**
+     * Stop the local streaming server and disconnect all clients.
+     */
+    public synchronized void stopServer() throws IOException {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    public RealtimeServer getServer() {
+        return server;
+    }
+
+    /**
+     * Start exporting all events of the trackers to a ring buffer in a memory-mapped file, which processes on the same
+     * machine read without a system call per event. See {@link SharedMemoryExporter} for the layout of the file and
+     * {@link SharedMemoryReader} for a reference reader.
+     *
+     * @param path The path of the file, e.g., {@code /dev/shm/codegrits} on Linux.
+     */
+    public synchronized void startSharedMemory(String path) throws IOException {
+        startSharedMemory(Path.of(path), SharedMemoryExporter.DEFAULT_CAPACITY, SubscriptionFilter.ALL);
+    }
+
+    /**
+     * Start exporting the events of the trackers accepted by a filter to a ring buffer in a memory-mapped file.
+     *
+     * @param path     The path of the file.
+     * @param capacity The number of records of the ring, a power of two.
+     * @param filter   The filter of the events.
+     */
+    public synchronized void startSharedMemory(Path path, int capacity, SubscriptionFilter filter) throws IOException {
+        stopSharedMemory();
+        sharedMemoryExporter = new SharedMemoryExporter(path, capacity);
+        sharedMemoryExporter.start(RealtimeEventBus.getInstance(), filter);
+    }
+
+    /**
+     * Stop exporting to the memory-mapped file and mark it as closed for the readers.
+     */
+    public synchronized void stopSharedMemory() {
+        if (sharedMemoryExporter != null) {
+            sharedMemoryExporter.close();
+            sharedMemoryExporter = null;
+        }
+    }
+
+    public SharedMemoryExporter getSharedMemoryExporter() {
+        return sharedMemoryExporter;
+    }
+
+    /**
+     * Get the latency monitor, which measures how stale the real-time data is at each stage of its delivery, from the
+     * eye tracker to the subscribers.
+     *
+     * @return The latency monitor.
+     */
+    public LatencyMonitor getLatencyMonitor() {
+        return LatencyMonitor.getInstance();
+    }
+
+    /**
+     * Get the aggregator of the dwell time of the gaze per file, line, and code element, which is updated as the gazes
+     * are mapped.
+     *
+     * @return The dwell aggregator.
+     */
+    public DwellAggregator getDwellAggregator() {
+        return DwellAggregator.getInstance();
+    }
+
+    /**
+     * Get the dwell time of the gaze on a code element, e.g., a method, including its children.
+     *
+     * @param element      The code element.
+     * @param windowMillis The sliding window ending now in milliseconds, or {@code 0} for the whole session.
+     * @return The dwell time in milliseconds.
+     */
+    public double getDwellTime(PsiElement element, long windowMillis) {
+        PsiFile psiFile = element.getContainingFile();
+        if (psiFile == null || psiFile.getVirtualFile() == null || element.getProject().getBasePath() == null) {
+            return 0;
+        }
+        String path = RelativePathGetter.getRelativePath(psiFile.getVirtualFile().getPath(),
+                element.getProject().getBasePath());
+        TextRange range = element.getTextRange();
+        long windowNanos = windowMillis > 0 ? windowMillis * 1_000_000 : DwellAggregator.CUMULATIVE;
+        return DwellAggregator.getInstance().getElementDwellNanos(path, range.getStartOffset(), range.getEndOffset(),
+                windowNanos) / 1e6;
+    }
+
     public void getRawIDETrackerData(Project project) throws ParserConfigurationException {
         ideTracker = IDETracker.getInstance();
+        ideTracker.setProjectPath(project.getBasePath());
         ideTracker.startTracking(project);
     }
 
-    public void getRawEyeTrackerData() {
+    /**
+     * Start the eye tracker for the real-time data API with the device, the Python interpreter and the sample
+     * frequency of the saved configuration, in the first open project. Its events are published on the
+     * {@link RealtimeEventBus}; use {@link #subscribe(Class, Consumer)} to receive them.
+     */
+    public void getRawEyeTrackerData() throws ParserConfigurationException, IOException {
+        Config config = getSavedConfig();
+        Project project = getOpenProject();
+        eyeTracker = new EyeTracker(config.getPythonInterpreter(), config.getSampleFreq(),
+                config.getEyeTrackerDevice() == 0);
+        if (config.getEyeTrackerDevice() == EyeTracker.SYNTHETIC_DEVICE_INDEX) {
+            eyeTracker.setDeviceIndex(EyeTracker.SYNTHETIC_DEVICE_INDEX);
+            eyeTracker.setSyntheticGazeSource(SyntheticGazeSource.parse(config.getSyntheticGazeSource(),
+                    config.getSampleFreq()));
+        }
+        eyeTracker.setProjectPath(project.getBasePath());
+        eyeTracker.startTracking(project);
+    }
 
+    /**
+     * Start the eye tracker for the real-time data API. Its events are published on the {@link RealtimeEventBus};
+     * use {@link #subscribe(Class, Consumer)} to receive them.
+     *
+     * @param project           The project.
+     * @param pythonInterpreter The path of the Python interpreter.
+     * @param sampleFrequency   The sample frequency of the eye tracker.
+     * @param isUsingMouse      Whether the mouse is used as the eye tracker.
+     */
+    public void getRawEyeTrackerData(Project project, String pythonInterpreter, double sampleFrequency,
+                                     boolean isUsingMouse) throws ParserConfigurationException, IOException {
+        eyeTracker = new EyeTracker(pythonInterpreter, sampleFrequency, isUsingMouse);
+        eyeTracker.setProjectPath(project.getBasePath());
+        eyeTracker.startTracking(project);
     }
 
     public void stopIDETrackerData() throws TransformerException {
+        if (ideTrackerSubscription != null) {
+            ideTrackerSubscription.close();
+            ideTrackerSubscription = null;
+        }
         ideTracker.stopTracking();
     }
 
-    public void stopEyeTrackerData() {
-
+    public void stopEyeTrackerData() throws TransformerException {
+        if (eyeTrackerSubscription != null) {
+            eyeTrackerSubscription.close();
+            eyeTrackerSubscription = null;
+        }
+        if (eyeTracker != null) {
+            eyeTracker.stopTracking();
+            eyeTracker = null;
+        }
     }
 
-    public void getHandledIDETrackerData(Project project) throws ParserConfigurationException, IOException {
+    /**
+     * Start the IDE tracker and pass each IDE event to the IDE tracker data handler as the string form of its
+     * {@link TrackerEvent}.
+     *
+     * @param project The project.
+     */
+    public void getHandledIDETrackerData(Project project) throws ParserConfigurationException {
         if (ideTrackerDataHandler == null) {
             return;
         }
-        ideTracker = IDETracker.getInstance();
-        ideTracker.setIsRealTimeDataTransmitting(true);
-        ideTracker.startTracking(project);
-        Thread ideTrackerThread = new Thread(() -> {
-            try {
-
-                Thread.sleep(2000);
-                Socket socket = new Socket("localhost", 12346);
-                InputStream dataInputStream = socket.getInputStream();
-                InputStreamReader inputStreamReader = new InputStreamReader(dataInputStream);
-                BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-                while (true) {
-                    String line = bufferedReader.readLine();
-                    System.out.println(ideTrackerDataHandler.toString());
-//                    ideTrackerDataHandler.accept(line);
-                    System.out.println(line);
-                }
-            } catch (IOException | InterruptedException e) {
-                throw new RuntimeException(e);
+        ideTrackerSubscription = subscribe(event -> {
+            if (!(event instanceof GazeEvent) && !(event instanceof FixationEvent)) {
+                ideTrackerDataHandler.accept(event.toString());
             }
         });
-        ideTrackerThread.start();
+        getRawIDETrackerData(project);
+    }
+
+    /**
+     * Start the eye tracker with the saved configuration, see {@link #getRawEyeTrackerData()}, and pass each gaze to
+     * the eye tracker data handler as the string form of its {@link GazeEvent}.
+     */
+    public void getHandledEyeTrackerData() throws ParserConfigurationException, IOException {
+        if (eyeTrackerDataHandler == null) {
+            throw new RuntimeException("Eye Tracker Data Handler not set!");
+        }
+        eyeTrackerSubscription = subscribe(GazeEvent.class, gaze -> eyeTrackerDataHandler.accept(gaze.toString()));
+        getRawEyeTrackerData();
     }
 
-    public void getHandledEyeTrackerData() {
+    /**
+     * Start the eye tracker and pass each gaze to the eye tracker data handler as the string form of its
+     * {@link GazeEvent}.
+     *
+     * @param project           The project.
+     * @param pythonInterpreter The path of the Python interpreter.
+     * @param sampleFrequency   The sample frequency of the eye tracker.
+     * @param isUsingMouse      Whether the mouse is used as the eye tracker.
+     */
+    public void getHandledEyeTrackerData(Project project, String pythonInterpreter, double sampleFrequency,
+                                         boolean isUsingMouse) throws ParserConfigurationException, IOException {
         if (eyeTrackerDataHandler == null) {
             throw new RuntimeException("Eye Tracker Data Handler not set!");
         }
+        eyeTrackerSubscription = subscribe(GazeEvent.class, gaze -> eyeTrackerDataHandler.accept(gaze.toString()));
+        getRawEyeTrackerData(project, pythonInterpreter, sampleFrequency, isUsingMouse);
+    }
+
+    private static Config getSavedConfig() {
+        Config config = new Config();
+        if (!config.configExists()) {
+            throw new RuntimeException("No saved configuration, see Configuration in the CodeGRITS menu!");
+        }
+        config.loadFromJson();
+        return config;
+    }
+
+    private static Project getOpenProject() {
+        Project[] projects = ProjectManager.getInstance().getOpenProjects();
+        if (projects.length == 0) {
+            throw new RuntimeException("No open project!");
+        }
+        return projects[0];
     }
 
     public void setIDETrackerDataHandler(Consumer<String> ideTrackerDataHandler) {
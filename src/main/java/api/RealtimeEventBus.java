@@ -0,0 +1,365 @@
+package api;
+
+import api.event.EventType;
+import api.event.TrackerEvent;
+import utils.LatencyMonitor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * This class is the real-time event bus. The trackers publish immutable {@link TrackerEvent}s into a preallocated
+ * ring buffer, and each subscriber reads the ring with its own cursor on its own thread. The events are shared by
+ * reference, so an event is never copied no matter how many subscribers there are.
+ * <p>
+ * Publishing never blocks and never waits for the subscribers: a publisher claims the next sequence, stores the event
+ * in its slot and marks the slot as published. A subscriber that falls more than the capacity of the ring behind is
+ * lapped by the publishers; it skips ahead to the oldest event still in the ring and counts the skipped events as
+ * dropped.
+ */
+public class RealtimeEventBus {
+    /**
+     * This variable is the default capacity of the ring, i.e., the number of events a subscriber may fall behind
+     * before events are dropped for it.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * This variable is the number of spins of an idle subscriber before it parks.
+     */
+    private static final int SPIN_LIMIT = 128;
+    private static final long PARK_NANOS = 1_000_000L;
+    private static final RealtimeEventBus instance = new RealtimeEventBus(DEFAULT_CAPACITY,
+            LatencyMonitor.getInstance());
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<TrackerEvent> events;
+    /**
+     * This variable holds the sequence of the event in each slot. A negative value {@code -(sequence + 1)} means that
+     * the event of that sequence is being written.
+     */
+    private final AtomicLongArray sequences;
+    /**
+     * This variable holds the {@link System#nanoTime()} when the event in each slot was published, if the delivery
+     * latency is measured. It is written before the slot is marked as published, which makes it visible to the
+     * subscribers.
+     */
+    private final long[] publishNanoTimes;
+    private final LatencyMonitor latencyMonitor;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    /**
+     * This variable is the union of the type masks of all subscriptions.
+     */
+    private volatile int subscribedTypes = 0;
+
+    /**
+     * The constructor of the event bus. Use {@link #getInstance()} for the bus of the trackers.
+     *
+     * @param capacity The capacity of the ring, a power of two.
+     */
+    public RealtimeEventBus(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * The constructor of the event bus that measures the delivery latency of the events.
+     *
+     * @param capacity       The capacity of the ring, a power of two.
+     * @param latencyMonitor The latency monitor, or {@code null} to skip the measurement.
+     */
+    RealtimeEventBus(int capacity, LatencyMonitor latencyMonitor) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        events = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        publishNanoTimes = latencyMonitor == null ? null : new long[capacity];
+        this.latencyMonitor = latencyMonitor;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, -1); // no event yet, as if the event of sequence 0 was being written
+        }
+    }
+
+    public static RealtimeEventBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Check whether there is any subscriber. The trackers only build the events if there is.
+     *
+     * @return {@code true} if there is at least one subscriber.
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    /**
+     * Check whether any subscriber accepts an event type. The trackers only build the events of a type if there is,
+     * so the events nobody subscribed to cost nothing.
+     *
+     * @param type The event type.
+     * @return {@code true} if at least one subscriber accepts the type.
+     */
+    public boolean hasSubscribers(EventType type) {
+        return (subscribedTypes & (1 << type.ordinal())) != 0;
+    }
+
+    /**
+     * Publish an event to all subscribers. This method can be called from any thread and never blocks.
+     *
+     * @param event The event, which must not be modified afterwards.
+     */
+    public void publish(TrackerEvent event) {
+        if (event == null) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        int index = (int) sequence & mask;
+        sequences.set(index, -(sequence + 1));
+        if (publishNanoTimes != null) {
+            publishNanoTimes[index] = System.nanoTime();
+        }
+        events.set(index, event);
+        sequences.set(index, sequence);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isWaiting) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    /**
+     * Subscribe to all events. The consumer is called on a dedicated thread of the subscription, in the order the
+     * events were published. The subscription only receives the events published after this call.
+     *
+     * @param consumer The consumer of the events.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    public Subscription subscribe(Consumer<? super TrackerEvent> consumer) {
+        return subscribe(SubscriptionFilter.ALL, consumer);
+    }
+
+    /**
+     * Subscribe to the events of a type, e.g., {@code GazeEvent.class}.
+     *
+     * @param type     The class of the events.
+     * @param consumer The consumer of the events.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends TrackerEvent> Subscription subscribe(Class<T> type, Consumer<? super T> consumer) {
+        SubscriptionFilter filter = new SubscriptionFilter(SubscriptionFilter.toTypeMask(type), null, 0, null);
+        return subscribe(filter, event -> consumer.accept((T) event));
+    }
+
+    /**
+     * Subscribe to the events accepted by a filter. The type of an event is checked first, then its path and the rate
+     * cap; the consumer is only called for the accepted events.
+     *
+     * @param filter   The filter of the subscription.
+     * @param consumer The consumer of the events.
+     * @return The subscription, which must be closed to unsubscribe.
+     */
+    public synchronized Subscription subscribe(SubscriptionFilter filter, Consumer<? super TrackerEvent> consumer) {
+        Subscription subscription = new Subscription(filter, consumer, nextSequence.get());
+        Subscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[updated.length - 1] = subscription;
+        subscriptions = updated;
+        updateSubscribedTypes();
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscriptions = Arrays.stream(subscriptions).filter(s -> s != subscription).toArray(Subscription[]::new);
+        updateSubscribedTypes();
+    }
+
+    private synchronized void updateSubscribedTypes() {
+        int types = 0;
+        for (Subscription subscription : subscriptions) {
+            types |= subscription.filter.getTypeMask();
+        }
+        subscribedTypes = types;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the total number of events published on the bus.
+     *
+     * @return The number of events.
+     */
+    public long getPublishedEvents() {
+        return nextSequence.get();
+    }
+
+    /**
+     * This class is a subscription to the event bus. It owns the cursor and the thread of one subscriber.
+     */
+    public class Subscription implements AutoCloseable {
+        private volatile SubscriptionFilter filter;
+        private volatile SubscriptionFilter.RateLimiter rateLimiter;
+        private final Consumer<? super TrackerEvent> consumer;
+        private final Thread thread;
+        private long cursor;
+        /**
+         * This variable is the publish time of the last polled event, if the delivery latency is measured.
+         */
+        private long polledPublishNanoTime;
+        private volatile boolean isWaiting = false;
+        private volatile boolean isClosed = false;
+        private volatile long deliveredEvents = 0, droppedEvents = 0, filteredEvents = 0;
+
+        private Subscription(SubscriptionFilter filter, Consumer<? super TrackerEvent> consumer, long cursor) {
+            this.filter = filter;
+            this.rateLimiter = filter.newRateLimiter();
+            this.consumer = consumer;
+            this.cursor = cursor;
+            thread = new Thread(this::run, "CodeGRITS Event Subscriber");
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            int spins = 0;
+            while (!isClosed) {
+                TrackerEvent event = poll();
+                if (event == null) {
+                    if (spins++ < SPIN_LIMIT) {
+                        Thread.onSpinWait();
+                    } else {
+                        park();
+                        spins = 0;
+                    }
+                    continue;
+                }
+                spins = 0;
+                SubscriptionFilter currentFilter = filter;
+                if (!currentFilter.accepts(event)) {
+                    continue;
+                }
+                if (currentFilter.getMaxEventsPerSecond() > 0 && !rateLimiter.tryAcquire(System.nanoTime())) {
+                    filteredEvents++;
+                    continue;
+                }
+                if (latencyMonitor != null) {
+                    latencyMonitor.recordDelivery(event, polledPublishNanoTime, System.nanoTime());
+                }
+                try {
+                    consumer.accept(event);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                deliveredEvents++;
+            }
+        }
+
+        /**
+         * Read the event at the cursor and advance the cursor. If the subscriber has been lapped, the cursor skips
+         * ahead to the oldest event still in the ring.
+         *
+         * @return The event, or {@code null} if it is not published yet.
+         */
+        private TrackerEvent poll() {
+            while (true) {
+                int index = (int) cursor & mask;
+                long sequence = sequences.get(index);
+                if (sequence == cursor) {
+                    TrackerEvent event = events.get(index);
+                    if (publishNanoTimes != null) {
+                        polledPublishNanoTime = publishNanoTimes[index];
+                    }
+                    if (sequences.get(index) == cursor) {
+                        cursor++;
+                        return event;
+                    }
+                    // overwritten while reading
+                } else if (Math.max(sequence, -sequence - 1) <= cursor) {
+                    return null; // not published yet, or being written
+                }
+                long oldest = nextSequence.get() - capacity + 1;
+                if (oldest > cursor) {
+                    droppedEvents += oldest - cursor;
+                    cursor = oldest;
+                }
+            }
+        }
+
+        /**
+         * Park the subscriber thread until a publisher wakes it up. The waiting flag is set before checking the ring
+         * again, so a publisher either sees the flag or the subscriber sees the event.
+         */
+        private void park() {
+            isWaiting = true;
+            int index = (int) cursor & mask;
+            if (sequences.get(index) != cursor && !isClosed) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            isWaiting = false;
+        }
+
+        /**
+         * Replace the filter of the subscription, e.g., when the clients of the {@link RealtimeServer} change. The
+         * events already published are filtered by the new filter from now on.
+         *
+         * @param filter The new filter.
+         */
+        public void setFilter(SubscriptionFilter filter) {
+            synchronized (RealtimeEventBus.this) {
+                this.filter = filter;
+                this.rateLimiter = filter.newRateLimiter();
+                updateSubscribedTypes();
+            }
+        }
+
+        public SubscriptionFilter getFilter() {
+            return filter;
+        }
+
+        /**
+         * Unsubscribe and stop the thread of the subscription. The events not delivered yet are discarded.
+         */
+        @Override
+        public void close() {
+            isClosed = true;
+            unsubscribe(this);
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Get the number of events delivered to the consumer.
+         *
+         * @return The number of events.
+         */
+        public long getDeliveredEvents() {
+            return deliveredEvents;
+        }
+
+        /**
+         * Get the number of events skipped because the subscriber was lapped by the publishers.
+         *
+         * @return The number of events.
+         */
+        public long getDroppedEvents() {
+            return droppedEvents;
+        }
+
+        /**
+         * Get the number of events accepted by the type and path filter but skipped by the rate cap.
+         *
+         * @return The number of events.
+         */
+        public long getFilteredEvents() {
+            return filteredEvents;
+        }
+    }
+}
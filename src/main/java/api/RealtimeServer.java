@@ -0,0 +1,515 @@
+package api;
+
+import api.event.TrackerEvent;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is the local streaming server of the real-time data. It subscribes to the {@link RealtimeEventBus} and
+ * streams every event to the connected clients as a length-prefixed binary frame (see {@link EventCodec}). The server
+ * listens on a TCP port of the loopback interface or on a Unix domain socket.
+ * <p>
+ * The stream of each client starts with a header of the magic {@value #MAGIC} (int) and the version (short). Each
+ * event is encoded once for all clients without a projection, and all frames that arrive while the server thread is
+ * busy are copied into the send buffer of each client and written with a single write, so the frames are batched under
+ * load. A client whose send buffer exceeds {@link #DEFAULT_MAX_CLIENT_BUFFER} bytes is too slow to keep up and is disconnected, so it never slows down
+ * the trackers or the other clients. If the server thread itself falls behind by more than the capacity of the event
+ * bus, further events are dropped and counted.
+ * <p>
+ * A client can send a {@link SubscriptionFilter} specification at any time as an int length followed by its UTF-8
+ * bytes, e.g., {@code types=fixation;paths=/src/**;rate=30;fields=screenX,screenY}. The server then only sends the
+ * events accepted by the filter, capped to its rate and projected to its fields. The subscription of the server to
+ * the bus only accepts the union of the event types of the clients, so the trackers do not build the events no client
+ * wants. An invalid specification closes the connection.
+ */
+public class RealtimeServer implements AutoCloseable {
+    public static final int MAGIC = 0x43474556; // "CGEV"
+    public static final short VERSION = 1;
+    public static final int DEFAULT_MAX_CLIENT_BUFFER = 4 << 20;
+    /**
+     * This variable is the maximum length of a filter specification sent by a client.
+     */
+    public static final int MAX_FILTER_LENGTH = 64 << 10;
+    /**
+     * This variable is the maximum number of events sent per round of the server thread, so the clients are written
+     * and the sockets are selected even if the events arrive faster than they are encoded.
+     */
+    private static final int MAX_BATCH_SIZE = 4096;
+    /**
+     * This variable is the maximum number of events waiting for the server thread. Further events are dropped, so a
+     * stalled server thread never holds on to the events of a whole session.
+     */
+    private static final int MAX_PENDING_EVENTS = RealtimeEventBus.DEFAULT_CAPACITY;
+    /**
+     * These variables are the mask of the file type in the {@code unix:mode} attribute and the type of a socket.
+     */
+    private static final int S_IFMT = 0170000, S_IFSOCK = 0140000;
+
+    private final SocketAddress address;
+    private final int maxClientBuffer;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    /**
+     * This variable holds the events not yet sent to the clients. It is filled by the subscriber thread of the bus and
+     * drained by the server thread, which filters and encodes the events for each client.
+     */
+    private final ArrayBlockingQueue<TrackerEvent> pendingEvents = new ArrayBlockingQueue<>(MAX_PENDING_EVENTS);
+    private final AtomicBoolean isWakeupPending = new AtomicBoolean(false);
+    private final List<Client> clients = new ArrayList<>();
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(64 << 10);
+    private volatile RealtimeEventBus.Subscription subscription;
+    private Thread thread;
+    private volatile boolean isRunning = false;
+    private volatile int connectedClients = 0;
+    private volatile long sentFrames = 0, writes = 0, disconnectedClients = 0, droppedEvents = 0;
+
+    /**
+     * The constructor of the server.
+     *
+     * @param address The address, see {@link #toSocketAddress(String)}.
+     */
+    public RealtimeServer(String address) throws IOException {
+        this(toSocketAddress(address), DEFAULT_MAX_CLIENT_BUFFER);
+    }
+
+    /**
+     * The constructor of the server.
+     *
+     * @param address         The TCP or Unix domain socket address.
+     * @param maxClientBuffer The size of the send buffer of each client in bytes.
+     * @throws IOException If the path of a Unix domain socket exists and is not a socket.
+     */
+    public RealtimeServer(SocketAddress address, int maxClientBuffer) throws IOException {
+        this.address = address;
+        this.maxClientBuffer = maxClientBuffer;
+        if (address instanceof UnixDomainSocketAddress unixAddress && !deleteSocket(unixAddress.getPath())) {
+            throw new IOException("Not a socket, refusing to replace: " + unixAddress.getPath());
+        }
+        selector = Selector.open();
+        if (address instanceof UnixDomainSocketAddress) {
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            serverChannel = ServerSocketChannel.open();
+        }
+    }
+
+    /**
+     * Convert an address string into a socket address. A number is a TCP port on the loopback interface, and anything
+     * else is the path of a Unix domain socket.
+     *
+     * @param address The address string, e.g., {@code 12346} or {@code /tmp/codegrits.sock}.
+     * @return The socket address.
+     */
+    public static SocketAddress toSocketAddress(String address) {
+        String trimmed = address.trim();
+        if (trimmed.matches("\\d+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(trimmed));
+        }
+        return UnixDomainSocketAddress.of(Path.of(trimmed));
+    }
+
+    /**
+     * Delete a Unix domain socket, e.g., a stale socket of a previous session, but never any other file, such as a file
+     * of the user at a mistyped path.
+     *
+     * @param path The path of the socket.
+     * @return Whether the path is free, i.e., it did not exist or was a socket and is deleted.
+     */
+    private static boolean deleteSocket(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return true;
+        }
+        boolean isSocket;
+        try {
+            isSocket = ((int) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS) & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException e) {
+            // Windows, where a socket is a reparse point, neither a regular file nor a directory
+            isSocket = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+        if (!isSocket) {
+            return false;
+        }
+        Files.deleteIfExists(path);
+        return true;
+    }
+
+    /**
+     * Bind the server and start streaming the events of the bus.
+     *
+     * @param eventBus The event bus.
+     */
+    public synchronized void start(RealtimeEventBus eventBus) throws IOException {
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        // no events until a client connects, see updateSubscription()
+        subscription = eventBus.subscribe(new SubscriptionFilter(0, null, 0, null), this::onEvent);
+        isRunning = true;
+        thread = new Thread(this::run, "CodeGRITS Realtime Server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hand an event over to the server thread, or drop it if {@link #MAX_PENDING_EVENTS} events are already waiting.
+     * This method is called by the subscriber thread.
+     *
+     * @param event The event.
+     */
+    private void onEvent(TrackerEvent event) {
+        if (connectedClients == 0) {
+            return;
+        }
+        if (!pendingEvents.offer(event)) {
+            droppedEvents++;
+        }
+        if (isWakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Narrow the subscription of the server to the union of the event types of the clients, or to no events without
+     * clients. This method is called by the server thread whenever a client connects, disconnects, or changes its
+     * filter.
+     */
+    private void updateSubscription() {
+        int typeMask = 0;
+        for (Client client : clients) {
+            typeMask |= client.filter.getTypeMask();
+        }
+        RealtimeEventBus.Subscription currentSubscription = subscription;
+        if (currentSubscription != null && currentSubscription.getFilter().getTypeMask() != typeMask) {
+            currentSubscription.setFilter(new SubscriptionFilter(typeMask, null, 0, null));
+        }
+    }
+
+    private void run() {
+        while (isRunning) {
+            try {
+                if (pendingEvents.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+                isWakeupPending.set(false);
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            client.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.flush();
+                        }
+                    }
+                }
+                drainFrames();
+            } catch (IOException | ClosedSelectorException e) {
+                if (isRunning) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        client.sendBuffer.putInt(MAGIC).putShort(VERSION);
+        clients.add(client);
+        connectedClients = clients.size();
+        updateSubscription();
+        client.flush();
+    }
+
+    /**
+     * Filter and encode up to {@link #MAX_BATCH_SIZE} pending events into the send buffers of the clients and write
+     * each client once, or disconnect it if its send buffer overflowed. The full frame of an event is encoded at most
+     * once and shared by the clients without a projection.
+     */
+    private void drainFrames() throws IOException {
+        TrackerEvent event;
+        int count = 0, polled = 0;
+        boolean isAppended = false;
+        long now = System.nanoTime();
+        while (polled < MAX_BATCH_SIZE && (event = pendingEvents.poll()) != null) {
+            polled++;
+            boolean isEncoded = false;
+            for (Client client : clients) {
+                if (client.isSlow || !client.filter.accepts(event) || !client.rateLimiter.tryAcquire(now)) {
+                    continue;
+                }
+                int fieldMask = client.filter.getFieldMask(event.type());
+                boolean isSent;
+                if (fieldMask != SubscriptionFilter.ALL_FIELDS) {
+                    isSent = client.append(event, fieldMask);
+                } else {
+                    if (!isEncoded) {
+                        encodeFrame(event);
+                        isEncoded = true;
+                    }
+                    isSent = client.append(encodeBuffer);
+                }
+                isAppended = true;
+                if (isSent) {
+                    count++;
+                }
+            }
+        }
+        if (!isAppended) {
+            return;
+        }
+        sentFrames += count;
+        for (Client client : new ArrayList<>(clients)) {
+            if (client.isSlow) {
+                client.close();
+                disconnectedClients++;
+            } else {
+                client.flush();
+            }
+        }
+    }
+
+    /**
+     * Encode the full frame of an event into the encode buffer, which is flipped for reading.
+     *
+     * @param event The event.
+     */
+    private void encodeFrame(TrackerEvent event) {
+        while (true) {
+            try {
+                encodeBuffer.clear();
+                EventCodec.encode(event, encodeBuffer);
+                encodeBuffer.flip();
+                return;
+            } catch (BufferOverflowException e) {
+                encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2); // a large selection
+            }
+        }
+    }
+
+    /**
+     * Stop the server and disconnect all clients.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        isRunning = false;
+        if (subscription != null) {
+            subscription.close();
+        }
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Client client : new ArrayList<>(clients)) {
+            client.close();
+        }
+        serverChannel.close();
+        selector.close();
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            deleteSocket(unixAddress.getPath());
+        }
+    }
+
+    /**
+     * Get the address the server is bound to, e.g., with the actual port if the port 0 was requested.
+     *
+     * @return The local address.
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    public int getConnectedClients() {
+        return connectedClients;
+    }
+
+    /**
+     * Get the number of frames appended to the send buffers of the clients, counted once per client.
+     *
+     * @return The number of frames.
+     */
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * Get the number of writes to the clients. Comparing it with {@link #getSentFrames()} shows how much the frames
+     * are batched.
+     *
+     * @return The number of writes.
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getDisconnectedClients() {
+        return disconnectedClients;
+    }
+
+    /**
+     * Get the number of events dropped because the server thread fell {@link #MAX_PENDING_EVENTS} events behind.
+     *
+     * @return The number of events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * This class is a connected client and its send buffer. It is only used by the server thread.
+     */
+    private class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(maxClientBuffer);
+        private ByteBuffer receiveBuffer = ByteBuffer.allocate(256);
+        private SubscriptionFilter filter = SubscriptionFilter.ALL;
+        private SubscriptionFilter.RateLimiter rateLimiter = filter.newRateLimiter();
+        private SelectionKey key;
+        private boolean isSlow = false;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Append a full frame shared with the other clients.
+         *
+         * @param frame The frame, whose position is left unchanged.
+         * @return Whether the frame was appended, or the send buffer overflowed.
+         */
+        boolean append(ByteBuffer frame) {
+            if (sendBuffer.remaining() < frame.remaining()) {
+                isSlow = true;
+                return false;
+            }
+            sendBuffer.put(frame.duplicate());
+            return true;
+        }
+
+        /**
+         * Append a projected frame, encoded directly into the send buffer.
+         *
+         * @param event     The event.
+         * @param fieldMask The field mask of the projection.
+         * @return Whether the frame was appended, or the send buffer overflowed.
+         */
+        boolean append(TrackerEvent event, int fieldMask) {
+            int start = sendBuffer.position();
+            try {
+                EventCodec.encode(event, sendBuffer, fieldMask);
+                return true;
+            } catch (BufferOverflowException e) {
+                sendBuffer.position(start);
+                isSlow = true;
+                return false;
+            }
+        }
+
+        /**
+         * Write as much of the send buffer as the socket accepts, and wait for the socket to become writable if
+         * anything is left.
+         */
+        void flush() throws IOException {
+            if (sendBuffer.position() == 0) {
+                return;
+            }
+            sendBuffer.flip();
+            try {
+                channel.write(sendBuffer);
+                writes++;
+            } catch (IOException e) {
+                close();
+                return;
+            } finally {
+                sendBuffer.compact();
+            }
+            if (key.isValid()) {
+                key.interestOps(sendBuffer.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Read the filter specifications sent by the client, and close the connection at the end of the stream or on an
+         * invalid specification.
+         */
+        void read() throws IOException {
+            try {
+                if (channel.read(receiveBuffer) < 0) {
+                    close();
+                    return;
+                }
+                receiveBuffer.flip();
+                while (receiveBuffer.remaining() >= Integer.BYTES) {
+                    int length = receiveBuffer.getInt(receiveBuffer.position());
+                    if (length < 0 || length > MAX_FILTER_LENGTH) {
+                        throw new IllegalArgumentException("Invalid filter length " + length);
+                    }
+                    if (receiveBuffer.remaining() < Integer.BYTES + length) {
+                        break;
+                    }
+                    receiveBuffer.getInt();
+                    byte[] specification = new byte[length];
+                    receiveBuffer.get(specification);
+                    filter = SubscriptionFilter.parse(new String(specification, StandardCharsets.UTF_8));
+                    rateLimiter = filter.newRateLimiter();
+                    updateSubscription();
+                }
+                receiveBuffer.compact();
+                if (!receiveBuffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(receiveBuffer.capacity() * 2);
+                    larger.put(receiveBuffer.flip());
+                    receiveBuffer = larger;
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                close();
+            }
+        }
+
+        void close() throws IOException {
+            clients.remove(this);
+            connectedClients = clients.size();
+            updateSubscription();
+            if (key != null) {
+                key.cancel();
+            }
+            channel.close();
+        }
+    }
+}
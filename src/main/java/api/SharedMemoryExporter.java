@@ -0,0 +1,287 @@
+package api;
+
+import api.event.*;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class exports the real-time data as a ring buffer in a memory-mapped file, so that a process on the same
+ * machine, e.g., a Python model of an adaptive IDE, reads the events without any copy or system call per event. The
+ * exporter is the single writer of the file; any number of readers map the file read-only and follow the sequence
+ * numbers. See {@link SharedMemoryReader} for the reference reader.
+ * <p>
+ * All numbers are little-endian. The file starts with a header of {@value #HEADER_SIZE} bytes:
+ * <pre>
+ * offset  type    field
+ * 0       int     magic {@value #MAGIC} ("CGSM")
+ * 4       int     version
+ * 8       int     header size in bytes
+ * 12      int     record size in bytes
+ * 16      int     capacity, the number of records, a power of two
+ * 20      int     state, 1 while the exporter is open and 0 after it is closed
+ * 24      long    process ID of the writer
+ * 64      long    next sequence, i.e., the number of records published so far
+ * </pre>
+ * The record of sequence {@code s} is at {@code headerSize + (s & (capacity - 1)) * recordSize}. Each record has
+ * {@value #RECORD_SIZE} bytes:
+ * <pre>
+ * offset  type    field
+ * 0       long    record sequence: 0 if empty, -(s + 1) while being written, s + 1 when complete
+ * 8       long    timestamp in nanoseconds on the session clock (Unix time)
+ * 16      int     event type, the ordinal of {@link EventType}
+ * 20      int[6]  i0 to i5
+ * 44      int     flags: bit 0 if text0 is truncated, bit 1 if text1 is truncated
+ * 48      double[6] d0 to d5
+ * 96      short   length of text0 in bytes, followed by up to 78 bytes of UTF-8
+ * 176     short   length of text1 in bytes, followed by up to 78 bytes of UTF-8
+ * </pre>
+ * The fields of each event type are:
+ * <pre>
+ * gaze          i0 line, i1 column, i2 x, i3 y, d0-d5 left x, left y, right x, right y, left pupil, right pupil,
+ *               text0 path, text1 token
+ * fixation      i0 sample count, d0 screen x, d1 screen y, d2 duration in nanoseconds
+ * action        text0 path, text1 ID
+ * typing        i0 line, i1 column, i2 character, text0 path
+ * file          text0 path, text1 ID
+ * mouse         i2 x, i3 y, text0 path, text1 ID
+ * caret         i0 line, i1 column, text0 path
+ * selection     i0 start line, i1 start column, i2 end line, i3 end column, text0 path, text1 selected text
+ * visible_area  i2 x, i3 y, i4 width, i5 height, text0 path
+ * </pre>
+ * Unused fields are 0. A truncated path keeps its end, i.e., the file name, and a truncated text1 keeps its start.
+ * <p>
+ * A record is published with a sequence lock: the writer marks the record as being written, writes the fields, marks
+ * the record as complete with a release store, and then advances the next sequence. A reader waiting for sequence
+ * {@code s} reads the record sequence until it is {@code s + 1}, copies the fields, and reads the record sequence again.
+ * If it changed, the writer has lapped the reader and the copy is discarded. The writer never waits for the readers.
+ */
+public class SharedMemoryExporter implements AutoCloseable {
+    public static final int MAGIC = 0x4347534D; // "CGSM"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 128;
+    public static final int RECORD_SIZE = 256;
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    public static final int STATE_OFFSET = 20;
+    public static final int NEXT_SEQUENCE_OFFSET = 64;
+    public static final int TIMESTAMP_OFFSET = 8;
+    public static final int TYPE_OFFSET = 16;
+    public static final int INT_OFFSET = 20;
+    public static final int FLAGS_OFFSET = 44;
+    public static final int DOUBLE_OFFSET = 48;
+    public static final int TEXT0_OFFSET = 96;
+    public static final int TEXT1_OFFSET = 176;
+    /**
+     * This variable is the maximum length of a text in bytes, after its length (short).
+     */
+    public static final int MAX_TEXT_LENGTH = 78;
+    /**
+     * This variable accesses the longs of the mapped file with memory ordering, which plain buffer accesses do not
+     * have.
+     */
+    static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private final int[] ints = new int[6];
+    private final double[] doubles = new double[6];
+    private long nextSequence = 0;
+    private RealtimeEventBus.Subscription subscription;
+
+    /**
+     * The constructor of the exporter. An existing file of a previous exporter is replaced, so the readers of a
+     * previous session keep their mapping of the old file, which is marked as closed.
+     *
+     * @param path     The path of the file, e.g., {@code /dev/shm/codegrits} on Linux.
+     * @param capacity The number of records, a power of two.
+     * @throws IOException If the path is in use by another file, i.e., one without the magic {@value #MAGIC}.
+     */
+    public SharedMemoryExporter(Path path, int capacity) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.path = path;
+        this.capacity = capacity;
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (!isExportFile(path)) {
+                throw new IOException("The path is in use by a file that is not a shared memory export: " + path);
+            }
+            Files.delete(path);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, HEADER_SIZE);
+        buffer.putInt(12, RECORD_SIZE);
+        buffer.putInt(16, capacity);
+        buffer.putLong(24, ProcessHandle.current().pid());
+        LONG.setRelease(buffer, NEXT_SEQUENCE_OFFSET, 0L);
+        buffer.putInt(STATE_OFFSET, 1);
+    }
+
+    /**
+     * Check whether a file is a regular file that starts with the magic {@value #MAGIC} of an export.
+     *
+     * @param path The path of the file.
+     * @return Whether the file is an export.
+     */
+    private static boolean isExportFile(Path path) throws IOException {
+        if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Start exporting the events of the bus accepted by a filter. The path glob and the rate cap of the filter apply;
+     * its projection does not, since the records have a fixed layout.
+     *
+     * @param eventBus The event bus.
+     * @param filter   The filter of the events.
+     */
+    public synchronized void start(RealtimeEventBus eventBus, SubscriptionFilter filter) {
+        subscription = eventBus.subscribe(filter, this::write);
+    }
+
+    /**
+     * Write an event as the next record. Only one thread may write, which is the thread of the subscription after
+     * {@link #start(RealtimeEventBus, SubscriptionFilter)}.
+     *
+     * @param event The event.
+     */
+    public void write(TrackerEvent event) {
+        long sequence = nextSequence;
+        int offset = HEADER_SIZE + (int) (sequence & (capacity - 1)) * RECORD_SIZE;
+        LONG.setOpaque(buffer, offset, -(sequence + 1));
+        VarHandle.storeStoreFence();
+
+        Arrays.fill(ints, 0);
+        Arrays.fill(doubles, 0);
+        String text0 = event.path(), text1 = null;
+        if (event instanceof GazeEvent gaze) {
+            setInts(gaze.line(), gaze.column(), gaze.x(), gaze.y());
+            doubles[0] = gaze.leftX();
+            doubles[1] = gaze.leftY();
+            doubles[2] = gaze.rightX();
+            doubles[3] = gaze.rightY();
+            doubles[4] = gaze.leftPupil();
+            doubles[5] = gaze.rightPupil();
+            text1 = gaze.token();
+        } else if (event instanceof FixationEvent fixation) {
+            ints[0] = fixation.sampleCount();
+            doubles[0] = fixation.screenX();
+            doubles[1] = fixation.screenY();
+            doubles[2] = fixation.durationNanos();
+        } else if (event instanceof ActionEvent action) {
+            text1 = action.id();
+        } else if (event instanceof TypingEvent typing) {
+            setInts(typing.line(), typing.column(), typing.character());
+        } else if (event instanceof FileEvent file) {
+            text1 = file.id();
+        } else if (event instanceof MouseEvent mouse) {
+            setInts(0, 0, mouse.x(), mouse.y());
+            text1 = mouse.id();
+        } else if (event instanceof CaretEvent caret) {
+            setInts(caret.line(), caret.column());
+        } else if (event instanceof SelectionEvent selection) {
+            setInts(selection.startLine(), selection.startColumn(), selection.endLine(), selection.endColumn());
+            text1 = selection.selectedText();
+        } else if (event instanceof VisibleAreaEvent visibleArea) {
+            setInts(0, 0, visibleArea.x(), visibleArea.y(), visibleArea.width(), visibleArea.height());
+        }
+
+        buffer.putLong(offset + TIMESTAMP_OFFSET, event.timestampNanos());
+        buffer.putInt(offset + TYPE_OFFSET, event.type().ordinal());
+        for (int i = 0; i < ints.length; i++) {
+            buffer.putInt(offset + INT_OFFSET + i * Integer.BYTES, ints[i]);
+        }
+        for (int i = 0; i < doubles.length; i++) {
+            buffer.putDouble(offset + DOUBLE_OFFSET + i * Double.BYTES, doubles[i]);
+        }
+        int flags = putText(offset + TEXT0_OFFSET, text0, true) ? 1 : 0;
+        flags |= putText(offset + TEXT1_OFFSET, text1, false) ? 2 : 0;
+        buffer.putInt(offset + FLAGS_OFFSET, flags);
+
+        LONG.setRelease(buffer, offset, sequence + 1);
+        nextSequence = sequence + 1;
+        LONG.setRelease(buffer, NEXT_SEQUENCE_OFFSET, nextSequence);
+    }
+
+    private void setInts(int... values) {
+        System.arraycopy(values, 0, ints, 0, values.length);
+    }
+
+    /**
+     * Write a text as its length (short) and its UTF-8 bytes, truncated at a character boundary.
+     *
+     * @param offset    The offset of the text in the file.
+     * @param text      The text, or {@code null} for an empty text.
+     * @param isKeepEnd Whether a truncated text keeps its end instead of its start.
+     * @return {@code true} if the text is truncated.
+     */
+    private boolean putText(int offset, String text, boolean isKeepEnd) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int start = 0, length = bytes.length;
+        if (length > MAX_TEXT_LENGTH) {
+            if (isKeepEnd) {
+                start = length - MAX_TEXT_LENGTH;
+                while (start < length && (bytes[start] & 0xC0) == 0x80) {
+                    start++; // skip the continuation bytes of a cut character
+                }
+                length -= start;
+            } else {
+                length = MAX_TEXT_LENGTH;
+                while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                    length--;
+                }
+            }
+        }
+        buffer.putShort(offset, (short) length);
+        buffer.put(offset + Short.BYTES, bytes, start, length);
+        return length < bytes.length;
+    }
+
+    /**
+     * Stop exporting and mark the file as closed. The file is kept, so the readers can read the last records.
+     */
+    @Override
+    public synchronized void close() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        buffer.putInt(STATE_OFFSET, 0);
+        buffer.force();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+}
@@ -0,0 +1,211 @@
+package api;
+
+import api.event.*;
+import utils.SessionClock;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static api.SharedMemoryExporter.*;
+
+/**
+ * This class is the reference reader of the ring buffer file of the {@link SharedMemoryExporter}. It maps the file
+ * read-only and follows the sequence protocol described there, so reading an event needs no system call. It can be
+ * embedded in an analysis tool, or run from the command line to measure the events per second and the latency:
+ * <pre>
+ * java -cp CodeGRITS.jar api.SharedMemoryReader [PATH] [SECONDS]
+ * </pre>
+ */
+public class SharedMemoryReader implements AutoCloseable {
+    private static final EventType[] TYPES = EventType.values();
+    private final MappedByteBuffer buffer;
+    private final int headerSize, recordSize, capacity;
+    private long sequence;
+    private long droppedEvents = 0;
+
+    /**
+     * The constructor of the reader. The reader starts at the next event to be published.
+     *
+     * @param path The path of the file.
+     */
+    public SharedMemoryReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a CodeGRITS shared memory file: " + path);
+        }
+        if (buffer.getInt(4) > VERSION) {
+            throw new IOException("Unsupported shared memory version " + buffer.getInt(4));
+        }
+        headerSize = buffer.getInt(8);
+        recordSize = buffer.getInt(12);
+        capacity = buffer.getInt(16);
+        sequence = getNextSequence();
+    }
+
+    /**
+     * Get the sequence of the next event to be published by the writer.
+     *
+     * @return The sequence.
+     */
+    public long getNextSequence() {
+        return (long) LONG.getAcquire(buffer, NEXT_SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Check whether the writer is still open.
+     *
+     * @return {@code true} if the writer is open.
+     */
+    public boolean isWriterOpen() {
+        return buffer.getInt(STATE_OFFSET) == 1;
+    }
+
+    /**
+     * Read the next event if it has been published. A reader lapped by the writer skips to the oldest event in the
+     * ring and counts the skipped events as dropped.
+     *
+     * @return The event, or {@code null} if there is no new event.
+     */
+    public TrackerEvent poll() {
+        while (true) {
+            int offset = headerSize + (int) (sequence & (capacity - 1)) * recordSize;
+            long recordSequence = (long) LONG.getAcquire(buffer, offset);
+            if (recordSequence == sequence + 1) {
+                TrackerEvent event = readRecord(offset);
+                VarHandle.loadLoadFence();
+                if ((long) LONG.getOpaque(buffer, offset) == recordSequence) {
+                    sequence++;
+                    return event;
+                }
+            } else if (Math.abs(recordSequence) <= sequence + 1) {
+                return null; // not published yet, or being written
+            }
+            // the writer has lapped this reader
+            long oldest = Math.max(sequence + 1, getNextSequence() - capacity + 1);
+            droppedEvents += oldest - sequence;
+            sequence = oldest;
+        }
+    }
+
+    /**
+     * Read events until the writer is closed or the reader is closed, spinning briefly and then sleeping when there is
+     * no new event.
+     *
+     * @param consumer The consumer of the events.
+     */
+    public void readAll(Consumer<? super TrackerEvent> consumer) throws InterruptedException {
+        int idle = 0;
+        while (isWriterOpen() || getNextSequence() > sequence) {
+            TrackerEvent event = poll();
+            if (event != null) {
+                consumer.accept(event);
+                idle = 0;
+            } else if (++idle > 1000) {
+                Thread.sleep(1);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private TrackerEvent readRecord(int offset) {
+        long timestampNanos = buffer.getLong(offset + TIMESTAMP_OFFSET);
+        int typeIndex = buffer.getInt(offset + TYPE_OFFSET);
+        if (typeIndex < 0 || typeIndex >= TYPES.length) {
+            return null;
+        }
+        int[] i = new int[6];
+        for (int k = 0; k < i.length; k++) {
+            i[k] = buffer.getInt(offset + INT_OFFSET + k * Integer.BYTES);
+        }
+        double[] d = new double[6];
+        for (int k = 0; k < d.length; k++) {
+            d[k] = buffer.getDouble(offset + DOUBLE_OFFSET + k * Double.BYTES);
+        }
+        String text0 = getText(offset + TEXT0_OFFSET), text1 = getText(offset + TEXT1_OFFSET);
+        return switch (TYPES[typeIndex]) {
+            case GAZE -> new GazeEvent(timestampNanos, d[0], d[1], d[2], d[3], d[4], d[5], text0, i[0], i[1], i[2],
+                    i[3], text1, null, List.of(), null);
+            case FIXATION -> new FixationEvent(timestampNanos, (long) d[2], d[0], d[1], i[0]);
+            case ACTION -> new ActionEvent(timestampNanos, text1, text0);
+            case TYPING -> new TypingEvent(timestampNanos, (char) i[2], text0, i[0], i[1]);
+            case FILE -> new FileEvent(timestampNanos, text1, text0, null);
+            case MOUSE -> new MouseEvent(timestampNanos, text1, text0, i[2], i[3]);
+            case CARET -> new CaretEvent(timestampNanos, text0, i[0], i[1]);
+            case SELECTION -> new SelectionEvent(timestampNanos, text0, i[0], i[1], i[2], i[3], text1);
+            case VISIBLE_AREA -> new VisibleAreaEvent(timestampNanos, text0, i[2], i[3], i[4], i[5]);
+        };
+    }
+
+    private String getText(int offset) {
+        int length = Math.min(Short.toUnsignedInt(buffer.getShort(offset)), MAX_TEXT_LENGTH);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    @Override
+    public void close() {
+        // the mapping is released when the buffer is garbage collected
+    }
+
+    /**
+     * Read the file and print the events per second and the latency percentiles once per second.
+     *
+     * @param args The path (default {@code /dev/shm/codegrits}) and the duration in seconds (default 10).
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args.length > 0 ? args[0] : "/dev/shm/codegrits");
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        try (SharedMemoryReader reader = new SharedMemoryReader(path)) {
+            long[] latencies = new long[1 << 20];
+            int count = 0;
+            long windowStart = System.nanoTime();
+            long end = windowStart + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                TrackerEvent event = reader.poll();
+                if (event != null) {
+                    if (count < latencies.length) {
+                        latencies[count] = SessionClock.nanoTime() - event.timestampNanos();
+                    }
+                    count++;
+                } else {
+                    Thread.onSpinWait();
+                }
+                long now = System.nanoTime();
+                if (now - windowStart >= 1_000_000_000L) {
+                    int samples = Math.min(count, latencies.length);
+                    Arrays.sort(latencies, 0, samples);
+                    System.out.printf("%.0f events/s, dropped %d", count * 1e9 / (now - windowStart),
+                            reader.getDroppedEvents());
+                    if (samples > 0) {
+                        System.out.printf(", latency p50 %.1f us, p99 %.1f us", latencies[samples / 2] / 1e3,
+                                latencies[(int) (samples * 0.99)] / 1e3);
+                    }
+                    System.out.println();
+                    count = 0;
+                    windowStart = now;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package api;
+
+import api.event.EventType;
+import api.event.TrackerEvent;
+
+import java.lang.reflect.RecordComponent;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+
+/**
+ * This class is the filter of a subscription to the real-time data. It selects the events by their types and by a
+ * glob of their paths, caps the rate of the events, and projects the events to a subset of their fields. The filter is
+ * immutable and can be shared; the rate cap is enforced by a {@link RateLimiter} created per subscription.
+ * <p>
+ * The type filter is a bit mask, so the trackers can check it before building an event. The path glob is matched
+ * against the path of the event relative to the project, e.g., {@code /src/**}; events without a path, e.g., fixations
+ * and gazes out of the code editor, are not filtered by the path glob. The projection only applies to the binary
+ * frames of the {@link RealtimeServer}; the timestamp is always included.
+ * <p>
+ * A filter can also be written as a specification, which is what the clients of the {@link RealtimeServer} send:
+ * <pre>
+ * types=fixation,gaze;paths=/src/**;rate=30;fields=path,line,column
+ * </pre>
+ */
+public final class SubscriptionFilter {
+    public static final int ALL_TYPES = (1 << EventType.values().length) - 1;
+    /**
+     * This variable is the field mask of the events that are not projected.
+     */
+    public static final int ALL_FIELDS = -1;
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(ALL_TYPES, null, 0, null);
+
+    private final int typeMask;
+    private final String pathGlob;
+    private final PathMatcher pathMatcher;
+    private final double maxEventsPerSecond;
+    private final Set<String> fields;
+    /**
+     * This variable holds the field mask of each event type, indexed by the ordinal of the type. The bit {@code i} is
+     * the record component {@code i + 1}, since the first component is always the timestamp.
+     */
+    private final int[] fieldMasks = new int[EventType.values().length];
+    private volatile PathMatch lastPathMatch;
+
+    /**
+     * The constructor of the filter.
+     *
+     * @param typeMask           The bit mask of the event types, with the bit of each {@link EventType} ordinal.
+     * @param pathGlob           The glob of the paths, or {@code null} for all paths.
+     * @param maxEventsPerSecond The maximum rate of the events, or 0 for no cap.
+     * @param fields             The names of the fields to keep, or {@code null} for all fields.
+     */
+    public SubscriptionFilter(int typeMask, String pathGlob, double maxEventsPerSecond, Collection<String> fields) {
+        this.typeMask = typeMask & ALL_TYPES;
+        this.pathGlob = pathGlob == null || pathGlob.isEmpty() ? null : pathGlob;
+        this.pathMatcher = this.pathGlob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + this.pathGlob);
+        this.maxEventsPerSecond = Math.max(0, maxEventsPerSecond);
+        this.fields = fields == null || fields.isEmpty() ? null : Set.copyOf(fields);
+        for (EventType type : EventType.values()) {
+            fieldMasks[type.ordinal()] = getFieldMask(type.getEventClass(), this.fields);
+        }
+    }
+
+    private static int getFieldMask(Class<? extends TrackerEvent> eventClass, Set<String> fields) {
+        if (fields == null) {
+            return ALL_FIELDS;
+        }
+        RecordComponent[] components = eventClass.getRecordComponents();
+        int mask = 0;
+        for (int i = 1; i < components.length; i++) {
+            if (fields.contains(components[i].getName())) {
+                mask |= 1 << (i - 1);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Get the type mask of the given event types.
+     *
+     * @param types The event types.
+     * @return The type mask.
+     */
+    public static int toTypeMask(EventType... types) {
+        int mask = 0;
+        for (EventType type : types) {
+            mask |= 1 << type.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Get the type mask of the event types whose records are instances of the given class, e.g., all types for
+     * {@code TrackerEvent.class}.
+     *
+     * @param eventClass The class of the events.
+     * @return The type mask.
+     */
+    public static int toTypeMask(Class<? extends TrackerEvent> eventClass) {
+        int mask = 0;
+        for (EventType type : EventType.values()) {
+            if (eventClass.isAssignableFrom(type.getEventClass())) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Parse a filter specification, e.g., {@code types=fixation,gaze;paths=/src/**;rate=30;fields=path,line}. The
+     * types are the XML element names of {@link EventType}. Missing keys do not filter.
+     *
+     * @param specification The specification.
+     * @return The filter.
+     * @throws IllegalArgumentException If the specification is invalid.
+     */
+    public static SubscriptionFilter parse(String specification) {
+        int typeMask = ALL_TYPES;
+        String pathGlob = null;
+        double rate = 0;
+        List<String> fields = null;
+        for (String entry : specification.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid filter entry: " + entry);
+            }
+            String key = entry.substring(0, separator).trim();
+            String value = entry.substring(separator + 1).trim();
+            switch (key) {
+                case "types" -> {
+                    typeMask = 0;
+                    for (String name : value.split(",")) {
+                        EventType type = EventType.fromElementName(name.trim());
+                        if (type == null) {
+                            throw new IllegalArgumentException("Unknown event type: " + name);
+                        }
+                        typeMask |= 1 << type.ordinal();
+                    }
+                }
+                case "paths" -> pathGlob = value;
+                case "rate" -> rate = Double.parseDouble(value);
+                case "fields" -> fields = Arrays.stream(value.split(",")).map(String::trim).toList();
+                default -> throw new IllegalArgumentException("Unknown filter key: " + key);
+            }
+        }
+        return new SubscriptionFilter(typeMask, pathGlob, rate, fields);
+    }
+
+    /**
+     * Write the filter as a specification that {@link #parse(String)} accepts.
+     *
+     * @return The specification.
+     */
+    public String toSpecification() {
+        StringJoiner joiner = new StringJoiner(";");
+        if (typeMask != ALL_TYPES) {
+            StringJoiner types = new StringJoiner(",");
+            for (EventType type : EventType.values()) {
+                if (acceptsType(type)) {
+                    types.add(type.getElementName());
+                }
+            }
+            joiner.add("types=" + types);
+        }
+        if (pathGlob != null) {
+            joiner.add("paths=" + pathGlob);
+        }
+        if (maxEventsPerSecond > 0) {
+            joiner.add("rate=" + maxEventsPerSecond);
+        }
+        if (fields != null) {
+            joiner.add("fields=" + String.join(",", new TreeSet<>(fields)));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Check whether the filter accepts an event type. This check does not allocate, so the trackers do it before
+     * building an event.
+     *
+     * @param type The event type.
+     * @return {@code true} if the type is accepted.
+     */
+    public boolean acceptsType(EventType type) {
+        return (typeMask & (1 << type.ordinal())) != 0;
+    }
+
+    /**
+     * Check whether the filter accepts an event by its type and path. The rate cap is checked separately by the
+     * {@link RateLimiter} of the subscription.
+     *
+     * @param event The event.
+     * @return {@code true} if the event is accepted.
+     */
+    public boolean accepts(TrackerEvent event) {
+        if (!acceptsType(event.type())) {
+            return false;
+        }
+        if (pathMatcher == null) {
+            return true;
+        }
+        String path = event.path();
+        if (path == null) {
+            return true;
+        }
+        // consecutive events mostly share the path, so the last match saves parsing the path again
+        PathMatch lastMatch = lastPathMatch;
+        if (lastMatch != null && lastMatch.path().equals(path)) {
+            return lastMatch.matches();
+        }
+        boolean matches = pathMatcher.matches(Path.of(path));
+        lastPathMatch = new PathMatch(path, matches);
+        return matches;
+    }
+
+    public int getTypeMask() {
+        return typeMask;
+    }
+
+    /**
+     * Get the field mask of an event type for the projection.
+     *
+     * @param type The event type.
+     * @return The field mask, or {@link #ALL_FIELDS} if the events are not projected.
+     */
+    public int getFieldMask(EventType type) {
+        return fieldMasks[type.ordinal()];
+    }
+
+    public double getMaxEventsPerSecond() {
+        return maxEventsPerSecond;
+    }
+
+    /**
+     * Create the rate limiter of a subscription with this filter.
+     *
+     * @return The rate limiter.
+     */
+    public RateLimiter newRateLimiter() {
+        return new RateLimiter(maxEventsPerSecond);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionFilter{" + toSpecification() + "}";
+    }
+
+    private record PathMatch(String path, boolean matches) {
+    }
+
+    /**
+     * This class is a token bucket that caps the rate of the events of one subscription. The bucket holds up to one
+     * second of events, so short bursts pass. It is not thread-safe and is used by the thread of the subscription.
+     */
+    public static final class RateLimiter {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill = -1;
+
+        RateLimiter(double maxEventsPerSecond) {
+            this.tokensPerNano = maxEventsPerSecond / 1e9;
+            this.capacity = Math.max(1, maxEventsPerSecond);
+            this.tokens = capacity;
+        }
+
+        /**
+         * Take a token for an event.
+         *
+         * @param nowNanos The current {@link System#nanoTime()}.
+         * @return {@code true} if the event is within the rate cap.
+         */
+        public boolean tryAcquire(long nowNanos) {
+            if (tokensPerNano == 0) {
+                return true;
+            }
+            if (lastRefill >= 0) {
+                tokens = Math.min(capacity, tokens + (nowNanos - lastRefill) * tokensPerNano);
+            }
+            lastRefill = nowNanos;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
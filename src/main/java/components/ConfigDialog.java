@@ -14,6 +14,8 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.ui.JBUI;
 import entity.Config;
+import trackers.EyeTracker;
+import trackers.SyntheticGazeSource;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -31,6 +33,7 @@ import java.util.regex.Pattern;
 public class ConfigDialog extends DialogWrapper {
 
     private List<JCheckBox> checkBoxes;
+    private final List<JCheckBox> displayCheckBoxes = new ArrayList<>();
 
     private final JPanel panel = new JPanel();
     private static List<JTextField> labelAreas = new ArrayList<>();
@@ -39,11 +42,23 @@ public class ConfigDialog extends DialogWrapper {
     private static final TextFieldWithBrowseButton dataOutputTextField = new TextFieldWithBrowseButton();
 
     private final JComboBox<Double> freqCombo = new ComboBox<>();
-    private final JComboBox<String> deviceCombo = new ComboBox<>(new String[]{"Mouse"});
+    private final JComboBox<String> deviceCombo = new ComboBox<>(new String[]{"Mouse", SYNTHETIC_DEVICE});
+    private final JComboBox<String> screenRecordingModeCombo = new ComboBox<>(new String[]{"Real-time Encoding", "Deferred Encoding"});
+    private final JComboBox<Integer> screenRecordingBufferCombo = new ComboBox<>(new Integer[]{10, 30, 60, 120});
+    private final JComboBox<String> gazeMappingModeCombo = new ComboBox<>(new String[]{"Live Mapping", "Offline Mapping (Raw Gaze Only)"});
+    private final JTextField syntheticGazeSourceTextField = new JTextField();
+    private final JTextField realtimeServerTextField = new JTextField();
+    private final JTextField realtimeSharedMemoryTextField = new JTextField();
+    private final JCheckBox jfrEventsCheckBox = new JCheckBox("JFR Events (JDK Mission Control)");
 
     private boolean pythonEnvironment = false;
     private boolean eyeTracker = false;
 
+    /**
+     * This variable is the name of the {@link SyntheticGazeSource} in the device list, which is always the last device.
+     */
+    private static final String SYNTHETIC_DEVICE = "Synthetic";
+
     public static String selectDataOutputPlaceHolder = "Select Data Output Folder (Default: Project Root)";
     public static String selectPythonInterpreterPlaceHolder = "Select Python Interpreter (Default: \"python\")";
 
@@ -76,9 +91,7 @@ public class ConfigDialog extends DialogWrapper {
                 if (eyeTracker) { //eye tracker found, add mouse and eye tracker name, add eye tracker freq
                     String trackerName = AvailabilityChecker.getEyeTrackerName(getPythonInterpreter());
                     if (trackerName != null && !trackerName.equals("Not Found")) {
-                        deviceCombo.removeAllItems();
-                        deviceCombo.addItem("Mouse");
-                        deviceCombo.addItem(trackerName);
+                        setDevices(trackerName);
                         deviceCombo.setSelectedIndex(1);
                     }
                     List<String> freqList = AvailabilityChecker.getFrequencies(getPythonInterpreter());
@@ -87,8 +100,7 @@ public class ConfigDialog extends DialogWrapper {
                         freqCombo.addItem(Double.parseDouble(freq));
                     }
                 } else { //use mouse and default freq
-                    deviceCombo.removeAllItems();
-                    deviceCombo.addItem("Mouse");
+                    setDevices(null);
                     freqCombo.removeAllItems();
                     freqCombo.addItem(30.0);
                     freqCombo.addItem(60.0);
@@ -98,8 +110,7 @@ public class ConfigDialog extends DialogWrapper {
                 freqCombo.setEnabled(false);
                 deviceCombo.setEnabled(false);
                 freqCombo.removeAllItems();
-                deviceCombo.removeAllItems();
-                deviceCombo.addItem("Mouse");
+                setDevices(null);
                 freqCombo.addItem(30.0);
                 freqCombo.addItem(60.0);
                 freqCombo.addItem(120.0);
@@ -136,15 +147,56 @@ public class ConfigDialog extends DialogWrapper {
         pythonInterpreterTextField.setText(config.getPythonInterpreter());
         dataOutputTextField.setText(config.getDataOutputPath());
 
-        if (deviceCombo.getItemCount() > 1) {
+        if (config.getEyeTrackerDevice() == EyeTracker.SYNTHETIC_DEVICE_INDEX) {
+            deviceCombo.setSelectedItem(SYNTHETIC_DEVICE);
+        } else if (config.getEyeTrackerDevice() < deviceCombo.getItemCount() - 1) {
             deviceCombo.setSelectedIndex(config.getEyeTrackerDevice());
         } else {
             deviceCombo.setSelectedIndex(0);
         }
+        syntheticGazeSourceTextField.setText(config.getSyntheticGazeSource());
         if (!checkBoxes.get(1).isSelected()) {
             freqCombo.setEnabled(false);
             deviceCombo.setEnabled(false);
         }
+        screenRecordingModeCombo.setSelectedIndex(config.getScreenRecordingMode());
+        screenRecordingBufferCombo.setSelectedItem(config.getScreenRecordingBufferSeconds());
+        gazeMappingModeCombo.setSelectedIndex(config.getGazeMappingMode());
+        gazeMappingModeCombo.setEnabled(checkBoxes.get(1).isSelected());
+        realtimeServerTextField.setText(config.getRealtimeServerAddress());
+        realtimeSharedMemoryTextField.setText(config.getRealtimeSharedMemoryPath());
+        jfrEventsCheckBox.setSelected(config.isJfrEventsEnabled());
+        List<Integer> displays = config.getScreenRecordingDisplays();
+        if (!displays.isEmpty()) {
+            for (int i = 0; i < displayCheckBoxes.size(); i++) {
+                displayCheckBoxes.get(i).setSelected(displays.contains(i));
+            }
+        }
+    }
+
+    /**
+     * Set the devices of the device list: the mouse, the eye tracker if found, and the synthetic gaze source.
+     *
+     * @param trackerName The name of the eye tracker, or {@code null} if not found.
+     */
+    private void setDevices(String trackerName) {
+        deviceCombo.removeAllItems();
+        deviceCombo.addItem("Mouse");
+        if (trackerName != null) {
+            deviceCombo.addItem(trackerName);
+        }
+        deviceCombo.addItem(SYNTHETIC_DEVICE);
+    }
+
+    /**
+     * Get the device index of the selected device, i.e., its position in the list, or
+     * {@link EyeTracker#SYNTHETIC_DEVICE_INDEX} for the synthetic gaze source.
+     *
+     * @return The device index.
+     */
+    private int getDeviceIndex() {
+        return SYNTHETIC_DEVICE.equals(deviceCombo.getSelectedItem()) ? EyeTracker.SYNTHETIC_DEVICE_INDEX
+                : deviceCombo.getSelectedIndex();
     }
 
     /**
@@ -152,7 +204,15 @@ public class ConfigDialog extends DialogWrapper {
      */
     private void saveConfig() {
         Config config = new Config(getSelectedCheckboxes(), getCurrentLabels(), (Double) freqCombo.getSelectedItem(),
-                getPythonInterpreter(), getDataOutputPath(), deviceCombo.getSelectedIndex());
+                getPythonInterpreter(), getDataOutputPath(), getDeviceIndex());
+        config.setScreenRecordingDisplays(getSelectedDisplays());
+        config.setScreenRecordingMode(screenRecordingModeCombo.getSelectedIndex());
+        config.setScreenRecordingBufferSeconds((Integer) screenRecordingBufferCombo.getSelectedItem());
+        config.setGazeMappingMode(gazeMappingModeCombo.getSelectedIndex());
+        config.setSyntheticGazeSource(syntheticGazeSourceTextField.getText().trim());
+        config.setRealtimeServerAddress(realtimeServerTextField.getText().trim());
+        config.setRealtimeSharedMemoryPath(realtimeSharedMemoryTextField.getText().trim());
+        config.setJfrEventsEnabled(jfrEventsCheckBox.isSelected());
         config.saveAsJson();
     }
 
@@ -334,9 +394,138 @@ public class ConfigDialog extends DialogWrapper {
         comboPanel.setBorder(new EmptyBorder(JBUI.insets(0, 20, 5, 20)));
         panel.add(comboPanel);
 
+        JLabel displayLabel = new JLabel("Screen Recording Displays");
+        displayLabel.setHorizontalTextPosition(JLabel.LEFT);
+        displayLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(displayLabel);
+
+        JPanel displayPanel = new JPanel();
+        displayPanel.setLayout(new BoxLayout(displayPanel, BoxLayout.X_AXIS));
+        displayPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        displayPanel.setMaximumSize(new Dimension(500, 40));
+        GraphicsEnvironment graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        GraphicsDevice[] screenDevices = graphicsEnvironment.getScreenDevices();
+        for (GraphicsDevice screenDevice : screenDevices) {
+            Rectangle bounds = screenDevice.getDefaultConfiguration().getBounds();
+            JCheckBox displayCheckBox = new JCheckBox("Display " + (displayCheckBoxes.size() + 1)
+                    + " (" + bounds.width + "x" + bounds.height + ")");
+            displayCheckBox.setSelected(screenDevice.equals(graphicsEnvironment.getDefaultScreenDevice()));
+            displayCheckBox.setEnabled(false);
+            displayCheckBox.setBorder(new EmptyBorder(contentMargin));
+            displayCheckBoxes.add(displayCheckBox);
+            displayPanel.add(displayCheckBox);
+        }
+        panel.add(displayPanel);
+
+        JLabel screenRecordingModeLabel = new JLabel("Screen Recording Mode");
+        screenRecordingModeLabel.setHorizontalTextPosition(JLabel.LEFT);
+        screenRecordingModeLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(screenRecordingModeLabel);
+        screenRecordingModeCombo.setToolTipText("Deferred encoding only compresses the frames during tracking, " +
+                "and encodes the video clips while paused or after stopping.");
+        screenRecordingModeCombo.setEnabled(false);
+        JPanel screenRecordingModePanel = new JPanel();
+        screenRecordingModePanel.setLayout(new BoxLayout(screenRecordingModePanel, BoxLayout.X_AXIS));
+        screenRecordingModePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        screenRecordingModePanel.setMaximumSize(new Dimension(500, 40));
+        screenRecordingModePanel.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        screenRecordingModeCombo.setMaximumSize(new Dimension(230, 40));
+        screenRecordingModePanel.add(screenRecordingModeCombo);
+        JLabel screenRecordingBufferLabel = new JLabel("Buffer (s)");
+        screenRecordingBufferLabel.setBorder(new EmptyBorder(JBUI.insets(0, 10, 0, 5)));
+        screenRecordingModePanel.add(screenRecordingBufferLabel);
+        screenRecordingBufferCombo.setToolTipText("The seconds of uncompressed frames buffered per display for " +
+                "deferred encoding before frames are dropped, at most 2 GB per display.");
+        screenRecordingBufferCombo.setEnabled(false);
+        screenRecordingBufferCombo.setMaximumSize(new Dimension(80, 40));
+        screenRecordingModePanel.add(screenRecordingBufferCombo);
+        panel.add(screenRecordingModePanel);
+        screenRecordingModeCombo.addActionListener(e -> screenRecordingBufferCombo.setEnabled(
+                screenRecordingModeCombo.isEnabled() && screenRecordingModeCombo.getSelectedIndex() == 1));
+
+        JLabel gazeMappingModeLabel = new JLabel("Gaze Mapping Mode");
+        gazeMappingModeLabel.setHorizontalTextPosition(JLabel.LEFT);
+        gazeMappingModeLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(gazeMappingModeLabel);
+        gazeMappingModeCombo.setToolTipText("Offline mapping only records the raw gazes during tracking, " +
+                "and maps them to the code afterwards with the codegrits-remap command.");
+        gazeMappingModeCombo.setEnabled(false);
+        JPanel gazeMappingModePanel = new JPanel();
+        gazeMappingModePanel.setLayout(new BoxLayout(gazeMappingModePanel, BoxLayout.X_AXIS));
+        gazeMappingModePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        gazeMappingModePanel.setMaximumSize(new Dimension(500, 40));
+        gazeMappingModePanel.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        gazeMappingModeCombo.setMaximumSize(new Dimension(230, 40));
+        gazeMappingModePanel.add(gazeMappingModeCombo);
+        panel.add(gazeMappingModePanel);
+
+        JLabel syntheticGazeSourceLabel = new JLabel("Synthetic Gaze Source");
+        syntheticGazeSourceLabel.setHorizontalTextPosition(JLabel.LEFT);
+        syntheticGazeSourceLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(syntheticGazeSourceLabel);
+        syntheticGazeSourceTextField.setToolTipText("The gazes of the Synthetic device, e.g., " +
+                "rate=600;invalid=0.05;burst=8 or replay=/path/to/session. Leave empty for the defaults.");
+        syntheticGazeSourceTextField.setMaximumSize(new Dimension(500, 40));
+        syntheticGazeSourceTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JPanel syntheticGazeSourcePanel = new JPanel();
+        syntheticGazeSourcePanel.setLayout(new BoxLayout(syntheticGazeSourcePanel, BoxLayout.X_AXIS));
+        syntheticGazeSourcePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        syntheticGazeSourcePanel.setMaximumSize(new Dimension(500, 40));
+        syntheticGazeSourcePanel.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        syntheticGazeSourcePanel.add(syntheticGazeSourceTextField);
+        panel.add(syntheticGazeSourcePanel);
+
+        JLabel realtimeServerLabel = new JLabel("Real-time Data Server (Port or Unix Socket Path)");
+        realtimeServerLabel.setHorizontalTextPosition(JLabel.LEFT);
+        realtimeServerLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(realtimeServerLabel);
+        realtimeServerTextField.setToolTipText("Stream the tracking data to external tools while tracking, " +
+                "e.g., 12346 for localhost:12346. Leave empty to disable.");
+        realtimeServerTextField.setMaximumSize(new Dimension(500, 40));
+        realtimeServerTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JPanel realtimeServerPanel = new JPanel();
+        realtimeServerPanel.setLayout(new BoxLayout(realtimeServerPanel, BoxLayout.X_AXIS));
+        realtimeServerPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        realtimeServerPanel.setMaximumSize(new Dimension(500, 40));
+        realtimeServerPanel.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        realtimeServerPanel.add(realtimeServerTextField);
+        panel.add(realtimeServerPanel);
+
+        JLabel realtimeSharedMemoryLabel = new JLabel("Real-time Data Shared Memory File");
+        realtimeSharedMemoryLabel.setHorizontalTextPosition(JLabel.LEFT);
+        realtimeSharedMemoryLabel.setBorder(new EmptyBorder(JBUI.insetsLeft(20)));
+        panel.add(realtimeSharedMemoryLabel);
+        realtimeSharedMemoryTextField.setToolTipText("Export the tracking data to a memory-mapped ring buffer while " +
+                "tracking, e.g., /dev/shm/codegrits. Leave empty to disable.");
+        realtimeSharedMemoryTextField.setMaximumSize(new Dimension(500, 40));
+        realtimeSharedMemoryTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JPanel realtimeSharedMemoryPanel = new JPanel();
+        realtimeSharedMemoryPanel.setLayout(new BoxLayout(realtimeSharedMemoryPanel, BoxLayout.X_AXIS));
+        realtimeSharedMemoryPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        realtimeSharedMemoryPanel.setMaximumSize(new Dimension(500, 40));
+        realtimeSharedMemoryPanel.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        realtimeSharedMemoryPanel.add(realtimeSharedMemoryTextField);
+        panel.add(realtimeSharedMemoryPanel);
+
+        jfrEventsCheckBox.setToolTipText("Emit JDK Flight Recorder events for the stages of the trackers while " +
+                "tracking, to line them up with IDE freezes in a JFR recording.");
+        jfrEventsCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        jfrEventsCheckBox.setBorder(new EmptyBorder(JBUI.insets(5, 20)));
+        panel.add(jfrEventsCheckBox);
+
+        screenRecording.addChangeListener(e -> {
+            for (JCheckBox displayCheckBox : displayCheckBoxes) {
+                displayCheckBox.setEnabled(screenRecording.isSelected());
+            }
+            screenRecordingModeCombo.setEnabled(screenRecording.isSelected());
+            screenRecordingBufferCombo.setEnabled(screenRecording.isSelected()
+                    && screenRecordingModeCombo.getSelectedIndex() == 1);
+        });
+
         eyeTracking.addChangeListener(e -> {
             freqCombo.setEnabled(eyeTracking.isSelected());
             deviceCombo.setEnabled(eyeTracking.isSelected());
+            gazeMappingModeCombo.setEnabled(eyeTracking.isSelected());
         });
 
         JPanel labelAreaPanel = new JPanel();
@@ -369,9 +558,7 @@ public class ConfigDialog extends DialogWrapper {
                         freqCombo.setEnabled(true);
                         String trackerName = AvailabilityChecker.getEyeTrackerName(getPythonInterpreter());
                         if (trackerName != null && !trackerName.equals("Not Found")) {
-                            deviceCombo.removeAllItems();
-                            deviceCombo.addItem("Mouse");
-                            deviceCombo.addItem(trackerName);
+                            setDevices(trackerName);
                             deviceCombo.setSelectedIndex(1);
                         }
                         List<String> freqList = AvailabilityChecker.getFrequencies(getPythonInterpreter());
@@ -514,6 +701,21 @@ public class ConfigDialog extends DialogWrapper {
         return selected;
     }
 
+    /**
+     * Get the selected displays for screen recording in the configuration dialog.
+     *
+     * @return The indices of the selected displays.
+     */
+    public List<Integer> getSelectedDisplays() {
+        List<Integer> selected = new ArrayList<>();
+        for (int i = 0; i < displayCheckBoxes.size(); i++) {
+            if (displayCheckBoxes.get(i).isSelected()) {
+                selected.add(i);
+            }
+        }
+        return selected;
+    }
+
     /**
      * Get the python interpreter path in the configuration dialog. If the path is empty, the default "python" will be returned.
      *
@@ -0,0 +1,122 @@
+package components;
+
+import actions.StartStopTrackingAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.NlsContexts;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.openapi.wm.StatusBarWidgetFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.LatencyHistogram;
+import utils.LatencyMonitor;
+
+import java.awt.*;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * This class is the status bar widget that shows the end-to-end latency of the real-time data while tracking. The
+ * tooltip shows the percentiles of each stage of the {@link LatencyMonitor}.
+ */
+public class LatencyStatusBarWidget implements StatusBarWidget, StatusBarWidget.TextPresentation {
+    public static final String ID = "CodeGRITS.Latency";
+    private Timer timer;
+
+    @Override
+    public @NotNull String ID() {
+        return ID;
+    }
+
+    @Override
+    public @Nullable WidgetPresentation getPresentation() {
+        return this;
+    }
+
+    /**
+     * Install the widget and refresh it once per second.
+     *
+     * @param statusBar The status bar.
+     */
+    @Override
+    public void install(@NotNull StatusBar statusBar) {
+        timer = new Timer("CodeGRITS Latency Widget", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                statusBar.updateWidget(ID);
+            }
+        }, 1000, 1000);
+    }
+
+    @Override
+    public @NotNull String getText() {
+        if (!StartStopTrackingAction.isTracking()) {
+            return "";
+        }
+        String summary = LatencyMonitor.getInstance().getSummary();
+        return summary.isEmpty() ? "" : "CodeGRITS " + summary;
+    }
+
+    @Override
+    public float getAlignment() {
+        return Component.CENTER_ALIGNMENT;
+    }
+
+    @Override
+    public @Nullable @NlsContexts.Tooltip String getTooltipText() {
+        StringBuilder tooltip = new StringBuilder("<html><b>CodeGRITS latency</b> (p50 / p99 / max ms)");
+        for (LatencyMonitor.Stage stage : LatencyMonitor.Stage.values()) {
+            LatencyHistogram histogram = LatencyMonitor.getInstance().getHistogram(stage);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            tooltip.append(String.format("<br>%s: %.1f / %.1f / %.1f", stage.getName(),
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getMax() / 1e6));
+        }
+        return tooltip.append("</html>").toString();
+    }
+
+    @Override
+    public void dispose() {
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * This class is the factory of the {@link LatencyStatusBarWidget}, registered in {@code plugin.xml}.
+     */
+    public static class Factory implements StatusBarWidgetFactory {
+        @Override
+        public @NotNull String getId() {
+            return ID;
+        }
+
+        @Override
+        public @NotNull @NlsContexts.ConfigurableName String getDisplayName() {
+            return "CodeGRITS Latency";
+        }
+
+        @Override
+        public boolean isAvailable(@NotNull Project project) {
+            return true;
+        }
+
+        @Override
+        public @NotNull StatusBarWidget createWidget(@NotNull Project project) {
+            return new LatencyStatusBarWidget();
+        }
+
+        @Override
+        public void disposeWidget(@NotNull StatusBarWidget widget) {
+            widget.dispose();
+        }
+
+        @Override
+        public boolean canBeEnabledOn(@NotNull StatusBar statusBar) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package components;
+
+import actions.StartStopTrackingAction;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import utils.TelemetryMonitor;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+/**
+ * This class is the tool window that shows the counters of the {@link TelemetryMonitor} live: the share of the time the
+ * EDT spent in CodeGRITS, the events, time and bytes written of each probe, and the depth of each queue. It refreshes
+ * once per second.
+ */
+public class TelemetryToolWindow extends JPanel implements Disposable {
+    public static final String ID = "CodeGRITS Telemetry";
+    private static final String[] COLUMNS = {"Probe", "Thread", "Events", "Busy (ms)", "Mean (ms)", "Max (ms)",
+            "Bytes"};
+
+    private final JBLabel summaryLabel = new JBLabel();
+    private final DefaultTableModel tableModel = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final Timer timer = new Timer(1000, e -> refresh());
+
+    public TelemetryToolWindow() {
+        super(new BorderLayout());
+        summaryLabel.setBorder(JBUI.Borders.empty(4, 8));
+        add(summaryLabel, BorderLayout.NORTH);
+        for (TelemetryMonitor.Probe probe : TelemetryMonitor.Probe.values()) {
+            tableModel.addRow(new Object[]{probe.getName(), probe.getThread(), 0L, "", "", "", 0L});
+        }
+        add(new JBScrollPane(new JBTable(tableModel)), BorderLayout.CENTER);
+        refresh();
+        timer.start();
+    }
+
+    /**
+     * Update the summary and the rows of the probes from the {@link TelemetryMonitor}.
+     */
+    private void refresh() {
+        TelemetryMonitor telemetryMonitor = TelemetryMonitor.getInstance();
+        StringBuilder summary = new StringBuilder();
+        if (StartStopTrackingAction.isTracking()) {
+            double seconds = telemetryMonitor.getElapsedNanos() / 1e9;
+            double edtMillis = telemetryMonitor.getEDTNanos() / 1e6;
+            summary.append(String.format("EDT busy %.1f ms in %.0f s (%.3f%%)", edtMillis, seconds,
+                    seconds > 0 ? edtMillis / 10 / seconds : 0));
+        } else {
+            summary.append("Not tracking; the counters are of the last session");
+        }
+        for (TelemetryMonitor.Queue queue : TelemetryMonitor.Queue.values()) {
+            summary.append(String.format(" | %s %d (max %d)", queue.getName(), telemetryMonitor.getQueueDepth(queue),
+                    telemetryMonitor.getMaxQueueDepth(queue)));
+        }
+        summaryLabel.setText(summary.toString());
+        for (TelemetryMonitor.Probe probe : TelemetryMonitor.Probe.values()) {
+            int row = probe.ordinal();
+            long events = telemetryMonitor.getEvents(probe);
+            long nanos = telemetryMonitor.getNanos(probe);
+            tableModel.setValueAt(events, row, 2);
+            tableModel.setValueAt(String.format("%.1f", nanos / 1e6), row, 3);
+            tableModel.setValueAt(String.format("%.3f", events > 0 ? nanos / 1e6 / events : 0), row, 4);
+            tableModel.setValueAt(String.format("%.3f", telemetryMonitor.getMaxNanos(probe) / 1e6), row, 5);
+            tableModel.setValueAt(telemetryMonitor.getBytes(probe), row, 6);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+    }
+
+    /**
+     * This class is the factory of the {@link TelemetryToolWindow}, registered in {@code plugin.xml}.
+     */
+    public static class Factory implements ToolWindowFactory, DumbAware {
+        @Override
+        public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+            TelemetryToolWindow telemetryToolWindow = new TelemetryToolWindow();
+            Content content = ContentFactory.getInstance().createContent(telemetryToolWindow, "", false);
+            Disposer.register(content, telemetryToolWindow);
+            toolWindow.getContentManager().addContent(content);
+        }
+    }
+}
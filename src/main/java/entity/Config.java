@@ -21,6 +21,14 @@ public class Config implements Serializable {
     private String pythonInterpreter;
     private String dataOutputPath;
     private Integer eyeTrackerDevice;
+    private List<Integer> screenRecordingDisplays = List.of();
+    private Integer screenRecordingMode = 0;
+    private Integer screenRecordingBufferSeconds = 30;
+    private String realtimeServerAddress = "";
+    private String realtimeSharedMemoryPath = "";
+    private Integer gazeMappingMode = 0;
+    private String syntheticGazeSource = "";
+    private Boolean jfrEventsEnabled = false;
 
     /**
      * The constructor of the Config class.
@@ -67,6 +75,14 @@ public class Config implements Serializable {
         jsonObject.addProperty("checkBoxes", checkBoxes.toString());
         jsonObject.addProperty("dataOutputPath", dataOutputPath);
         jsonObject.addProperty("eyeTrackerDevice", eyeTrackerDevice);
+        jsonObject.addProperty("screenRecordingDisplays", screenRecordingDisplays.toString());
+        jsonObject.addProperty("screenRecordingMode", screenRecordingMode);
+        jsonObject.addProperty("screenRecordingBufferSeconds", screenRecordingBufferSeconds);
+        jsonObject.addProperty("realtimeServerAddress", realtimeServerAddress);
+        jsonObject.addProperty("realtimeSharedMemoryPath", realtimeSharedMemoryPath);
+        jsonObject.addProperty("gazeMappingMode", gazeMappingMode);
+        jsonObject.addProperty("syntheticGazeSource", syntheticGazeSource);
+        jsonObject.addProperty("jfrEventsEnabled", jfrEventsEnabled);
 
         try (FileWriter fileWriter = new FileWriter("config.json")) {
             fileWriter.write(jsonObject.toString());
@@ -93,6 +109,31 @@ public class Config implements Serializable {
             } else labels = List.of(labelsString.split(", "));
             checkBoxes = gson.fromJson(jsonObject.get("checkBoxes").getAsString(), new TypeToken<List<Boolean>>() {
             }.getType());
+            if (jsonObject.has("screenRecordingDisplays")) {
+                screenRecordingDisplays = gson.fromJson(jsonObject.get("screenRecordingDisplays").getAsString(), new TypeToken<List<Integer>>() {
+                }.getType());
+            }
+            if (jsonObject.has("screenRecordingMode")) {
+                screenRecordingMode = jsonObject.get("screenRecordingMode").getAsInt();
+            }
+            if (jsonObject.has("screenRecordingBufferSeconds")) {
+                screenRecordingBufferSeconds = jsonObject.get("screenRecordingBufferSeconds").getAsInt();
+            }
+            if (jsonObject.has("realtimeServerAddress")) {
+                realtimeServerAddress = jsonObject.get("realtimeServerAddress").getAsString();
+            }
+            if (jsonObject.has("realtimeSharedMemoryPath")) {
+                realtimeSharedMemoryPath = jsonObject.get("realtimeSharedMemoryPath").getAsString();
+            }
+            if (jsonObject.has("gazeMappingMode")) {
+                gazeMappingMode = jsonObject.get("gazeMappingMode").getAsInt();
+            }
+            if (jsonObject.has("syntheticGazeSource")) {
+                syntheticGazeSource = jsonObject.get("syntheticGazeSource").getAsString();
+            }
+            if (jsonObject.has("jfrEventsEnabled")) {
+                jfrEventsEnabled = jsonObject.get("jfrEventsEnabled").getAsBoolean();
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -122,6 +163,115 @@ public class Config implements Serializable {
         return eyeTrackerDevice;
     }
 
+    public List<Integer> getScreenRecordingDisplays() {
+        return screenRecordingDisplays;
+    }
+
+    /**
+     * Set the displays to record by the screen recorder.
+     *
+     * @param screenRecordingDisplays The list of the display indices. An empty list means the default display.
+     */
+    public void setScreenRecordingDisplays(List<Integer> screenRecordingDisplays) {
+        this.screenRecordingDisplays = screenRecordingDisplays;
+    }
+
+    public Integer getScreenRecordingMode() {
+        return screenRecordingMode;
+    }
+
+    /**
+     * Set the encoding mode of the screen recorder.
+     *
+     * @param screenRecordingMode 0 for real-time encoding, 1 for deferred encoding.
+     */
+    public void setScreenRecordingMode(Integer screenRecordingMode) {
+        this.screenRecordingMode = screenRecordingMode;
+    }
+
+    public Integer getScreenRecordingBufferSeconds() {
+        return screenRecordingBufferSeconds;
+    }
+
+    /**
+     * Set the size of the buffer of the deferred encoding.
+     *
+     * @param screenRecordingBufferSeconds The number of seconds of uncompressed frames the buffer of each display holds.
+     */
+    public void setScreenRecordingBufferSeconds(Integer screenRecordingBufferSeconds) {
+        this.screenRecordingBufferSeconds = screenRecordingBufferSeconds;
+    }
+
+    public String getRealtimeServerAddress() {
+        return realtimeServerAddress;
+    }
+
+    /**
+     * Set the address of the local streaming server of the real-time data.
+     *
+     * @param realtimeServerAddress A TCP port on localhost or the path of a Unix domain socket. An empty string
+     *                              disables the server.
+     */
+    public void setRealtimeServerAddress(String realtimeServerAddress) {
+        this.realtimeServerAddress = realtimeServerAddress;
+    }
+
+    public String getRealtimeSharedMemoryPath() {
+        return realtimeSharedMemoryPath;
+    }
+
+    /**
+     * Set the path of the memory-mapped ring buffer file of the real-time data.
+     *
+     * @param realtimeSharedMemoryPath The path of the file, e.g., /dev/shm/codegrits. An empty string disables the
+     *                                 export.
+     */
+    public void setRealtimeSharedMemoryPath(String realtimeSharedMemoryPath) {
+        this.realtimeSharedMemoryPath = realtimeSharedMemoryPath;
+    }
+
+    public Integer getGazeMappingMode() {
+        return gazeMappingMode;
+    }
+
+    /**
+     * Set the mode of mapping the gazes to the code.
+     *
+     * @param gazeMappingMode 0 for live mapping while tracking, 1 for recording the raw gazes only and mapping them
+     *                        offline with {@code tools.GazeRemapper}.
+     */
+    public void setGazeMappingMode(Integer gazeMappingMode) {
+        this.gazeMappingMode = gazeMappingMode;
+    }
+
+    public String getSyntheticGazeSource() {
+        return syntheticGazeSource;
+    }
+
+    /**
+     * Set the specification of the synthetic gaze source, which is used if the eye tracker device is
+     * {@code trackers.EyeTracker.SYNTHETIC_DEVICE_INDEX}.
+     *
+     * @param syntheticGazeSource The specification, e.g., {@code rate=600;invalid=0.05}, see
+     *                            {@code trackers.SyntheticGazeSource.parse}. An empty string uses the defaults.
+     */
+    public void setSyntheticGazeSource(String syntheticGazeSource) {
+        this.syntheticGazeSource = syntheticGazeSource;
+    }
+
+    public Boolean isJfrEventsEnabled() {
+        return jfrEventsEnabled;
+    }
+
+    /**
+     * Set whether the JDK Flight Recorder events of the trackers are emitted, see {@code utils.JFREvents}.
+     *
+     * @param jfrEventsEnabled Whether the events are emitted.
+     */
+    public void setJfrEventsEnabled(Boolean jfrEventsEnabled) {
+        this.jfrEventsEnabled = jfrEventsEnabled;
+    }
+
     public String toString() {
         return "Config{" +
                 "checkBoxes=" + checkBoxes +
@@ -130,6 +280,14 @@ public class Config implements Serializable {
                 ", pythonInterpreter='" + pythonInterpreter + '\'' +
                 ", dataOutputPath='" + dataOutputPath + '\'' +
                 ", eyeTrackerDevice=" + eyeTrackerDevice +
+                ", screenRecordingDisplays=" + screenRecordingDisplays +
+                ", screenRecordingMode=" + screenRecordingMode +
+                ", screenRecordingBufferSeconds=" + screenRecordingBufferSeconds +
+                ", realtimeServerAddress='" + realtimeServerAddress + '\'' +
+                ", realtimeSharedMemoryPath='" + realtimeSharedMemoryPath + '\'' +
+                ", gazeMappingMode=" + gazeMappingMode +
+                ", syntheticGazeSource='" + syntheticGazeSource + '\'' +
+                ", jfrEventsEnabled=" + jfrEventsEnabled +
                 '}';
     }
 
@@ -0,0 +1,127 @@
+package tools;
+
+import com.opencsv.CSVWriter;
+import reader.SessionCatalog;
+import reader.SessionCatalogWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class is a headless command-line tool that queries the {@link SessionCatalog} of an output directory, e.g.,
+ * "all sessions of project X with label Y that are longer than 20 minutes", and prints the matching rows as CSV. With
+ * {@code --update}, the sessions that are missing from the catalog or have changed since are described first, in
+ * parallel on a {@link ForkJoinPool}. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.CatalogQuery [--update] [-j threads] [--where condition]... [--columns a,b,...]
+ *     [--count] output directory
+ * </pre>
+ * e.g., {@code --where project_name=X --where labels~Y --where duration_ms>1200000}.
+ */
+public class CatalogQuery {
+
+    /**
+     * Add the sessions of an output directory that are missing from its catalog or out of date.
+     *
+     * @param outputDirectory The output directory.
+     * @param parallelism     The number of worker threads.
+     * @return The number of sessions described.
+     */
+    public static int update(Path outputDirectory, int parallelism) throws IOException {
+        SessionCatalog catalog = SessionCatalog.open(outputDirectory);
+        List<Path> sessions = new ArrayList<>();
+        for (Path session : SessionConverter.findSessions(List.of(outputDirectory))) {
+            if (!session.getParent().equals(outputDirectory)) {
+                continue; // the catalog only holds the sessions directly in the output directory
+            }
+            String[] row = catalog.find(session.getFileName().toString());
+            if (row == null || SessionCatalogWriter.isStale(session, catalog, row)) {
+                sessions.add(session);
+            }
+        }
+        List<String[]> rows = Collections.synchronizedList(new ArrayList<>());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
+                for (Path session : sessions) {
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        try {
+                            rows.add(SessionCatalogWriter.describe(session));
+                        } catch (IOException | RuntimeException e) {
+                            System.err.println("Failed to describe " + session + ": " + e);
+                        }
+                    }));
+                }
+                invokeAll(tasks);
+            }
+        });
+        pool.shutdown();
+        if (!rows.isEmpty()) {
+            SessionCatalogWriter.merge(outputDirectory, rows);
+        }
+        return rows.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean isUpdating = false, isCounting = false;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<SessionCatalog.Condition> conditions = new ArrayList<>();
+        List<String> columns = null;
+        Path outputDirectory = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update" -> isUpdating = true;
+                case "-j" -> parallelism = Integer.parseInt(args[++i]);
+                case "--where" -> conditions.add(SessionCatalog.Condition.parse(args[++i]));
+                case "--columns" -> columns = List.of(args[++i].split(","));
+                case "--count" -> isCounting = true;
+                default -> outputDirectory = Path.of(args[i]);
+            }
+        }
+        if (outputDirectory == null) {
+            System.err.println("Usage: CatalogQuery [--update] [-j threads] [--where condition]... "
+                    + "[--columns a,b,...] [--count] output directory");
+            System.exit(2);
+        }
+        outputDirectory = outputDirectory.toAbsolutePath().normalize();
+        if (isUpdating) {
+            long startTime = System.nanoTime();
+            int described = update(outputDirectory, parallelism);
+            System.err.printf("Described %d sessions with %d threads in %.1f s%n", described, parallelism,
+                    (System.nanoTime() - startTime) / 1e9);
+        }
+        long startTime = System.nanoTime();
+        SessionCatalog catalog = SessionCatalog.open(outputDirectory);
+        List<String[]> matches = catalog.query(conditions);
+        double milliseconds = (System.nanoTime() - startTime) / 1e6;
+        if (isCounting) {
+            System.out.println(matches.size());
+        } else {
+            List<String> selectedColumns = columns != null ? columns : catalog.getColumns();
+            CSVWriter csvWriter = new CSVWriter(new PrintWriter(new OutputStreamWriter(System.out,
+                    StandardCharsets.UTF_8)));
+            csvWriter.writeNext(selectedColumns.toArray(new String[0]));
+            for (String[] row : matches) {
+                String[] values = new String[selectedColumns.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = catalog.get(row, selectedColumns.get(i));
+                }
+                csvWriter.writeNext(values);
+            }
+            csvWriter.flush();
+        }
+        System.err.printf("Matched %d of %d sessions in %.1f ms%n", matches.size(), catalog.getRows().size(),
+                milliseconds);
+    }
+}
@@ -0,0 +1,144 @@
+package tools;
+
+import com.opencsv.CSVWriter;
+import reader.FrameIndex;
+import reader.FrameIndexWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a headless command-line tool that aligns the frames of the screen recording of sessions with their
+ * gazes. It writes the {@link FrameIndex} of each session with a screen recording, in parallel on a
+ * {@link ForkJoinPool}, and optionally exports it to {@code screen_recording/frame_gazes.csv}. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.FrameAligner [-j threads] [--csv] session or parent directory...
+ * </pre>
+ */
+public class FrameAligner {
+    static final String[] FRAME_GAZE_COLUMNS = {"display", "frame", "clip_number", "frame_number", "timestamp_us",
+            "end_timestamp_us", "pts_us", "first_gaze_id", "end_gaze_id"};
+
+    private final ForkJoinPool pool;
+    private final boolean isExportingCSV;
+    private final AtomicInteger indexedSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * The constructor of the aligner.
+     *
+     * @param parallelism    The number of worker threads.
+     * @param isExportingCSV Whether the index of each session is also exported to {@code frame_gazes.csv}.
+     */
+    public FrameAligner(int parallelism, boolean isExportingCSV) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.isExportingCSV = isExportingCSV;
+    }
+
+    /**
+     * Align the frames of sessions in parallel. A session that fails is reported and skipped.
+     *
+     * @param sessions The session directories.
+     */
+    public void align(List<Path> sessions) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
+                for (Path session : sessions) {
+                    tasks.add(ForkJoinTask.adapt(() -> alignSession(session)));
+                }
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private void alignSession(Path session) {
+        try {
+            FrameIndexWriter.write(session);
+            FrameIndex frameIndex = FrameIndex.open(session);
+            long frameCount = 0;
+            for (int display : frameIndex.getDisplays()) {
+                frameCount += frameIndex.getFrameCount(display);
+            }
+            if (isExportingCSV) {
+                exportCSV(frameIndex, session.resolve("screen_recording").resolve("frame_gazes.csv"));
+            }
+            frames.addAndGet(frameCount);
+            indexedSessions.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failedSessions.incrementAndGet();
+            System.err.println("Failed to align " + session + ": " + e);
+        }
+    }
+
+    private static void exportCSV(FrameIndex frameIndex, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             CSVWriter csvWriter = new CSVWriter(writer)) {
+            csvWriter.writeNext(FRAME_GAZE_COLUMNS);
+            for (int display : frameIndex.getDisplays()) {
+                for (int i = 0; i < frameIndex.getFrameCount(display); i++) {
+                    FrameIndex.Frame frame = frameIndex.getFrame(display, i);
+                    csvWriter.writeNext(new String[]{String.valueOf(display), String.valueOf(i),
+                            String.valueOf(frame.clip()), String.valueOf(frame.frameNumber()),
+                            String.valueOf(frame.timestampMicros()), String.valueOf(frame.endTimestampMicros()),
+                            String.valueOf(frame.presentationMicros()), String.valueOf(frame.firstGaze()),
+                            String.valueOf(frame.endGaze())});
+                }
+            }
+        }
+    }
+
+    public int getIndexedSessions() {
+        return indexedSessions.get();
+    }
+
+    public int getFailedSessions() {
+        return failedSessions.get();
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean isExportingCSV = false;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j" -> parallelism = Integer.parseInt(args[++i]);
+                case "--csv" -> isExportingCSV = true;
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: FrameAligner [-j threads] [--csv] session or parent directory...");
+            System.exit(2);
+        }
+        List<Path> sessions = new ArrayList<>();
+        for (Path session : SessionConverter.findSessions(inputs)) {
+            if (Files.exists(session.resolve("screen_recording").resolve("frames.csv"))) {
+                sessions.add(session);
+            }
+        }
+        FrameAligner aligner = new FrameAligner(parallelism, isExportingCSV);
+        long startTime = System.nanoTime();
+        aligner.align(sessions);
+        System.out.printf("Aligned %d of %d sessions (%d failed) with %d threads in %.1f s: %d frames%n",
+                aligner.getIndexedSessions(), sessions.size(), aligner.getFailedSessions(), parallelism,
+                (System.nanoTime() - startTime) / 1e9, aligner.getFrames());
+        System.exit(aligner.getFailedSessions() > 0 ? 1 : 0);
+    }
+}
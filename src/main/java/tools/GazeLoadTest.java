@@ -0,0 +1,132 @@
+package tools;
+
+import api.RealtimeEventBus;
+import api.SubscriptionFilter;
+import com.opencsv.CSVWriter;
+import trackers.GazePipeline;
+import trackers.SyntheticGazeSource;
+import utils.LatencyHistogram;
+import utils.LatencyMonitor;
+import utils.SessionClock;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.awt.*;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class is a headless command-line harness that load-tests the eye tracking pipeline with
+ * {@link SyntheticGazeSource}s, without an eye tracker, Python, or the IDE. For each source specification, it feeds a
+ * {@link GazePipeline} that records the raw gazes, as with the offline gaze mapping, with subscribers of the gazes and
+ * fixations on the {@link RealtimeEventBus}, and reports the sustained throughput, the samples dropped by the source
+ * and by the event bus, and the latencies of the {@link LatencyMonitor}. The pipeline does not depend on the IntelliJ
+ * Platform, so the harness runs on a plain JVM. Mapping the gazes on the EDT needs the IDE, so the EDT columns are
+ * zero; their values are written to {@code gaze_load.csv} of a session tracked with the synthetic device. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.GazeLoadTest [-d seconds] [-s subscribers] [-o report.csv] source specification...
+ * </pre>
+ * e.g., {@code -d 30 "rate=120" "rate=600" "rate=1200;invalid=0.1;burst=32"}.
+ */
+public class GazeLoadTest {
+    private static final String[] BUS_HEADER = {"bus_delivered", "bus_dropped", "gaze_pipe_p99_ms",
+            "gaze_end_to_end_p99_ms"};
+
+    /**
+     * Run the eye tracking pipeline with a synthetic gaze source.
+     *
+     * @param specification The specification of the source, see {@link SyntheticGazeSource#parse(String, double)}.
+     * @param seconds       The duration of the run, shorter if a replayed session ends before.
+     * @param subscribers   The number of subscribers of the event bus.
+     * @return The load of the run, named by {@link SyntheticGazeSource#LOAD_REPORT_HEADER} and {@link #BUS_HEADER}.
+     */
+    public static String[] run(String specification, double seconds, int subscribers)
+            throws ParserConfigurationException, InterruptedException {
+        SyntheticGazeSource source = SyntheticGazeSource.parse(specification, 120);
+        SessionClock.start();
+        LatencyMonitor.getInstance().reset();
+        GazePipeline gazePipeline = new GazePipeline(new Dimension(1920, 1080));
+        List<RealtimeEventBus.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(RealtimeEventBus.getInstance().subscribe(SubscriptionFilter.parse("types=gaze,fixation"),
+                    event -> {
+                    }));
+        }
+        source.start(gazePipeline::processRawGaze);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < deadline && !source.isFinished()) {
+            Thread.sleep(100);
+        }
+        source.stop();
+        gazePipeline.flushFixation();
+        Thread.sleep(200); // let the subscribers catch up
+        long delivered = 0, dropped = 0;
+        for (RealtimeEventBus.Subscription subscription : subscriptions) {
+            subscription.close();
+            delivered += subscription.getDeliveredEvents();
+            dropped += subscription.getDroppedEvents();
+        }
+        LatencyMonitor latencyMonitor = LatencyMonitor.getInstance();
+        LatencyHistogram pipe = latencyMonitor.getHistogram(LatencyMonitor.Stage.GAZE_PIPE);
+        LatencyHistogram endToEnd = latencyMonitor.getHistogram(LatencyMonitor.Stage.GAZE_END_TO_END);
+        String[] report = source.getLoadReport(0, 0, 0);
+        String[] row = Arrays.copyOf(report, report.length + BUS_HEADER.length);
+        row[report.length] = String.valueOf(delivered);
+        row[report.length + 1] = String.valueOf(dropped);
+        row[report.length + 2] = String.format(Locale.ROOT, "%.3f", pipe.getValueAtPercentile(99) / 1e6);
+        row[report.length + 3] = String.format(Locale.ROOT, "%.3f", endToEnd.getValueAtPercentile(99) / 1e6);
+        return row;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double seconds = 10;
+        int subscribers = 1;
+        String outputFile = null;
+        List<String> specifications = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-d" -> seconds = Double.parseDouble(args[++i]);
+                case "-s" -> subscribers = Integer.parseInt(args[++i]);
+                case "-o" -> outputFile = args[++i];
+                default -> specifications.add(args[i]);
+            }
+        }
+        if (specifications.isEmpty()) {
+            System.err.println("Usage: GazeLoadTest [-d seconds] [-s subscribers] [-o report.csv] "
+                    + "source specification...");
+            System.exit(2);
+        }
+        List<String[]> rows = new ArrayList<>();
+        for (String specification : specifications) {
+            String[] row;
+            try {
+                row = run(specification, seconds, subscribers);
+            } catch (IllegalArgumentException e) {
+                System.err.println(specification + ": " + e.getMessage());
+                System.exit(2);
+                return;
+            }
+            rows.add(row);
+            System.out.printf(Locale.ROOT, "%s: %s of %s samples in %s s (%s Hz), %s dropped (%s), max backlog %s | "
+                            + "bus %s delivered, %s dropped | pipe p99 %s ms, end-to-end p99 %s ms%n", row[0], row[4],
+                    row[3], row[2], row[8], row[5], row[6], row[9], row[14], row[15], row[16], row[17]);
+        }
+        if (outputFile != null) {
+            try (CSVWriter csvWriter = new CSVWriter(new FileWriter(outputFile))) {
+                String[] header = Arrays.copyOf(SyntheticGazeSource.LOAD_REPORT_HEADER,
+                        SyntheticGazeSource.LOAD_REPORT_HEADER.length + BUS_HEADER.length);
+                System.arraycopy(BUS_HEADER, 0, header, SyntheticGazeSource.LOAD_REPORT_HEADER.length,
+                        BUS_HEADER.length);
+                csvWriter.writeNext(header);
+                csvWriter.writeAll(rows);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+}
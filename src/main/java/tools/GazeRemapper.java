@@ -0,0 +1,632 @@
+package tools;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import reader.ArchiveIndex;
+import reader.TimeIndexWriter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class maps the raw gazes of a session to the code after the session, i.e., it adds the {@code location} and
+ * the {@code ast_structure} of the gazes recorded by {@code EyeTracker} with the raw gazes only. The state of the code
+ * editor at each gaze is rebuilt from {@code ide_tracking.xml}: the selected file from the {@code file} events, and
+ * the scrolling and the geometry of the editor from the {@code visible_area} events. The content of the file is its
+ * latest archive before the gaze, found with the {@link ArchiveIndex}.
+ * <p>
+ * The gazes are grouped by archive, and each archive is parsed once into a PSI file in a read action, without an
+ * editor or a document. The groups are mapped in parallel on a {@link ForkJoinPool}. The result is written to
+ * {@code eye_tracking_remapped.xml} next to {@code eye_tracking.xml} in the format of the live mapping, and indexed with
+ * {@link TimeIndexWriter}. Folded regions, soft wraps, and inlays are not recorded, so the lines below them are mapped
+ * as if the editor had none.
+ */
+public class GazeRemapper {
+    public static final String OUTPUT_FILE_NAME = "eye_tracking_remapped.xml";
+    static final int DEFAULT_TAB_SIZE = 4;
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final Project project;
+    private final ForkJoinPool pool;
+    private final AtomicLong remappedGazes = new AtomicLong();
+    private final AtomicLong failedGazes = new AtomicLong();
+    private final AtomicLong parsedArchives = new AtomicLong();
+
+    /**
+     * The constructor of the remapper.
+     *
+     * @param project     The project of the PSI files, e.g., the default project, since the mapping only needs the
+     *                    syntax of the files.
+     * @param parallelism The number of worker threads.
+     */
+    public GazeRemapper(Project project, int parallelism) {
+        this.project = project;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Map the raw gazes of a session, i.e., the gazes of {@code eye_tracking.xml} without a {@code location} or a
+     * {@code remark}, and write all gazes to {@code eye_tracking_remapped.xml}.
+     *
+     * @param session The session directory.
+     * @return The remapped file.
+     */
+    public Path remap(Path session) throws IOException {
+        Path eyeTrackingFile = session.resolve("eye_tracking.xml");
+        Path ideTrackingFile = session.resolve("ide_tracking.xml");
+        Path outputFile = session.resolve(OUTPUT_FILE_NAME);
+        try {
+            EditorTimeline timeline = EditorTimeline.read(ideTrackingFile);
+            double[] screenSize = SessionConverter.readScreenSize(ideTrackingFile);
+            List<RemappedGaze> gazes = readGazes(eyeTrackingFile, timeline, screenSize);
+            mapGroups(ArchiveIndex.open(session), gazes);
+            write(eyeTrackingFile, outputFile, gazes);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid session: " + session, e);
+        }
+        TimeIndexWriter.write(outputFile);
+        return outputFile;
+    }
+
+    /**
+     * Read the gazes and place the raw gazes in the code editor.
+     *
+     * @return The gazes in the order of the file, with {@code null} for the gazes that are kept as they are.
+     */
+    private List<RemappedGaze> readGazes(Path file, EditorTimeline timeline, double[] screenSize)
+            throws IOException, XMLStreamException {
+        List<RemappedGaze> gazes = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                long timestamp = 0;
+                boolean isRaw = false;
+                double[] gazePoint = new double[4];
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "gaze" -> {
+                                timestamp = Long.parseLong(reader.getAttributeValue(null, "timestamp"));
+                                isRaw = reader.getAttributeValue(null, "remark") == null;
+                                Arrays.fill(gazePoint, Double.NaN);
+                            }
+                            case "left_eye" -> readGazePoint(reader, gazePoint, 0);
+                            case "right_eye" -> readGazePoint(reader, gazePoint, 2);
+                            case "location" -> isRaw = false;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("gaze")) {
+                        gazes.add(isRaw ? place(timestamp, (gazePoint[0] + gazePoint[2]) / 2 * screenSize[0],
+                                (gazePoint[1] + gazePoint[3]) / 2 * screenSize[1], timeline) : null);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return gazes;
+    }
+
+    private static void readGazePoint(XMLStreamReader reader, double[] gazePoint, int index) {
+        try {
+            gazePoint[index] = Double.parseDouble(reader.getAttributeValue(null, "gaze_point_x"));
+            gazePoint[index + 1] = Double.parseDouble(reader.getAttributeValue(null, "gaze_point_y"));
+        } catch (NullPointerException | NumberFormatException e) {
+            gazePoint[index] = gazePoint[index + 1] = Double.NaN;
+        }
+    }
+
+    /**
+     * Place a gaze in the state of the code editor at its timestamp, with the same checks as the live mapping.
+     */
+    private static RemappedGaze place(long timestamp, double screenX, double screenY, EditorTimeline timeline) {
+        int eyeX = (int) screenX, eyeY = (int) screenY;
+        RemappedGaze gaze = new RemappedGaze(timestamp, eyeX, eyeY);
+        if (Double.isNaN(screenX) || Double.isNaN(screenY)) {
+            gaze.remark = "Fail | Invalid Gaze Point";
+            return gaze;
+        }
+        EditorState state = timeline.getState(timestamp);
+        if (state == null || !state.hasGeometry()) {
+            gaze.remark = "Fail | No Editor";
+            return gaze;
+        }
+        int relativeX = eyeX - state.screenX, relativeY = eyeY - state.screenY;
+        if (relativeX < 0 || relativeY < 0 || relativeX > state.width || relativeY > state.height) {
+            gaze.remark = "Fail | Out of Text Editor";
+            return gaze;
+        }
+        gaze.state = state;
+        gaze.line = Math.max(0, Math.floorDiv(relativeY + state.scrollY - state.originY, state.lineHeight));
+        gaze.column = Math.max(0, Math.round((float) (relativeX + state.scrollX - state.originX) / state.charWidth));
+        return gaze;
+    }
+
+    /**
+     * Group the placed gazes by the archive of their file, and map the groups in parallel.
+     */
+    private void mapGroups(ArchiveIndex archiveIndex, List<RemappedGaze> gazes) {
+        Map<String, Map<Long, List<RemappedGaze>>> groups = new HashMap<>();
+        for (RemappedGaze gaze : gazes) {
+            if (gaze == null || gaze.state == null) {
+                continue;
+            }
+            long archiveTimestamp = archiveIndex.findArchiveTimestamp(gaze.state.path, gaze.timestamp);
+            if (archiveTimestamp < 0) {
+                gaze.state = null;
+                gaze.remark = "Fail | No Archive";
+                continue;
+            }
+            groups.computeIfAbsent(gaze.state.path, path -> new HashMap<>())
+                    .computeIfAbsent(archiveTimestamp, timestamp -> new ArrayList<>()).add(gaze);
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                groups.forEach((path, archives) -> archives.forEach((archiveTimestamp, group) ->
+                        tasks.add(ForkJoinTask.adapt(() -> mapGroup(archiveIndex, path, archiveTimestamp, group)))));
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Map the gazes on one archive of a file. The PSI elements of the archive are converted to their
+     * {@code ast_structure} once, however many gazes they have.
+     */
+    private void mapGroup(ArchiveIndex archiveIndex, String path, long archiveTimestamp, List<RemappedGaze> group) {
+        String text;
+        try {
+            text = StringUtil.convertLineSeparators(archiveIndex.readFile(path, archiveTimestamp));
+        } catch (IOException e) {
+            for (RemappedGaze gaze : group) {
+                gaze.state = null;
+                gaze.remark = "Fail | No Archive";
+            }
+            return;
+        }
+        TextLayout layout = new TextLayout(text, group.get(0).state.tabSize);
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        ReadAction.run(() -> {
+            PsiFile psiFile = PsiFileFactory.getInstance(project).createFileFromText(fileName, text);
+            Map<PsiElement, MappedElement> elements = new HashMap<>();
+            for (RemappedGaze gaze : group) {
+                int offset = layout.getOffset(gaze.line, gaze.column);
+                PsiElement psiElement = psiFile.findElementAt(offset);
+                gaze.element = elements.computeIfAbsent(psiElement, element -> MappedElement.of(element, layout));
+            }
+        });
+        parsedArchives.incrementAndGet();
+    }
+
+    /**
+     * Copy {@code eye_tracking.xml} with the remapped gazes. The whitespace of the file is kept, and the new elements
+     * are indented as their siblings.
+     */
+    private void write(Path input, Path output, List<RemappedGaze> gazes) throws IOException, XMLStreamException {
+        long remapped = 0, failed = 0;
+        try (InputStream inputStream = Files.newInputStream(input);
+             BufferedWriter bufferedWriter = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(bufferedWriter);
+            try {
+                writer.writeStartDocument("UTF-8", "1.0");
+                StringBuilder whitespace = new StringBuilder();
+                String childIndent = "\n            ";
+                String[] pendingStart = null; // the name and the attributes of a start tag that may be empty
+                RemappedGaze gaze = null;
+                MappedElement lastElement = null;
+                int gazeIndex = 0, depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    switch (event) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            writeStart(writer, pendingStart);
+                            if (gaze != null && depth == 3) {
+                                childIndent = whitespace.toString();
+                            }
+                            writer.writeCharacters(whitespace.toString());
+                            whitespace.setLength(0);
+                            depth++;
+                            String name = reader.getLocalName();
+                            List<String> start = new ArrayList<>();
+                            start.add(name);
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                if (name.equals("setting") && reader.getAttributeLocalName(i).equals("mapping")) {
+                                    continue;
+                                }
+                                start.add(reader.getAttributeLocalName(i));
+                                start.add(reader.getAttributeValue(i));
+                            }
+                            if (name.equals("setting") && depth == 2) {
+                                start.add("mapping");
+                                start.add("remapped");
+                            } else if (name.equals("gaze") && depth == 3) {
+                                gaze = gazes.get(gazeIndex++);
+                                if (gaze != null && gaze.remark != null) {
+                                    start.add("remark");
+                                    start.add(gaze.remark);
+                                    failed++;
+                                }
+                            }
+                            pendingStart = start.toArray(new String[0]);
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            if (pendingStart != null && whitespace.isEmpty()) {
+                                writer.writeEmptyElement(pendingStart[0]);
+                                writeAttributes(writer, pendingStart);
+                                pendingStart = null;
+                                depth--;
+                                continue;
+                            }
+                            writeStart(writer, pendingStart);
+                            pendingStart = null;
+                            if (depth == 3 && gaze != null && gaze.element != null) {
+                                writeMapping(writer, gaze, gaze.element != MappedElement.NONE
+                                        && gaze.element == lastElement, childIndent);
+                                lastElement = gaze.element;
+                                remapped++;
+                            }
+                            if (depth == 3) {
+                                gaze = null;
+                            }
+                            writer.writeCharacters(whitespace.toString());
+                            whitespace.setLength(0);
+                            writer.writeEndElement();
+                            depth--;
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE -> {
+                            if (reader.isWhiteSpace()) {
+                                whitespace.append(reader.getText());
+                            } else {
+                                writeStart(writer, pendingStart);
+                                pendingStart = null;
+                                writer.writeCharacters(whitespace.toString());
+                                whitespace.setLength(0);
+                                writer.writeCharacters(reader.getText());
+                            }
+                        }
+                        case XMLStreamConstants.COMMENT -> {
+                            writeStart(writer, pendingStart);
+                            pendingStart = null;
+                            writer.writeCharacters(whitespace.toString());
+                            whitespace.setLength(0);
+                            writer.writeComment(reader.getText());
+                        }
+                        default -> {
+                        }
+                    }
+                }
+                writer.writeCharacters(whitespace.toString());
+                writer.writeEndDocument();
+                writer.flush();
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        }
+        remappedGazes.addAndGet(remapped);
+        failedGazes.addAndGet(failed);
+    }
+
+    private static void writeStart(XMLStreamWriter writer, String[] start) throws XMLStreamException {
+        if (start != null) {
+            writer.writeStartElement(start[0]);
+            writeAttributes(writer, start);
+        }
+    }
+
+    private static void writeAttributes(XMLStreamWriter writer, String[] start) throws XMLStreamException {
+        for (int i = 1; i + 1 < start.length; i += 2) {
+            writer.writeAttribute(start[i], start[i + 1]);
+        }
+    }
+
+    /**
+     * Write the {@code location} and the {@code ast_structure} of a gaze, as {@code EyeTracker} does. The levels are
+     * left out if the gaze is on the same element as the last mapped gaze.
+     */
+    private static void writeMapping(XMLStreamWriter writer, RemappedGaze gaze, boolean isSame, String indent)
+            throws XMLStreamException {
+        MappedElement element = gaze.element;
+        writer.writeCharacters(indent);
+        writer.writeEmptyElement("location");
+        writer.writeAttribute("column", String.valueOf(gaze.column));
+        writer.writeAttribute("line", String.valueOf(gaze.line));
+        writer.writeAttribute("path", gaze.state.path);
+        writer.writeAttribute("x", String.valueOf(gaze.eyeX));
+        writer.writeAttribute("y", String.valueOf(gaze.eyeY));
+        writer.writeCharacters(indent);
+        if (isSame || element.levels.length == 0) {
+            writer.writeEmptyElement("ast_structure");
+            if (isSame) {
+                writer.writeAttribute("remark", "Same (Last Successful AST)");
+            }
+            writer.writeAttribute("token", element.token);
+            writer.writeAttribute("type", element.type);
+            return;
+        }
+        writer.writeStartElement("ast_structure");
+        writer.writeAttribute("token", element.token);
+        writer.writeAttribute("type", element.type);
+        for (int i = 0; i < element.levels.length; i += 3) {
+            writer.writeCharacters(indent + "    ");
+            writer.writeEmptyElement("level");
+            writer.writeAttribute("end", element.levels[i + 2]);
+            writer.writeAttribute("start", element.levels[i + 1]);
+            writer.writeAttribute("tag", element.levels[i]);
+        }
+        writer.writeCharacters(indent);
+        writer.writeEndElement();
+    }
+
+    public long getRemappedGazes() {
+        return remappedGazes.get();
+    }
+
+    public long getFailedGazes() {
+        return failedGazes.get();
+    }
+
+    public long getParsedArchives() {
+        return parsedArchives.get();
+    }
+
+    /**
+     * This class is a gaze to remap, with its position in the code editor.
+     */
+    private static final class RemappedGaze {
+        private final long timestamp;
+        private final int eyeX, eyeY;
+        private EditorState state;
+        private int line, column;
+        private String remark;
+        private MappedElement element;
+
+        private RemappedGaze(long timestamp, int eyeX, int eyeY) {
+            this.timestamp = timestamp;
+            this.eyeX = eyeX;
+            this.eyeY = eyeY;
+        }
+    }
+
+    /**
+     * This class is the {@code ast_structure} of a PSI element, with the tag, the start, and the end of each level.
+     */
+    private static final class MappedElement {
+        private static final MappedElement NONE = new MappedElement("", "", new String[0]);
+        private final String token, type;
+        private final String[] levels;
+
+        private MappedElement(String token, String type, String[] levels) {
+            this.token = token;
+            this.type = type;
+            this.levels = levels;
+        }
+
+        private static MappedElement of(PsiElement psiElement, TextLayout layout) {
+            if (psiElement == null) {
+                return NONE;
+            }
+            String token = "", type = "";
+            if (psiElement.getTextLength() > 0) {
+                token = psiElement.getText();
+                type = psiElement.getNode().getElementType().toString();
+            }
+            List<String> levels = new ArrayList<>();
+            for (PsiElement parent = psiElement; parent != null && !(parent instanceof PsiFile);
+                 parent = parent.getParent()) {
+                levels.add(String.valueOf(parent));
+                levels.add(layout.getPosition(parent.getTextRange().getStartOffset()));
+                levels.add(layout.getPosition(parent.getTextRange().getEndOffset()));
+            }
+            return new MappedElement(token, type, levels.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * This class is the state of the code editor from an event on, i.e., the selected file and, if recorded, the
+     * geometry of its editor in the unit of {@code screen_size}.
+     */
+    record EditorState(String path, int scrollX, int scrollY, int width, int height, int screenX, int screenY,
+                       int originX, int originY, int lineHeight, int charWidth, int tabSize) {
+        static final int UNKNOWN = Integer.MIN_VALUE;
+
+        boolean hasGeometry() {
+            return screenX != UNKNOWN && lineHeight > 0 && charWidth > 0;
+        }
+    }
+
+    /**
+     * This class is a {@code visible_area} event, with the state of the editor, or a {@code selectionChanged} event,
+     * with the path of the selected file, if any.
+     */
+    private record TimelineEvent(long timestamp, String selectedPath, EditorState state) {
+    }
+
+    /**
+     * This class is the timeline of the state of the code editor, built from the {@code visible_area} events and the
+     * {@code selectionChanged} events of the files. The events are in different sections of {@code ide_tracking.xml},
+     * so they are sorted by their timestamps.
+     */
+    static final class EditorTimeline {
+        private final long[] timestamps;
+        private final EditorState[] states;
+
+        private EditorTimeline(long[] timestamps, EditorState[] states) {
+            this.timestamps = timestamps;
+            this.states = states;
+        }
+
+        static EditorTimeline read(Path file) throws IOException, XMLStreamException {
+            List<TimelineEvent> events = new ArrayList<>();
+            Map<String, EditorState> lastStates = new HashMap<>();
+            if (Files.exists(file)) {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+                    try {
+                        while (reader.hasNext()) {
+                            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                                continue;
+                            }
+                            String name = reader.getLocalName();
+                            String timestamp = reader.getAttributeValue(null, "timestamp");
+                            if (name.equals("visible_area") && timestamp != null) {
+                                events.add(new TimelineEvent(Long.parseLong(timestamp), null, getState(reader)));
+                            } else if (name.equals("file") && timestamp != null
+                                    && "selectionChanged".equals(reader.getAttributeValue(null, "id"))) {
+                                events.add(new TimelineEvent(Long.parseLong(timestamp),
+                                        reader.getAttributeValue(null, "new_path"), null));
+                            }
+                        }
+                    } finally {
+                        reader.close();
+                    }
+                }
+            }
+            events.sort(Comparator.comparingLong(TimelineEvent::timestamp)); // stable, so the order of a tie is kept
+            long[] timestamps = new long[events.size()];
+            EditorState[] states = new EditorState[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                TimelineEvent event = events.get(i);
+                timestamps[i] = event.timestamp();
+                if (event.state() != null) {
+                    lastStates.put(event.state().path(), event.state());
+                    states[i] = event.state();
+                } else if (event.selectedPath() != null) {
+                    // the editor of a file keeps its scrolling while another file is selected
+                    states[i] = lastStates.getOrDefault(event.selectedPath(), new EditorState(event.selectedPath(),
+                            0, 0, 0, 0, EditorState.UNKNOWN, EditorState.UNKNOWN, 0, 0, 0, 0, DEFAULT_TAB_SIZE));
+                }
+            }
+            return new EditorTimeline(timestamps, states);
+        }
+
+        private static EditorState getState(XMLStreamReader reader) {
+            return new EditorState(reader.getAttributeValue(null, "path"),
+                    getInt(reader, "x", 0), getInt(reader, "y", 0),
+                    getInt(reader, "width", 0), getInt(reader, "height", 0),
+                    getInt(reader, "screen_x", EditorState.UNKNOWN), getInt(reader, "screen_y", EditorState.UNKNOWN),
+                    getInt(reader, "origin_x", 0), getInt(reader, "origin_y", 0),
+                    getInt(reader, "line_height", 0), getInt(reader, "char_width", 0),
+                    getInt(reader, "tab_size", DEFAULT_TAB_SIZE));
+        }
+
+        private static int getInt(XMLStreamReader reader, String attribute, int defaultValue) {
+            String value = reader.getAttributeValue(null, attribute);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        /**
+         * Get the state of the code editor at a timestamp.
+         *
+         * @return The state, or {@code null} if no file is selected.
+         */
+        EditorState getState(long timestamp) {
+            int low = 0, high = timestamps.length - 1, found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[middle] <= timestamp) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found < 0 ? null : states[found];
+        }
+    }
+
+    /**
+     * This class converts between the offsets of a text and the logical positions of an editor, i.e., the lines and
+     * the columns with the tabs expanded, as {@code Editor#logicalPositionToOffset} and
+     * {@code Editor#offsetToLogicalPosition} do.
+     */
+    static final class TextLayout {
+        private final String text;
+        private final int tabSize;
+        private final int[] lineStarts;
+
+        TextLayout(String text, int tabSize) {
+            this.text = text;
+            this.tabSize = Math.max(1, tabSize);
+            int lineCount = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lineCount++;
+                }
+            }
+            lineStarts = new int[lineCount];
+            for (int i = 0, line = 1; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lineStarts[line++] = i + 1;
+                }
+            }
+        }
+
+        /**
+         * Get the offset of a logical position. A position beyond the end of its line is at the end of the line, and
+         * a line beyond the text is at the end of the text.
+         */
+        int getOffset(int line, int column) {
+            if (line >= lineStarts.length) {
+                return text.length();
+            }
+            int lineEnd = line + 1 < lineStarts.length ? lineStarts[line + 1] - 1 : text.length();
+            int offset = lineStarts[line], currentColumn = 0;
+            while (offset < lineEnd) {
+                int width = text.charAt(offset) == '\t' ? tabSize - currentColumn % tabSize : 1;
+                if (currentColumn + width > column) {
+                    break;
+                }
+                currentColumn += width;
+                offset++;
+            }
+            return offset;
+        }
+
+        /**
+         * Get the logical position of an offset as {@code line:column}.
+         */
+        String getPosition(int offset) {
+            int line = Arrays.binarySearch(lineStarts, offset);
+            if (line < 0) {
+                line = -line - 2;
+            }
+            int column = 0;
+            for (int i = lineStarts[line]; i < offset; i++) {
+                column += text.charAt(i) == '\t' ? tabSize - column % tabSize : 1;
+            }
+            return line + ":" + column;
+        }
+    }
+}
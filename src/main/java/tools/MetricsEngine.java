@@ -0,0 +1,528 @@
+package tools;
+
+import api.event.FixationEvent;
+import com.opencsv.CSVWriter;
+import utils.FixationDetector;
+import utils.LongIntHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a headless command-line tool that computes the eye-tracking metrics of sessions into one tidy table,
+ * i.e., one row per session, metric, and area of interest (AOI). The AOIs are the methods, i.e., the innermost AST
+ * level of a gaze whose element is a method or a function, e.g., {@code PsiMethod:main}. The fixations are detected
+ * offline with {@link FixationDetector}, and each fixation is located at its gaze closest to its centroid. The metrics
+ * are:
+ * <ul>
+ * <li>{@code fixation_count}, {@code dwell_ms}: the number and total duration of the fixations on each method, and on
+ * the whole session with an empty {@code aoi}.</li>
+ * <li>{@code first_fixation_ms}: the time from the first gaze of the session to the first fixation on each method.</li>
+ * <li>{@code regression_count}: the fixations that go back in the code from the previous fixation in the same file,
+ * i.e., to an earlier line or to an earlier column on the same line, counted for their method and the session.</li>
+ * <li>{@code transition_count}: the transitions between consecutive fixations on the code, from the AST element type
+ * in {@code aoi} to the one in {@code target}, at a depth of the AST levels, by default the parent of the token.</li>
+ * </ul>
+ * The gazes of {@code eye_tracking_remapped.xml} are used if it exists, and {@code eye_tracking.xml} otherwise. A
+ * session is streamed once into primitive columns and aggregated into primitive counters, and the sessions are
+ * processed in parallel on a {@link ForkJoinPool}. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.MetricsEngine [-o metrics.csv] [-j threads] [--transition-level depth]
+ *     session or parent directory...
+ * </pre>
+ */
+public class MetricsEngine {
+    static final String[] METRIC_COLUMNS = {"session", "metric", "aoi", "target", "value"};
+    public static final int DEFAULT_TRANSITION_LEVEL = 1;
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final ForkJoinPool pool;
+    private final int transitionLevel;
+    private final AtomicInteger processedSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+    private final AtomicLong gazes = new AtomicLong();
+    private final AtomicLong fixations = new AtomicLong();
+
+    /**
+     * The constructor of the engine.
+     *
+     * @param parallelism     The number of worker threads.
+     * @param transitionLevel The depth of the AST level of the transitions, from 0 for the token.
+     */
+    public MetricsEngine(int parallelism, int transitionLevel) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.transitionLevel = transitionLevel;
+    }
+
+    /**
+     * Compute the metrics of sessions in parallel and write them to a table, in the order of the sessions. A session
+     * that fails is reported and skipped.
+     *
+     * @param sessions   The session directories.
+     * @param outputFile The table.
+     */
+    public void compute(List<Path> sessions, Path outputFile) throws IOException {
+        List<List<String[]>> results = new ArrayList<>(Collections.nCopies(sessions.size(), null));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
+                for (int i = 0; i < sessions.size(); i++) {
+                    int index = i;
+                    tasks.add(ForkJoinTask.adapt(() -> results.set(index, computeSession(sessions.get(index)))));
+                }
+                invokeAll(tasks);
+            }
+        });
+        if (outputFile.getParent() != null) {
+            Files.createDirectories(outputFile.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8);
+             CSVWriter csvWriter = new CSVWriter(writer)) {
+            csvWriter.writeNext(METRIC_COLUMNS);
+            for (List<String[]> rows : results) {
+                if (rows != null) {
+                    csvWriter.writeAll(rows);
+                }
+            }
+        }
+    }
+
+    private List<String[]> computeSession(Path session) {
+        try {
+            Path eyeTrackingFile = session.resolve(GazeRemapper.OUTPUT_FILE_NAME);
+            if (!Files.exists(eyeTrackingFile)) {
+                eyeTrackingFile = session.resolve("eye_tracking.xml");
+            }
+            Gazes sessionGazes = readGazes(eyeTrackingFile, transitionLevel);
+            Metrics metrics = new Metrics(sessionGazes);
+            metrics.aggregate(SessionConverter.readScreenSize(session.resolve("ide_tracking.xml")));
+            gazes.addAndGet(sessionGazes.size);
+            fixations.addAndGet(metrics.fixationCount);
+            processedSessions.incrementAndGet();
+            return metrics.toRows(session.toString());
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            failedSessions.incrementAndGet();
+            System.err.println("Failed to compute the metrics of " + session + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the gazes of a session into columns. A gaze whose AST is the same as the last successful one, i.e., with
+     * no levels, takes the method and the element type of the last gaze with levels.
+     *
+     * @param file            The {@code eye_tracking.xml} file.
+     * @param transitionLevel The depth of the AST level of the element type.
+     * @return The gazes.
+     */
+    static Gazes readGazes(Path file, int transitionLevel) throws IOException, XMLStreamException {
+        Gazes gazes = new Gazes();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                int depth = 0, levelDepth = 0, lastMethod = -1, lastType = -1;
+                long timestamp = 0;
+                double[] eyes = new double[4];
+                String path = null, astRemark = null;
+                int line = -1, column = -1, method = -1, type = -1;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == 3 && reader.getLocalName().equals("gaze")) {
+                            int fileId = -1;
+                            if (path != null) {
+                                fileId = gazes.files.intern(path);
+                                if (levelDepth > 0) {
+                                    lastMethod = method;
+                                    lastType = type;
+                                } else if (astRemark != null && astRemark.startsWith("Same")) {
+                                    method = lastMethod;
+                                    type = lastType;
+                                }
+                            }
+                            gazes.add(timestamp, (eyes[0] + eyes[2]) / 2, (eyes[1] + eyes[3]) / 2, fileId, line,
+                                    column, method, type);
+                        }
+                        depth--;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 3 && name.equals("gaze")) {
+                        String timestampUs = reader.getAttributeValue(null, "timestamp_us");
+                        timestamp = timestampUs != null ? Long.parseLong(timestampUs) * 1000
+                                : Long.parseLong(reader.getAttributeValue(null, "timestamp")) * 1_000_000;
+                        Arrays.fill(eyes, Double.NaN);
+                        path = null;
+                        astRemark = null;
+                        line = column = method = type = -1;
+                        levelDepth = 0;
+                    } else if (depth > 3) {
+                        switch (name) {
+                            case "left_eye", "right_eye" -> {
+                                int offset = name.equals("left_eye") ? 0 : 2;
+                                eyes[offset] = parseCoordinate(reader.getAttributeValue(null, "gaze_point_x"));
+                                eyes[offset + 1] = parseCoordinate(reader.getAttributeValue(null, "gaze_point_y"));
+                            }
+                            case "location" -> {
+                                path = reader.getAttributeValue(null, "path");
+                                line = Integer.parseInt(reader.getAttributeValue(null, "line"));
+                                column = Integer.parseInt(reader.getAttributeValue(null, "column"));
+                            }
+                            case "ast_structure" -> astRemark = reader.getAttributeValue(null, "remark");
+                            case "level" -> {
+                                String tag = reader.getAttributeValue(null, "tag");
+                                String elementType = getElementType(tag);
+                                if (levelDepth == transitionLevel) {
+                                    type = gazes.types.intern(elementType);
+                                }
+                                if (method < 0 && path != null && isMethod(elementType)) {
+                                    method = gazes.methods.intern(path + "#" + tag);
+                                }
+                                levelDepth++;
+                            }
+                            default -> {
+                            }
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid stream file: " + file, e);
+        }
+        return gazes;
+    }
+
+    /**
+     * Get the element type of the tag of an AST level, e.g., {@code PsiMethod} of {@code PsiMethod:main}.
+     */
+    private static String getElementType(String tag) {
+        int separator = tag.indexOf(':');
+        return separator >= 0 ? tag.substring(0, separator) : tag;
+    }
+
+    /**
+     * Check whether an element type is a method or a function, e.g., {@code PsiMethod} of Java or {@code PyFunction}
+     * of Python.
+     */
+    private static boolean isMethod(String elementType) {
+        return elementType.endsWith("Method") || elementType.endsWith("Function");
+    }
+
+    private static double parseCoordinate(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NullPointerException | NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    public int getProcessedSessions() {
+        return processedSessions.get();
+    }
+
+    public int getFailedSessions() {
+        return failedSessions.get();
+    }
+
+    public long getGazes() {
+        return gazes.get();
+    }
+
+    public long getFixations() {
+        return fixations.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outputFile = Path.of("metrics.csv");
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int transitionLevel = DEFAULT_TRANSITION_LEVEL;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o" -> outputFile = Path.of(args[++i]);
+                case "-j" -> parallelism = Integer.parseInt(args[++i]);
+                case "--transition-level" -> transitionLevel = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: MetricsEngine [-o metrics.csv] [-j threads] [--transition-level depth] "
+                    + "session or parent directory...");
+            System.exit(2);
+        }
+        List<Path> sessions = new ArrayList<>();
+        for (Path session : SessionConverter.findSessions(inputs)) {
+            if (Files.exists(session.resolve("eye_tracking.xml"))) {
+                sessions.add(session);
+            }
+        }
+        MetricsEngine engine = new MetricsEngine(parallelism, transitionLevel);
+        long startTime = System.nanoTime();
+        engine.compute(sessions, outputFile);
+        System.out.printf("Computed the metrics of %d of %d sessions (%d failed) with %d threads in %.1f s: "
+                        + "%d gazes, %d fixations%n", engine.getProcessedSessions(), sessions.size(),
+                engine.getFailedSessions(), parallelism, (System.nanoTime() - startTime) / 1e9, engine.getGazes(),
+                engine.getFixations());
+        System.exit(engine.getFailedSessions() > 0 ? 1 : 0);
+    }
+
+    /**
+     * This class interns strings, e.g., the paths, into dense ids from {@code 0} in the order they are first seen.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        int intern(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return names.get(id);
+        }
+
+        int size() {
+            return names.size();
+        }
+    }
+
+    /**
+     * This class holds the gazes of a session in columns, in the order of time. The gaze point is normalized, and
+     * {@link Double#NaN} if invalid. The file, the method, and the element type are ids of the dictionaries, and
+     * {@code -1} if the gaze is not on the code.
+     */
+    static final class Gazes {
+        final Dictionary files = new Dictionary();
+        final Dictionary methods = new Dictionary();
+        final Dictionary types = new Dictionary();
+        int size = 0;
+        long[] timestamps = new long[1024];
+        double[] xs = new double[1024], ys = new double[1024];
+        int[] fileIds = new int[1024], lines = new int[1024], columns = new int[1024];
+        int[] methodIds = new int[1024], typeIds = new int[1024];
+
+        void add(long timestamp, double x, double y, int file, int line, int column, int method, int type) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                fileIds = Arrays.copyOf(fileIds, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                methodIds = Arrays.copyOf(methodIds, capacity);
+                typeIds = Arrays.copyOf(typeIds, capacity);
+            }
+            timestamps[size] = timestamp;
+            xs[size] = x;
+            ys[size] = y;
+            fileIds[size] = file;
+            lines[size] = line;
+            columns[size] = column;
+            methodIds[size] = method;
+            typeIds[size] = type;
+            size++;
+        }
+
+        /**
+         * Find the first gaze at or after a time.
+         */
+        int lowerBound(long timestamp) {
+            int low = 0, high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[middle] < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * This class aggregates the fixations of a session into the counters of each method, indexed by its id, and the
+     * transitions between element types, keyed by the pair of their ids.
+     */
+    static final class Metrics {
+        private final Gazes gazes;
+        private final int[] fixationCounts;
+        private final long[] dwellNanos;
+        private final long[] firstFixationNanos;
+        private final int[] regressionCounts;
+        private final LongIntHashMap transitionIndex = new LongIntHashMap();
+        private long[] transitionKeys = new long[64];
+        private int[] transitionCounts = new int[64];
+        private int transitionCount = 0;
+        private int fixationCount = 0, regressionCount = 0;
+        private long totalDwellNanos = 0;
+        private int lastFile = -1, lastLine, lastColumn, lastType = -1;
+
+        Metrics(Gazes gazes) {
+            this.gazes = gazes;
+            int methodCount = gazes.methods.size();
+            fixationCounts = new int[methodCount];
+            dwellNanos = new long[methodCount];
+            firstFixationNanos = new long[methodCount];
+            regressionCounts = new int[methodCount];
+            Arrays.fill(firstFixationNanos, -1);
+        }
+
+        /**
+         * Detect the fixations of the gazes and aggregate them.
+         *
+         * @param screenSize The width and height of the screen, for the dispersion threshold in pixels.
+         */
+        void aggregate(double[] screenSize) {
+            FixationDetector fixationDetector = new FixationDetector();
+            for (int i = 0; i < gazes.size; i++) {
+                add(fixationDetector.addSample(gazes.timestamps[i], gazes.xs[i] * screenSize[0],
+                        gazes.ys[i] * screenSize[1]), screenSize);
+            }
+            add(fixationDetector.flush(), screenSize);
+        }
+
+        private void add(FixationEvent fixation, double[] screenSize) {
+            if (fixation == null) {
+                return;
+            }
+            fixationCount++;
+            totalDwellNanos += fixation.durationNanos();
+            int gaze = findClosestGaze(fixation, screenSize);
+            if (gaze < 0) {
+                lastFile = -1; // the sequence of fixations on the code is broken
+                lastType = -1;
+                return;
+            }
+            int file = gazes.fileIds[gaze], line = gazes.lines[gaze], column = gazes.columns[gaze];
+            int method = gazes.methodIds[gaze], type = gazes.typeIds[gaze];
+            boolean isRegression = file == lastFile && (line < lastLine || line == lastLine && column < lastColumn);
+            if (isRegression) {
+                regressionCount++;
+            }
+            if (method >= 0) {
+                fixationCounts[method]++;
+                dwellNanos[method] += fixation.durationNanos();
+                if (firstFixationNanos[method] < 0) {
+                    firstFixationNanos[method] = fixation.timestampNanos() - gazes.timestamps[0];
+                }
+                if (isRegression) {
+                    regressionCounts[method]++;
+                }
+            }
+            if (lastType >= 0 && type >= 0) {
+                addTransition((long) lastType << 32 | type);
+            }
+            lastFile = file;
+            lastLine = line;
+            lastColumn = column;
+            lastType = type;
+        }
+
+        private void addTransition(long key) {
+            int index = transitionIndex.get(key);
+            if (index == LongIntHashMap.MISSING) {
+                if (transitionCount == transitionKeys.length) {
+                    transitionKeys = Arrays.copyOf(transitionKeys, transitionCount * 2);
+                    transitionCounts = Arrays.copyOf(transitionCounts, transitionCount * 2);
+                }
+                index = transitionCount++;
+                transitionIndex.put(key, index);
+                transitionKeys[index] = key;
+            }
+            transitionCounts[index]++;
+        }
+
+        /**
+         * Find the gaze on the code of a fixation that is closest to its centroid.
+         *
+         * @return The gaze, or {@code -1} if no gaze of the fixation is on the code.
+         */
+        private int findClosestGaze(FixationEvent fixation, double[] screenSize) {
+            int closest = -1;
+            double closestDistance = Double.MAX_VALUE;
+            long end = fixation.timestampNanos() + fixation.durationNanos();
+            for (int i = gazes.lowerBound(fixation.timestampNanos()); i < gazes.size && gazes.timestamps[i] <= end;
+                 i++) {
+                if (gazes.fileIds[i] < 0) {
+                    continue;
+                }
+                double dx = gazes.xs[i] * screenSize[0] - fixation.screenX();
+                double dy = gazes.ys[i] * screenSize[1] - fixation.screenY();
+                double distance = dx * dx + dy * dy;
+                if (distance < closestDistance) { // NaN, i.e., an invalid gaze, is never closer
+                    closest = i;
+                    closestDistance = distance;
+                }
+            }
+            return closest;
+        }
+
+        /**
+         * Convert the metrics to the rows of the table.
+         *
+         * @param session The name of the session.
+         * @return The rows.
+         */
+        List<String[]> toRows(String session) {
+            List<String[]> rows = new ArrayList<>();
+            rows.add(new String[]{session, "fixation_count", "", "", String.valueOf(fixationCount)});
+            rows.add(new String[]{session, "dwell_ms", "", "", String.valueOf(totalDwellNanos / 1e6)});
+            rows.add(new String[]{session, "regression_count", "", "", String.valueOf(regressionCount)});
+            for (int method = 0; method < fixationCounts.length; method++) {
+                if (fixationCounts[method] == 0) {
+                    continue;
+                }
+                String aoi = gazes.methods.get(method);
+                rows.add(new String[]{session, "fixation_count", aoi, "", String.valueOf(fixationCounts[method])});
+                rows.add(new String[]{session, "dwell_ms", aoi, "", String.valueOf(dwellNanos[method] / 1e6)});
+                rows.add(new String[]{session, "first_fixation_ms", aoi, "",
+                        String.valueOf(firstFixationNanos[method] / 1e6)});
+                rows.add(new String[]{session, "regression_count", aoi, "",
+                        String.valueOf(regressionCounts[method])});
+            }
+            for (int i = 0; i < transitionCount; i++) {
+                rows.add(new String[]{session, "transition_count", gazes.types.get((int) (transitionKeys[i] >>> 32)),
+                        gazes.types.get((int) transitionKeys[i]), String.valueOf(transitionCounts[i])});
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package tools;
+
+import api.event.FixationEvent;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import reader.FrameIndex;
+import trackers.DisplayCapture;
+import utils.FixationDetector;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a headless command-line tool that renders the screen recording of sessions with the gazes and the
+ * fixations drawn on each frame. The gazes of a frame are taken from the {@link FrameIndex}, i.e., the timing in
+ * {@code frames.csv}, and the fixations are detected from the raw gazes with {@link FixationDetector}. Only the clips
+ * of the default display, which the eye tracker is calibrated on, are rendered, to
+ * {@code screen_recording/overlay/clip_[k].mp4}, unless another display is chosen with {@code --display}. The gazes
+ * are normalized to the default display, so on another display they are moved by the bounds of both displays in
+ * {@code display_stats.csv}, and those outside the display are not drawn. A session without any clip of the display
+ * counts as failed. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.OverlayRenderer [-j threads] [--chunk-seconds n] [--display d]
+ *     session or parent directory...
+ * </pre>
+ * <p>
+ * The clips are rendered one after another, and each clip is split into chunks of whole GOPs, i.e., chunks that start
+ * at a keyframe, which are decoded and drawn in parallel on a {@link ForkJoinPool}. The drawn frames of a clip are
+ * encoded in order by one encoder, so the rendered clip keeps the frame numbers and presentation times of the original
+ * clip. At most one chunk per worker thread is in flight, which bounds the memory of the drawn frames.
+ */
+public class OverlayRenderer {
+    /**
+     * This variable is the default length of a chunk. A chunk holds its drawn frames until they are encoded, so the
+     * memory used by the renderer is about {@code threads × chunk length × frame rate} frames.
+     */
+    static final int DEFAULT_CHUNK_SECONDS = 2;
+    /**
+     * This variable selects the default display, i.e., the clips named {@code clip_[k].mp4}, whatever its index.
+     */
+    public static final int DEFAULT_DISPLAY = -1;
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private static final Color GAZE_COLOR = new Color(0, 200, 0, 160);
+    private static final Color LAST_GAZE_COLOR = new Color(255, 40, 40);
+    private static final Color FIXATION_COLOR = new Color(255, 160, 0, 90);
+    private static final Color FIXATION_BORDER_COLOR = new Color(255, 160, 0, 220);
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int chunkSeconds;
+    private final int display;
+    private final AtomicInteger renderedClips = new AtomicInteger();
+    private final AtomicInteger failedClips = new AtomicInteger();
+    private final AtomicLong renderedFrames = new AtomicLong();
+
+    /**
+     * The constructor of the renderer.
+     *
+     * @param parallelism  The number of worker threads.
+     * @param chunkSeconds The length of the chunks of a clip that are decoded in parallel, in seconds.
+     */
+    public OverlayRenderer(int parallelism, int chunkSeconds) {
+        this(parallelism, chunkSeconds, DEFAULT_DISPLAY);
+    }
+
+    /**
+     * The constructor of the renderer.
+     *
+     * @param parallelism  The number of worker threads.
+     * @param chunkSeconds The length of the chunks of a clip that are decoded in parallel, in seconds.
+     * @param display      The index of the display whose clips are rendered, or {@link #DEFAULT_DISPLAY}.
+     */
+    public OverlayRenderer(int parallelism, int chunkSeconds, int display) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.parallelism = parallelism;
+        this.chunkSeconds = Math.max(1, chunkSeconds);
+        this.display = display;
+    }
+
+    /**
+     * Render the clips of sessions, one clip at a time with its chunks in parallel. A clip that fails is reported and
+     * skipped.
+     *
+     * @param sessions The session directories.
+     */
+    public void render(List<Path> sessions) {
+        for (Path session : sessions) {
+            renderSession(session);
+        }
+    }
+
+    private void renderSession(Path session) {
+        Path screenRecording = session.resolve("screen_recording");
+        Overlay overlay;
+        List<Clip> clips;
+        try {
+            overlay = readOverlay(session);
+            clips = readClips(screenRecording.resolve("clips.csv"), display);
+            if (clips.isEmpty()) {
+                throw new IOException(display == DEFAULT_DISPLAY ? "No clips of the default display"
+                        : "No clips of display " + display);
+            }
+            if (display != DEFAULT_DISPLAY) {
+                mapToDisplay(overlay, screenRecording, display);
+            }
+            Files.createDirectories(screenRecording.resolve("overlay"));
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            failedClips.incrementAndGet();
+            System.err.println("Failed to render " + session + ": " + e);
+            return;
+        }
+        for (Clip clip : clips) {
+            renderClip(overlay, clip, screenRecording.resolve(clip.file()),
+                    screenRecording.resolve("overlay").resolve(clip.file()));
+        }
+    }
+
+    /**
+     * Render a clip. The chunks of the clip are submitted to the pool in order, with at most one chunk per worker thread
+     * in flight, and joined in order by the calling thread, so the encoder only waits for the next chunk.
+     */
+    private void renderClip(Overlay overlay, Clip clip, Path inputFile, Path outputFile) {
+        try {
+            int frameRate = overlay.frameIndex().getFrameRate(clip.display());
+            int chunkFrames = frameRate * chunkSeconds; // a multiple of the GOP size, which is the frame rate
+            int chunkCount = (clip.frameCount() + chunkFrames - 1) / chunkFrames;
+            int[] size = readImageSize(inputFile);
+            FFmpegFrameRecorder recorder = DisplayCapture.createClipRecorder(outputFile.toString(), size[0], size[1],
+                    frameRate);
+            recorder.start();
+            Deque<ForkJoinTask<List<BufferedImage>>> chunks = new ArrayDeque<>();
+            try {
+                Java2DFrameConverter converter = new Java2DFrameConverter();
+                int nextChunk = 0;
+                while (nextChunk < chunkCount || !chunks.isEmpty()) {
+                    while (nextChunk < chunkCount && chunks.size() < parallelism) {
+                        int firstFrame = nextChunk++ * chunkFrames;
+                        int frameCount = Math.min(chunkFrames, clip.frameCount() - firstFrame);
+                        chunks.add(pool.submit(() -> renderChunk(overlay, clip, inputFile, firstFrame,
+                                frameCount)));
+                    }
+                    for (BufferedImage image : chunks.poll().join()) {
+                        recorder.record(converter.convert(image));
+                        renderedFrames.incrementAndGet();
+                    }
+                }
+            } finally {
+                for (ForkJoinTask<?> chunk : chunks) {
+                    chunk.cancel(false);
+                }
+                recorder.stop();
+                recorder.release();
+            }
+            renderedClips.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failedClips.incrementAndGet();
+            System.err.println("Failed to render " + inputFile + ": " + e);
+        }
+    }
+
+    /**
+     * Decode and draw a chunk of a clip with its own decoder. The chunk starts at a keyframe, so seeking to it does not
+     * decode the frames before it.
+     *
+     * @param firstFrame The first frame of the chunk in the clip, from {@code 0}.
+     * @param frameCount The number of frames of the chunk.
+     * @return The drawn frames.
+     */
+    private static List<BufferedImage> renderChunk(Overlay overlay, Clip clip, Path inputFile, int firstFrame,
+                                                   int frameCount) {
+        List<BufferedImage> images = new ArrayList<>(frameCount);
+        Java2DFrameConverter converter = new Java2DFrameConverter();
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputFile.toFile())) {
+            grabber.start();
+            if (firstFrame > 0) {
+                grabber.setVideoFrameNumber(firstFrame);
+            }
+            for (int i = 0; i < frameCount; i++) {
+                Frame frame = grabber.grabImage();
+                if (frame == null) {
+                    break;
+                }
+                BufferedImage decoded = converter.convert(frame); // reused by the next frame
+                BufferedImage image = new BufferedImage(decoded.getWidth(), decoded.getHeight(),
+                        BufferedImage.TYPE_3BYTE_BGR);
+                Graphics2D graphics = image.createGraphics();
+                try {
+                    graphics.drawImage(decoded, 0, 0, null);
+                    int frameIndex = overlay.frameIndex().findFrame(clip.display(), clip.clipNumber(),
+                            firstFrame + i + 1);
+                    if (frameIndex >= 0) {
+                        drawOverlay(graphics, overlay, overlay.frameIndex().getFrame(clip.display(), frameIndex),
+                                image.getWidth(), image.getHeight());
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+                images.add(image);
+            }
+        } catch (FrameGrabber.Exception e) {
+            throw new RuntimeException(e);
+        }
+        return images;
+    }
+
+    /**
+     * Draw the fixations that overlap a frame, as circles that grow with their duration, and the gazes of the frame,
+     * with the last one highlighted.
+     */
+    private static void drawOverlay(Graphics2D graphics, Overlay overlay, FrameIndex.Frame frame, int width,
+                                    int height) {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setStroke(new BasicStroke(2));
+        long[] fixationStarts = overlay.fixationStarts();
+        long[] fixationEnds = overlay.fixationEnds();
+        int fixation = Arrays.binarySearch(fixationEnds, frame.timestampMicros());
+        fixation = fixation < 0 ? -fixation - 1 : fixation + 1; // the first fixation ending after the frame starts
+        for (; fixation < fixationStarts.length && fixationStarts[fixation] < frame.endTimestampMicros(); fixation++) {
+            if (Float.isNaN(overlay.fixationX()[fixation])) {
+                continue; // on another display
+            }
+            double durationMillis = (fixationEnds[fixation] - fixationStarts[fixation]) / 1000.0;
+            double radius = Math.min(15 + durationMillis / 20, 60);
+            Ellipse2D circle = new Ellipse2D.Double(overlay.fixationX()[fixation] * width - radius,
+                    overlay.fixationY()[fixation] * height - radius, radius * 2, radius * 2);
+            graphics.setColor(FIXATION_COLOR);
+            graphics.fill(circle);
+            graphics.setColor(FIXATION_BORDER_COLOR);
+            graphics.draw(circle);
+        }
+        int lastGaze = -1;
+        graphics.setColor(GAZE_COLOR);
+        for (int gaze = frame.firstGaze(); gaze < Math.min(frame.endGaze(), overlay.gazeX().length); gaze++) {
+            if (Float.isNaN(overlay.gazeX()[gaze])) {
+                continue;
+            }
+            graphics.fillOval(Math.round(overlay.gazeX()[gaze] * width) - 4,
+                    Math.round(overlay.gazeY()[gaze] * height) - 4, 8, 8);
+            lastGaze = gaze;
+        }
+        if (lastGaze >= 0) {
+            graphics.setColor(LAST_GAZE_COLOR);
+            graphics.drawOval(Math.round(overlay.gazeX()[lastGaze] * width) - 10,
+                    Math.round(overlay.gazeY()[lastGaze] * height) - 10, 20, 20);
+        }
+    }
+
+    /**
+     * Read the gazes and detect the fixations of a session. The points are normalized to {@code [0, 1]}, as the eye
+     * tracker reports them, so they are drawn at the size of the video.
+     */
+    private static Overlay readOverlay(Path session) throws IOException, XMLStreamException {
+        FrameIndex frameIndex = FrameIndex.open(session);
+        double[] screenSize = SessionConverter.readScreenSize(session.resolve("ide_tracking.xml"));
+        Path eyeTrackingFile = session.resolve("eye_tracking.xml");
+        float[] gazeX = new float[1024], gazeY = new float[1024];
+        int gazeCount = 0;
+        List<FixationEvent> fixations = new ArrayList<>();
+        if (Files.exists(eyeTrackingFile)) {
+            FixationDetector fixationDetector = new FixationDetector();
+            try (InputStream inputStream = Files.newInputStream(eyeTrackingFile)) {
+                XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+                try {
+                    int depth = 0;
+                    long timestampNanos = 0;
+                    float[] eyes = new float[4];
+                    while (reader.hasNext()) {
+                        int event = reader.next();
+                        if (event == XMLStreamConstants.END_ELEMENT) {
+                            if (depth == 3 && reader.getLocalName().equals("gaze")) {
+                                if (gazeCount == gazeX.length) {
+                                    gazeX = Arrays.copyOf(gazeX, gazeCount * 2);
+                                    gazeY = Arrays.copyOf(gazeY, gazeCount * 2);
+                                }
+                                gazeX[gazeCount] = (eyes[0] + eyes[2]) / 2;
+                                gazeY[gazeCount] = (eyes[1] + eyes[3]) / 2;
+                                addFixation(fixations, fixationDetector.addSample(timestampNanos,
+                                        gazeX[gazeCount] * screenSize[0], gazeY[gazeCount] * screenSize[1]));
+                                gazeCount++;
+                            }
+                            depth--;
+                        } else if (event == XMLStreamConstants.START_ELEMENT) {
+                            depth++;
+                            String name = reader.getLocalName();
+                            if (depth == 3 && name.equals("gaze")) {
+                                String timestampUs = reader.getAttributeValue(null, "timestamp_us");
+                                timestampNanos = timestampUs != null ? Long.parseLong(timestampUs) * 1000
+                                        : Long.parseLong(reader.getAttributeValue(null, "timestamp")) * 1_000_000;
+                                Arrays.fill(eyes, Float.NaN);
+                            } else if (depth == 4 && (name.equals("left_eye") || name.equals("right_eye"))) {
+                                int offset = name.equals("left_eye") ? 0 : 2;
+                                eyes[offset] = parseCoordinate(reader.getAttributeValue(null, "gaze_point_x"));
+                                eyes[offset + 1] = parseCoordinate(reader.getAttributeValue(null, "gaze_point_y"));
+                            }
+                        }
+                    }
+                    addFixation(fixations, fixationDetector.flush());
+                } finally {
+                    reader.close();
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid stream file: " + eyeTrackingFile, e);
+            }
+        }
+        long[] fixationStarts = new long[fixations.size()], fixationEnds = new long[fixations.size()];
+        float[] fixationX = new float[fixations.size()], fixationY = new float[fixations.size()];
+        for (int i = 0; i < fixations.size(); i++) {
+            FixationEvent fixation = fixations.get(i);
+            fixationStarts[i] = fixation.timestampNanos() / 1000;
+            fixationEnds[i] = (fixation.timestampNanos() + fixation.durationNanos()) / 1000;
+            fixationX[i] = (float) (fixation.screenX() / screenSize[0]);
+            fixationY[i] = (float) (fixation.screenY() / screenSize[1]);
+        }
+        return new Overlay(frameIndex, Arrays.copyOf(gazeX, gazeCount), Arrays.copyOf(gazeY, gazeCount),
+                fixationStarts, fixationEnds, fixationX, fixationY);
+    }
+
+    /**
+     * Move the gazes and the fixations of a session from the default display, to which the eye tracker normalizes
+     * them, to a display, by the bounds of both displays in {@code display_stats.csv}. The points outside the display
+     * become {@link Float#NaN}, so they are not drawn.
+     *
+     * @param display The index of the display.
+     */
+    private static void mapToDisplay(Overlay overlay, Path screenRecording, int display) throws IOException {
+        List<Clip> defaultClips = readClips(screenRecording.resolve("clips.csv"), DEFAULT_DISPLAY);
+        if (defaultClips.isEmpty()) {
+            throw new IOException("No clips of the default display, to which the gazes are normalized");
+        }
+        int defaultDisplay = defaultClips.get(0).display();
+        if (defaultDisplay == display) {
+            return;
+        }
+        Path statisticsFile = screenRecording.resolve("display_stats.csv");
+        Map<Integer, Rectangle> bounds = readDisplayBounds(statisticsFile);
+        Rectangle from = bounds.get(defaultDisplay), to = bounds.get(display);
+        if (from == null || to == null) {
+            throw new IOException("No bounds of display " + (from == null ? defaultDisplay : display) + " in "
+                    + statisticsFile);
+        }
+        mapPoints(overlay.gazeX(), overlay.gazeY(), from, to);
+        mapPoints(overlay.fixationX(), overlay.fixationY(), from, to);
+    }
+
+    private static void mapPoints(float[] xs, float[] ys, Rectangle from, Rectangle to) {
+        for (int i = 0; i < xs.length; i++) {
+            float x = (float) ((from.x + xs[i] * from.getWidth() - to.x) / to.getWidth());
+            float y = (float) ((from.y + ys[i] * from.getHeight() - to.y) / to.getHeight());
+            boolean isInside = x >= 0 && x <= 1 && y >= 0 && y <= 1; // false for NaN
+            xs[i] = isInside ? x : Float.NaN;
+            ys[i] = isInside ? y : Float.NaN;
+        }
+    }
+
+    /**
+     * Read the bounds of the displays in device pixels from {@code display_stats.csv}.
+     *
+     * @return The bounds by the index of the display.
+     */
+    private static Map<Integer, Rectangle> readDisplayBounds(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IOException("No display statistics: " + file);
+        }
+        Map<Integer, Rectangle> bounds = new HashMap<>();
+        try (BufferedReader bufferedReader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             CSVReader csvReader = new CSVReader(bufferedReader)) {
+            List<String> columns = Arrays.asList(csvReader.readNext());
+            int displayColumn = columns.indexOf("display"), xColumn = columns.indexOf("x"),
+                    yColumn = columns.indexOf("y"), widthColumn = columns.indexOf("width"),
+                    heightColumn = columns.indexOf("height");
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
+                bounds.put(Integer.parseInt(row[displayColumn]), new Rectangle(Integer.parseInt(row[xColumn]),
+                        Integer.parseInt(row[yColumn]), Integer.parseInt(row[widthColumn]),
+                        Integer.parseInt(row[heightColumn])));
+            }
+        } catch (CsvValidationException | NumberFormatException | NullPointerException
+                 | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Invalid display statistics file: " + file, e);
+        }
+        return bounds;
+    }
+
+    /**
+     * Parse a coordinate of an eye, e.g., {@code gaze_point_x}.
+     *
+     * @return The coordinate, or {@link Float#NaN} if the eye is invalid, e.g., {@code nan}.
+     */
+    private static float parseCoordinate(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NullPointerException | NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    private static void addFixation(List<FixationEvent> fixations, FixationEvent fixation) {
+        if (fixation != null) {
+            fixations.add(fixation);
+        }
+    }
+
+    /**
+     * Read the clips of a display from {@code clips.csv}.
+     *
+     * @param display The index of the display, or {@link #DEFAULT_DISPLAY} for the clips named {@code clip_[k].mp4}.
+     */
+    private static List<Clip> readClips(Path file, int display) throws IOException {
+        List<Clip> clips = new ArrayList<>();
+        try (BufferedReader bufferedReader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             CSVReader csvReader = new CSVReader(bufferedReader)) {
+            List<String> columns = Arrays.asList(csvReader.readNext());
+            int clipColumn = columns.indexOf("clip_number"), fileColumn = columns.indexOf("file");
+            int frameCountColumn = columns.indexOf("frame_count"), displayColumn = columns.indexOf("display");
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
+                int clipDisplay = displayColumn >= 0 && displayColumn < row.length
+                        ? Integer.parseInt(row[displayColumn]) : 0;
+                if (display == DEFAULT_DISPLAY ? row[fileColumn].contains("_display_") : clipDisplay != display) {
+                    continue;
+                }
+                clips.add(new Clip(Integer.parseInt(row[clipColumn]), row[fileColumn],
+                        Integer.parseInt(row[frameCountColumn]), clipDisplay));
+            }
+        } catch (CsvValidationException | NumberFormatException | NullPointerException e) {
+            throw new IOException("Invalid clip file: " + file, e);
+        }
+        return clips;
+    }
+
+    private static int[] readImageSize(Path file) throws FrameGrabber.Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file.toFile())) {
+            grabber.start();
+            return new int[]{grabber.getImageWidth(), grabber.getImageHeight()};
+        }
+    }
+
+    public int getRenderedClips() {
+        return renderedClips.get();
+    }
+
+    public int getFailedClips() {
+        return failedClips.get();
+    }
+
+    public long getRenderedFrames() {
+        return renderedFrames.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int chunkSeconds = DEFAULT_CHUNK_SECONDS;
+        int display = DEFAULT_DISPLAY;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j" -> parallelism = Integer.parseInt(args[++i]);
+                case "--chunk-seconds" -> chunkSeconds = Integer.parseInt(args[++i]);
+                case "--display" -> display = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: OverlayRenderer [-j threads] [--chunk-seconds n] [--display d] "
+                    + "session or parent directory...");
+            System.exit(2);
+        }
+        List<Path> sessions = new ArrayList<>();
+        for (Path session : SessionConverter.findSessions(inputs)) {
+            if (Files.exists(session.resolve("screen_recording").resolve("clips.csv"))) {
+                sessions.add(session);
+            }
+        }
+        OverlayRenderer renderer = new OverlayRenderer(parallelism, chunkSeconds, display);
+        long startTime = System.nanoTime();
+        renderer.render(sessions);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Rendered %d clips of %d sessions (%d failed) with %d threads in %.1f s: %d frames, "
+                        + "%.1f frames/s%n", renderer.getRenderedClips(), sessions.size(), renderer.getFailedClips(),
+                parallelism, seconds, renderer.getRenderedFrames(), renderer.getRenderedFrames() / seconds);
+        System.exit(renderer.getFailedClips() > 0 ? 1 : 0);
+    }
+
+    /**
+     * This record is a clip in {@code clips.csv}.
+     */
+    private record Clip(int clipNumber, String file, int frameCount, int display) {
+    }
+
+    /**
+     * This record holds what is drawn on the frames of a session: the normalized gaze points by {@code gaze_id},
+     * {@link Float#NaN} if invalid, and the fixations in the order of time, in microseconds.
+     */
+    private record Overlay(FrameIndex frameIndex, float[] gazeX, float[] gazeY, long[] fixationStarts,
+                           long[] fixationEnds, float[] fixationX, float[] fixationY) {
+    }
+}
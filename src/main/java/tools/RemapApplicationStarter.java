@@ -0,0 +1,75 @@
+package tools;
+
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.project.ProjectManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class runs the {@link GazeRemapper} in a headless IDE, since the PSI of the archives needs the language
+ * plugins of the IDE. Usage:
+ * <pre>
+ * [IDE launcher] codegrits-remap [-j threads] session or parent directory...
+ * </pre>
+ * e.g., {@code idea.sh codegrits-remap /path/to/output}. A session that cannot be remapped is reported and skipped,
+ * and the exit code is 1.
+ */
+public class RemapApplicationStarter implements ApplicationStarter {
+    @Override
+    public String getCommandName() {
+        return "codegrits-remap";
+    }
+
+    @Override
+    public int getRequiredModality() {
+        return NOT_IN_EDT;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.size(); i++) { // the first argument is the command
+            switch (args.get(i)) {
+                case "-j" -> parallelism = Integer.parseInt(args.get(++i));
+                default -> inputs.add(Path.of(args.get(i)));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: codegrits-remap [-j threads] session or parent directory...");
+            System.exit(2);
+        }
+        int failedSessions = 0;
+        List<Path> sessions = new ArrayList<>();
+        try {
+            for (Path session : SessionConverter.findSessions(inputs)) {
+                if (Files.exists(session.resolve("eye_tracking.xml"))) {
+                    sessions.add(session);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        GazeRemapper remapper = new GazeRemapper(ProjectManager.getInstance().getDefaultProject(), parallelism);
+        long startTime = System.nanoTime();
+        for (Path session : sessions) {
+            try {
+                remapper.remap(session);
+            } catch (IOException | RuntimeException e) {
+                failedSessions++;
+                System.err.println("Failed to remap " + session + ": " + e);
+            }
+        }
+        System.out.printf("Remapped %d of %d sessions (%d failed) with %d threads in %.1f s: %d gazes mapped, "
+                        + "%d failed, %d archives parsed%n", sessions.size() - failedSessions, sessions.size(),
+                failedSessions, parallelism, (System.nanoTime() - startTime) / 1e9, remapper.getRemappedGazes(),
+                remapper.getFailedGazes(), remapper.getParsedArchives());
+        System.exit(failedSessions > 0 ? 1 : 0);
+    }
+}
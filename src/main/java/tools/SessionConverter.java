@@ -0,0 +1,435 @@
+package tools;
+
+import api.event.FixationEvent;
+import com.opencsv.CSVWriter;
+import utils.FixationDetector;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * This class is a headless command-line converter from the XML files of sessions to flat CSV tables, one directory of
+ * tables per session. The XML files are streamed with StAX and each row is written as soon as its element ends, so
+ * the memory of a worker does not grow with the size of a session. The sessions are converted in parallel on a
+ * {@link ForkJoinPool}, and the {@code ide_tracking.xml} and {@code eye_tracking.xml} of a session are converted as
+ * two subtasks.
+ * <p>
+ * The tables are {@code gaze.csv} and {@code ast_level.csv} (joined by {@code gaze_id}), {@code fixation.csv}
+ * (detected offline with {@link FixationDetector}), {@code environment.csv}, and one table per IDE event, e.g.,
+ * {@code action.csv}, {@code typing.csv}, {@code caret.csv}. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.SessionConverter [-o output directory] [-j threads] session or parent directory...
+ * </pre>
+ * Without {@code -o}, the tables are written to the {@code tables} directory of each session.
+ */
+public class SessionConverter {
+    /**
+     * This variable is the columns of the table of each IDE event element, which are its attributes.
+     */
+    static final Map<String, String[]> IDE_TABLES = new LinkedHashMap<>();
+
+    static {
+        IDE_TABLES.put("archive", new String[]{"timestamp", "id", "path", "remark"});
+        IDE_TABLES.put("action", new String[]{"timestamp", "timestamp_us", "id", "path"});
+        IDE_TABLES.put("typing", new String[]{"timestamp", "timestamp_us", "character", "path", "line", "column"});
+        IDE_TABLES.put("file", new String[]{"timestamp", "timestamp_us", "id", "path", "old_path", "new_path"});
+        IDE_TABLES.put("mouse", new String[]{"timestamp", "timestamp_us", "id", "path", "x", "y"});
+        IDE_TABLES.put("caret", new String[]{"timestamp", "timestamp_us", "id", "path", "line", "column"});
+        IDE_TABLES.put("selection", new String[]{"timestamp", "timestamp_us", "id", "path", "start_position",
+                "end_position", "selected_text"});
+        IDE_TABLES.put("visible_area", new String[]{"timestamp", "timestamp_us", "id", "path", "x", "y", "width",
+                "height", "screen_x", "screen_y", "origin_x", "origin_y", "line_height", "char_width", "tab_size"});
+    }
+
+    static final String[] GAZE_COLUMNS = {"gaze_id", "timestamp", "timestamp_us", "left_gaze_point_x",
+            "left_gaze_point_y", "left_gaze_validity", "left_pupil_diameter", "left_pupil_validity",
+            "right_gaze_point_x", "right_gaze_point_y", "right_gaze_validity", "right_pupil_diameter",
+            "right_pupil_validity", "path", "line", "column", "x", "y", "token", "type", "ast_remark", "remark"};
+    static final String[] EYE_ATTRIBUTES = {"gaze_point_x", "gaze_point_y", "gaze_validity", "pupil_diameter",
+            "pupil_validity"};
+    static final String[] AST_LEVEL_COLUMNS = {"gaze_id", "depth", "tag", "start", "end"};
+    static final String[] FIXATION_COLUMNS = {"timestamp", "timestamp_us", "duration_ms", "x", "y", "sample_count"};
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final Path outputDirectory;
+    private final ForkJoinPool pool;
+    private final AtomicInteger convertedSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    /**
+     * The constructor of the converter.
+     *
+     * @param outputDirectory The directory of the tables of all sessions, or {@code null} for the {@code tables}
+     *                        directory of each session.
+     * @param parallelism     The number of worker threads.
+     */
+    public SessionConverter(Path outputDirectory, int parallelism) {
+        this.outputDirectory = outputDirectory;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Find the session directories, i.e., the directories with an {@code ide_tracking.xml} or an
+     * {@code eye_tracking.xml}, among the inputs and their subdirectories up to two levels down.
+     *
+     * @param inputs The session directories or their parent directories, e.g., the output directory of CodeGRITS.
+     * @return The session directories, sorted.
+     */
+    public static List<Path> findSessions(List<Path> inputs) throws IOException {
+        TreeSet<Path> sessions = new TreeSet<>();
+        for (Path input : inputs) {
+            try (Stream<Path> paths = Files.walk(input, 3)) {
+                paths.filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.equals("ide_tracking.xml") || name.equals("eye_tracking.xml");
+                }).forEach(path -> sessions.add(path.getParent()));
+            }
+        }
+        return new ArrayList<>(sessions);
+    }
+
+    /**
+     * Convert sessions in parallel. A session that fails is reported and skipped.
+     *
+     * @param sessions The session directories.
+     */
+    public void convert(List<Path> sessions) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
+                for (Path session : sessions) {
+                    tasks.add(ForkJoinTask.adapt(() -> convertSession(session)));
+                }
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private void convertSession(Path session) {
+        Path tables = outputDirectory != null ? outputDirectory.resolve(session.getFileName())
+                : session.resolve("tables");
+        try {
+            Files.createDirectories(tables);
+            Path ideTrackingFile = session.resolve("ide_tracking.xml");
+            Path eyeTrackingFile = session.resolve("eye_tracking.xml");
+            ForkJoinTask<?> ideTask = ForkJoinTask.adapt(() -> {
+                if (Files.exists(ideTrackingFile)) {
+                    convertIDETracking(ideTrackingFile, tables);
+                }
+            }).fork();
+            try {
+                if (Files.exists(eyeTrackingFile)) {
+                    convertEyeTracking(eyeTrackingFile, tables, readScreenSize(ideTrackingFile));
+                }
+            } finally {
+                ideTask.join();
+            }
+            convertedSessions.incrementAndGet();
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            failedSessions.incrementAndGet();
+            System.err.println("Failed to convert " + session + ": " + e);
+        }
+    }
+
+    /**
+     * Convert an {@code ide_tracking.xml} file to the table of each IDE event and {@code environment.csv}.
+     *
+     * @param file   The file.
+     * @param tables The directory of the tables.
+     */
+    void convertIDETracking(Path file, Path tables) {
+        Map<String, CSVWriter> writers = new HashMap<>();
+        long rowCount = 0;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            inputBytes.addAndGet(Files.size(file));
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2 && name.equals("environment")) {
+                        writeEnvironment(reader, tables, "environment.csv");
+                        depth--;
+                    } else if (depth == 3 && IDE_TABLES.containsKey(name)) {
+                        String[] columns = IDE_TABLES.get(name);
+                        CSVWriter writer = writers.get(name);
+                        if (writer == null) {
+                            writer = openTable(tables.resolve(name + ".csv"), columns);
+                            writers.put(name, writer);
+                        }
+                        writer.writeNext(getAttributes(reader, columns));
+                        rowCount++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Invalid IDE tracking file: " + file, e);
+        } finally {
+            rows.addAndGet(rowCount);
+            for (CSVWriter writer : writers.values()) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert an {@code eye_tracking.xml} file to {@code gaze.csv}, {@code ast_level.csv}, and {@code fixation.csv},
+     * and its setting to {@code setting.csv}.
+     *
+     * @param file       The file.
+     * @param tables     The directory of the tables.
+     * @param screenSize The width and height of the screen, for the fixations in the unit of {@code screen_size}.
+     */
+    void convertEyeTracking(Path file, Path tables, double[] screenSize) throws IOException, XMLStreamException {
+        inputBytes.addAndGet(Files.size(file));
+        FixationDetector fixationDetector = new FixationDetector();
+        try (InputStream inputStream = Files.newInputStream(file);
+             CSVWriter gazeWriter = openTable(tables.resolve("gaze.csv"), GAZE_COLUMNS);
+             CSVWriter levelWriter = openTable(tables.resolve("ast_level.csv"), AST_LEVEL_COLUMNS);
+             CSVWriter fixationWriter = openTable(tables.resolve("fixation.csv"), FIXATION_COLUMNS)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                String[] row = null;
+                long gazeId = 0, rowCount = 0;
+                int depth = 0, levelDepth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (row != null && reader.getLocalName().equals("gaze")) {
+                            gazeWriter.writeNext(row);
+                            rowCount += writeFixation(fixationWriter, fixationDetector.addSample(
+                                    getTimestampNanos(row), getScreenCoordinate(row, 3, 8, screenSize[0]),
+                                    getScreenCoordinate(row, 4, 9, screenSize[1]))) + 1;
+                            row = null;
+                        }
+                        depth--;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2 && name.equals("setting")) {
+                        writeEnvironment(reader, tables, "setting.csv");
+                        depth--;
+                    } else if (name.equals("gaze")) {
+                        row = new String[GAZE_COLUMNS.length];
+                        row[0] = String.valueOf(gazeId++);
+                        row[1] = reader.getAttributeValue(null, "timestamp");
+                        row[2] = reader.getAttributeValue(null, "timestamp_us");
+                        row[21] = reader.getAttributeValue(null, "remark");
+                        levelDepth = 0;
+                    } else if (row != null) {
+                        switch (name) {
+                            case "left_eye", "right_eye" -> {
+                                int offset = name.equals("left_eye") ? 3 : 8;
+                                for (int i = 0; i < EYE_ATTRIBUTES.length; i++) {
+                                    row[offset + i] = reader.getAttributeValue(null, EYE_ATTRIBUTES[i]);
+                                }
+                            }
+                            case "location" -> {
+                                row[13] = reader.getAttributeValue(null, "path");
+                                row[14] = reader.getAttributeValue(null, "line");
+                                row[15] = reader.getAttributeValue(null, "column");
+                                row[16] = reader.getAttributeValue(null, "x");
+                                row[17] = reader.getAttributeValue(null, "y");
+                            }
+                            case "ast_structure" -> {
+                                row[18] = reader.getAttributeValue(null, "token");
+                                row[19] = reader.getAttributeValue(null, "type");
+                                row[20] = reader.getAttributeValue(null, "remark");
+                            }
+                            case "level" -> {
+                                levelWriter.writeNext(new String[]{row[0], String.valueOf(levelDepth++),
+                                        reader.getAttributeValue(null, "tag"), reader.getAttributeValue(null, "start"),
+                                        reader.getAttributeValue(null, "end")});
+                                rowCount++;
+                            }
+                            default -> {
+                            }
+                        }
+                    }
+                }
+                rowCount += writeFixation(fixationWriter, fixationDetector.flush());
+                rows.addAndGet(rowCount);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static long getTimestampNanos(String[] row) {
+        if (row[2] != null && !row[2].isEmpty()) {
+            return Long.parseLong(row[2]) * 1000;
+        }
+        return Long.parseLong(row[1]) * 1_000_000;
+    }
+
+    /**
+     * Get the coordinate of a gaze on the screen, i.e., the average of both eyes, as the eye tracker does.
+     *
+     * @return The coordinate, or {@link Double#NaN} if the gaze is invalid.
+     */
+    private static double getScreenCoordinate(String[] row, int left, int right, double screenLength) {
+        try {
+            return (Double.parseDouble(row[left]) + Double.parseDouble(row[right])) / 2 * screenLength;
+        } catch (NullPointerException | NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int writeFixation(CSVWriter writer, FixationEvent fixation) {
+        if (fixation == null) {
+            return 0;
+        }
+        writer.writeNext(new String[]{String.valueOf(fixation.timestampNanos() / 1_000_000),
+                String.valueOf(fixation.timestampNanos() / 1000), String.valueOf(fixation.durationNanos() / 1e6),
+                String.valueOf(fixation.screenX()), String.valueOf(fixation.screenY()),
+                String.valueOf(fixation.sampleCount())});
+        return 1;
+    }
+
+    /**
+     * Write the attributes of an element, e.g., {@code <environment>}, as a table of names and values.
+     */
+    private static void writeEnvironment(XMLStreamReader reader, Path tables, String fileName)
+            throws IOException, XMLStreamException {
+        try (CSVWriter writer = openTable(tables.resolve(fileName), new String[]{"name", "value"})) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                writer.writeNext(new String[]{reader.getAttributeLocalName(i), reader.getAttributeValue(i)});
+            }
+        }
+        reader.nextTag(); // the element has no children
+    }
+
+    /**
+     * Read the {@code screen_size} of the environment of an {@code ide_tracking.xml} file, which is at its start.
+     *
+     * @param file The file.
+     * @return The width and height, or 1920 × 1080 if the file or the attribute is missing.
+     */
+    static double[] readScreenSize(Path file) throws IOException, XMLStreamException {
+        double[] screenSize = {1920, 1080};
+        if (!Files.exists(file)) {
+            return screenSize;
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("environment")) {
+                        String size = reader.getAttributeValue(null, "screen_size");
+                        if (size != null) {
+                            String[] parts = size.replaceAll("[()]", "").split(",");
+                            screenSize[0] = Double.parseDouble(parts[0].trim());
+                            screenSize[1] = Double.parseDouble(parts[1].trim());
+                        }
+                        break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return screenSize;
+    }
+
+    private static String[] getAttributes(XMLStreamReader reader, String[] columns) {
+        String[] row = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = reader.getAttributeValue(null, columns[i]);
+        }
+        return row;
+    }
+
+    private static CSVWriter openTable(Path file, String[] columns) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        CSVWriter csvWriter = new CSVWriter(writer);
+        csvWriter.writeNext(columns);
+        return csvWriter;
+    }
+
+    public int getConvertedSessions() {
+        return convertedSessions.get();
+    }
+
+    public int getFailedSessions() {
+        return failedSessions.get();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outputDirectory = null;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o" -> outputDirectory = Path.of(args[++i]);
+                case "-j" -> parallelism = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: SessionConverter [-o output directory] [-j threads] session or parent directory...");
+            System.exit(2);
+        }
+        List<Path> sessions = findSessions(inputs);
+        SessionConverter converter = new SessionConverter(outputDirectory, parallelism);
+        long startTime = System.nanoTime();
+        converter.convert(sessions);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Converted %d of %d sessions (%d failed) with %d threads in %.1f s: %.1f MB/s, %d rows%n",
+                converter.getConvertedSessions(), sessions.size(), converter.getFailedSessions(), parallelism, seconds,
+                converter.getInputBytes() / 1e6 / seconds, converter.getRows());
+        System.exit(converter.getFailedSessions() > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,195 @@
+package tools;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import reader.TimeIndexWriter;
+import reader.Timeline;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a headless command-line tool that exports the unified {@link Timeline} of sessions to
+ * {@code timeline.xml}, in parallel on a {@link ForkJoinPool}. The events of all streams are written in the order of
+ * time under {@code <events>}, each with a {@code stream} attribute, and the file is indexed with
+ * {@link TimeIndexWriter}, so it can be read from any time on like the other stream files. Usage:
+ * <pre>
+ * java -cp "CodeGRITS/lib/*" tools.TimelineExporter [-j threads] session or parent directory...
+ * </pre>
+ */
+public class TimelineExporter {
+    public static final String OUTPUT_FILE_NAME = "timeline.xml";
+
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    private final ForkJoinPool pool;
+    private final AtomicInteger exportedSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+    private final AtomicLong events = new AtomicLong();
+
+    /**
+     * The constructor of the exporter.
+     *
+     * @param parallelism The number of worker threads.
+     */
+    public TimelineExporter(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Export the timelines of sessions in parallel. A session that fails is reported and skipped.
+     *
+     * @param sessions The session directories.
+     */
+    public void export(List<Path> sessions) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
+                for (Path session : sessions) {
+                    tasks.add(ForkJoinTask.adapt(() -> exportSession(session)));
+                }
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private void exportSession(Path session) {
+        try {
+            events.addAndGet(export(session));
+            exportedSessions.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failedSessions.incrementAndGet();
+            System.err.println("Failed to export " + session + ": " + e);
+        }
+    }
+
+    /**
+     * Export the timeline of a session to {@code timeline.xml} in the session directory and index it. The file is
+     * written to a temporary file first, so a reader never sees a partial timeline.
+     *
+     * @param session The session directory.
+     * @return The number of events exported.
+     */
+    public static long export(Path session) throws IOException {
+        Path file = session.resolve(OUTPUT_FILE_NAME);
+        Path temporaryFile = file.resolveSibling(OUTPUT_FILE_NAME + ".tmp");
+        long count = 0;
+        try (Timeline timeline = Timeline.open(session);
+             BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            XMLStreamWriter xmlWriter = xmlOutputFactory.createXMLStreamWriter(writer);
+            xmlWriter.writeStartDocument("UTF-8", "1.0");
+            xmlWriter.writeCharacters("\n");
+            xmlWriter.writeStartElement("timeline");
+            xmlWriter.writeAttribute("streams", String.join(";", timeline.getStreams()));
+            xmlWriter.writeCharacters("\n  ");
+            xmlWriter.writeStartElement("events");
+            while (timeline.hasNext()) {
+                Timeline.Event event = timeline.next();
+                xmlWriter.writeCharacters("\n    ");
+                writeElement(xmlWriter, event.element(), event.stream());
+                count++;
+            }
+            xmlWriter.writeCharacters("\n  ");
+            xmlWriter.writeEndElement();
+            xmlWriter.writeCharacters("\n");
+            xmlWriter.writeEndElement();
+            xmlWriter.writeCharacters("\n");
+            xmlWriter.writeEndDocument();
+            xmlWriter.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write " + file, e);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        TimeIndexWriter.write(file);
+        return count;
+    }
+
+    /**
+     * Write an element with its attributes and child nodes.
+     *
+     * @param stream The stream of the event, written as its {@code stream} attribute, or {@code null} for a child.
+     */
+    private static void writeElement(XMLStreamWriter xmlWriter, Element element, String stream)
+            throws XMLStreamException {
+        NodeList children = element.getChildNodes();
+        if (children.getLength() == 0) {
+            xmlWriter.writeEmptyElement(element.getTagName());
+        } else {
+            xmlWriter.writeStartElement(element.getTagName());
+        }
+        if (stream != null) {
+            xmlWriter.writeAttribute("stream", stream);
+        }
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            xmlWriter.writeAttribute(attribute.getNodeName(), attribute.getNodeValue());
+        }
+        if (children.getLength() == 0) {
+            return;
+        }
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element childElement) {
+                writeElement(xmlWriter, childElement, null);
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                xmlWriter.writeCharacters(child.getNodeValue());
+            }
+        }
+        xmlWriter.writeEndElement();
+    }
+
+    public int getExportedSessions() {
+        return exportedSessions.get();
+    }
+
+    public int getFailedSessions() {
+        return failedSessions.get();
+    }
+
+    public long getEvents() {
+        return events.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else {
+                inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: TimelineExporter [-j threads] session or parent directory...");
+            System.exit(2);
+        }
+        List<Path> sessions = SessionConverter.findSessions(inputs);
+        TimelineExporter exporter = new TimelineExporter(parallelism);
+        long startTime = System.nanoTime();
+        exporter.export(sessions);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Exported %d of %d sessions (%d failed) with %d threads in %.1f s: %d events, %.0f events/s%n",
+                exporter.getExportedSessions(), sessions.size(), exporter.getFailedSessions(), parallelism, seconds,
+                exporter.getEvents(), exporter.getEvents() / seconds);
+        System.exit(exporter.getFailedSessions() > 0 ? 1 : 0);
+    }
+}
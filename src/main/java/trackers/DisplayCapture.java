@@ -0,0 +1,372 @@
+package trackers;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.*;
+import org.bytedeco.javacv.Frame;
+
+import utils.JFREvents;
+import utils.SessionClock;
+import utils.TelemetryMonitor;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * This class captures and encodes a single display for the {@link ScreenRecorder}. Each display is grabbed and encoded
+ * on its own timer thread, so that several displays can be recorded in parallel. In the deferred mode, the frames are
+ * only compressed into a {@link FrameRingFile} during the session and encoded later by a {@link FrameTranscoder}.
+ */
+public class DisplayCapture {
+
+    /**
+     * This variable is the index of the display in {@link GraphicsEnvironment#getScreenDevices()}.
+     */
+    private final int displayIndex;
+    /**
+     * This variable indicates whether the display is the default screen device. The clips of the default display keep
+     * the {@code clip_[k].mp4} naming.
+     */
+    private final boolean isDefaultDisplay;
+    private final ScreenRecorder screenRecorder;
+    private final int frameRate;
+    /**
+     * This variable indicates whether the encoding is deferred to the {@link FrameTranscoder}.
+     */
+    private final boolean isDeferred;
+    /**
+     * This variable is the largest capacity of a ring file, see {@link FrameRingFile#FrameRingFile(File, int)}.
+     */
+    private static final int MAX_RING_CAPACITY = Integer.MAX_VALUE - FrameRingFile.HEADER_SIZE;
+    private FrameRingFile ringFile;
+    private FrameTranscoder transcoder;
+    private final int x, y, width, height;
+    private FrameRecorder recorder;
+    private FrameGrabber grabber;
+    private Timer timer;
+    volatile boolean isRecording = false;
+    private int clipNumber = 1;
+    private int frameNumber = 0;
+    private long clipStartTime = -1;
+    /**
+     * These variables are the throughput statistics of the display over the whole session.
+     */
+    private long totalFrames = 0, cpuTimeNanos = 0, bytesWritten = 0, startTime = 0, stopTime = 0;
+
+    /**
+     * The constructor of the display capture. The capture area is the bounds of the display in device pixels.
+     *
+     * @param screenRecorder The screen recorder owning the frame and clip files.
+     * @param displayIndex   The index of the display.
+     * @param frameRate      The frame rate.
+     * @param isDeferred     Whether the encoding is deferred until the IDE is idle.
+     */
+    public DisplayCapture(ScreenRecorder screenRecorder, int displayIndex, int frameRate, boolean isDeferred) throws IOException {
+        GraphicsEnvironment environment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        GraphicsDevice[] devices = environment.getScreenDevices();
+        if (displayIndex < 0 || displayIndex >= devices.length) {
+            throw new IOException("Display " + displayIndex + " not found");
+        }
+        this.screenRecorder = screenRecorder;
+        this.displayIndex = displayIndex;
+        this.frameRate = frameRate;
+        this.isDeferred = isDeferred;
+        this.isDefaultDisplay = devices[displayIndex].equals(environment.getDefaultScreenDevice());
+        GraphicsConfiguration config = devices[displayIndex].getDefaultConfiguration();
+        Rectangle bounds = config.getBounds();
+        AffineTransform transform = config.getDefaultTransform();
+        x = (int) (bounds.x * transform.getScaleX());
+        y = (int) (bounds.y * transform.getScaleY());
+        width = (int) (bounds.width * transform.getScaleX());
+        height = (int) (bounds.height * transform.getScaleY());
+    }
+
+    /**
+     * Get the capacity of the ring file of a display in the deferred mode, which holds the given number of seconds of
+     * uncompressed frames, and more as the frames are compressed, up to 2 GB.
+     *
+     * @param width     The width of the display in device pixels.
+     * @param height    The height of the display in device pixels.
+     * @param frameRate The frame rate.
+     * @param seconds   The number of seconds of frames.
+     * @return The capacity of the ring file in bytes.
+     */
+    static int getRingCapacity(int width, int height, int frameRate, int seconds) {
+        long frameBytes = (long) width * height * 4; // at most 4 bytes per pixel, e.g., BGRA
+        return (int) Math.min(MAX_RING_CAPACITY, Math.max(frameBytes * 2, frameBytes * frameRate * seconds));
+    }
+
+    /**
+     * Create the screen grabber of the display using {@link FFmpegFrameGrabber}.
+     */
+    private void createGrabber() throws IOException {
+        // avfoundation for macOS, gdigrab for Windows, xcbgrab for Linux
+        if (utils.OSDetector.isMac()) {
+            // avfoundation lists the screens after the cameras; "1" is the first screen on a machine with one camera
+            grabber = new FFmpegFrameGrabber(String.valueOf(1 + displayIndex));
+            grabber.setFormat("avfoundation");
+        } else if (utils.OSDetector.isWindows()) {
+            grabber = new FFmpegFrameGrabber("desktop");
+            grabber.setFormat("gdigrab");
+            grabber.setOption("offset_x", String.valueOf(x));
+            grabber.setOption("offset_y", String.valueOf(y));
+        } else if (utils.OSDetector.isUnix()) {
+            grabber = new FFmpegFrameGrabber(":0.0+" + x + "," + y);
+            grabber.setFormat("x11grab");
+        } else {
+            throw new IOException("Unsupported OS");
+        }
+        grabber.setFrameRate(frameRate);
+        grabber.setImageWidth(width);
+        grabber.setImageHeight(height);
+        grabber.start();
+    }
+
+    /**
+     * Create the encoder of a clip using {@link FFmpegFrameRecorder}. The clip is written as a fragmented MP4, i.e., the
+     * movie header is written up front and every keyframe starts a new fragment.
+     *
+     * @param file      The path of the video file.
+     * @param width     The image width.
+     * @param height    The image height.
+     * @param frameRate The frame rate.
+     * @return The encoder, not started yet.
+     */
+    public static FFmpegFrameRecorder createClipRecorder(String file, int width, int height, int frameRate) {
+        FFmpegFrameRecorder clipRecorder = new FFmpegFrameRecorder(file, width, height);
+        clipRecorder.setFormat("mp4");
+        clipRecorder.setOption("movflags", "frag_keyframe+empty_moov+default_base_moof");
+        clipRecorder.setFrameRate(frameRate);
+        clipRecorder.setGopSize(frameRate); // one fragment per second
+        clipRecorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+        return clipRecorder;
+    }
+
+    /**
+     * Open the encoder of the current clip. In the deferred mode, the clip is encoded later by the transcoder.
+     */
+    private void openClip() throws FrameRecorder.Exception {
+        if (!isDeferred) {
+            recorder = createClipRecorder(getClipFile(clipNumber), grabber.getImageWidth(), grabber.getImageHeight(), frameRate);
+            recorder.start();
+        }
+        frameNumber = 0;
+        clipStartTime = -1;
+    }
+
+    /**
+     * Close the encoder of the current clip and append it to the clip index. A clip without any frame is deleted.
+     *
+     * @param endTime The timestamp when the clip ends.
+     */
+    private void closeClip(long endTime) throws FrameRecorder.Exception {
+        File clipFile = new File(getClipFile(clipNumber));
+        if (recorder != null) {
+            recorder.stop();
+            recorder.release();
+            recorder = null;
+            if (frameNumber == 0) {
+                clipFile.delete();
+                return;
+            }
+            long clipBytes = clipFile.length();
+            bytesWritten += clipBytes;
+            TelemetryMonitor.getInstance().addBytes(TelemetryMonitor.Probe.FRAME_CAPTURE, clipBytes);
+        }
+        if (frameNumber == 0) {
+            return;
+        }
+        screenRecorder.writeClip(clipNumber, clipFile.getName(), clipStartTime, endTime, frameNumber, displayIndex,
+                frameRate);
+    }
+
+    /**
+     * Start capturing the display with the given clip number.
+     *
+     * @param clip The clip number of the first clip.
+     */
+    public synchronized void start(int clip) throws IOException {
+        clipNumber = clip;
+        startTime = SessionClock.currentTimeMillis();
+        createGrabber();
+        if (isDeferred) {
+            ringFile = new FrameRingFile(new File(screenRecorder.getDataOutputPath()
+                    + "/screen_recording/display_" + displayIndex + ".ring"),
+                    getRingCapacity(width, height, frameRate, screenRecorder.getRingSeconds()));
+            transcoder = new FrameTranscoder(ringFile, this, frameRate);
+            transcoder.start();
+        }
+        openClip();
+        isRecording = true;
+        timer = new Timer("CodeGRITS Screen Recorder (Display " + displayIndex + ")");
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                recordFrame();
+            }
+        }, 0, 1000 / frameRate);
+    }
+
+    /**
+     * Pause capturing the display. The current clip is closed and the encoder of the next clip is prepared, so that
+     * resuming is instant. The grabber keeps running.
+     *
+     * @param pauseTime The timestamp of the pause action.
+     * @param nextClip  The clip number of the next clip.
+     */
+    public synchronized void pause(long pauseTime, int nextClip) throws IOException {
+        isRecording = false;
+        closeClip(pauseTime);
+        clipNumber = nextClip;
+        openClip();
+        if (transcoder != null) {
+            transcoder.setIdle(true);
+        }
+    }
+
+    /**
+     * Resume capturing the display. The grabber and the encoder of the next clip are already running.
+     */
+    public synchronized void resume() {
+        isRecording = true;
+        if (transcoder != null) {
+            transcoder.setIdle(false);
+        }
+    }
+
+    /**
+     * Stop capturing the display. The current clip is closed and the grabber is released. In the deferred mode, the
+     * transcoder is asked to encode the remaining frames; use {@link #awaitTranscoding()} to wait for it.
+     *
+     * @param stopTime The timestamp of the stop action.
+     */
+    public synchronized void stop(long stopTime) throws IOException {
+        isRecording = false;
+        this.stopTime = stopTime;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        try {
+            closeClip(stopTime);
+        } finally {
+            if (grabber != null) {
+                grabber.stop();
+                grabber.release();
+                grabber = null;
+            }
+            if (transcoder != null) {
+                transcoder.finish();
+            }
+        }
+    }
+
+    /**
+     * Wait for the transcoder to encode all frames captured in the deferred mode.
+     */
+    public void awaitTranscoding() throws InterruptedException {
+        if (transcoder != null) {
+            transcoder.join();
+        }
+    }
+
+    /**
+     * Grab one frame from the display and encode it into the current clip if the capture is not paused. The frames
+     * grabbed while paused are discarded, which keeps the capture device drained and ready for resuming.
+     */
+    private synchronized void recordFrame() {
+        if (grabber == null || (recorder == null && ringFile == null)) {
+            return;
+        }
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+        long startNanoTime = System.nanoTime();
+        try {
+            JFREvents.FrameGrabEvent grabEvent = JFREvents.begin(JFREvents.FrameGrabEvent::new);
+            Frame frame = grabber.grabFrame();
+            if (grabEvent != null) {
+                grabEvent.display = displayIndex;
+                grabEvent.width = frame != null ? frame.imageWidth : 0;
+                grabEvent.height = frame != null ? frame.imageHeight : 0;
+                grabEvent.recording = isRecording;
+                grabEvent.commit();
+            }
+            if (!isRecording) {
+                return;
+            }
+            long timestampNanos = SessionClock.nanoTime();
+            long timestamp = timestampNanos / 1_000_000;
+            JFREvents.FrameEncodeEvent encodeEvent = JFREvents.begin(JFREvents.FrameEncodeEvent::new);
+            if (isDeferred) {
+                boolean isWritten = ringFile.write(timestamp, clipNumber, frameNumber + 1, frame.imageWidth,
+                        frame.imageHeight, frame.imageDepth, frame.imageChannels, frame.imageStride,
+                        (ByteBuffer) frame.image[0]);
+                TelemetryMonitor.getInstance().setQueueDepth(TelemetryMonitor.Queue.FRAME_RING_PERCENT,
+                        (long) (ringFile.getUsage() * 100));
+                if (!isWritten) {
+                    return; // only counted in dropped_frames, so the frame index stays in line with the clip
+                }
+            } else {
+                recorder.record(frame);
+            }
+            if (clipStartTime < 0) {
+                clipStartTime = timestamp;
+            }
+            frameNumber++;
+            totalFrames++;
+            screenRecorder.writeFrame(timestampNanos, frameNumber, clipNumber, displayIndex);
+            if (encodeEvent != null) {
+                encodeEvent.display = displayIndex;
+                encodeEvent.clip = clipNumber;
+                encodeEvent.frameNumber = frameNumber;
+                encodeEvent.mode = isDeferred ? "ring" : "realtime";
+                encodeEvent.commit();
+            }
+        } catch (FrameGrabber.Exception | FrameRecorder.Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            cpuTimeNanos += threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+            TelemetryMonitor.getInstance().record(TelemetryMonitor.Probe.FRAME_CAPTURE, startNanoTime);
+        }
+    }
+
+    int getDisplayIndex() {
+        return displayIndex;
+    }
+
+    /**
+     * Get the path of the video file of a clip. The default display uses {@code clip_[k].mp4}, and the other displays
+     * use {@code clip_[k]_display_[d].mp4}.
+     *
+     * @param clip The clip number.
+     * @return The path of the video file.
+     */
+    String getClipFile(int clip) {
+        String suffix = isDefaultDisplay ? "" : "_display_" + displayIndex;
+        return screenRecorder.getDataOutputPath() + "/screen_recording/clip_" + clip + suffix + ".mp4";
+    }
+
+    /**
+     * Get the throughput statistics of the display over the whole session, i.e., display, mode, x, y, width, height,
+     * frame_count, dropped_frames, cpu_time_ms, cpu_percent, transcode_cpu_time_ms, bytes_written, bytes_per_second.
+     * {@code cpu_time_ms} and {@code cpu_percent} only count the work done by the capture thread during the session.
+     *
+     * @return The throughput statistics as a CSV row.
+     */
+    public synchronized String[] getStatistics() {
+        double seconds = Math.max(1, stopTime - startTime) / 1000.0;
+        long bytes = transcoder != null ? transcoder.getBytesWritten() : bytesWritten;
+        return new String[]{String.valueOf(displayIndex), isDeferred ? "deferred" : "realtime", String.valueOf(x),
+                String.valueOf(y), String.valueOf(width), String.valueOf(height), String.valueOf(totalFrames),
+                String.valueOf(transcoder != null ? transcoder.getDroppedFrames() : 0),
+                String.valueOf(cpuTimeNanos / 1_000_000), String.format("%.2f", cpuTimeNanos / 1e7 / seconds),
+                String.valueOf(transcoder != null ? transcoder.getCpuTimeNanos() / 1_000_000 : 0),
+                String.valueOf(bytes), String.valueOf((long) (bytes / seconds))};
+    }
+}
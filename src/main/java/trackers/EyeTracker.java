@@ -1,5 +1,9 @@
 package trackers;
 
+import api.RealtimeEventBus;
+import api.event.EventType;
+import api.event.GazeEvent;
+import api.event.TrackerEvents;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Editor;
@@ -13,20 +17,26 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.opencsv.CSVWriter;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import reader.TimeIndexWriter;
+import utils.DwellAggregator;
+import utils.JFREvents;
+import utils.LatencyMonitor;
 import utils.RelativePathGetter;
+import utils.SessionClock;
+import utils.TelemetryMonitor;
 import utils.XMLWriter;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import java.awt.*;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -41,17 +51,18 @@ public class EyeTracker implements Disposable {
     PsiDocumentManager psiDocumentManager;
     public Editor editor;
     /**
-     * This variable is the XML document for storing the eye tracking data.
+     * This variable is the part of the pipeline that parses and publishes the gazes without the IDE.
      */
-    Document eyeTracking = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-    Element root = eyeTracking.createElement("eye_tracking");
-    Element setting = eyeTracking.createElement("setting");
-    Element gazes = eyeTracking.createElement("gazes");
+    final GazePipeline gazePipeline;
+    /**
+     * This variable is the XML document for storing the eye tracking data, built by the {@link #gazePipeline}.
+     */
+    Document eyeTracking;
+    Element root, setting, gazes;
     /**
      * This variable indicates whether the tracking is started.
      */
     boolean isTracking = false;
-    double screenWidth, screenHeight;
     String projectPath = "", filePath = "";
     PsiElement lastElement = null;
     Rectangle visibleArea = null;
@@ -61,6 +72,32 @@ public class EyeTracker implements Disposable {
     String pythonScriptTobii;
     String pythonScriptMouse;
     int deviceIndex = 0;
+    /**
+     * This variable indicates whether only the raw gazes are recorded, leaving the mapping to the code to
+     * {@code tools.GazeRemapper} after the session.
+     */
+    boolean isRawGazeOnly = false;
+    /**
+     * This variable indicates the number of rounds of the clock-offset handshake with the Python process.
+     */
+    static final int CLOCK_SYNC_ROUNDS = 16;
+    /**
+     * This variable is the device index of the {@link SyntheticGazeSource}, after the mouse (0) and the Tobii eye
+     * tracker (1).
+     */
+    public static final int SYNTHETIC_DEVICE_INDEX = 2;
+    /**
+     * This variable is the source of the gazes if the device is {@link #SYNTHETIC_DEVICE_INDEX}.
+     */
+    SyntheticGazeSource syntheticGazeSource;
+    /**
+     * These variables measure the mapping of the gazes on the EDT: the number of mapping tasks run, their total time,
+     * and the number of tasks waiting in the event queue.
+     */
+    private final AtomicLong edtTasks = new AtomicLong();
+    private final AtomicLong edtNanos = new AtomicLong();
+    private final AtomicInteger edtBacklog = new AtomicInteger();
+    private volatile int maxEdtBacklog;
 
     /**
      * This variable indicates whether the real-time data is transmitting.
@@ -75,14 +112,7 @@ public class EyeTracker implements Disposable {
      * This is the default constructor.
      */
     public EyeTracker() throws ParserConfigurationException {
-
-        eyeTracking.appendChild(root);
-        root.appendChild(setting);
-        root.appendChild(gazes);
-
-        Dimension size = Toolkit.getDefaultToolkit().getScreenSize();
-        screenWidth = size.getWidth();
-        screenHeight = size.getHeight();
+        this(Toolkit.getDefaultToolkit().getScreenSize());
 
         ApplicationManager.getApplication().getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerListener() {
             @Override
@@ -109,6 +139,20 @@ public class EyeTracker implements Disposable {
         });
     }
 
+    /**
+     * This is the constructor for the eye tracker without the selected editor, e.g., for the benchmarks. It builds the
+     * XML document, but does not follow the selected editor, so it can only record the raw gazes.
+     *
+     * @param screenSize The size of the screen, to which the gaze points are scaled.
+     */
+    public EyeTracker(Dimension screenSize) throws ParserConfigurationException {
+        gazePipeline = new GazePipeline(screenSize);
+        eyeTracking = gazePipeline.eyeTracking;
+        root = gazePipeline.root;
+        setting = gazePipeline.setting;
+        gazes = gazePipeline.gazes;
+    }
+
     /**
      * This is the constructor for the eye tracker.
      *
@@ -155,23 +199,52 @@ public class EyeTracker implements Disposable {
         }
         if (deviceIndex == 0) {
             setting.setAttribute("eye_tracker", "Mouse");
+        } else if (deviceIndex == SYNTHETIC_DEVICE_INDEX) {
+            setting.setAttribute("eye_tracker", "Synthetic");
+            setting.setAttribute("synthetic_source", syntheticGazeSource.getSpecification());
+            sampleFrequency = syntheticGazeSource.getRate();
         } else {
             setting.setAttribute("eye_tracker", "Tobii Pro Fusion");
         }
         setting.setAttribute("sample_frequency", String.valueOf(sampleFrequency));
+        if (isRawGazeOnly) {
+            setting.setAttribute("mapping", "offline");
+        }
+        DwellAggregator.getInstance().reset();
+        DwellAggregator.getInstance().setMaxSampleNanos((long) (2e9 / sampleFrequency));
         track();
     }
 
     /**
-     * This method stops the eye tracking.
+     * This method stops the eye tracking. The tracking data is written to the XML file with its {@link reader.TimeIndex}
+     * if the data output path is set, and with a synthetic gaze source, the load of the pipeline to
+     * {@code gaze_load.csv}.
      *
      * @throws TransformerException The exception.
      */
     public void stopTracking() throws TransformerException {
-        isTracking = false;
-        pythonOutputThread.interrupt();
-        pythonProcess.destroy();
+        pauseTracking();
+        if (deviceIndex == SYNTHETIC_DEVICE_INDEX) {
+            syntheticGazeSource.stop();
+        } else {
+            pythonOutputThread.interrupt();
+            pythonProcess.destroy();
+        }
+        if (dataOutputPath.isEmpty()) {
+            return; // started by the real-time data API without an output folder
+        }
         XMLWriter.writeToXML(eyeTracking, dataOutputPath + "/eye_tracking.xml");
+        try {
+            TimeIndexWriter.write(Path.of(dataOutputPath, "eye_tracking.xml"));
+            if (deviceIndex == SYNTHETIC_DEVICE_INDEX) {
+                try (CSVWriter csvWriter = new CSVWriter(new FileWriter(dataOutputPath + "/gaze_load.csv"))) {
+                    csvWriter.writeNext(SyntheticGazeSource.LOAD_REPORT_HEADER);
+                    csvWriter.writeNext(getLoadReport());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -179,6 +252,7 @@ public class EyeTracker implements Disposable {
      */
     public void pauseTracking() {
         isTracking = false;
+        gazePipeline.flushFixation();
     }
 
     /**
@@ -194,37 +268,57 @@ public class EyeTracker implements Disposable {
      * @param message The raw data.
      */
     public void processRawData(String message) {
-        if (!isTracking) return;
-        Element gaze = getRawGazeElement(message);
-        gazes.appendChild(gaze);
-
-        String leftInfo = message.split("; ")[1];
-        String leftGazePointX = leftInfo.split(", ")[0];
-        String leftGazePointY = leftInfo.split(", ")[1];
+        processRawData(message, System.nanoTime());
+    }
 
-        String rightInfo = message.split("; ")[2];
-        String rightGazePointX = rightInfo.split(", ")[0];
-        String rightGazePointY = rightInfo.split(", ")[1];
+    /**
+     * This method processes the raw data message from the eye tracker, and records the latency of each stage in the
+     * {@link LatencyMonitor} and the time spent in the {@link TelemetryMonitor}.
+     *
+     * @param message      The raw data.
+     * @param readNanoTime The {@link System#nanoTime()} when the message was read from the Python process.
+     */
+    public void processRawData(String message, long readNanoTime) {
+        if (!isTracking) return;
+        long startNanoTime = System.nanoTime();
+        processGaze(message, readNanoTime);
+        TelemetryMonitor.getInstance().record(TelemetryMonitor.Probe.GAZE_PROCESSING, startNanoTime);
+    }
 
-        if (leftGazePointX.equals("nan") || leftGazePointY.equals("nan") || rightGazePointX.equals("nan") || rightGazePointY.equals("nan")) {
-            gaze.setAttribute("remark", "Fail | Invalid Gaze Point");
+    /**
+     * This method processes a gaze of the raw data while tracking, see {@link #processRawData(String, long)}.
+     *
+     * @param message      The raw data.
+     * @param readNanoTime The {@link System#nanoTime()} when the message was read from the Python process.
+     */
+    private void processGaze(String message, long readNanoTime) {
+        if (isRawGazeOnly) {
+            gazePipeline.processRawGaze(message, readNanoTime);
             return;
         }
+        GazePipeline.Sample sample = gazePipeline.parse(message, readNanoTime);
+        Element gaze = sample.gaze();
+        if (!sample.isValid()) {
+            publishGaze(gaze, Double.NaN, Double.NaN);
+            return;
+        }
+        int eyeX = sample.x();
+        int eyeY = sample.y();
+        LatencyMonitor latencyMonitor = LatencyMonitor.getInstance();
 
         if (editor == null) {
             gaze.setAttribute("remark", "Fail | No Editor");
+            publishGaze(gaze, eyeX, eyeY);
             return;
         }
 
-        int eyeX = (int) ((Double.parseDouble(leftGazePointX) + Double.parseDouble(rightGazePointX)) / 2 * screenWidth);
-        int eyeY = (int) ((Double.parseDouble(leftGazePointY) + Double.parseDouble(rightGazePointY)) / 2 * screenHeight);
-
         int editorX, editorY;
         try {
             editorX = editor.getContentComponent().getLocationOnScreen().x;
             editorY = editor.getContentComponent().getLocationOnScreen().y;
         } catch (IllegalComponentStateException e) {
             gaze.setAttribute("remark", "Fail | No Editor");
+            publishGaze(gaze, eyeX, eyeY);
             return;
         }
         int relativeX = eyeX - editorX;
@@ -232,12 +326,26 @@ public class EyeTracker implements Disposable {
         if ((relativeX - visibleArea.x) < 0 || (relativeY - visibleArea.y) < 0
                 || (relativeX - visibleArea.x) > visibleArea.width || (relativeY - visibleArea.y) > visibleArea.height) {
             gaze.setAttribute("remark", "Fail | Out of Text Editor");
+            publishGaze(gaze, eyeX, eyeY);
             return;
         }
+        gazePipeline.detectFixation(gaze, eyeX, eyeY);
 
         Point relativePoint = new Point(relativeX, relativeY);
 
+        long enqueueNanoTime = System.nanoTime();
+        latencyMonitor.record(LatencyMonitor.Stage.GAZE_PARSE, enqueueNanoTime - readNanoTime);
+        int backlog = edtBacklog.incrementAndGet();
+        TelemetryMonitor.getInstance().setQueueDepth(TelemetryMonitor.Queue.GAZE_EDT_BACKLOG, backlog);
+        if (backlog > maxEdtBacklog) {
+            maxEdtBacklog = backlog;
+        }
         EventQueue.invokeLater(new Thread(() -> {
+            long mappingNanoTime = System.nanoTime();
+            JFREvents.GazeMapEvent mapEvent = JFREvents.begin(JFREvents.GazeMapEvent::new);
+            TelemetryMonitor.getInstance().setQueueDepth(TelemetryMonitor.Queue.GAZE_EDT_BACKLOG,
+                    edtBacklog.decrementAndGet());
+            latencyMonitor.record(LatencyMonitor.Stage.GAZE_EDT_QUEUE, mappingNanoTime - enqueueNanoTime);
             PsiFile psiFile = psiDocumentManager.getPsiFile(editor.getDocument());
             LogicalPosition logicalPosition = editor.xyToLogicalPosition(relativePoint);
             if (psiFile != null) {
@@ -248,21 +356,48 @@ public class EyeTracker implements Disposable {
                 location.setAttribute("y", String.valueOf(eyeY));
                 location.setAttribute("line", String.valueOf(logicalPosition.line));
                 location.setAttribute("column", String.valueOf(logicalPosition.column));
-                location.setAttribute("path", RelativePathGetter.getRelativePath(filePath, projectPath));
+                String relativePath = RelativePathGetter.getRelativePath(filePath, projectPath);
+                location.setAttribute("path", relativePath);
                 gaze.appendChild(location);
+                DwellAggregator.getInstance().addSample(TrackerEvents.getTimestampNanos(gaze), relativePath,
+                        logicalPosition.line, getElementRanges(psiElement));
+                JFREvents.ASTWalkEvent astWalkEvent = JFREvents.begin(JFREvents.ASTWalkEvent::new);
                 Element aSTStructure = getASTStructureElement(psiElement);
+                if (astWalkEvent != null) {
+                    astWalkEvent.type = aSTStructure.getAttribute("type");
+                    astWalkEvent.depth = aSTStructure.getChildNodes().getLength();
+                    astWalkEvent.commit();
+                }
                 gaze.appendChild(aSTStructure);
                 lastElement = psiElement;
 //                System.out.println(gaze.getAttribute("timestamp") + " " + System.currentTimeMillis());
+                latencyMonitor.record(LatencyMonitor.Stage.GAZE_MAPPING, System.nanoTime() - mappingNanoTime);
                 handleElement(gaze);
+                if (mapEvent != null) {
+                    mapEvent.path = relativePath;
+                    mapEvent.line = logicalPosition.line;
+                    mapEvent.column = logicalPosition.column;
+                }
             }
+            if (mapEvent != null) {
+                mapEvent.queueNanos = mappingNanoTime - enqueueNanoTime;
+                mapEvent.commit();
+            }
+            edtTasks.incrementAndGet();
+            edtNanos.addAndGet(System.nanoTime() - mappingNanoTime);
+            TelemetryMonitor.getInstance().record(TelemetryMonitor.Probe.GAZE_MAPPING, mappingNanoTime);
         }));
     }
 
     /**
-     * This method builds the Python process and redirects the output to the {@code pythonOutputThread} to process.
+     * This method builds the Python process and redirects the output to the {@code pythonOutputThread} to process. With
+     * the {@link SyntheticGazeSource}, the source is started instead.
      */
     public void track() {
+        if (deviceIndex == SYNTHETIC_DEVICE_INDEX) {
+            syntheticGazeSource.start(this::processRawData);
+            return;
+        }
         try {
             ProcessBuilder processBuilder;
             if (deviceIndex == 0) {
@@ -276,10 +411,12 @@ public class EyeTracker implements Disposable {
             pythonOutputThread = new Thread(() -> {
                 try (InputStream inputStream = pythonProcess.getInputStream();
                      InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-                     BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
+                     BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+                     Writer writer = new OutputStreamWriter(pythonProcess.getOutputStream())) {
+                    synchronizeClock(bufferedReader, writer);
                     String line;
                     while ((line = bufferedReader.readLine()) != null) {
-                        processRawData(line);
+                        processRawData(line, System.nanoTime());
                     }
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -292,6 +429,32 @@ public class EyeTracker implements Disposable {
         }
     }
 
+    /**
+     * This method performs the clock-offset handshake with the Python process. Each round sends a request to the
+     * Python process, which replies with its clock {@code SYNC; [NANOSECONDS]}. The offset between the Python clock
+     * and the {@link SessionClock} is estimated from the round with the smallest round-trip time.
+     *
+     * @param reader The reader of the output of the Python process.
+     * @param writer The writer of the input of the Python process.
+     */
+    private void synchronizeClock(BufferedReader reader, Writer writer) throws IOException {
+        for (int i = 0; i < CLOCK_SYNC_ROUNDS; i++) {
+            long sentNanoTime = System.nanoTime();
+            writer.write("sync\n");
+            writer.flush();
+            String line;
+            do {
+                // skip the output of the Python interpreter before the reply, e.g., warnings of the imported packages
+                line = reader.readLine();
+            } while (line != null && !line.startsWith("SYNC; "));
+            long receivedNanoTime = System.nanoTime();
+            if (line == null) {
+                return;
+            }
+            SessionClock.addPythonClockSample(sentNanoTime, receivedNanoTime, Long.parseLong(line.substring(6).trim()));
+        }
+    }
+
     /**
      * This method sets the project path.
      *
@@ -306,50 +469,14 @@ public class EyeTracker implements Disposable {
     }
 
     /**
-     * This method gets the raw gaze xml element from the raw gaze data.
+     * This method gets the raw gaze xml element from the raw gaze data, see
+     * {@link GazePipeline#getRawGazeElement(String)}.
      *
      * @param message The raw gaze data.
      * @return The raw gaze element.
      */
     public Element getRawGazeElement(String message) {
-        String timestamp = message.split("; ")[0];
-
-        String leftInfo = message.split("; ")[1];
-        String leftGazePointX = leftInfo.split(", ")[0];
-        String leftGazePointY = leftInfo.split(", ")[1];
-        String leftGazeValidity = leftInfo.split(", ")[2];
-        String leftPupilDiameter = leftInfo.split(", ")[3];
-        String leftPupilValidity = leftInfo.split(", ")[4];
-
-        String rightInfo = message.split("; ")[2];
-        String rightGazePointX = rightInfo.split(", ")[0];
-        String rightGazePointY = rightInfo.split(", ")[1];
-        String rightGazeValidity = rightInfo.split(", ")[2];
-        String rightPupilDiameter = rightInfo.split(", ")[3];
-        String rightPupilValidity = rightInfo.split(", ")[4];
-
-        Element rawGaze = eyeTracking.createElement("gaze");
-        Element leftEye = eyeTracking.createElement("left_eye");
-        Element rightEye = eyeTracking.createElement("right_eye");
-
-        rawGaze.appendChild(leftEye);
-        rawGaze.appendChild(rightEye);
-
-        rawGaze.setAttribute("timestamp", timestamp);
-
-        leftEye.setAttribute("gaze_point_x", leftGazePointX);
-        leftEye.setAttribute("gaze_point_y", leftGazePointY);
-        leftEye.setAttribute("gaze_validity", leftGazeValidity);
-        leftEye.setAttribute("pupil_diameter", leftPupilDiameter);
-        leftEye.setAttribute("pupil_validity", leftPupilValidity);
-
-        rightEye.setAttribute("gaze_point_x", rightGazePointX);
-        rightEye.setAttribute("gaze_point_y", rightGazePointY);
-        rightEye.setAttribute("gaze_validity", rightGazeValidity);
-        rightEye.setAttribute("pupil_diameter", rightPupilDiameter);
-        rightEye.setAttribute("pupil_validity", rightPupilValidity);
-
-        return rawGaze;
+        return gazePipeline.getRawGazeElement(message);
     }
 
     /**
@@ -389,11 +516,53 @@ public class EyeTracker implements Disposable {
     }
 
     /**
-     * This method handles the element.
+     * This method gets the text ranges of a PSI element and its parents up to the file, for the
+     * {@link DwellAggregator}.
+     *
+     * @param psiElement The PSI element.
+     * @return The start and end offsets of each level, or {@code null} if there is no PSI element.
+     */
+    private static int[] getElementRanges(PsiElement psiElement) {
+        if (psiElement == null) {
+            return null;
+        }
+        int depth = 0;
+        for (PsiElement parent = psiElement; parent != null && !(parent instanceof PsiFile); parent = parent.getParent()) {
+            depth++;
+        }
+        int[] ranges = new int[depth * 2];
+        PsiElement parent = psiElement;
+        for (int i = 0; i < ranges.length; i += 2) {
+            ranges[i] = parent.getTextRange().getStartOffset();
+            ranges[i + 1] = parent.getTextRange().getEndOffset();
+            parent = parent.getParent();
+        }
+        return ranges;
+    }
+
+    /**
+     * This method publishes a gaze that is not mapped to the code editor on the {@link RealtimeEventBus}, together
+     * with the fixation it ends, if any. The mapped gazes are published by {@link #handleElement(Element)}.
+     *
+     * @param gaze The gaze element.
+     * @param eyeX The x coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     * @param eyeY The y coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     */
+    private void publishGaze(Element gaze, double eyeX, double eyeY) {
+        gazePipeline.publishGaze(gaze, eyeX, eyeY);
+    }
+
+    /**
+     * This method handles the element. The mapped gaze is published as a {@link GazeEvent} on the
+     * {@link RealtimeEventBus} if there is any subscriber.
      *
      * @param element The element.
      */
     private void handleElement(Element element) {
+        RealtimeEventBus eventBus = RealtimeEventBus.getInstance();
+        if (eventBus.hasSubscribers(EventType.GAZE)) {
+            eventBus.publish(TrackerEvents.toGazeEvent(element));
+        }
         if (eyeTrackerDataHandler != null && isRealTimeDataTransmitting) {
             eyeTrackerDataHandler.accept(element);
         } else if (eyeTrackerDataHandler == null) {
@@ -425,15 +594,21 @@ public class EyeTracker implements Disposable {
      * This method sets the Python script for the Tobii eye tracker.
      */
     public void setPythonScriptTobii() {
-        pythonScriptTobii = "freq = " + sampleFrequency + "\n" + """
+        pythonScriptTobii = "freq = " + sampleFrequency + "\n" + "sync_rounds = " + CLOCK_SYNC_ROUNDS + "\n" + """
                 import tobii_research as tr
                 import time
                 import sys
                 import math
                             
+                for _ in range(sync_rounds):
+                    sys.stdin.readline()
+                    print('SYNC; {}'.format(time.perf_counter_ns()))
+                    sys.stdout.flush()
                             
                 def gaze_data_callback(gaze_data):
-                    message = '{}; {}, {}, {}, {}, {}; {}, {}, {}, {}, {}'.format(
+                    # map the system time stamp of the sample (in microseconds) to the perf_counter clock
+                    sample_ns = time.perf_counter_ns() - (tr.get_system_time_stamp() - gaze_data['system_time_stamp']) * 1000
+                    message = '{}; {}, {}, {}, {}, {}; {}, {}, {}, {}, {}; {}, {}, {}'.format(
                         round(time.time() * 1000),
                         gaze_data['left_gaze_point_on_display_area'][0],
                         gaze_data['left_gaze_point_on_display_area'][1],
@@ -444,7 +619,10 @@ public class EyeTracker implements Disposable {
                         gaze_data['right_gaze_point_on_display_area'][1],
                         gaze_data['right_gaze_point_validity'],
                         gaze_data['right_pupil_diameter'],
-                        gaze_data['right_pupil_validity']
+                        gaze_data['right_pupil_validity'],
+                        sample_ns,
+                        gaze_data['device_time_stamp'],
+                        gaze_data['system_time_stamp']
                     )
                     print(message)
                     sys.stdout.flush()
@@ -463,13 +641,18 @@ public class EyeTracker implements Disposable {
      * This method sets the Python script for the mouse eye tracker.
      */
     public void setPythonScriptMouse() {
-        pythonScriptMouse = "freq = " + sampleFrequency + "\n" + """
+        pythonScriptMouse = "freq = " + sampleFrequency + "\n" + "sync_rounds = " + CLOCK_SYNC_ROUNDS + "\n" + """
                 import pyautogui
                 from screeninfo import get_monitors
                 import time
                 import sys
                 import math
                             
+                for _ in range(sync_rounds):
+                    sys.stdin.readline()
+                    print('SYNC; {}'.format(time.perf_counter_ns()))
+                    sys.stdout.flush()
+                            
                 width, height = get_monitors()[0].width, get_monitors()[0].height
                 start_time = time.time()
                 last_time = start_time
@@ -479,7 +662,8 @@ public class EyeTracker implements Disposable {
                     if current_time - last_time > 1 / freq:
                         message = f'{round(current_time * 1000)}; ' \\
                                   f'{pyautogui.position().x / width}, {pyautogui.position().y / height}, 1.0, 0, 0.0; ' \\
-                                  f'{pyautogui.position().x / width}, {pyautogui.position().y / height}, 1.0, 0, 0.0'
+                                  f'{pyautogui.position().x / width}, {pyautogui.position().y / height}, 1.0, 0, 0.0; ' \\
+                                  f'{time.perf_counter_ns()}'
                         print(message)
                         last_time = current_time
                         sys.stdout.flush()
@@ -494,4 +678,34 @@ public class EyeTracker implements Disposable {
     public void setDeviceIndex(int deviceIndex) {
         this.deviceIndex = deviceIndex;
     }
+
+    /**
+     * This method sets the source of the gazes for the device {@link #SYNTHETIC_DEVICE_INDEX}.
+     *
+     * @param syntheticGazeSource The synthetic gaze source.
+     */
+    public void setSyntheticGazeSource(SyntheticGazeSource syntheticGazeSource) {
+        this.syntheticGazeSource = syntheticGazeSource;
+    }
+
+    /**
+     * This method gets the load of the eye tracking pipeline with the {@link SyntheticGazeSource}, named by
+     * {@link SyntheticGazeSource#LOAD_REPORT_HEADER}, see {@link SyntheticGazeSource#getLoadReport(long, long, int)}.
+     *
+     * @return The values of the load.
+     */
+    public String[] getLoadReport() {
+        return syntheticGazeSource.getLoadReport(edtTasks.get(), edtNanos.get(), maxEdtBacklog);
+    }
+
+    /**
+     * This method sets whether only the raw gazes are recorded. The gazes are then neither mapped to the code nor
+     * checked against the editor during the session, and {@code tools.GazeRemapper} adds their {@code location} and
+     * {@code ast_structure} afterwards from the archives and the visible areas recorded by {@link IDETracker}.
+     *
+     * @param isRawGazeOnly Whether only the raw gazes are recorded.
+     */
+    public void setRawGazeOnly(boolean isRawGazeOnly) {
+        this.isRawGazeOnly = isRawGazeOnly;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+package trackers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class is a preallocated, memory-mapped ring file of lightly compressed screen frames. It is used by the deferred
+ * screen recording mode: the capture thread writes the frames into the ring during the session, and the
+ * {@link FrameTranscoder} reads them back and encodes them into the video clips when the IDE is idle. There is a
+ * single writer and a single reader. A frame that does not fit into the free space of the ring is dropped instead of
+ * blocking the capture thread.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: magic (int), version (int), capacity of the data region
+ * (long), write position (long) and read position (long). The positions are the total number of bytes written/read, so
+ * the offset in the data region is the position modulo the capacity. Each record starts with its total length (int,
+ * aligned to 8 bytes) and its type (int); a {@link #TYPE_PADDING} record fills the end of the data region before
+ * wrapping around.
+ */
+public class FrameRingFile implements AutoCloseable {
+    static final int MAGIC = 0x43475246; // "CGRF"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int TYPE_FRAME = 1;
+    static final int TYPE_PADDING = 2;
+    /**
+     * The size of the record header of a frame: length, type, timestamp, clip, frame number, width, height, depth,
+     * channels, stride and the length of the compressed data.
+     */
+    static final int FRAME_HEADER_SIZE = 48;
+    private static final int WRITE_POSITION_OFFSET = 16;
+    private static final int READ_POSITION_OFFSET = 24;
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    /**
+     * These variables are the scratch buffers of the writer and the reader. They are never shared between the threads.
+     */
+    private byte[] writeBuffer = new byte[0], readBuffer = new byte[0], raw = new byte[0];
+    private long droppedFrames = 0;
+    /**
+     * This variable indicates whether the ring is closed and its mapping dropped. It is guarded by the ring, so that
+     * the writer never touches the mapping after {@link #close()}.
+     */
+    private boolean isClosed = false;
+
+    /**
+     * The constructor of the ring file. The file is created and preallocated with the given capacity.
+     *
+     * @param file     The ring file.
+     * @param capacity The capacity of the data region in bytes, at most 2 GB minus the header.
+     */
+    public FrameRingFile(File file, int capacity) throws IOException {
+        this.file = file;
+        this.capacity = capacity & ~7L;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(HEADER_SIZE + this.capacity);
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity);
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, this.capacity);
+        LONG_HANDLE.setRelease(buffer, WRITE_POSITION_OFFSET, 0L);
+        LONG_HANDLE.setRelease(buffer, READ_POSITION_OFFSET, 0L);
+    }
+
+    /**
+     * Compress a frame and append it to the ring. This method is called by the capture thread only.
+     *
+     * @param timestamp   The timestamp of the frame.
+     * @param clip        The clip number.
+     * @param frameNumber The frame number in its clip.
+     * @param width       The image width.
+     * @param height      The image height.
+     * @param depth       The image depth, as in {@link org.bytedeco.javacv.Frame}.
+     * @param channels    The number of image channels.
+     * @param stride      The image stride.
+     * @param image       The image data, from its position to its limit.
+     * @return {@code true} if the frame is written, {@code false} if it is dropped because the ring is full or closed.
+     */
+    public synchronized boolean write(long timestamp, int clip, int frameNumber, int width, int height, int depth, int channels,
+                         int stride, ByteBuffer image) {
+        if (isClosed) {
+            droppedFrames++;
+            return false;
+        }
+        int rawLength = image.remaining();
+        if (writeBuffer.length < rawLength + 1024) {
+            writeBuffer = new byte[rawLength + 1024];
+        }
+        deflater.reset();
+        deflater.setInput(image.duplicate());
+        deflater.finish();
+        int compressedLength = deflater.deflate(writeBuffer);
+        if (!deflater.finished()) {
+            droppedFrames++;
+            return false;
+        }
+
+        int recordLength = align(FRAME_HEADER_SIZE + compressedLength);
+        long writePosition = (long) LONG_HANDLE.getAcquire(buffer, WRITE_POSITION_OFFSET);
+        long readPosition = (long) LONG_HANDLE.getAcquire(buffer, READ_POSITION_OFFSET);
+        long offset = writePosition % capacity;
+        long padding = offset + recordLength > capacity ? capacity - offset : 0;
+        if (recordLength > capacity || writePosition + padding + recordLength - readPosition > capacity) {
+            droppedFrames++;
+            return false;
+        }
+        if (padding > 0) {
+            buffer.putInt(HEADER_SIZE + (int) offset, (int) padding);
+            buffer.putInt(HEADER_SIZE + (int) offset + 4, TYPE_PADDING);
+            writePosition += padding;
+            offset = 0;
+        }
+        int base = HEADER_SIZE + (int) offset;
+        buffer.putInt(base, recordLength);
+        buffer.putInt(base + 4, TYPE_FRAME);
+        buffer.putLong(base + 8, timestamp);
+        buffer.putInt(base + 16, clip);
+        buffer.putInt(base + 20, frameNumber);
+        buffer.putInt(base + 24, width);
+        buffer.putInt(base + 28, height);
+        buffer.putInt(base + 32, depth);
+        buffer.putInt(base + 36, channels);
+        buffer.putInt(base + 40, stride);
+        buffer.putInt(base + 44, compressedLength);
+        buffer.put(base + FRAME_HEADER_SIZE, writeBuffer, 0, compressedLength);
+        LONG_HANDLE.setRelease(buffer, WRITE_POSITION_OFFSET, writePosition + recordLength);
+        return true;
+    }
+
+    /**
+     * Read and decompress the next frame from the ring. This method is called by the transcoder thread only, which is
+     * also the thread that closes the ring, so it does not take the lock of the writer.
+     *
+     * @return The next frame, or {@code null} if the ring is empty or closed.
+     */
+    public RingFrame read() throws IOException {
+        if (isClosed) {
+            return null;
+        }
+        long readPosition = (long) LONG_HANDLE.getAcquire(buffer, READ_POSITION_OFFSET);
+        long writePosition = (long) LONG_HANDLE.getAcquire(buffer, WRITE_POSITION_OFFSET);
+        while (readPosition < writePosition) {
+            int base = HEADER_SIZE + (int) (readPosition % capacity);
+            int recordLength = buffer.getInt(base);
+            if (buffer.getInt(base + 4) == TYPE_PADDING) {
+                readPosition += recordLength;
+                LONG_HANDLE.setRelease(buffer, READ_POSITION_OFFSET, readPosition);
+                continue;
+            }
+            int height = buffer.getInt(base + 28);
+            int stride = buffer.getInt(base + 40);
+            int compressedLength = buffer.getInt(base + 44);
+            if (readBuffer.length < compressedLength) {
+                readBuffer = new byte[compressedLength];
+            }
+            buffer.get(base + FRAME_HEADER_SIZE, readBuffer, 0, compressedLength);
+            RingFrame frame = new RingFrame(buffer.getLong(base + 8), buffer.getInt(base + 16), buffer.getInt(base + 20),
+                    buffer.getInt(base + 24), height, buffer.getInt(base + 32), buffer.getInt(base + 36), stride);
+            // release the record before inflating, so that the capture thread can reuse the space as early as possible
+            LONG_HANDLE.setRelease(buffer, READ_POSITION_OFFSET, readPosition + recordLength);
+            inflater.reset();
+            inflater.setInput(readBuffer, 0, compressedLength);
+            try {
+                int rawLength = 0;
+                while (!inflater.finished()) {
+                    if (rawLength == raw.length) {
+                        byte[] larger = new byte[Math.max(raw.length * 2, 1 << 20)];
+                        System.arraycopy(raw, 0, larger, 0, rawLength);
+                        raw = larger;
+                    }
+                    int inflated = inflater.inflate(raw, rawLength, raw.length - rawLength);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated frame in " + file);
+                    }
+                    rawLength += inflated;
+                }
+                frame.image = ByteBuffer.wrap(raw, 0, rawLength);
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+            return frame;
+        }
+        return null;
+    }
+
+    /**
+     * Get the fraction of the ring that is used by frames not read yet.
+     *
+     * @return The usage of the ring between 0 and 1.
+     */
+    public synchronized double getUsage() {
+        if (isClosed) {
+            return 0;
+        }
+        long writePosition = (long) LONG_HANDLE.getAcquire(buffer, WRITE_POSITION_OFFSET);
+        long readPosition = (long) LONG_HANDLE.getAcquire(buffer, READ_POSITION_OFFSET);
+        return (double) (writePosition - readPosition) / capacity;
+    }
+
+    /**
+     * Check whether all frames written to the ring have been read.
+     *
+     * @return {@code true} if the ring is empty.
+     */
+    public synchronized boolean isEmpty() {
+        if (isClosed) {
+            return true;
+        }
+        return (long) LONG_HANDLE.getAcquire(buffer, WRITE_POSITION_OFFSET)
+                == (long) LONG_HANDLE.getAcquire(buffer, READ_POSITION_OFFSET);
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Close the ring file, drop its mapping and delete it. This method is called by the transcoder thread, i.e., the
+     * reader; the writer drops the frames written after it.
+     *
+     * @throws IOException If the ring file cannot be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        deflater.end();
+        inflater.end();
+        unmap(buffer);
+        randomAccessFile.close();
+        Files.delete(file.toPath());
+    }
+
+    /**
+     * Drop the mapping of the buffer now instead of when it is garbage collected, which keeps the file open, e.g., on
+     * Windows, where a mapped file cannot be deleted. The buffer must not be used afterwards. If the JDK does not allow
+     * it, the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    /**
+     * This class is a frame read back from the ring. The image data is only valid until the next call to
+     * {@link FrameRingFile#read()}.
+     */
+    public static class RingFrame {
+        public final long timestamp;
+        public final int clip, frameNumber, width, height, depth, channels, stride;
+        public ByteBuffer image;
+
+        RingFrame(long timestamp, int clip, int frameNumber, int width, int height, int depth, int channels, int stride) {
+            this.timestamp = timestamp;
+            this.clip = clip;
+            this.frameNumber = frameNumber;
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+            this.channels = channels;
+            this.stride = stride;
+        }
+    }
+}
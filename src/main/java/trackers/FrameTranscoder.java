@@ -0,0 +1,173 @@
+package trackers;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+import utils.JFREvents;
+import utils.TelemetryMonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is the background transcoder of the deferred screen recording mode. It reads the frames of one display
+ * from a {@link FrameRingFile} and encodes them into the same {@code clip_[k].mp4} files as the real-time mode. The
+ * transcoder runs at the lowest thread priority and only while the tracking is paused or stopped, unless the ring is
+ * about to overflow.
+ */
+public class FrameTranscoder extends Thread {
+
+    /**
+     * This variable is the usage of the ring above which the transcoder also runs while recording, to avoid dropping
+     * frames.
+     */
+    private static final double HIGH_WATERMARK = 0.75;
+    private final FrameRingFile ringFile;
+    private final DisplayCapture displayCapture;
+    private final int frameRate;
+    private FrameRecorder recorder;
+    private int clipNumber = -1;
+    private volatile boolean isIdle = false;
+    private volatile boolean isFinishing = false;
+    private long cpuTimeNanos = 0, bytesWritten = 0;
+
+    /**
+     * The constructor of the transcoder.
+     *
+     * @param ringFile       The ring file to read the frames from.
+     * @param displayCapture The display capture, which names the clip files.
+     * @param frameRate      The frame rate.
+     */
+    public FrameTranscoder(FrameRingFile ringFile, DisplayCapture displayCapture, int frameRate) {
+        super("CodeGRITS Screen Transcoder");
+        this.ringFile = ringFile;
+        this.displayCapture = displayCapture;
+        this.frameRate = frameRate;
+        setPriority(Thread.MIN_PRIORITY);
+        setDaemon(true);
+    }
+
+    /**
+     * Set whether the IDE is idle, i.e., the tracking is paused. The transcoder drains the ring while idle.
+     *
+     * @param isIdle Whether the IDE is idle.
+     */
+    public void setIdle(boolean isIdle) {
+        this.isIdle = isIdle;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Finish the transcoding: drain the ring, close the last clip and delete the ring file. Use {@link #join()} to wait
+     * for all frames to be encoded.
+     */
+    public void finish() {
+        isFinishing = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!isIdle && !isFinishing && ringFile.getUsage() < HIGH_WATERMARK) {
+                    waitForWork();
+                    continue;
+                }
+                long cpuStart = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+                long startNanoTime = System.nanoTime();
+                FrameRingFile.RingFrame ringFrame = ringFile.read();
+                if (ringFrame != null) {
+                    encode(ringFrame);
+                    TelemetryMonitor telemetryMonitor = TelemetryMonitor.getInstance();
+                    telemetryMonitor.record(TelemetryMonitor.Probe.FRAME_TRANSCODE, startNanoTime);
+                    telemetryMonitor.setQueueDepth(TelemetryMonitor.Queue.FRAME_RING_PERCENT,
+                            (long) (ringFile.getUsage() * 100));
+                }
+                cpuTimeNanos += ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - cpuStart;
+                if (ringFrame == null) {
+                    if (isFinishing) {
+                        break;
+                    }
+                    waitForWork();
+                }
+            }
+            closeClip();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                ringFile.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized void waitForWork() {
+        try {
+            wait(100);
+        } catch (InterruptedException e) {
+            isFinishing = true;
+        }
+    }
+
+    /**
+     * Encode a frame read from the ring, opening the clip it belongs to if necessary.
+     *
+     * @param ringFrame The frame read from the ring.
+     */
+    private void encode(FrameRingFile.RingFrame ringFrame) throws FrameRecorder.Exception {
+        if (ringFrame.clip != clipNumber) {
+            closeClip();
+            clipNumber = ringFrame.clip;
+            recorder = DisplayCapture.createClipRecorder(displayCapture.getClipFile(clipNumber), ringFrame.width,
+                    ringFrame.height, frameRate);
+            recorder.start();
+        }
+        JFREvents.FrameEncodeEvent encodeEvent = JFREvents.begin(JFREvents.FrameEncodeEvent::new);
+        Frame frame = new Frame(ringFrame.width, ringFrame.height, ringFrame.depth, ringFrame.channels, ringFrame.stride);
+        ByteBuffer image = (ByteBuffer) frame.image[0];
+        image.clear();
+        image.put(ringFrame.image);
+        image.flip();
+        recorder.record(frame);
+        frame.close();
+        if (encodeEvent != null) {
+            encodeEvent.display = displayCapture.getDisplayIndex();
+            encodeEvent.clip = ringFrame.clip;
+            encodeEvent.frameNumber = ringFrame.frameNumber;
+            encodeEvent.mode = "transcode";
+            encodeEvent.commit();
+        }
+    }
+
+    private void closeClip() throws FrameRecorder.Exception {
+        if (recorder == null) {
+            return;
+        }
+        recorder.stop();
+        recorder.release();
+        recorder = null;
+        long clipBytes = new File(displayCapture.getClipFile(clipNumber)).length();
+        bytesWritten += clipBytes;
+        TelemetryMonitor.getInstance().addBytes(TelemetryMonitor.Probe.FRAME_TRANSCODE, clipBytes);
+    }
+
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getDroppedFrames() {
+        return ringFile.getDroppedFrames();
+    }
+}
@@ -0,0 +1,232 @@
+package trackers;
+
+import api.RealtimeEventBus;
+import api.event.EventType;
+import api.event.FixationEvent;
+import api.event.TrackerEvents;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import utils.FixationDetector;
+import utils.JFREvents;
+import utils.LatencyMonitor;
+import utils.SessionClock;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.awt.*;
+
+/**
+ * This class is the part of the eye tracking pipeline that does not need the IDE. It parses the samples of the Python
+ * process or of a {@link SyntheticGazeSource} into the gaze elements of the XML document, detects the fixations, and
+ * publishes the gazes and the fixations on the {@link RealtimeEventBus}. The {@link EyeTracker} maps the valid gazes to
+ * the code on top of it, and {@code tools.GazeLoadTest} drives it on its own, without the IntelliJ Platform.
+ */
+public class GazePipeline {
+    /**
+     * This variable is the XML document for storing the eye tracking data.
+     */
+    final Document eyeTracking = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    final Element root = eyeTracking.createElement("eye_tracking");
+    final Element setting = eyeTracking.createElement("setting");
+    final Element gazes = eyeTracking.createElement("gazes");
+    private final double screenWidth, screenHeight;
+    /**
+     * This variable is the fixation detector of the real-time event bus.
+     */
+    private final FixationDetector fixationDetector = new FixationDetector();
+
+    /**
+     * This class is a parsed sample: its gaze element and its point on the screen, if the gaze point is valid.
+     *
+     * @param gaze    The gaze element.
+     * @param x       The x coordinate of the gaze on the screen.
+     * @param y       The y coordinate of the gaze on the screen.
+     * @param isValid Whether the gaze points of both eyes are valid.
+     */
+    public record Sample(Element gaze, int x, int y, boolean isValid) {
+    }
+
+    /**
+     * The constructor of the pipeline.
+     *
+     * @param screenSize The size of the screen, to which the gaze points are scaled.
+     */
+    public GazePipeline(Dimension screenSize) throws ParserConfigurationException {
+        eyeTracking.appendChild(root);
+        root.appendChild(setting);
+        root.appendChild(gazes);
+        screenWidth = screenSize.getWidth();
+        screenHeight = screenSize.getHeight();
+    }
+
+    /**
+     * Parse a sample into a gaze element, append it to the document, and compute its point on the screen. An invalid
+     * gaze is marked by its {@code remark}. The latency from the sample to its arrival is recorded in the
+     * {@link LatencyMonitor}.
+     *
+     * @param message      The raw data.
+     * @param readNanoTime The {@link System#nanoTime()} when the message was read from the Python process.
+     * @return The parsed sample.
+     */
+    public Sample parse(String message, long readNanoTime) {
+        JFREvents.GazeParseEvent parseEvent = JFREvents.begin(JFREvents.GazeParseEvent::new);
+        Element gaze = getRawGazeElement(message);
+        if (parseEvent != null) {
+            parseEvent.messageLength = message.length();
+            parseEvent.commit();
+        }
+        gazes.appendChild(gaze);
+        if (gaze.hasAttribute("timestamp_us")) {
+            LatencyMonitor.getInstance().record(LatencyMonitor.Stage.GAZE_PIPE,
+                    SessionClock.toEpochNanos(readNanoTime) - TrackerEvents.getTimestampNanos(gaze));
+        }
+
+        String leftInfo = message.split("; ")[1];
+        String leftGazePointX = leftInfo.split(", ")[0];
+        String leftGazePointY = leftInfo.split(", ")[1];
+
+        String rightInfo = message.split("; ")[2];
+        String rightGazePointX = rightInfo.split(", ")[0];
+        String rightGazePointY = rightInfo.split(", ")[1];
+
+        if (leftGazePointX.equals("nan") || leftGazePointY.equals("nan") || rightGazePointX.equals("nan") || rightGazePointY.equals("nan")) {
+            gaze.setAttribute("remark", "Fail | Invalid Gaze Point");
+            return new Sample(gaze, 0, 0, false);
+        }
+
+        int eyeX = (int) ((Double.parseDouble(leftGazePointX) + Double.parseDouble(rightGazePointX)) / 2 * screenWidth);
+        int eyeY = (int) ((Double.parseDouble(leftGazePointY) + Double.parseDouble(rightGazePointY)) / 2 * screenHeight);
+        return new Sample(gaze, eyeX, eyeY, true);
+    }
+
+    /**
+     * Process a sample without mapping it to the code, as for the offline gaze mapping: parse it, and publish the gaze
+     * and the fixation it ends, if any.
+     *
+     * @param message      The raw data.
+     * @param readNanoTime The {@link System#nanoTime()} when the message was read from the Python process.
+     */
+    public void processRawGaze(String message, long readNanoTime) {
+        Sample sample = parse(message, readNanoTime);
+        if (sample.isValid()) {
+            publishGaze(sample.gaze(), sample.x(), sample.y());
+        } else {
+            publishGaze(sample.gaze(), Double.NaN, Double.NaN);
+        }
+    }
+
+    /**
+     * Get the raw gaze xml element from the raw gaze data. If the message carries the clock of the Python process and
+     * the handshake succeeded, the timestamp is mapped onto the {@link SessionClock} timeline and the
+     * {@code timestamp_us} attribute is added. The Tobii device and system timestamps (in microseconds) are kept as
+     * {@code device_time_stamp} and {@code system_time_stamp}.
+     *
+     * @param message The raw gaze data.
+     * @return The raw gaze element.
+     */
+    public Element getRawGazeElement(String message) {
+        String timestamp = message.split("; ")[0];
+        String timestampMicros = null, deviceTimeStamp = null, systemTimeStamp = null;
+        if (message.split("; ").length > 3) {
+            String[] clockInfo = message.split("; ")[3].split(", ");
+            if (SessionClock.isPythonClockSynchronized()) {
+                long sessionNanos = SessionClock.fromPythonNanos(Long.parseLong(clockInfo[0]));
+                timestamp = String.valueOf(sessionNanos / 1_000_000);
+                timestampMicros = String.valueOf(sessionNanos / 1_000);
+            }
+            if (clockInfo.length >= 3) {
+                deviceTimeStamp = clockInfo[1];
+                systemTimeStamp = clockInfo[2];
+            }
+        }
+
+        String leftInfo = message.split("; ")[1];
+        String leftGazePointX = leftInfo.split(", ")[0];
+        String leftGazePointY = leftInfo.split(", ")[1];
+        String leftGazeValidity = leftInfo.split(", ")[2];
+        String leftPupilDiameter = leftInfo.split(", ")[3];
+        String leftPupilValidity = leftInfo.split(", ")[4];
+
+        String rightInfo = message.split("; ")[2];
+        String rightGazePointX = rightInfo.split(", ")[0];
+        String rightGazePointY = rightInfo.split(", ")[1];
+        String rightGazeValidity = rightInfo.split(", ")[2];
+        String rightPupilDiameter = rightInfo.split(", ")[3];
+        String rightPupilValidity = rightInfo.split(", ")[4];
+
+        Element rawGaze = eyeTracking.createElement("gaze");
+        Element leftEye = eyeTracking.createElement("left_eye");
+        Element rightEye = eyeTracking.createElement("right_eye");
+
+        rawGaze.appendChild(leftEye);
+        rawGaze.appendChild(rightEye);
+
+        rawGaze.setAttribute("timestamp", timestamp);
+        if (timestampMicros != null) {
+            rawGaze.setAttribute("timestamp_us", timestampMicros);
+        }
+        if (deviceTimeStamp != null) {
+            rawGaze.setAttribute("device_time_stamp", deviceTimeStamp);
+            rawGaze.setAttribute("system_time_stamp", systemTimeStamp);
+        }
+
+        leftEye.setAttribute("gaze_point_x", leftGazePointX);
+        leftEye.setAttribute("gaze_point_y", leftGazePointY);
+        leftEye.setAttribute("gaze_validity", leftGazeValidity);
+        leftEye.setAttribute("pupil_diameter", leftPupilDiameter);
+        leftEye.setAttribute("pupil_validity", leftPupilValidity);
+
+        rightEye.setAttribute("gaze_point_x", rightGazePointX);
+        rightEye.setAttribute("gaze_point_y", rightGazePointY);
+        rightEye.setAttribute("gaze_validity", rightGazeValidity);
+        rightEye.setAttribute("pupil_diameter", rightPupilDiameter);
+        rightEye.setAttribute("pupil_validity", rightPupilValidity);
+
+        return rawGaze;
+    }
+
+    /**
+     * Publish a gaze that is not mapped to the code editor on the {@link RealtimeEventBus}, together with the fixation
+     * it ends, if any.
+     *
+     * @param gaze The gaze element.
+     * @param eyeX The x coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     * @param eyeY The y coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     */
+    public void publishGaze(Element gaze, double eyeX, double eyeY) {
+        RealtimeEventBus eventBus = RealtimeEventBus.getInstance();
+        if (eventBus.hasSubscribers(EventType.GAZE)) {
+            eventBus.publish(TrackerEvents.toGazeEvent(gaze));
+        }
+        detectFixation(gaze, eyeX, eyeY);
+    }
+
+    /**
+     * Feed a gaze sample to the fixation detector on the thread of the Python process, so that the samples arrive in
+     * order, and publish the fixation it ends, if any.
+     *
+     * @param gaze The gaze element.
+     * @param eyeX The x coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     * @param eyeY The y coordinate of the gaze on the screen, or {@link Double#NaN} if invalid.
+     */
+    public void detectFixation(Element gaze, double eyeX, double eyeY) {
+        RealtimeEventBus eventBus = RealtimeEventBus.getInstance();
+        if (!eventBus.hasSubscribers(EventType.FIXATION)) {
+            return;
+        }
+        FixationEvent fixation = fixationDetector.addSample(TrackerEvents.getTimestampNanos(gaze), eyeX, eyeY);
+        if (fixation != null) {
+            eventBus.publish(fixation);
+        }
+    }
+
+    /**
+     * Publish the fixation in progress, if any, e.g., when the tracking is paused.
+     */
+    public void flushFixation() {
+        FixationEvent fixation = fixationDetector.flush();
+        if (fixation != null) {
+            RealtimeEventBus.getInstance().publish(fixation);
+        }
+    }
+}
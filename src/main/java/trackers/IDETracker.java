@@ -6,10 +6,12 @@ import javax.xml.transform.TransformerException;
 import com.intellij.openapi.application.ApplicationInfo;
 import com.intellij.openapi.editor.*;
 import com.intellij.openapi.editor.event.*;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
 import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.fileEditor.TextEditor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.apache.commons.io.FileUtils;
@@ -19,17 +21,27 @@ import org.w3c.dom.Element;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.function.Consumer;
 
+import api.RealtimeEventBus;
+import api.event.EventType;
+import api.event.TrackerEvents;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.actionSystem.ex.AnActionListener;
 import com.intellij.openapi.application.ApplicationManager;
 import org.jetbrains.annotations.NotNull;
+import reader.ArchiveIndex;
+import reader.ArchiveIndexWriter;
+import reader.TimeIndexWriter;
+import utils.JFREvents;
 import utils.RelativePathGetter;
+import utils.SessionClock;
+import utils.TelemetryMonitor;
 import utils.XMLWriter;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -55,6 +67,10 @@ public final class IDETracker implements Disposable {
     Element visibleAreas = iDETracking.createElement("visible_areas");
     String projectPath = "";
     String dataOutputPath = "";
+    /**
+     * This variable collects the archives for the {@link ArchiveIndex}, which is written when the tracking stops.
+     */
+    ArchiveIndexWriter archiveIndexWriter = new ArchiveIndexWriter();
     String lastSelectionInfo = "";
 
     /**
@@ -65,6 +81,7 @@ public final class IDETracker implements Disposable {
      * This variable is the handler for the IDE tracker data.
      */
     private Consumer<Element> ideTrackerDataHandler;
+    private final TelemetryMonitor telemetryMonitor = TelemetryMonitor.getInstance();
 
     /**
      * This variable is the document listener for the IDE tracker. When the document is changed, if the {@code EditorKind} is {@code CONSOLE}, the console output is archived. Otherwise, the {@code changedFilepath} and {@code changedFileText} are updated.
@@ -73,18 +90,23 @@ public final class IDETracker implements Disposable {
         @Override
         public void documentChanged(@NotNull DocumentEvent event) {
             if (!isTracking) return;
-            if (event.getDocument().getText().length() == 0) return;
-            if (EditorFactory.getInstance().getEditors(event.getDocument()).length == 0) return;
-            Editor currentEditor = EditorFactory.getInstance().getEditors(event.getDocument())[0];
-            if (currentEditor != null && currentEditor.getEditorKind() == EditorKind.CONSOLE) {
-                archiveFile("unknown", String.valueOf(System.currentTimeMillis()),
-                        "", event.getDocument().getText());
-                return;
-            }
-            VirtualFile changedFile = FileDocumentManager.getInstance().getFile(event.getDocument());
-            if (changedFile != null) {
-                changedFilepath = changedFile.getPath();
-                changedFileText = event.getDocument().getText();
+            long startNanoTime = System.nanoTime();
+            try {
+                if (event.getDocument().getText().length() == 0) return;
+                if (EditorFactory.getInstance().getEditors(event.getDocument()).length == 0) return;
+                Editor currentEditor = EditorFactory.getInstance().getEditors(event.getDocument())[0];
+                if (currentEditor != null && currentEditor.getEditorKind() == EditorKind.CONSOLE) {
+                    archiveFile("unknown", String.valueOf(SessionClock.currentTimeMillis()),
+                            "", event.getDocument().getText());
+                    return;
+                }
+                VirtualFile changedFile = FileDocumentManager.getInstance().getFile(event.getDocument());
+                if (changedFile != null) {
+                    changedFilepath = changedFile.getPath();
+                    changedFileText = event.getDocument().getText();
+                }
+            } finally {
+                telemetryMonitor.record(TelemetryMonitor.Probe.DOCUMENT_LISTENER, startNanoTime);
             }
         }
     };
@@ -97,26 +119,19 @@ public final class IDETracker implements Disposable {
         @Override
         public void mousePressed(@NotNull EditorMouseEvent e) {
             if (!isTracking) return;
-            Element mouseElement = getMouseElement(e, "mousePressed");
-            mouses.appendChild(mouseElement);
+            addMouseElement(e, "mousePressed");
         }
 
         @Override
         public void mouseClicked(@NotNull EditorMouseEvent e) {
             if (!isTracking) return;
-            Element mouseElement = getMouseElement(e, "mouseClicked");
-            mouses.appendChild(mouseElement);
-            handleElement(mouseElement);
-
+            addMouseElement(e, "mouseClicked");
         }
 
         @Override
         public void mouseReleased(@NotNull EditorMouseEvent e) {
             if (!isTracking) return;
-            Element mouseElement = getMouseElement(e, "mouseReleased");
-            mouses.appendChild(mouseElement);
-            handleElement(mouseElement);
-
+            addMouseElement(e, "mouseReleased");
         }
     };
 
@@ -128,17 +143,13 @@ public final class IDETracker implements Disposable {
         @Override
         public void mouseMoved(@NotNull EditorMouseEvent e) {
             if (!isTracking) return;
-            Element mouseElement = getMouseElement(e, "mouseMoved");
-            mouses.appendChild(mouseElement);
-            handleElement(mouseElement);
+            addMouseElement(e, "mouseMoved");
         }
 
         @Override
         public void mouseDragged(@NotNull EditorMouseEvent e) {
             if (!isTracking) return;
-            Element mouseElement = getMouseElement(e, "mouseDragged");
-            mouses.appendChild(mouseElement);
-            handleElement(mouseElement);
+            addMouseElement(e, "mouseDragged");
         }
     };
 
@@ -150,16 +161,10 @@ public final class IDETracker implements Disposable {
         @Override
         public void caretPositionChanged(@NotNull CaretEvent e) {
             if (!isTracking) return;
-            Element caretElement = iDETracking.createElement("caret");
-            carets.appendChild(caretElement);
-            caretElement.setAttribute("id", "caretPositionChanged");
-            caretElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
+            long startNanoTime = System.nanoTime();
             VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(e.getEditor().getDocument());
-            caretElement.setAttribute("path", virtualFile != null ?
-                    RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
-            caretElement.setAttribute("line", String.valueOf(e.getNewPosition().line));
-            caretElement.setAttribute("column", String.valueOf(e.getNewPosition().column));
-            handleElement(caretElement);
+            handleElement(addCaretElement(virtualFile != null ? virtualFile.getPath() : null, e.getNewPosition()));
+            telemetryMonitor.record(TelemetryMonitor.Probe.CARET_LISTENER, startNanoTime);
         }
     };
 
@@ -171,10 +176,10 @@ public final class IDETracker implements Disposable {
         @Override
         public void selectionChanged(@NotNull SelectionEvent e) {
             if (!isTracking) return;
-
+            long startNanoTime = System.nanoTime();
             Element selectionElement = iDETracking.createElement("selection");
             selectionElement.setAttribute("id", "selectionChanged");
-            selectionElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
+            setTimestamp(selectionElement);
             VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(e.getEditor().getDocument());
             selectionElement.setAttribute("path", virtualFile != null ?
                     RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
@@ -190,10 +195,12 @@ public final class IDETracker implements Disposable {
                     selectionElement.getAttribute("start_position") + "-" +
                     selectionElement.getAttribute("end_position") + "-" +
                     selectionElement.getAttribute("selected_text");
-            if (currentSelectionInfo.equals(lastSelectionInfo)) return;
-            selections.appendChild(selectionElement);
-            lastSelectionInfo = currentSelectionInfo;
-            handleElement(selectionElement);
+            if (!currentSelectionInfo.equals(lastSelectionInfo)) {
+                selections.appendChild(selectionElement);
+                lastSelectionInfo = currentSelectionInfo;
+                handleElement(selectionElement);
+            }
+            telemetryMonitor.record(TelemetryMonitor.Probe.SELECTION_LISTENER, startNanoTime);
         }
     };
 
@@ -204,18 +211,7 @@ public final class IDETracker implements Disposable {
     VisibleAreaListener visibleAreaListener = e -> {
         if (!isTracking) return;
         if (e.getEditor().getEditorKind() == EditorKind.MAIN_EDITOR) {
-            VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(e.getEditor().getDocument());
-            Element visibleAreaElement = iDETracking.createElement("visible_area");
-            visibleAreas.appendChild(visibleAreaElement);
-            visibleAreaElement.setAttribute("id", "visibleAreaChanged");
-            visibleAreaElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
-            visibleAreaElement.setAttribute("path", virtualFile != null ?
-                    RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
-            visibleAreaElement.setAttribute("x", String.valueOf(e.getEditor().getScrollingModel().getHorizontalScrollOffset()));
-            visibleAreaElement.setAttribute("y", String.valueOf(e.getEditor().getScrollingModel().getVerticalScrollOffset()));
-            visibleAreaElement.setAttribute("width", String.valueOf(e.getEditor().getScrollingModel().getVisibleArea().width));
-            visibleAreaElement.setAttribute("height", String.valueOf(e.getEditor().getScrollingModel().getVisibleArea().height));
-            handleElement(visibleAreaElement);
+            addVisibleAreaElement(e.getEditor());
         }
 
     };
@@ -224,11 +220,11 @@ public final class IDETracker implements Disposable {
      * This variable is the editor event multicaster for the IDE tracker.
      * It is used to add and remove all the listeners.
      */
-    EditorEventMulticaster editorEventMulticaster = EditorFactory.getInstance().getEventMulticaster();
+    EditorEventMulticaster editorEventMulticaster;
     /**
      * This variable is the timer for tracking the document changes.
      */
-    Timer timer = new Timer();
+    Timer timer;
     String changedFilepath = "";
     String changedFileText = "";
     /**
@@ -239,7 +235,7 @@ public final class IDETracker implements Disposable {
         public void run() {
             if (changedFilepath.length() > 0) {
                 if (!isTracking) return;
-                archiveFile(changedFilepath, String.valueOf(System.currentTimeMillis()),
+                archiveFile(changedFilepath, String.valueOf(SessionClock.currentTimeMillis()),
                         "contentChanged", changedFileText);
                 changedFilepath = "";
             }
@@ -250,8 +246,7 @@ public final class IDETracker implements Disposable {
      * This constructor initializes the IDE tracker.
      */
     IDETracker() throws ParserConfigurationException {
-        iDETracking.appendChild(root);
-        root.appendChild(environment);
+        appendSections();
 
         Dimension size = Toolkit.getDefaultToolkit().getScreenSize();
         environment.setAttribute("screen_size", "(" + size.width + "," + size.height + ")");
@@ -264,51 +259,31 @@ public final class IDETracker implements Disposable {
         environment.setAttribute("ide_version", ApplicationInfo.getInstance().getFullVersion());
         environment.setAttribute("ide_name", ApplicationInfo.getInstance().getVersionName());
 
-        root.appendChild(archives);
-        root.appendChild(actions);
-        root.appendChild(typings);
-        root.appendChild(files);
-        root.appendChild(mouses);
-        root.appendChild(carets);
-        root.appendChild(selections);
-        root.appendChild(visibleAreas);
-
         ApplicationManager.getApplication().getMessageBus().connect(this).subscribe(
                 AnActionListener.TOPIC, new AnActionListener() {
 
                     @Override
                     public void beforeActionPerformed(@NotNull AnAction action, @NotNull AnActionEvent event) {
                         if (isTracking) {
-                            Element actionElement = iDETracking.createElement("action");
-                            actionElement.setAttribute("id", ActionManager.getInstance().getId(action));
-                            actionElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
+                            long startNanoTime = System.nanoTime();
                             VirtualFile virtualFile = event.getData(PlatformDataKeys.VIRTUAL_FILE);
-                            actionElement.setAttribute("path", virtualFile != null ?
-                                    RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
-                            actions.appendChild(actionElement);
-                            handleElement(actionElement);
+                            handleElement(addActionElement(ActionManager.getInstance().getId(action),
+                                    virtualFile != null ? virtualFile.getPath() : null));
+                            telemetryMonitor.record(TelemetryMonitor.Probe.ACTION_LISTENER, startNanoTime);
                         }
                     }
 
                     @Override
                     public void beforeEditorTyping(char c, @NotNull DataContext dataContext) {
                         if (isTracking) {
-                            Element typingElement = iDETracking.createElement("typing");
-                            typings.appendChild(typingElement);
-                            typingElement.setAttribute("character", String.valueOf(c));
-                            typingElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
+                            long startNanoTime = System.nanoTime();
                             VirtualFile virtualFile = dataContext.getData(PlatformDataKeys.VIRTUAL_FILE);
-                            typingElement.setAttribute("path", virtualFile != null ?
-                                    RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
-
                             Editor editor = dataContext.getData(CommonDataKeys.EDITOR);
-                            if (editor != null) {
-                                Caret primaryCaret = editor.getCaretModel().getPrimaryCaret();
-                                LogicalPosition logicalPos = primaryCaret.getLogicalPosition();
-                                typingElement.setAttribute("line", String.valueOf(logicalPos.line));
-                                typingElement.setAttribute("column", String.valueOf(logicalPos.column));
-                            }
-                            handleElement(typingElement);
+                            LogicalPosition logicalPos = editor != null ?
+                                    editor.getCaretModel().getPrimaryCaret().getLogicalPosition() : null;
+                            handleElement(addTypingElement(c, virtualFile != null ? virtualFile.getPath() : null,
+                                    logicalPos));
+                            telemetryMonitor.record(TelemetryMonitor.Probe.TYPING_LISTENER, startNanoTime);
                         }
                     }
                 });
@@ -319,61 +294,101 @@ public final class IDETracker implements Disposable {
                     @Override
                     public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
                         if (isTracking) {
+                            long startNanoTime = System.nanoTime();
                             Element fileElement = iDETracking.createElement("file");
                             files.appendChild(fileElement);
                             fileElement.setAttribute("id", "fileOpened");
-                            String timestamp = String.valueOf(System.currentTimeMillis());
-                            fileElement.setAttribute("timestamp", timestamp);
+                            String timestamp = setTimestamp(fileElement);
                             fileElement.setAttribute("path",
                                     RelativePathGetter.getRelativePath(file.getPath(), projectPath));
                             archiveFile(file.getPath(), timestamp, "fileOpened", null);
                             handleElement(fileElement);
+                            telemetryMonitor.record(TelemetryMonitor.Probe.FILE_LISTENER, startNanoTime);
                         }
                     }
 
                     @Override
                     public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
                         if (isTracking) {
+                            long startNanoTime = System.nanoTime();
                             Element fileElement = iDETracking.createElement("file");
                             files.appendChild(fileElement);
                             fileElement.setAttribute("id", "fileClosed");
-                            String timestamp = String.valueOf(System.currentTimeMillis());
-                            fileElement.setAttribute("timestamp", timestamp);
+                            String timestamp = setTimestamp(fileElement);
                             fileElement.setAttribute("path",
                                     RelativePathGetter.getRelativePath(file.getPath(), projectPath));
                             archiveFile(file.getPath(), timestamp, "fileClosed", null);
                             handleElement(fileElement);
+                            telemetryMonitor.record(TelemetryMonitor.Probe.FILE_LISTENER, startNanoTime);
                         }
                     }
 
                     @Override
                     public void selectionChanged(@NotNull FileEditorManagerEvent event) {
                         if (isTracking) {
+                            long startNanoTime = System.nanoTime();
                             Element fileElement = iDETracking.createElement("file");
                             files.appendChild(fileElement);
 
                             fileElement.setAttribute("id", "selectionChanged");
-                            fileElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
+                            setTimestamp(fileElement);
                             if (event.getOldFile() != null) {
                                 fileElement.setAttribute("old_path",
                                         RelativePathGetter.getRelativePath(event.getOldFile().getPath(), projectPath));
-                                archiveFile(event.getOldFile().getPath(), String.valueOf(System.currentTimeMillis()),
+                                archiveFile(event.getOldFile().getPath(), String.valueOf(SessionClock.currentTimeMillis()),
                                         "selectionChanged | OldFile", null);
                             }
                             if (event.getNewFile() != null) {
                                 fileElement.setAttribute("new_path",
                                         RelativePathGetter.getRelativePath(event.getNewFile().getPath(), projectPath));
-                                archiveFile(event.getNewFile().getPath(), String.valueOf(System.currentTimeMillis()),
+                                archiveFile(event.getNewFile().getPath(), String.valueOf(SessionClock.currentTimeMillis()),
                                         "selectionChanged | NewFile", null);
                             }
                             handleElement(fileElement);
+                            if (event.getNewEditor() instanceof TextEditor textEditor) {
+                                ApplicationManager.getApplication().invokeLater(() -> {
+                                    if (isTracking) {
+                                        addVisibleAreaElement(textEditor.getEditor());
+                                    }
+                                });
+                            }
+                            telemetryMonitor.record(TelemetryMonitor.Probe.FILE_LISTENER, startNanoTime);
                         }
                     }
                 });
 
+        editorEventMulticaster = EditorFactory.getInstance().getEventMulticaster();
+        timer = new Timer();
         timer.schedule(timerTask, 0, 1);
     }
 
+    /**
+     * This constructor initializes the IDE tracker without the IDE, e.g., for the benchmarks. It builds the XML
+     * document, but records no environment, adds no listeners, and starts no timer.
+     *
+     * @param dataOutputPath The data output path, where the files are archived.
+     */
+    IDETracker(String dataOutputPath) throws ParserConfigurationException {
+        appendSections();
+        this.dataOutputPath = dataOutputPath;
+    }
+
+    /**
+     * This method appends the root and the sections to the XML document.
+     */
+    private void appendSections() {
+        iDETracking.appendChild(root);
+        root.appendChild(environment);
+        root.appendChild(archives);
+        root.appendChild(actions);
+        root.appendChild(typings);
+        root.appendChild(files);
+        root.appendChild(mouses);
+        root.appendChild(carets);
+        root.appendChild(selections);
+        root.appendChild(visibleAreas);
+    }
+
     /**
      * This method returns the IDE tracker instance.
      *
@@ -407,10 +422,54 @@ public final class IDETracker implements Disposable {
         });
         FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
         for (VirtualFile file : fileEditorManager.getOpenFiles()) {
-            archiveFile(file.getPath(), String.valueOf(System.currentTimeMillis()), "fileOpened", null);
+            archiveFile(file.getPath(), String.valueOf(SessionClock.currentTimeMillis()), "fileOpened", null);
+        }
+        Editor selectedEditor = fileEditorManager.getSelectedTextEditor();
+        if (selectedEditor != null) {
+            addVisibleAreaElement(selectedEditor);
         }
     }
 
+    /**
+     * This method records the visible area of a code editor, together with the geometry needed to map a point on the
+     * screen to the code after the session, i.e., the position of the visible area on the screen, the origin of the
+     * text, the line height, and the width of a space.
+     *
+     * @param editor The code editor.
+     */
+    private void addVisibleAreaElement(Editor editor) {
+        long startNanoTime = System.nanoTime();
+        VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(editor.getDocument());
+        Element visibleAreaElement = iDETracking.createElement("visible_area");
+        visibleAreas.appendChild(visibleAreaElement);
+        visibleAreaElement.setAttribute("id", "visibleAreaChanged");
+        setTimestamp(visibleAreaElement);
+        visibleAreaElement.setAttribute("path", virtualFile != null ?
+                RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
+        Rectangle visibleArea = editor.getScrollingModel().getVisibleArea();
+        int scrollX = editor.getScrollingModel().getHorizontalScrollOffset();
+        int scrollY = editor.getScrollingModel().getVerticalScrollOffset();
+        visibleAreaElement.setAttribute("x", String.valueOf(scrollX));
+        visibleAreaElement.setAttribute("y", String.valueOf(scrollY));
+        visibleAreaElement.setAttribute("width", String.valueOf(visibleArea.width));
+        visibleAreaElement.setAttribute("height", String.valueOf(visibleArea.height));
+        try {
+            Point location = editor.getContentComponent().getLocationOnScreen();
+            visibleAreaElement.setAttribute("screen_x", String.valueOf(location.x + scrollX));
+            visibleAreaElement.setAttribute("screen_y", String.valueOf(location.y + scrollY));
+        } catch (IllegalComponentStateException e) {
+            // the editor is not showing, so the gazes cannot be mapped to it
+        }
+        Point origin = editor.logicalPositionToXY(new LogicalPosition(0, 0));
+        visibleAreaElement.setAttribute("origin_x", String.valueOf(origin.x));
+        visibleAreaElement.setAttribute("origin_y", String.valueOf(origin.y));
+        visibleAreaElement.setAttribute("line_height", String.valueOf(editor.getLineHeight()));
+        visibleAreaElement.setAttribute("char_width", String.valueOf(EditorUtil.getPlainSpaceWidth(editor)));
+        visibleAreaElement.setAttribute("tab_size", String.valueOf(editor.getSettings().getTabSize(editor.getProject())));
+        handleElement(visibleAreaElement);
+        telemetryMonitor.record(TelemetryMonitor.Probe.VISIBLE_AREA_LISTENER, startNanoTime);
+    }
+
     /**
      * This method sets the handler for the IDE tracker data for real-time data transmission.
      *
@@ -421,7 +480,8 @@ public final class IDETracker implements Disposable {
     }
 
     /**
-     * This method stops tracking. All the listeners are removed. The tracking data is written to the XML file.
+     * This method stops tracking. All the listeners are removed. The tracking data is written to the XML file with its
+     * {@link reader.TimeIndex}, and the archives to the {@link ArchiveIndex}, if the data output path is set.
      */
     public void stopTracking() throws TransformerException {
         isTracking = false;
@@ -431,8 +491,17 @@ public final class IDETracker implements Disposable {
         editorEventMulticaster.removeCaretListener(caretListener);
         editorEventMulticaster.removeSelectionListener(selectionListener);
         editorEventMulticaster.removeVisibleAreaListener(visibleAreaListener);
+        if (dataOutputPath.isEmpty()) {
+            return; // started by the real-time data API without an output folder
+        }
         String filePath = dataOutputPath + "/ide_tracking.xml";
         XMLWriter.writeToXML(iDETracking, filePath);
+        try {
+            TimeIndexWriter.write(Path.of(filePath));
+            archiveIndexWriter.write(Path.of(dataOutputPath, "archives", ArchiveIndex.FILE_NAME));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -475,6 +544,8 @@ public final class IDETracker implements Disposable {
      * @param text      The text of the file.
      */
     public void archiveFile(String path, String timestamp, String remark, String text) {
+        long startNanoTime = System.nanoTime();
+        JFREvents.ArchiveWriteEvent archiveEvent = JFREvents.begin(JFREvents.ArchiveWriteEvent::new);
         File srcFile = new File(path);
         File destFile = new File(dataOutputPath + "/archives/" + timestamp + ".archive");
         String[] codeExtensions = {".java", ".cpp", ".c", ".py", ".rb", ".js", ".md", ".cs", ".html", ".htm", ".css", ".php", ".ts", ".swift", ".go", ".kt", ".kts", ".rs", ".pl", ".sh", ".bat", ".ps1", ".asp", ".aspx", ".jsp", ".lua"};
@@ -508,6 +579,32 @@ public final class IDETracker implements Disposable {
             archive.setAttribute("path", RelativePathGetter.getRelativePath(path, projectPath));
             archive.setAttribute("remark", remark);
         }
+        if (!remark.endsWith("Fail")) {
+            archiveIndexWriter.add(path.equals("unknown") ? ArchiveIndex.CONSOLE_PATH
+                    : RelativePathGetter.getRelativePath(path, projectPath), Long.parseLong(timestamp));
+        }
+        long bytes = destFile.length();
+        telemetryMonitor.record(TelemetryMonitor.Probe.FILE_ARCHIVE, startNanoTime, bytes);
+        if (archiveEvent != null) {
+            archiveEvent.path = path;
+            archiveEvent.bytes = bytes;
+            archiveEvent.remark = remark;
+            archiveEvent.commit();
+        }
+    }
+
+    /**
+     * This method adds the mouse XML element of an editor mouse event and handles it.
+     *
+     * @param e  The editor mouse event.
+     * @param id The id of the mouse event.
+     */
+    private void addMouseElement(EditorMouseEvent e, String id) {
+        long startNanoTime = System.nanoTime();
+        Element mouseElement = getMouseElement(e, id);
+        mouses.appendChild(mouseElement);
+        handleElement(mouseElement);
+        telemetryMonitor.record(TelemetryMonitor.Probe.MOUSE_LISTENER, startNanoTime);
     }
 
     /**
@@ -518,18 +615,86 @@ public final class IDETracker implements Disposable {
      * @return The mouse element.
      */
     public Element getMouseElement(EditorMouseEvent e, String id) {
-        Element mouseElement = iDETracking.createElement("mouse");
-        mouseElement.setAttribute("id", id);
-        mouseElement.setAttribute("timestamp", String.valueOf(System.currentTimeMillis()));
         VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(e.getEditor().getDocument());
-        mouseElement.setAttribute("path", virtualFile != null ?
-                RelativePathGetter.getRelativePath(virtualFile.getPath(), projectPath) : null);
         MouseEvent mouseEvent = e.getMouseEvent();
-        mouseElement.setAttribute("x", String.valueOf(mouseEvent.getXOnScreen()));
-        mouseElement.setAttribute("y", String.valueOf(mouseEvent.getYOnScreen()));
+        return getMouseElement(id, virtualFile != null ? virtualFile.getPath() : null, mouseEvent.getXOnScreen(),
+                mouseEvent.getYOnScreen());
+    }
+
+    /**
+     * This method returns the mouse XML element.
+     *
+     * @param id   The id of the mouse event.
+     * @param path The absolute path of the file in the editor, or {@code null} if unknown.
+     * @param x    The x coordinate of the mouse on the screen.
+     * @param y    The y coordinate of the mouse on the screen.
+     * @return The mouse element.
+     */
+    Element getMouseElement(String id, String path, int x, int y) {
+        Element mouseElement = iDETracking.createElement("mouse");
+        mouseElement.setAttribute("id", id);
+        setTimestamp(mouseElement);
+        mouseElement.setAttribute("path", path != null ? RelativePathGetter.getRelativePath(path, projectPath) : null);
+        mouseElement.setAttribute("x", String.valueOf(x));
+        mouseElement.setAttribute("y", String.valueOf(y));
         return mouseElement;
     }
 
+    /**
+     * This method adds the action XML element.
+     *
+     * @param id   The id of the action.
+     * @param path The absolute path of the file of the action, or {@code null} if unknown.
+     * @return The action element.
+     */
+    Element addActionElement(String id, String path) {
+        Element actionElement = iDETracking.createElement("action");
+        actionElement.setAttribute("id", id);
+        setTimestamp(actionElement);
+        actionElement.setAttribute("path", path != null ? RelativePathGetter.getRelativePath(path, projectPath) : null);
+        actions.appendChild(actionElement);
+        return actionElement;
+    }
+
+    /**
+     * This method adds the typing XML element.
+     *
+     * @param c          The typed character.
+     * @param path       The absolute path of the file in the editor, or {@code null} if unknown.
+     * @param logicalPos The logical position of the primary caret, or {@code null} if there is no editor.
+     * @return The typing element.
+     */
+    Element addTypingElement(char c, String path, LogicalPosition logicalPos) {
+        Element typingElement = iDETracking.createElement("typing");
+        typings.appendChild(typingElement);
+        typingElement.setAttribute("character", String.valueOf(c));
+        setTimestamp(typingElement);
+        typingElement.setAttribute("path", path != null ? RelativePathGetter.getRelativePath(path, projectPath) : null);
+        if (logicalPos != null) {
+            typingElement.setAttribute("line", String.valueOf(logicalPos.line));
+            typingElement.setAttribute("column", String.valueOf(logicalPos.column));
+        }
+        return typingElement;
+    }
+
+    /**
+     * This method adds the caret XML element.
+     *
+     * @param path       The absolute path of the file in the editor, or {@code null} if unknown.
+     * @param logicalPos The new logical position of the caret.
+     * @return The caret element.
+     */
+    Element addCaretElement(String path, LogicalPosition logicalPos) {
+        Element caretElement = iDETracking.createElement("caret");
+        carets.appendChild(caretElement);
+        caretElement.setAttribute("id", "caretPositionChanged");
+        setTimestamp(caretElement);
+        caretElement.setAttribute("path", path != null ? RelativePathGetter.getRelativePath(path, projectPath) : null);
+        caretElement.setAttribute("line", String.valueOf(logicalPos.line));
+        caretElement.setAttribute("column", String.valueOf(logicalPos.column));
+        return caretElement;
+    }
+
     /**
      * This method sets the data output path.
      *
@@ -540,11 +705,32 @@ public final class IDETracker implements Disposable {
     }
 
     /**
-     * This method handles the XML element for real-time data transmission.
+     * This method sets the timestamp of the XML element from the {@link SessionClock}: {@code timestamp} in milliseconds
+     * and {@code timestamp_us} in microseconds, both read from the same clock sample.
+     *
+     * @param element The XML element.
+     * @return The timestamp in milliseconds.
+     */
+    private String setTimestamp(Element element) {
+        long nanos = SessionClock.nanoTime();
+        String timestamp = String.valueOf(nanos / 1_000_000);
+        element.setAttribute("timestamp", timestamp);
+        element.setAttribute("timestamp_us", String.valueOf(nanos / 1_000));
+        return timestamp;
+    }
+
+    /**
+     * This method handles the XML element for real-time data transmission. The element is published as a typed event
+     * on the {@link RealtimeEventBus} if any subscriber accepts its type; otherwise no event is built.
      *
      * @param element The XML element.
      */
     private void handleElement(Element element) {
+        RealtimeEventBus eventBus = RealtimeEventBus.getInstance();
+        EventType type = EventType.fromElementName(element.getTagName());
+        if (type != null && eventBus.hasSubscribers(type)) {
+            eventBus.publish(TrackerEvents.fromElement(element));
+        }
         if (ideTrackerDataHandler == null) {
             return;
 //            throw new RuntimeException("ideTrackerDataHandler is null");
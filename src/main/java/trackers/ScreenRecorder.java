@@ -1,20 +1,22 @@
 package trackers;
 
 import com.opencsv.CSVWriter;
-import org.bytedeco.ffmpeg.global.avcodec;
-import org.bytedeco.javacv.*;
-import org.bytedeco.javacv.Frame;
+import reader.SessionCatalogWriter;
+import utils.SessionClock;
 
 import java.awt.*;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
 
 /**
- * This class is the screen recorder.
+ * This class is the screen recorder. Each selected display is captured by a {@link DisplayCapture} on its own thread.
+ * The screen grabbers are started once per session and kept warm across pauses, so that resuming does not lose the
+ * first frames to the start-up of the grabbers. Each clip is written as a fragmented MP4, so the clips written so far
+ * stay playable even if the IDE crashes during the session.
  */
 public class ScreenRecorder {
 
@@ -22,23 +24,41 @@ public class ScreenRecorder {
      * This variable indicates the state of the screen recorder. 0: initial state; only startAction enabled 1: started, not paused; stopAction and pauseAction enabled 2: started, paused; only resumeAction enabled
      */
     int state = 0;
+    /**
+     * This variable indicates the encoding mode of the screen recorder. {@link #MODE_REALTIME}: the frames are encoded
+     * into H.264 during the session; {@link #MODE_DEFERRED}: the frames are only lightly compressed into a ring file
+     * during the session and encoded by a {@link FrameTranscoder} while paused or after stopping.
+     */
+    int mode = MODE_REALTIME;
+    public static final int MODE_REALTIME = 0;
+    public static final int MODE_DEFERRED = 1;
+    /**
+     * This variable is the number of seconds of uncompressed frames the ring file of each display holds in the
+     * {@link #MODE_DEFERRED} mode before frames are dropped.
+     */
+    int ringSeconds = DEFAULT_RING_SECONDS;
+    public static final int DEFAULT_RING_SECONDS = 30;
     /**
      * This variable indicates the frame rate of the screen recorder.
      */
     int frameRate = 4; // higher frame rate (e.g., 12) will result in larger file size and blurry video
-    private FrameRecorder recorder;
-    private FrameGrabber grabber;
-    private final ArrayList<String[]> timeList = new ArrayList<>();
+    /**
+     * This variable is the writer of the frame timestamp file {@code frames.csv}, shared by all displays.
+     */
     private CSVWriter csvWriter;
-    boolean isRecording = false;
     /**
-     * This variable indicates the current clip number.
+     * This variable is the writer of the clip index file {@code clips.csv}, shared by all displays.
      */
-    private int clipNumber = 1;
+    private CSVWriter clipWriter;
+    private final List<DisplayCapture> displayCaptures = new ArrayList<>();
+    /**
+     * This variable is the list of the display indices to record. If it is empty, the default display is recorded.
+     */
+    private List<Integer> displays = List.of();
     /**
-     * This variable indicates the current frame number.
+     * This variable indicates the current clip number.
      */
-    private int frameNumber = 0;
+    private int clipNumber = 1;
     private String dataOutputPath = "";
     private static ScreenRecorder instance = null;
 
@@ -50,126 +70,181 @@ public class ScreenRecorder {
     }
 
     /**
-     * Create the encoder using {@link FFmpegFrameGrabber} and {@link FFmpegFrameRecorder}.
-     */
-    private void createEncoder() throws IOException {
-        // avfoundation for macOS, gdigrab for Windows, xcbgrab for Linux
-        if (utils.OSDetector.isMac()) {
-            grabber = new FFmpegFrameGrabber("1");
-            grabber.setFormat("avfoundation");
-        } else if (utils.OSDetector.isWindows()) {
-            grabber = new FFmpegFrameGrabber("desktop");
-            grabber.setFormat("gdigrab");
-        } else if (utils.OSDetector.isUnix()) {
-            grabber = new FFmpegFrameGrabber(":0.0");
-            grabber.setFormat("x11grab");
-        } else {
-            throw new IOException("Unsupported OS");
-        }
-        grabber.setFrameRate(frameRate);
-        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().
-                getDefaultScreenDevice().getDefaultConfiguration();
-        // set image width and height to be the same as the resolution of the *first* screen (in case of multiple screens)
-        grabber.setImageWidth((int) (Toolkit.getDefaultToolkit().getScreenSize().width * config.getDefaultTransform().getScaleX()));
-        grabber.setImageHeight((int) (Toolkit.getDefaultToolkit().getScreenSize().height * config.getDefaultTransform().getScaleY()));
-        grabber.setOption("offset_x", "0");
-        grabber.setOption("offset_y", "0");
-        grabber.start();
-
-        recorder = FrameRecorder.createDefault(dataOutputPath + "/screen_recording/clip_" + clipNumber + ".mp4", grabber.getImageWidth(), grabber.getImageHeight());
-        recorder.setFrameRate(frameRate);
-        recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
-        recorder.start();
-    }
-
-    /**
-     * Start recording the screen. Reset the clip number and invoke {@link #recordScreen()}.
+     * Start recording the screen. Reset the clip number and start a {@link DisplayCapture} for each selected display.
      */
-    public void startRecording() throws IOException {
+    public synchronized void startRecording() throws IOException {
         state = 1;
         clipNumber = 1;
-        timeList.clear();
-        isRecording = true;
         File file = new File(dataOutputPath + "/screen_recording/frames.csv");
         file.getParentFile().mkdirs();
         csvWriter = new CSVWriter(new FileWriter(file));
-        csvWriter.writeNext(new String[]{"timestamp", "frame_number", "clip_number"});
-        timeList.add(new String[]{String.valueOf(System.currentTimeMillis()), "Start", String.valueOf(clipNumber)});
-        try {
-            recordScreen();
-        } catch (AWTException | IOException e) {
-            e.printStackTrace();
+        csvWriter.writeNext(new String[]{"timestamp", "frame_number", "clip_number", "display", "timestamp_us"});
+        clipWriter = new CSVWriter(new FileWriter(dataOutputPath + "/screen_recording/clips.csv"));
+        clipWriter.writeNext(new String[]{"clip_number", "file", "start_timestamp", "end_timestamp", "frame_count", "display",
+                "frame_rate"});
+        writeMarker(SessionClock.nanoTime(), "Start");
+        displayCaptures.clear();
+        List<Integer> selectedDisplays = displays.isEmpty() ? List.of(getDefaultDisplayIndex()) : displays;
+        for (int displayIndex : selectedDisplays) {
+            try {
+                DisplayCapture displayCapture = new DisplayCapture(this, displayIndex, frameRate, mode == MODE_DEFERRED);
+                displayCapture.start(clipNumber);
+                displayCaptures.add(displayCapture);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     /**
-     * Stop recording the screen. Write the time list to the CSV file.
+     * Stop recording the screen. Stop all displays, close the CSV files and write the throughput statistics. In the
+     * deferred mode, the statistics are written by a background thread once all frames have been encoded.
      */
-    public void stopRecording() throws IOException {
+    public synchronized void stopRecording() throws IOException {
         state = 0;
-        isRecording = false;
-        timeList.add(new String[]{String.valueOf(System.currentTimeMillis()), "Stop", String.valueOf(clipNumber)});
-        csvWriter.writeAll(timeList);
-        csvWriter.close();
+        long stopTime = writeMarker(SessionClock.nanoTime(), "Stop");
+        try {
+            for (DisplayCapture displayCapture : displayCaptures) {
+                displayCapture.stop(stopTime);
+            }
+        } finally {
+            csvWriter.close();
+            clipWriter.close();
+        }
+        List<DisplayCapture> stoppedCaptures = new ArrayList<>(displayCaptures);
+        String statisticsFile = dataOutputPath + "/screen_recording/display_stats.csv";
+        if (mode == MODE_DEFERRED) {
+            Thread finisher = new Thread(() -> {
+                try {
+                    for (DisplayCapture displayCapture : stoppedCaptures) {
+                        displayCapture.awaitTranscoding();
+                    }
+                    writeStatistics(stoppedCaptures, statisticsFile);
+                    SessionCatalogWriter.update(Path.of(dataOutputPath)); // the clips are complete now
+                } catch (IOException | InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }, "CodeGRITS Screen Transcoder Finisher");
+            finisher.start();
+        } else {
+            writeStatistics(stoppedCaptures, statisticsFile);
+        }
     }
 
     /**
-     * Pause recording the screen. Write the time list to the CSV file and increment the clip number.
+     * Pause recording the screen. Close the current clip of each display and increment the clip number.
      */
-    public void pauseRecording() throws IOException {
+    public synchronized void pauseRecording() throws IOException {
         state = 2;
-        isRecording = false;
-        timeList.add(new String[]{String.valueOf(System.currentTimeMillis()), "Pause", String.valueOf(clipNumber)});
+        long pauseTime = writeMarker(SessionClock.nanoTime(), "Pause");
         clipNumber++;
+        for (DisplayCapture displayCapture : displayCaptures) {
+            displayCapture.pause(pauseTime, clipNumber);
+        }
     }
 
     /**
-     * Resume recording the screen. Invoke {@link #recordScreen()}.
+     * Resume recording the screen on all displays.
      */
-    public void resumeRecording() {
+    public synchronized void resumeRecording() {
         state = 1;
-        isRecording = true;
-        timeList.add(new String[]{String.valueOf(System.currentTimeMillis()), "Resume", String.valueOf(clipNumber)});
-        try {
-            recordScreen();
-        } catch (AWTException | IOException e) {
-            e.printStackTrace();
+        writeMarker(SessionClock.nanoTime(), "Resume");
+        for (DisplayCapture displayCapture : displayCaptures) {
+            displayCapture.resume();
         }
     }
 
     /**
-     * Record the screen. Use {@link Timer} to schedule the recording with the given frame rate.
-     */
-    private void recordScreen() throws AWTException, IOException {
-        createEncoder();
-        frameNumber = 0;
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (!isRecording) {
-                    try {
-                        grabber.stop();
-                        recorder.stop();
-                        grabber.release();
-                        recorder.release();
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                    timer.cancel();
-                } else {
-                    frameNumber++;
-                    timeList.add(new String[]{String.valueOf(System.currentTimeMillis()), String.valueOf(frameNumber), String.valueOf(clipNumber)});
-                    try {
-                        Frame frame = grabber.grabFrame();
-                        recorder.record(frame);
-                    } catch (FrameGrabber.Exception | FrameRecorder.Exception e) {
-                        throw new RuntimeException(e);
-                    }
+     * Write a {@code Start}, {@code Pause}, {@code Resume} or {@code Stop} marker to the frame timestamp file. The
+     * markers apply to all displays, so the display column is left empty.
+     *
+     * @param timestampNanos The timestamp of the marker on the {@link SessionClock} in nanoseconds.
+     * @param marker         The marker.
+     * @return The timestamp of the marker in milliseconds.
+     */
+    private long writeMarker(long timestampNanos, String marker) {
+        long timestamp = timestampNanos / 1_000_000;
+        synchronized (csvWriter) {
+            csvWriter.writeNext(new String[]{String.valueOf(timestamp), marker, String.valueOf(clipNumber), "",
+                    String.valueOf(timestampNanos / 1_000)});
+        }
+        return timestamp;
+    }
 
+    /**
+     * Write a frame to the frame timestamp file. This method is called by the {@link DisplayCapture} threads.
+     *
+     * @param timestampNanos The timestamp of the frame on the {@link SessionClock} in nanoseconds.
+     * @param frameNumber    The frame number in its clip.
+     * @param clip           The clip number.
+     * @param display        The display index.
+     */
+    void writeFrame(long timestampNanos, int frameNumber, int clip, int display) {
+        synchronized (csvWriter) {
+            csvWriter.writeNext(new String[]{String.valueOf(timestampNanos / 1_000_000), String.valueOf(frameNumber),
+                    String.valueOf(clip), String.valueOf(display), String.valueOf(timestampNanos / 1_000)});
+        }
+    }
+
+    /**
+     * Append a closed clip to the clip index file and flush both CSV files. This method is called by the
+     * {@link DisplayCapture} threads.
+     *
+     * @param clip       The clip number.
+     * @param fileName   The name of the video file.
+     * @param startTime  The timestamp of the first frame of the clip.
+     * @param endTime    The timestamp when the clip ends.
+     * @param frameCount The number of frames in the clip.
+     * @param display    The display index.
+     * @param frameRate  The frame rate of the clip, from which the presentation time of each frame follows.
+     */
+    void writeClip(int clip, String fileName, long startTime, long endTime, int frameCount, int display, int frameRate) {
+        synchronized (clipWriter) {
+            clipWriter.writeNext(new String[]{String.valueOf(clip), fileName, String.valueOf(startTime),
+                    String.valueOf(endTime), String.valueOf(frameCount), String.valueOf(display),
+                    String.valueOf(frameRate)});
+            try {
+                clipWriter.flush();
+                synchronized (csvWriter) {
+                    csvWriter.flush();
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Write the throughput statistics of each display to {@code display_stats.csv}.
+     *
+     * @param captures       The display captures of the session.
+     * @param statisticsFile The path of the statistics file.
+     */
+    private static void writeStatistics(List<DisplayCapture> captures, String statisticsFile) throws IOException {
+        try (CSVWriter statsWriter = new CSVWriter(new FileWriter(statisticsFile))) {
+            statsWriter.writeNext(new String[]{"display", "mode", "x", "y", "width", "height", "frame_count",
+                    "dropped_frames", "cpu_time_ms", "cpu_percent", "transcode_cpu_time_ms", "bytes_written",
+                    "bytes_per_second"});
+            for (DisplayCapture displayCapture : captures) {
+                statsWriter.writeNext(displayCapture.getStatistics());
+            }
+        }
+    }
+
+    /**
+     * Get the index of the default screen device in {@link GraphicsEnvironment#getScreenDevices()}.
+     *
+     * @return The index of the default display.
+     */
+    public static int getDefaultDisplayIndex() {
+        GraphicsEnvironment environment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        GraphicsDevice[] devices = environment.getScreenDevices();
+        for (int i = 0; i < devices.length; i++) {
+            if (devices[i].equals(environment.getDefaultScreenDevice())) {
+                return i;
             }
-        }, 0, 1000 / frameRate);
+        }
+        return 0;
     }
 
     /**
@@ -180,4 +255,39 @@ public class ScreenRecorder {
     public void setDataOutputPath(String dataOutputPath) {
         this.dataOutputPath = dataOutputPath;
     }
-}
\ No newline at end of file
+
+    public String getDataOutputPath() {
+        return dataOutputPath;
+    }
+
+    /**
+     * Set the encoding mode of the screen recorder.
+     *
+     * @param mode {@link #MODE_REALTIME} or {@link #MODE_DEFERRED}.
+     */
+    public void setMode(int mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Set the size of the ring file of each display in the {@link #MODE_DEFERRED} mode.
+     *
+     * @param ringSeconds The number of seconds of uncompressed frames the ring file holds.
+     */
+    public void setRingSeconds(int ringSeconds) {
+        this.ringSeconds = ringSeconds;
+    }
+
+    public int getRingSeconds() {
+        return ringSeconds;
+    }
+
+    /**
+     * Set the displays to record.
+     *
+     * @param displays The list of the display indices. If it is {@code null} or empty, the default display is recorded.
+     */
+    public void setDisplays(List<Integer> displays) {
+        this.displays = displays == null ? List.of() : displays;
+    }
+}
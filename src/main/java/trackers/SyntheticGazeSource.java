@@ -0,0 +1,407 @@
+package trackers;
+
+import api.event.GazeEvent;
+import reader.EventCursor;
+import reader.SessionReader;
+import utils.SessionClock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * This class is a synthetic gaze source, which stands in for the Python process of an eye tracker, so the eye tracking
+ * pipeline can be load-tested without an eye tracker. It either generates fixations and saccades at a sample rate of
+ * 30 to 1200 Hz, with invalid samples and delivery bursts, or replays the gazes of a recorded session with their
+ * timing. The samples are the messages of the Python scripts of {@link EyeTracker}, with the clock of the sample in
+ * the last field, and are delivered in order by a reader thread, as the lines of the pipe of the Python process.
+ * <p>
+ * Like the buffer of an eye tracker, the source buffers a bounded number of samples for the reader; a sample that
+ * arrives while the buffer is full is dropped and counted. A source is configured by a specification:
+ * <pre>
+ * rate=600;fixation=250;saccade=40;invalid=0.02;burst=8;burstInterval=500;buffer=1024;seed=1
+ * replay=/path/to/session;speed=2
+ * </pre>
+ */
+public class SyntheticGazeSource {
+    public static final double MIN_RATE = 30;
+    public static final double MAX_RATE = 1200;
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+    /**
+     * This variable is the names of the values of {@link #getLoadReport(long, long, int)}.
+     */
+    public static final String[] LOAD_REPORT_HEADER = {"source", "rate_hz", "duration_s", "generated", "delivered",
+            "dropped", "drop_rate", "invalid", "throughput_hz", "max_backlog", "edt_tasks", "edt_busy_ms",
+            "edt_occupancy", "edt_max_backlog"};
+
+    private final String specification;
+    private final double rate;
+    private final double fixationMillis;
+    private final double saccadeMillis;
+    private final double invalidRate;
+    private final int burstSize;
+    private final double burstIntervalMillis;
+    private final Path replaySession;
+    private final double speed;
+    private final long seed;
+    private final BlockingQueue<String> buffer;
+
+    private final AtomicLong generatedSamples = new AtomicLong();
+    private final AtomicLong invalidSamples = new AtomicLong();
+    private final AtomicLong deliveredSamples = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private volatile int maxBacklog;
+    private volatile boolean isFinished;
+    private long startNanoTime;
+    private long stopNanoTime;
+    private Thread generatorThread;
+    private Thread readerThread;
+
+    private SyntheticGazeSource(String specification, double rate, double fixationMillis, double saccadeMillis,
+                                double invalidRate, int burstSize, double burstIntervalMillis, Path replaySession,
+                                double speed, long seed, int bufferCapacity) {
+        this.specification = specification;
+        this.rate = rate;
+        this.fixationMillis = fixationMillis;
+        this.saccadeMillis = saccadeMillis;
+        this.invalidRate = invalidRate;
+        this.burstSize = burstSize;
+        this.burstIntervalMillis = burstIntervalMillis;
+        this.replaySession = replaySession;
+        this.speed = speed;
+        this.seed = seed;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    /**
+     * Parse a source specification. The keys are:
+     * <ul>
+     *     <li>{@code rate}: the sample rate in Hz, from 30 to 1200;</li>
+     *     <li>{@code fixation} and {@code saccade}: the mean durations of the fixations and the saccades in
+     *     milliseconds, 250 and 40 by default;</li>
+     *     <li>{@code invalid}: the fraction of invalid samples, whose gaze points are {@code nan}, 0.02 by
+     *     default;</li>
+     *     <li>{@code burst} and {@code burstInterval}: the number of samples held back and delivered at once, every
+     *     {@code burstInterval} milliseconds, 1000 by default; no bursts by default;</li>
+     *     <li>{@code replay} and {@code speed}: the directory of a session whose gazes are replayed instead, and the
+     *     factor of the replay speed, 1 by default;</li>
+     *     <li>{@code buffer}: the number of samples buffered for the reader, 1024 by default;</li>
+     *     <li>{@code seed}: the seed of the random generator.</li>
+     * </ul>
+     *
+     * @param specification The specification.
+     * @param defaultRate   The sample rate if the specification has none, e.g., the configured sample frequency.
+     * @return The source.
+     * @throws IllegalArgumentException If the specification is invalid.
+     */
+    public static SyntheticGazeSource parse(String specification, double defaultRate) {
+        double rate = defaultRate, fixationMillis = 250, saccadeMillis = 40, invalidRate = 0.02;
+        double burstIntervalMillis = 1000, speed = 1;
+        int burstSize = 1, bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+        Path replaySession = null;
+        long seed = 0;
+        for (String entry : specification.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid source entry: " + entry);
+            }
+            String key = entry.substring(0, separator).trim();
+            String value = entry.substring(separator + 1).trim();
+            try {
+                switch (key) {
+                    case "rate" -> rate = Double.parseDouble(value);
+                    case "fixation" -> fixationMillis = Double.parseDouble(value);
+                    case "saccade" -> saccadeMillis = Double.parseDouble(value);
+                    case "invalid" -> invalidRate = Double.parseDouble(value);
+                    case "burst" -> burstSize = Integer.parseInt(value);
+                    case "burstInterval" -> burstIntervalMillis = Double.parseDouble(value);
+                    case "replay" -> replaySession = Path.of(value);
+                    case "speed" -> speed = Double.parseDouble(value);
+                    case "buffer" -> bufferCapacity = Integer.parseInt(value);
+                    case "seed" -> seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown source key: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid source value: " + entry, e);
+            }
+        }
+        if (replaySession == null && (rate < MIN_RATE || rate > MAX_RATE)) {
+            throw new IllegalArgumentException("The rate must be from " + MIN_RATE + " to " + MAX_RATE + " Hz: "
+                    + rate);
+        }
+        if (fixationMillis <= 0 || saccadeMillis <= 0 || invalidRate < 0 || invalidRate > 1 || burstSize < 1
+                || burstIntervalMillis <= 0 || speed <= 0 || bufferCapacity < 1) {
+            throw new IllegalArgumentException("Invalid source specification: " + specification);
+        }
+        return new SyntheticGazeSource(specification, rate, fixationMillis, saccadeMillis, invalidRate, burstSize,
+                burstIntervalMillis, replaySession, speed, seed, bufferCapacity);
+    }
+
+    /**
+     * Start the source. The clock of the samples is {@link System#nanoTime()}, so the clock offset of the
+     * {@link SessionClock} is exact, without a handshake.
+     *
+     * @param consumer The consumer of the samples and the {@link System#nanoTime()} when each was read, e.g.,
+     *                 {@link EyeTracker#processRawData(String, long)}. It is called on the reader thread.
+     */
+    public synchronized void start(ObjLongConsumer<String> consumer) {
+        long nanoTime = System.nanoTime();
+        SessionClock.addPythonClockSample(nanoTime, nanoTime, nanoTime);
+        startNanoTime = nanoTime;
+        readerThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    String sample = buffer.take();
+                    consumer.accept(sample, System.nanoTime());
+                    deliveredSamples.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }, "CodeGRITS Synthetic Gaze Reader");
+        generatorThread = new Thread(() -> {
+            try {
+                if (replaySession != null) {
+                    replay();
+                } else {
+                    generate();
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            isFinished = true;
+        }, "CodeGRITS Synthetic Gaze");
+        readerThread.setDaemon(true);
+        generatorThread.setDaemon(true);
+        readerThread.start();
+        generatorThread.start();
+    }
+
+    /**
+     * Stop the source. The samples left in the buffer are not delivered.
+     */
+    public synchronized void stop() {
+        if (generatorThread == null) {
+            return;
+        }
+        stopNanoTime = System.nanoTime();
+        generatorThread.interrupt();
+        readerThread.interrupt();
+        try {
+            generatorThread.join(1000);
+            readerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        generatorThread = null;
+    }
+
+    /**
+     * Generate fixations and saccades between random points of the screen until the source is stopped. Within a
+     * fixation, the gaze points jitter around the fixation point; within a saccade, they move linearly to the next
+     * fixation point.
+     */
+    private void generate() {
+        Random random = new Random(seed);
+        long periodNanos = (long) (1e9 / rate);
+        int samplesPerBurst = Math.max(burstSize, (int) (burstIntervalMillis * rate / 1000));
+        List<String> heldSamples = new ArrayList<>(burstSize);
+        StringBuilder message = new StringBuilder(128);
+        double fromX = 0.5, fromY = 0.5, toX = 0.5, toY = 0.5;
+        long fixationEndNanos = 0, saccadeEndNanos = 0;
+        for (long i = 0; !Thread.currentThread().isInterrupted(); i++) {
+            long sampleNanoTime = startNanoTime + i * periodNanos;
+            long offsetNanos = sampleNanoTime - startNanoTime;
+            if (offsetNanos >= saccadeEndNanos) {
+                fromX = toX;
+                fromY = toY;
+                toX = 0.05 + 0.9 * random.nextDouble();
+                toY = 0.05 + 0.9 * random.nextDouble();
+                fixationEndNanos = saccadeEndNanos + (long) (fixationMillis * (0.5 + random.nextDouble()) * 1e6);
+                saccadeEndNanos = fixationEndNanos + (long) (saccadeMillis * (0.5 + random.nextDouble()) * 1e6);
+            }
+            double x, y;
+            if (offsetNanos < fixationEndNanos) {
+                x = fromX + random.nextGaussian() * 0.002;
+                y = fromY + random.nextGaussian() * 0.002;
+            } else {
+                double progress = (double) (offsetNanos - fixationEndNanos) / (saccadeEndNanos - fixationEndNanos);
+                x = fromX + (toX - fromX) * progress;
+                y = fromY + (toY - fromY) * progress;
+            }
+            boolean isValid = random.nextDouble() >= invalidRate;
+            appendMessage(message, sampleNanoTime, isValid ? x : Double.NaN, isValid ? y : Double.NaN,
+                    isValid ? x + 0.002 : Double.NaN, isValid ? y : Double.NaN, isValid ? 3.1 : Double.NaN,
+                    isValid ? 3.2 : Double.NaN);
+            if (!isValid) {
+                invalidSamples.incrementAndGet();
+            }
+            waitUntil(sampleNanoTime);
+            generatedSamples.incrementAndGet();
+            heldSamples.add(message.toString());
+            if (i % samplesPerBurst >= burstSize - 1) { // the first samples of each burst interval are held back
+                for (String sample : heldSamples) {
+                    offer(sample);
+                }
+                heldSamples.clear();
+            }
+        }
+    }
+
+    /**
+     * Replay the gazes of a recorded session with their timing, scaled by the speed, up to the last gaze.
+     */
+    private void replay() throws IOException {
+        StringBuilder message = new StringBuilder(128);
+        try (EventCursor<GazeEvent> gazes = SessionReader.open(replaySession).readGazes(Long.MIN_VALUE)) {
+            long firstTimestampNanos = Long.MIN_VALUE;
+            while (gazes.hasNext() && !Thread.currentThread().isInterrupted()) {
+                GazeEvent gaze = gazes.next();
+                if (firstTimestampNanos == Long.MIN_VALUE) {
+                    firstTimestampNanos = gaze.timestampNanos();
+                }
+                long sampleNanoTime = startNanoTime + (long) ((gaze.timestampNanos() - firstTimestampNanos) / speed);
+                appendMessage(message, sampleNanoTime, gaze.leftX(), gaze.leftY(), gaze.rightX(), gaze.rightY(),
+                        gaze.leftPupil(), gaze.rightPupil());
+                if (Double.isNaN(gaze.leftX()) || Double.isNaN(gaze.rightX())) {
+                    invalidSamples.incrementAndGet();
+                }
+                waitUntil(sampleNanoTime);
+                generatedSamples.incrementAndGet();
+                offer(message.toString());
+            }
+        }
+    }
+
+    /**
+     * Write a sample as the Python scripts print it: {@code timestamp; left eye; right eye; clock}, where an eye is
+     * {@code x, y, validity, pupil diameter, pupil validity}.
+     */
+    private static void appendMessage(StringBuilder message, long sampleNanoTime, double leftX, double leftY,
+                                      double rightX, double rightY, double leftPupil, double rightPupil) {
+        message.setLength(0);
+        message.append(SessionClock.toEpochNanos(sampleNanoTime) / 1_000_000).append("; ");
+        appendEye(message, leftX, leftY, leftPupil);
+        message.append("; ");
+        appendEye(message, rightX, rightY, rightPupil);
+        message.append("; ").append(sampleNanoTime);
+    }
+
+    private static void appendEye(StringBuilder message, double x, double y, double pupil) {
+        boolean isValid = !Double.isNaN(x) && !Double.isNaN(y);
+        message.append(toString(x)).append(", ").append(toString(y)).append(", ").append(isValid ? 1 : 0)
+                .append(", ").append(toString(pupil)).append(", ").append(Double.isNaN(pupil) ? 0 : 1);
+    }
+
+    private static String toString(double value) {
+        // the Python process prints "nan" for invalid samples
+        return Double.isNaN(value) ? "nan" : String.valueOf(value);
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void offer(String sample) {
+        if (!buffer.offer(sample)) {
+            droppedSamples.incrementAndGet();
+        }
+        int backlog = buffer.size();
+        if (backlog > maxBacklog) {
+            maxBacklog = backlog;
+        }
+    }
+
+    public String getSpecification() {
+        return specification;
+    }
+
+    /**
+     * Get the sample rate. For a replay, it is the rate given to {@link #parse(String, double)} times the speed.
+     *
+     * @return The sample rate in Hz.
+     */
+    public double getRate() {
+        return replaySession == null ? rate : rate * speed;
+    }
+
+    /**
+     * Get the time from the start of the source to its stop, or to now if it is running.
+     *
+     * @return The time in nanoseconds.
+     */
+    public synchronized long getElapsedNanos() {
+        return (generatorThread != null || stopNanoTime == 0 ? System.nanoTime() : stopNanoTime) - startNanoTime;
+    }
+
+    public long getGeneratedSamples() {
+        return generatedSamples.get();
+    }
+
+    public long getInvalidSamples() {
+        return invalidSamples.get();
+    }
+
+    public long getDeliveredSamples() {
+        return deliveredSamples.get();
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /**
+     * Get the largest number of samples that waited in the buffer for the reader.
+     *
+     * @return The number of samples.
+     */
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    /**
+     * Check whether the source has no more samples, i.e., the replay reached the last gaze.
+     *
+     * @return {@code true} if the source is finished.
+     */
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * Get the load of the eye tracking pipeline fed by the source, named by {@link #LOAD_REPORT_HEADER}: the samples
+     * the source generated, delivered to its consumer and dropped because the buffer was full, the throughput, and the
+     * share of the time the EDT spent mapping gazes.
+     *
+     * @param edtTasks      The number of gazes mapped on the EDT.
+     * @param edtNanos      The total time of the mapping on the EDT in nanoseconds.
+     * @param maxEdtBacklog The largest number of mapping tasks waiting in the event queue.
+     * @return The values of the load.
+     */
+    public String[] getLoadReport(long edtTasks, long edtNanos, int maxEdtBacklog) {
+        double seconds = getElapsedNanos() / 1e9;
+        long generated = getGeneratedSamples();
+        return new String[]{specification, String.format(Locale.ROOT, "%.1f", getRate()),
+                String.format(Locale.ROOT, "%.3f", seconds), String.valueOf(generated),
+                String.valueOf(getDeliveredSamples()), String.valueOf(getDroppedSamples()),
+                String.format(Locale.ROOT, "%.6f", generated > 0 ? (double) getDroppedSamples() / generated : 0),
+                String.valueOf(getInvalidSamples()),
+                String.format(Locale.ROOT, "%.1f", getDeliveredSamples() / seconds), String.valueOf(maxBacklog),
+                String.valueOf(edtTasks), String.format(Locale.ROOT, "%.3f", edtNanos / 1e6),
+                String.format(Locale.ROOT, "%.6f", edtNanos / 1e9 / seconds), String.valueOf(maxEdtBacklog)};
+    }
+}
@@ -0,0 +1,343 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * This class aggregates the dwell time of the gaze per file, per line, and per code element incrementally, as the
+ * mapped gazes arrive. Each gaze sample adds the time since the previous sample, capped at a maximum sample interval,
+ * to its file, its line, and each code element of its AST levels, e.g., the identifier, the statement, and the method.
+ * <p>
+ * Each key has a cumulative counter and a ring of time buckets for the sliding windows, so a query never rescans the
+ * history: it is a hash lookup followed by a sum over the fixed number of buckets. The keys are interned into
+ * primitive maps, and the counters are kept in primitive arrays indexed by the key, so adding a sample does not
+ * allocate once its keys are known.
+ * <p>
+ * The number of keys is capped, since the lines and the code elements looked at keep adding keys over a long session,
+ * and an edit shifts the text ranges of the code elements. When all keys are in use, the least recently seen quarter
+ * of the lines and code elements is evicted, and their dwell time is lost; the files are never evicted.
+ */
+public class DwellAggregator {
+    /**
+     * This variable is the query window of the cumulative dwell time since the start of the tracking.
+     */
+    public static final long CUMULATIVE = Long.MAX_VALUE;
+    public static final long DEFAULT_BUCKET_NANOS = 1_000_000_000L;
+    /**
+     * This variable is the default number of buckets, i.e., the longest sliding window in seconds.
+     */
+    public static final int DEFAULT_BUCKET_COUNT = 128;
+    public static final long DEFAULT_MAX_SAMPLE_NANOS = 100_000_000L;
+    /**
+     * This variable is the default maximum number of keys, i.e., about 12 MB of counters with the default buckets.
+     */
+    public static final int DEFAULT_MAX_KEYS = 8192;
+    private static final DwellAggregator dwellAggregator = new DwellAggregator(DEFAULT_BUCKET_NANOS,
+            DEFAULT_BUCKET_COUNT, DEFAULT_MAX_KEYS, SessionClock::nanoTime);
+
+    private final long bucketNanos;
+    private final int bucketCount;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private long maxSampleNanos = DEFAULT_MAX_SAMPLE_NANOS;
+    private final Map<String, FileCounters> files = new HashMap<>();
+    private FileCounters lastFile;
+    /**
+     * These variables are the counters of the keys, indexed by the counter of the key. The buckets of counter
+     * {@code c} are at {@code c * bucketCount} to {@code (c + 1) * bucketCount - 1}; each bucket holds the dwell time
+     * of its epoch, i.e., the index of its time slot since {@link #originNanos} plus one, and 0 if unused.
+     */
+    private long[] cumulativeNanos = new long[64];
+    private long[] lastSeenNanos = new long[64];
+    private long[] bucketDwellNanos;
+    private int[] bucketEpochs;
+    private int counterCount = 0;
+    /**
+     * These variables are the counters of the evicted keys, which are reused before new counters are allocated.
+     */
+    private int[] freeCounters = new int[16];
+    private int freeCounterCount = 0;
+    private long originNanos = Long.MIN_VALUE;
+    private long lastTimestampNanos = Long.MIN_VALUE;
+
+    /**
+     * The constructor of the aggregator with {@link #DEFAULT_MAX_KEYS}.
+     *
+     * @param bucketNanos The width of a bucket in nanoseconds, i.e., the resolution of the sliding windows.
+     * @param bucketCount The number of buckets; the longest sliding window is {@code bucketNanos * bucketCount}.
+     * @param clock       The clock of the queries in nanoseconds, on the timeline of the timestamps of the samples.
+     */
+    public DwellAggregator(long bucketNanos, int bucketCount, LongSupplier clock) {
+        this(bucketNanos, bucketCount, DEFAULT_MAX_KEYS, clock);
+    }
+
+    /**
+     * The constructor of the aggregator. Use {@link #getInstance()} for the aggregator of the eye tracker.
+     *
+     * @param bucketNanos The width of a bucket in nanoseconds, i.e., the resolution of the sliding windows.
+     * @param bucketCount The number of buckets; the longest sliding window is {@code bucketNanos * bucketCount}.
+     * @param maxKeys     The maximum number of keys before the least recently seen lines and code elements are
+     *                    evicted.
+     * @param clock       The clock of the queries in nanoseconds, on the timeline of the timestamps of the samples.
+     */
+    public DwellAggregator(long bucketNanos, int bucketCount, int maxKeys, LongSupplier clock) {
+        if (bucketNanos <= 0 || bucketCount <= 0 || bucketNanos > Long.MAX_VALUE / bucketCount) {
+            throw new IllegalArgumentException("Invalid buckets: " + bucketCount + " of " + bucketNanos + " ns");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of keys: " + maxKeys);
+        }
+        this.bucketNanos = bucketNanos;
+        this.bucketCount = bucketCount;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        int capacity = Math.min(cumulativeNanos.length, maxKeys);
+        cumulativeNanos = new long[capacity];
+        lastSeenNanos = new long[capacity];
+        bucketDwellNanos = new long[capacity * bucketCount];
+        bucketEpochs = new int[capacity * bucketCount];
+    }
+
+    public static DwellAggregator getInstance() {
+        return dwellAggregator;
+    }
+
+    /**
+     * Set the maximum time a sample counts for, e.g., twice the sample period of the eye tracker. Longer intervals
+     * between samples, e.g., while the gaze is out of the code editor, only count up to this time.
+     *
+     * @param maxSampleNanos The maximum time in nanoseconds, which must be positive.
+     */
+    public synchronized void setMaxSampleNanos(long maxSampleNanos) {
+        if (maxSampleNanos <= 0) {
+            throw new IllegalArgumentException("Invalid maximum sample time: " + maxSampleNanos + " ns");
+        }
+        this.maxSampleNanos = maxSampleNanos;
+    }
+
+    /**
+     * Add a mapped gaze sample. The samples must be added in the order of their timestamps.
+     *
+     * @param timestampNanos The timestamp of the sample in nanoseconds.
+     * @param path           The path of the file.
+     * @param line           The line of the gaze.
+     * @param elementRanges  The text ranges of the code elements of the gaze, as pairs of start and end offsets, or
+     *                       {@code null}.
+     */
+    public synchronized void addSample(long timestampNanos, String path, int line, int[] elementRanges) {
+        if (originNanos == Long.MIN_VALUE) {
+            originNanos = timestampNanos;
+        }
+        long duration = lastTimestampNanos == Long.MIN_VALUE ? 0
+                : Math.min(Math.max(timestampNanos - lastTimestampNanos, 0), maxSampleNanos);
+        lastTimestampNanos = Math.max(lastTimestampNanos, timestampNanos);
+        FileCounters file = lastFile != null && lastFile.path.equals(path) ? lastFile : files.get(path);
+        if (file == null) {
+            file = new FileCounters(path, newCounter());
+            files.put(path, file);
+        }
+        lastFile = file;
+        int epoch = getEpoch(timestampNanos);
+        add(file.counter, timestampNanos, epoch, duration);
+        add(getCounter(file.lines, line), timestampNanos, epoch, duration);
+        if (elementRanges != null) {
+            for (int i = 0; i + 1 < elementRanges.length; i += 2) {
+                add(getCounter(file.elements, toRangeKey(elementRanges[i], elementRanges[i + 1])), timestampNanos,
+                        epoch, duration);
+            }
+        }
+    }
+
+    private int getCounter(LongIntHashMap counters, long key) {
+        int counter = counters.get(key);
+        if (counter == LongIntHashMap.MISSING) {
+            counter = newCounter();
+            counters.put(key, counter);
+        }
+        return counter;
+    }
+
+    private int newCounter() {
+        if (freeCounterCount == 0 && counterCount >= maxKeys) {
+            evictKeys();
+        }
+        if (freeCounterCount > 0) {
+            return freeCounters[--freeCounterCount];
+        }
+        if (counterCount == cumulativeNanos.length) {
+            // beyond maxKeys only if nothing could be evicted, i.e., all keys are files
+            int capacity = counterCount < maxKeys ? Math.min(counterCount * 2, maxKeys) : counterCount * 2;
+            cumulativeNanos = Arrays.copyOf(cumulativeNanos, capacity);
+            lastSeenNanos = Arrays.copyOf(lastSeenNanos, capacity);
+            bucketDwellNanos = Arrays.copyOf(bucketDwellNanos, capacity * bucketCount);
+            bucketEpochs = Arrays.copyOf(bucketEpochs, capacity * bucketCount);
+        }
+        return counterCount++;
+    }
+
+    /**
+     * Evict the least recently seen quarter of the keys of the lines and code elements, and clear their counters for
+     * reuse.
+     */
+    private void evictKeys() {
+        long[] seen = Arrays.copyOf(lastSeenNanos, counterCount);
+        Arrays.sort(seen);
+        long threshold = seen[counterCount / 4];
+        for (FileCounters file : files.values()) {
+            file.lines.removeIf(counter -> lastSeenNanos[counter] <= threshold && freeCounter(counter));
+            file.elements.removeIf(counter -> lastSeenNanos[counter] <= threshold && freeCounter(counter));
+        }
+    }
+
+    private boolean freeCounter(int counter) {
+        if (freeCounterCount == freeCounters.length) {
+            freeCounters = Arrays.copyOf(freeCounters, freeCounterCount * 2);
+        }
+        freeCounters[freeCounterCount++] = counter;
+        cumulativeNanos[counter] = 0;
+        lastSeenNanos[counter] = 0;
+        Arrays.fill(bucketEpochs, counter * bucketCount, (counter + 1) * bucketCount, 0);
+        return true;
+    }
+
+    private void add(int counter, long timestampNanos, int epoch, long duration) {
+        cumulativeNanos[counter] += duration;
+        lastSeenNanos[counter] = timestampNanos;
+        int bucket = counter * bucketCount + epoch % bucketCount;
+        if (bucketEpochs[bucket] != epoch) {
+            bucketEpochs[bucket] = epoch;
+            bucketDwellNanos[bucket] = 0;
+        }
+        bucketDwellNanos[bucket] += duration;
+    }
+
+    private int getEpoch(long timestampNanos) {
+        return (int) (Math.max(timestampNanos - originNanos, 0) / bucketNanos) + 1;
+    }
+
+    private static long toRangeKey(int startOffset, int endOffset) {
+        return (long) startOffset << 32 | (endOffset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the dwell time of a counter in a window ending now. The buckets that overlap the window are counted fully,
+     * so the window is rounded up to the width of a bucket.
+     *
+     * @param counter     The counter, or {@link LongIntHashMap#MISSING}.
+     * @param windowNanos The window in nanoseconds, or {@link #CUMULATIVE}.
+     * @return The dwell time in nanoseconds.
+     */
+    private long getDwellNanos(int counter, long windowNanos) {
+        if (counter == LongIntHashMap.MISSING) {
+            return 0;
+        }
+        if (windowNanos == CUMULATIVE) {
+            return cumulativeNanos[counter];
+        }
+        windowNanos = Math.max(Math.min(windowNanos, getMaxWindowNanos()), 0);
+        long now = clock.getAsLong();
+        if (now - lastSeenNanos[counter] >= windowNanos + bucketNanos) {
+            return 0;
+        }
+        int lastEpoch = getEpoch(now);
+        int firstEpoch = Math.max(getEpoch(now - windowNanos), lastEpoch - bucketCount + 1);
+        long dwell = 0;
+        int start = counter * bucketCount;
+        for (int i = start; i < start + bucketCount; i++) {
+            if (bucketEpochs[i] >= firstEpoch && bucketEpochs[i] <= lastEpoch) {
+                dwell += bucketDwellNanos[i];
+            }
+        }
+        return dwell;
+    }
+
+    /**
+     * Get the dwell time of a file.
+     *
+     * @param path        The path of the file relative to the project, e.g., {@code /src/Main.java}.
+     * @param windowNanos The sliding window ending now in nanoseconds, or {@link #CUMULATIVE}.
+     * @return The dwell time in nanoseconds.
+     */
+    public synchronized long getFileDwellNanos(String path, long windowNanos) {
+        FileCounters file = files.get(path);
+        return file == null ? 0 : getDwellNanos(file.counter, windowNanos);
+    }
+
+    /**
+     * Get the dwell time of a line.
+     *
+     * @param path        The path of the file relative to the project.
+     * @param line        The line, starting from 0.
+     * @param windowNanos The sliding window ending now in nanoseconds, or {@link #CUMULATIVE}.
+     * @return The dwell time in nanoseconds.
+     */
+    public synchronized long getLineDwellNanos(String path, int line, long windowNanos) {
+        FileCounters file = files.get(path);
+        return file == null ? 0 : getDwellNanos(file.lines.get(line), windowNanos);
+    }
+
+    /**
+     * Get the dwell time of a code element, e.g., a method, by its text range. A gaze on any code element inside it
+     * counts for it.
+     *
+     * @param path        The path of the file relative to the project.
+     * @param startOffset The start offset of the code element.
+     * @param endOffset   The end offset of the code element.
+     * @param windowNanos The sliding window ending now in nanoseconds, or {@link #CUMULATIVE}.
+     * @return The dwell time in nanoseconds.
+     */
+    public synchronized long getElementDwellNanos(String path, int startOffset, int endOffset, long windowNanos) {
+        FileCounters file = files.get(path);
+        return file == null ? 0 : getDwellNanos(file.elements.get(toRangeKey(startOffset, endOffset)), windowNanos);
+    }
+
+    /**
+     * Get the longest sliding window of the queries.
+     *
+     * @return The window in nanoseconds.
+     */
+    public long getMaxWindowNanos() {
+        return bucketNanos * bucketCount;
+    }
+
+    /**
+     * Get the number of keys, i.e., files, lines, and code elements.
+     *
+     * @return The number of keys.
+     */
+    public synchronized int getKeyCount() {
+        return counterCount - freeCounterCount;
+    }
+
+    /**
+     * Remove all dwell times. This method is called when the eye tracking starts.
+     */
+    public synchronized void reset() {
+        files.clear();
+        lastFile = null;
+        Arrays.fill(cumulativeNanos, 0, counterCount, 0);
+        Arrays.fill(lastSeenNanos, 0, counterCount, 0);
+        Arrays.fill(bucketEpochs, 0, counterCount * bucketCount, 0);
+        counterCount = 0;
+        freeCounterCount = 0;
+        originNanos = Long.MIN_VALUE;
+        lastTimestampNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * This class holds the counter of a file and the counters of its lines and code elements.
+     */
+    private static final class FileCounters {
+        private final String path;
+        private final int counter;
+        private final LongIntHashMap lines = new LongIntHashMap();
+        private final LongIntHashMap elements = new LongIntHashMap();
+
+        private FileCounters(String path, int counter) {
+            this.path = path;
+            this.counter = counter;
+        }
+    }
+}
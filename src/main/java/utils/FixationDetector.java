@@ -0,0 +1,216 @@
+package utils;
+
+import api.event.FixationEvent;
+
+import java.util.Arrays;
+
+/**
+ * This class detects fixations from a stream of gaze samples with the dispersion-threshold (I-DT) algorithm. A
+ * fixation is a window of consecutive valid samples whose dispersion, i.e., {@code (max x - min x) + (max y - min y)},
+ * stays within a threshold for at least a minimum duration. A fixation is reported when the window is broken by a
+ * sample outside the threshold, an invalid sample, or a gap in the samples. The extremes of the window are kept in
+ * monotonic deques, so each sample takes amortized constant time, however long the fixation.
+ */
+public class FixationDetector {
+    /**
+     * This variable is the default dispersion threshold in pixels, about 1 degree of visual angle at a typical viewing
+     * distance.
+     */
+    public static final double DEFAULT_MAX_DISPERSION = 50;
+    public static final long DEFAULT_MIN_DURATION_NANOS = 100_000_000L;
+    /**
+     * This variable is the longest gap between two samples of the same fixation, e.g., a blink.
+     */
+    public static final long DEFAULT_MAX_GAP_NANOS = 100_000_000L;
+    private final double maxDispersion;
+    private final long minDurationNanos;
+    private final long maxGapNanos;
+    /**
+     * These variables are the samples of the current window.
+     */
+    private long[] timestamps = new long[64];
+    private double[] xs = new double[64], ys = new double[64];
+    private int start = 0, end = 0;
+    /**
+     * These variables are the extremes of the coordinates of the current window.
+     */
+    private final ExtremeDeque minX = new ExtremeDeque(false), maxX = new ExtremeDeque(true);
+    private final ExtremeDeque minY = new ExtremeDeque(false), maxY = new ExtremeDeque(true);
+
+    public FixationDetector() {
+        this(DEFAULT_MAX_DISPERSION, DEFAULT_MIN_DURATION_NANOS, DEFAULT_MAX_GAP_NANOS);
+    }
+
+    /**
+     * The constructor of the fixation detector.
+     *
+     * @param maxDispersion    The dispersion threshold in pixels.
+     * @param minDurationNanos The minimum duration of a fixation in nanoseconds.
+     * @param maxGapNanos      The longest gap between two samples of the same fixation in nanoseconds.
+     */
+    public FixationDetector(double maxDispersion, long minDurationNanos, long maxGapNanos) {
+        this.maxDispersion = maxDispersion;
+        this.minDurationNanos = minDurationNanos;
+        this.maxGapNanos = maxGapNanos;
+    }
+
+    /**
+     * Add a gaze sample. The samples must be added in the order of their timestamps.
+     *
+     * @param timestampNanos The timestamp of the sample in nanoseconds.
+     * @param x              The x coordinate on the screen in pixels, or {@link Double#NaN} if the sample is invalid.
+     * @param y              The y coordinate on the screen in pixels, or {@link Double#NaN} if the sample is invalid.
+     * @return The fixation ended by this sample, or {@code null}.
+     */
+    public synchronized FixationEvent addSample(long timestampNanos, double x, double y) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return flush();
+        }
+        FixationEvent fixation = null;
+        if (end > start && (timestampNanos - timestamps[end - 1] > maxGapNanos || timestampNanos < timestamps[end - 1])) {
+            fixation = flush();
+        }
+        append(timestampNanos, x, y);
+        if (getDispersion() <= maxDispersion) {
+            return fixation;
+        }
+        if (timestamps[end - 2] - timestamps[start] >= minDurationNanos) {
+            fixation = getFixation(start, end - 1);
+            start = end - 1;
+            return fixation;
+        }
+        // the window is too short to be a fixation, so slide its start until the new sample fits
+        while (getDispersion() > maxDispersion) {
+            start++;
+        }
+        return fixation;
+    }
+
+    /**
+     * End the current window, e.g., when the tracking is paused.
+     *
+     * @return The fixation of the current window, or {@code null} if the window is not a fixation.
+     */
+    public synchronized FixationEvent flush() {
+        FixationEvent fixation = null;
+        if (end > start && timestamps[end - 1] - timestamps[start] >= minDurationNanos) {
+            fixation = getFixation(start, end);
+        }
+        start = 0;
+        end = 0;
+        minX.clear();
+        maxX.clear();
+        minY.clear();
+        maxY.clear();
+        return fixation;
+    }
+
+    private void append(long timestampNanos, double x, double y) {
+        if (end == timestamps.length) {
+            int size = end - start;
+            if (start == 0) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            } else {
+                System.arraycopy(timestamps, start, timestamps, 0, size);
+                System.arraycopy(xs, start, xs, 0, size);
+                System.arraycopy(ys, start, ys, 0, size);
+                minX.shift(start);
+                maxX.shift(start);
+                minY.shift(start);
+                maxY.shift(start);
+            }
+            start = 0;
+            end = size;
+        }
+        timestamps[end] = timestampNanos;
+        xs[end] = x;
+        ys[end] = y;
+        minX.add(xs, end);
+        maxX.add(xs, end);
+        minY.add(ys, end);
+        maxY.add(ys, end);
+        end++;
+    }
+
+    /**
+     * Get the dispersion of the current window, which must not be empty.
+     */
+    private double getDispersion() {
+        return (maxX.get(xs, start) - minX.get(xs, start)) + (maxY.get(ys, start) - minY.get(ys, start));
+    }
+
+    private FixationEvent getFixation(int from, int to) {
+        double sumX = 0, sumY = 0;
+        for (int i = from; i < to; i++) {
+            sumX += xs[i];
+            sumY += ys[i];
+        }
+        int count = to - from;
+        return new FixationEvent(timestamps[from], timestamps[to - 1] - timestamps[from], sumX / count, sumY / count,
+                count);
+    }
+
+    /**
+     * This class is a monotonic deque of the indices of the window in the order of the samples, whose values are
+     * increasing for the minimum or decreasing for the maximum, so its head is the extreme of the window.
+     */
+    private static class ExtremeDeque {
+        private final boolean isMax;
+        private int[] indices = new int[64];
+        private int head = 0, tail = 0;
+
+        ExtremeDeque(boolean isMax) {
+            this.isMax = isMax;
+        }
+
+        /**
+         * Add the index of a new sample, dropping the samples before it that can no longer be the extreme.
+         */
+        void add(double[] values, int index) {
+            double value = values[index];
+            while (tail > head && (isMax ? values[indices[tail - 1]] <= value : values[indices[tail - 1]] >= value)) {
+                tail--;
+            }
+            if (tail == indices.length) {
+                if (head > 0) {
+                    System.arraycopy(indices, head, indices, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                } else {
+                    indices = Arrays.copyOf(indices, indices.length * 2);
+                }
+            }
+            indices[tail++] = index;
+        }
+
+        /**
+         * Get the extreme of the window starting at {@code start}, dropping the samples before it.
+         */
+        double get(double[] values, int start) {
+            while (indices[head] < start) {
+                head++;
+            }
+            return values[indices[head]];
+        }
+
+        /**
+         * Move the indices after the samples of the window are moved to the start of their arrays, dropping the
+         * samples before the window.
+         */
+        void shift(int offset) {
+            while (head < tail && indices[head] < offset) {
+                head++;
+            }
+            for (int i = head; i < tail; i++) {
+                indices[i] -= offset;
+            }
+        }
+
+        void clear() {
+            head = 0;
+            tail = 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package utils;
+
+import jdk.jfr.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * This class holds the custom JDK Flight Recorder events of the stages of the trackers, so that the work of CodeGRITS
+ * can be lined up with the freezes of the IDE in a JFR recording in JDK Mission Control. The events are only
+ * registered with the flight recorder while tracking with the events enabled by the configuration. While disabled, {@link #begin(Supplier)}
+ * returns {@code null} after a single volatile read, so the stages neither allocate nor time an event:
+ * <pre>
+ * JFREvents.ArchiveWriteEvent event = JFREvents.begin(JFREvents.ArchiveWriteEvent::new);
+ * ...
+ * if (event != null) {
+ *     event.path = path;
+ *     event.commit();
+ * }
+ * </pre>
+ */
+public class JFREvents {
+    private static final List<Class<? extends Event>> EVENT_CLASSES = List.of(GazeParseEvent.class,
+            GazeMapEvent.class, ASTWalkEvent.class, ArchiveWriteEvent.class, XMLFlushEvent.class, FrameGrabEvent.class,
+            FrameEncodeEvent.class);
+    private static volatile boolean isEnabled = false;
+
+    /**
+     * Enable or disable the events. Enabled events are registered with the flight recorder, so they appear in the
+     * recordings; disabled events are unregistered.
+     *
+     * @param isEnabled Whether the events are enabled.
+     */
+    public static synchronized void setEnabled(boolean isEnabled) {
+        if (isEnabled == JFREvents.isEnabled) {
+            return;
+        }
+        for (Class<? extends Event> eventClass : EVENT_CLASSES) {
+            if (isEnabled) {
+                FlightRecorder.register(eventClass);
+            } else {
+                FlightRecorder.unregister(eventClass);
+            }
+        }
+        JFREvents.isEnabled = isEnabled;
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Create an event and begin timing it if the events are enabled.
+     *
+     * @param factory The constructor of the event.
+     * @return The event, or {@code null} if the events are disabled.
+     */
+    public static <T extends Event> T begin(Supplier<T> factory) {
+        if (!isEnabled) {
+            return null;
+        }
+        T event = factory.get();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * This class is the event of parsing a message of the Python process into a gaze element.
+     */
+    @Name("codegrits.GazeParse")
+    @Label("Gaze Parse")
+    @Category({"CodeGRITS", "Eye Tracker"})
+    @Description("Parsing a sample of the eye tracker into a gaze element")
+    @StackTrace(false)
+    @Registered(false)
+    public static class GazeParseEvent extends Event {
+        @Label("Message Length")
+        @Description("The number of characters of the message")
+        public int messageLength;
+    }
+
+    /**
+     * This class is the event of mapping a gaze to the source code on the EDT, including the AST walk.
+     */
+    @Name("codegrits.GazeMap")
+    @Label("Gaze Map")
+    @Category({"CodeGRITS", "Eye Tracker"})
+    @Description("Mapping a gaze to the source code and the AST on the EDT")
+    @StackTrace(false)
+    @Registered(false)
+    public static class GazeMapEvent extends Event {
+        @Label("Path")
+        public String path;
+        @Label("Line")
+        public int line;
+        @Label("Column")
+        public int column;
+        @Label("Queue Time")
+        @Timespan
+        public long queueNanos;
+    }
+
+    /**
+     * This class is the event of the upward traversal of the AST of a mapped gaze.
+     */
+    @Name("codegrits.ASTWalk")
+    @Label("AST Walk")
+    @Category({"CodeGRITS", "Eye Tracker"})
+    @Description("Walking the AST up from the element of a gaze to the file")
+    @StackTrace(false)
+    @Registered(false)
+    public static class ASTWalkEvent extends Event {
+        @Label("Element Type")
+        public String type;
+        @Label("Depth")
+        public int depth;
+    }
+
+    /**
+     * This class is the event of archiving a file or the console of the IDE tracker.
+     */
+    @Name("codegrits.ArchiveWrite")
+    @Label("Archive Write")
+    @Category({"CodeGRITS", "IDE Tracker"})
+    @Description("Archiving a file or the console")
+    @StackTrace(false)
+    @Registered(false)
+    public static class ArchiveWriteEvent extends Event {
+        @Label("Path")
+        public String path;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+        @Label("Remark")
+        public String remark;
+    }
+
+    /**
+     * This class is the event of writing the XML document of a tracker to its file.
+     */
+    @Name("codegrits.XMLFlush")
+    @Label("XML Flush")
+    @Category({"CodeGRITS", "Trackers"})
+    @Description("Writing the XML document of a tracker to its file")
+    @StackTrace(false)
+    @Registered(false)
+    public static class XMLFlushEvent extends Event {
+        @Label("Path")
+        public String path;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+        @Label("Elements")
+        @Description("The number of elements in the sections of the document, i.e., the events")
+        public int elements;
+    }
+
+    /**
+     * This class is the event of grabbing a frame of a display.
+     */
+    @Name("codegrits.FrameGrab")
+    @Label("Frame Grab")
+    @Category({"CodeGRITS", "Screen Recorder"})
+    @Description("Grabbing a frame of a display")
+    @StackTrace(false)
+    @Registered(false)
+    public static class FrameGrabEvent extends Event {
+        @Label("Display")
+        public int display;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Recording")
+        @Description("Whether the frame is recorded, or discarded while paused")
+        public boolean recording;
+    }
+
+    /**
+     * This class is the event of encoding a frame into a clip, or compressing it into the ring file in the deferred
+     * mode.
+     */
+    @Name("codegrits.FrameEncode")
+    @Label("Frame Encode")
+    @Category({"CodeGRITS", "Screen Recorder"})
+    @Description("Encoding a frame into a clip, or compressing it into the ring file of the deferred mode")
+    @StackTrace(false)
+    @Registered(false)
+    public static class FrameEncodeEvent extends Event {
+        @Label("Display")
+        public int display;
+        @Label("Clip")
+        public int clip;
+        @Label("Frame Number")
+        public int frameNumber;
+        @Label("Mode")
+        @Description("realtime, ring or transcode")
+        public String mode;
+    }
+}
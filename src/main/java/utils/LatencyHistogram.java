@@ -0,0 +1,150 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a lock-free log-linear histogram of latencies in nanoseconds. Each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a recorded value is off by at most 1/{@value #SUB_BUCKETS} (about 6%)
+ * of itself, at a fixed size of a few kilobytes. Recording is an atomic increment and can be done from any thread.
+ * Values from 0 to about two hours are recorded; larger values are clamped.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency. Negative values, e.g., caused by clock adjustments between processes, are recorded as 0.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Get the index of the bucket of a value. The values below {@value #SUB_BUCKETS} have a bucket each; above, the
+     * bucket is given by the exponent of the value and its next {@code SUB_BUCKET_BITS} bits.
+     *
+     * @param value The value, from 0 to {@link #MAX_VALUE}.
+     * @return The index of the bucket.
+     */
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Get the smallest value of a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The smallest value in nanoseconds.
+     */
+    static long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Get the largest value of a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The largest value in nanoseconds.
+     */
+    static long getBucketUpperBound(int index) {
+        return index + 1 < getBucketCount() ? getBucketLowerBound(index + 1) - 1 : MAX_VALUE;
+    }
+
+    static int getBucketCount() {
+        return (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    }
+
+    /**
+     * Get the value at a percentile, as the upper bound of its bucket, so it is never below the exact percentile.
+     * The counts are read while values may be recorded, so the result is approximate under concurrent recording.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Get a copy of the counts of the buckets.
+     *
+     * @return The counts, indexed by bucket.
+     */
+    public long[] getCounts() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Reset the histogram. Values recorded concurrently may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,181 @@
+package utils;
+
+import api.event.EventType;
+import api.event.FixationEvent;
+import api.event.TrackerEvent;
+import com.opencsv.CSVWriter;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * This class measures how stale the real-time data is at each stage of its delivery, with a {@link LatencyHistogram}
+ * per stage. A gaze passes the stages device → pipe read → parse → EDT enqueue → mapped → delivered; an IDE event is
+ * published on the EDT and only has the delivery stage. The end-to-end latency is measured for both. The histograms
+ * are recorded for the whole session and written to {@code latency.csv} and {@code latency_histograms.csv} in the
+ * session directory when the tracking stops.
+ */
+public class LatencyMonitor {
+    /**
+     * This enum is a stage of the delivery of the real-time data, measured from the end of the previous stage.
+     */
+    public enum Stage {
+        /**
+         * From the timestamp of the eye tracker to reading the sample from the pipe of the Python process. It is only
+         * measured if the clock of the Python process is synchronized.
+         */
+        GAZE_PIPE("gaze_pipe"),
+        /**
+         * From reading the sample to the end of parsing it.
+         */
+        GAZE_PARSE("gaze_parse"),
+        /**
+         * From the end of parsing to the start of the mapping on the EDT, i.e., the wait in the event queue.
+         */
+        GAZE_EDT_QUEUE("gaze_edt_queue"),
+        /**
+         * The mapping of the gaze to the source code and the AST on the EDT.
+         */
+        GAZE_MAPPING("gaze_mapping"),
+        /**
+         * From publishing the gaze on the event bus to its delivery to a subscriber.
+         */
+        GAZE_DELIVERY("gaze_delivery"),
+        /**
+         * From the timestamp of the eye tracker to the delivery to a subscriber.
+         */
+        GAZE_END_TO_END("gaze_end_to_end"),
+        /**
+         * From publishing an IDE event on the event bus to its delivery to a subscriber.
+         */
+        IDE_DELIVERY("ide_delivery"),
+        /**
+         * From the timestamp of an IDE event to its delivery to a subscriber.
+         */
+        IDE_END_TO_END("ide_end_to_end");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final LatencyMonitor latencyMonitor = new LatencyMonitor();
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    private LatencyMonitor() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public static LatencyMonitor getInstance() {
+        return latencyMonitor;
+    }
+
+    /**
+     * Record the latency of a stage.
+     *
+     * @param stage The stage.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    /**
+     * Record the delivery of an event to a subscriber of the event bus. This method is called by the subscriber
+     * thread before the event is passed to the consumer.
+     *
+     * @param event            The event.
+     * @param publishNanoTime  The {@link System#nanoTime()} when the event was published.
+     * @param deliveryNanoTime The {@link System#nanoTime()} of the delivery.
+     */
+    public void recordDelivery(TrackerEvent event, long publishNanoTime, long deliveryNanoTime) {
+        if (event instanceof FixationEvent) {
+            return; // a fixation is published at its end, long after its timestamp
+        }
+        boolean isGaze = event.type() == EventType.GAZE;
+        record(isGaze ? Stage.GAZE_DELIVERY : Stage.IDE_DELIVERY, deliveryNanoTime - publishNanoTime);
+        record(isGaze ? Stage.GAZE_END_TO_END : Stage.IDE_END_TO_END,
+                SessionClock.toEpochNanos(deliveryNanoTime) - event.timestampNanos());
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * Reset all histograms. This method is called when the tracking starts.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Get a short summary of the gaze and IDE latencies, e.g., for the status bar.
+     *
+     * @return The summary.
+     */
+    public String getSummary() {
+        LatencyHistogram gaze = getHistogram(Stage.GAZE_END_TO_END);
+        LatencyHistogram ide = getHistogram(Stage.IDE_END_TO_END);
+        StringBuilder summary = new StringBuilder();
+        if (gaze.getTotalCount() > 0) {
+            summary.append(String.format("Gaze p50 %.1f ms, p99 %.1f ms", gaze.getValueAtPercentile(50) / 1e6,
+                    gaze.getValueAtPercentile(99) / 1e6));
+        }
+        if (ide.getTotalCount() > 0) {
+            summary.append(summary.length() > 0 ? " | " : "");
+            summary.append(String.format("IDE p50 %.1f ms, p99 %.1f ms", ide.getValueAtPercentile(50) / 1e6,
+                    ide.getValueAtPercentile(99) / 1e6));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Write the percentiles of each stage to {@code latency.csv} and the counts of the buckets of each stage to
+     * {@code latency_histograms.csv} in a directory. The latencies are in milliseconds.
+     *
+     * @param directory The directory, e.g., the data output path of the session.
+     */
+    public void writeToCSV(String directory) throws IOException {
+        try (CSVWriter summaryWriter = new CSVWriter(new FileWriter(directory + "/latency.csv"))) {
+            summaryWriter.writeNext(new String[]{"stage", "count", "mean_ms", "p50_ms", "p90_ms", "p99_ms",
+                    "p99.9_ms", "max_ms"});
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = histograms.get(stage);
+                summaryWriter.writeNext(new String[]{stage.getName(), String.valueOf(histogram.getTotalCount()),
+                        toMillis(histogram.getMean()), toMillis(histogram.getValueAtPercentile(50)),
+                        toMillis(histogram.getValueAtPercentile(90)), toMillis(histogram.getValueAtPercentile(99)),
+                        toMillis(histogram.getValueAtPercentile(99.9)), toMillis(histogram.getMax())});
+            }
+        }
+        try (CSVWriter bucketWriter = new CSVWriter(new FileWriter(directory + "/latency_histograms.csv"))) {
+            bucketWriter.writeNext(new String[]{"stage", "lower_bound_ns", "upper_bound_ns", "count"});
+            for (Stage stage : Stage.values()) {
+                long[] counts = histograms.get(stage).getCounts();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        bucketWriter.writeNext(new String[]{stage.getName(),
+                                String.valueOf(LatencyHistogram.getBucketLowerBound(i)),
+                                String.valueOf(LatencyHistogram.getBucketUpperBound(i)), String.valueOf(counts[i])});
+                    }
+                }
+            }
+        }
+    }
+
+    private static String toMillis(double nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
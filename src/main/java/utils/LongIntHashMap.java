@@ -0,0 +1,127 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * This class is a hash map from {@code long} keys to non-negative {@code int} values with open addressing and linear
+ * probing. It does not box the keys or the values, so a lookup does not allocate. It is not thread-safe.
+ */
+public class LongIntHashMap {
+    public static final int MISSING = -1;
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * The constructor of the map.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential keys
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key The key.
+     * @return The value, or {@link #MISSING} if the key is not in the map.
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * Put a value for a key, replacing the previous value.
+     *
+     * @param key   The key.
+     * @param value The value, which must not be negative.
+     */
+    public void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The value must not be negative: " + value);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove the entries whose value matches a predicate.
+     *
+     * @param predicate The predicate of the values to remove.
+     * @return The number of entries removed.
+     */
+    public int removeIf(IntPredicate predicate) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int oldSize = size;
+        keys = new long[oldKeys.length];
+        values = new int[oldValues.length];
+        Arrays.fill(values, MISSING);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING && !predicate.test(oldValues[i])) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+        return oldSize - size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import java.time.Instant;
+
+/**
+ * This class is the session clock shared by all trackers. It is based on {@link System#nanoTime()}, which is monotonic
+ * and not affected by wall-clock adjustments, and is anchored to the wall clock once at the start of the session. All
+ * timestamps of a session are thus on a common timeline, expressed as Unix time. The clock of the Python process of
+ * the eye tracker is mapped onto the same timeline by a clock-offset handshake.
+ */
+public class SessionClock {
+    /**
+     * The wall-clock time of the anchor in nanoseconds since the Unix epoch.
+     */
+    private static long anchorEpochNanos;
+    /**
+     * The {@link System#nanoTime()} of the anchor.
+     */
+    private static long anchorNanoTime;
+    /**
+     * The offset from the Python clock to the session clock in nanoseconds, i.e., session time = Python time + offset.
+     */
+    private static volatile long pythonClockOffset = 0;
+    /**
+     * The round-trip time of the handshake the offset was estimated from, or -1 if there was no handshake.
+     */
+    private static volatile long pythonClockRoundTrip = -1;
+
+    static {
+        start();
+    }
+
+    /**
+     * Anchor the session clock to the wall clock. This method is called when the tracking starts.
+     */
+    public static synchronized void start() {
+        Instant now = Instant.now();
+        anchorNanoTime = System.nanoTime();
+        anchorEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        pythonClockOffset = 0;
+        pythonClockRoundTrip = -1;
+    }
+
+    /**
+     * Get the current time on the session timeline.
+     *
+     * @return The Unix time in nanoseconds.
+     */
+    public static long nanoTime() {
+        return toEpochNanos(System.nanoTime());
+    }
+
+    /**
+     * Get the current time on the session timeline.
+     *
+     * @return The Unix time in microseconds.
+     */
+    public static long currentTimeMicros() {
+        return nanoTime() / 1_000;
+    }
+
+    /**
+     * Get the current time on the session timeline.
+     *
+     * @return The Unix time in milliseconds.
+     */
+    public static long currentTimeMillis() {
+        return nanoTime() / 1_000_000;
+    }
+
+    /**
+     * Convert a value of {@link System#nanoTime()} to the session timeline.
+     *
+     * @param nanoTime The value of {@link System#nanoTime()}.
+     * @return The Unix time in nanoseconds.
+     */
+    public static long toEpochNanos(long nanoTime) {
+        return anchorEpochNanos + (nanoTime - anchorNanoTime);
+    }
+
+    /**
+     * Record one round of the clock-offset handshake with the Python process. The Python process replies to a request
+     * sent at {@code sentNanoTime} with its clock {@code pythonNanos}, which is received at {@code receivedNanoTime}.
+     * Assuming a symmetric delay, the Python clock was read at the midpoint. The round with the smallest round-trip time
+     * is kept, since it bounds the error of the offset best.
+     *
+     * @param sentNanoTime     The {@link System#nanoTime()} when the request was sent.
+     * @param receivedNanoTime The {@link System#nanoTime()} when the reply was received.
+     * @param pythonNanos      The clock of the Python process in the reply, in nanoseconds.
+     */
+    public static synchronized void addPythonClockSample(long sentNanoTime, long receivedNanoTime, long pythonNanos) {
+        long roundTrip = receivedNanoTime - sentNanoTime;
+        if (pythonClockRoundTrip >= 0 && roundTrip >= pythonClockRoundTrip) {
+            return;
+        }
+        long midpoint = toEpochNanos(sentNanoTime + roundTrip / 2);
+        pythonClockOffset = midpoint - pythonNanos;
+        pythonClockRoundTrip = roundTrip;
+    }
+
+    /**
+     * Check whether the offset of the Python clock is known.
+     *
+     * @return {@code true} if at least one round of the handshake succeeded.
+     */
+    public static boolean isPythonClockSynchronized() {
+        return pythonClockRoundTrip >= 0;
+    }
+
+    /**
+     * Convert a time of the Python clock to the session timeline.
+     *
+     * @param pythonNanos The time of the Python clock in nanoseconds.
+     * @return The Unix time in nanoseconds.
+     */
+    public static long fromPythonNanos(long pythonNanos) {
+        return pythonNanos + pythonClockOffset;
+    }
+
+    public static long getPythonClockRoundTrip() {
+        return pythonClockRoundTrip;
+    }
+}
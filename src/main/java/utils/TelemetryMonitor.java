@@ -0,0 +1,295 @@
+package utils;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class accounts for the work CodeGRITS itself does during a session, to show that the plugin did not disturb the
+ * participant. For each {@link Probe}, i.e., a listener of the IDE tracker or a stage of the eye tracker or the screen
+ * recorder, it counts the events, the time spent and the bytes written, and for each {@link Queue} the current and the
+ * maximum depth. A probe costs two {@link System#nanoTime()} calls and a few uncontended {@link LongAdder} additions, so
+ * the telemetry is always on. The counters are written to {@code telemetry.json} in the session directory when the
+ * tracking stops, and shown live in the {@code CodeGRITS Telemetry} tool window.
+ */
+public class TelemetryMonitor {
+    /**
+     * This variable is the thread of the probes that run on the event dispatch thread, which the participant waits for.
+     */
+    public static final String EDT = "edt";
+
+    /**
+     * This enum is an instrumented piece of work of the trackers, with the thread it runs on.
+     */
+    public enum Probe {
+        DOCUMENT_LISTENER("document_listener", EDT),
+        MOUSE_LISTENER("mouse_listener", EDT),
+        CARET_LISTENER("caret_listener", EDT),
+        SELECTION_LISTENER("selection_listener", EDT),
+        VISIBLE_AREA_LISTENER("visible_area_listener", EDT),
+        ACTION_LISTENER("action_listener", EDT),
+        TYPING_LISTENER("typing_listener", EDT),
+        FILE_LISTENER("file_listener", EDT),
+        /**
+         * Archiving a file, on the timer thread of the IDE tracker for the changed files, and within
+         * {@link #FILE_LISTENER} on the EDT for the opened and selected files.
+         */
+        FILE_ARCHIVE("file_archive", "ide tracker timer"),
+        /**
+         * Parsing a gaze and checking it against the editor, on the thread reading the Python process.
+         */
+        GAZE_PROCESSING("gaze_processing", "eye tracker reader"),
+        /**
+         * Mapping a gaze to the source code and the AST.
+         */
+        GAZE_MAPPING("gaze_mapping", EDT),
+        /**
+         * Grabbing a frame and encoding or compressing it, on the capture thread of each display.
+         */
+        FRAME_CAPTURE("frame_capture", "screen capture"),
+        /**
+         * Encoding a frame of the deferred screen recording mode, on the transcoder thread of each display.
+         */
+        FRAME_TRANSCODE("frame_transcode", "screen transcoder"),
+        /**
+         * Writing the XML file of a tracker when the tracking stops.
+         */
+        XML_WRITE("xml_write", EDT);
+
+        private final String name;
+        private final String thread;
+
+        Probe(String name, String thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+    }
+
+    /**
+     * This enum is a queue of the trackers whose depth is sampled whenever it changes.
+     */
+    public enum Queue {
+        /**
+         * The gaze mapping tasks waiting for the EDT.
+         */
+        GAZE_EDT_BACKLOG("gaze_edt_backlog"),
+        /**
+         * The share of the frame ring file of the deferred screen recording mode waiting to be encoded, in percent.
+         */
+        FRAME_RING_PERCENT("frame_ring_percent");
+
+        private final String name;
+
+        Queue(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final TelemetryMonitor telemetryMonitor = new TelemetryMonitor();
+    private final LongAdder[] events = new LongAdder[Probe.values().length];
+    private final LongAdder[] nanos = new LongAdder[Probe.values().length];
+    private final LongAdder[] bytes = new LongAdder[Probe.values().length];
+    private final AtomicLongArray maxNanos = new AtomicLongArray(Probe.values().length);
+    private final AtomicLongArray queueDepths = new AtomicLongArray(Queue.values().length);
+    private final AtomicLongArray maxQueueDepths = new AtomicLongArray(Queue.values().length);
+    private volatile long startNanoTime = System.nanoTime();
+
+    private TelemetryMonitor() {
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+            bytes[i] = new LongAdder();
+        }
+    }
+
+    public static TelemetryMonitor getInstance() {
+        return telemetryMonitor;
+    }
+
+    /**
+     * Record an event of a probe that started at a time and ends now.
+     *
+     * @param probe         The probe.
+     * @param startNanoTime The {@link System#nanoTime()} when the event started.
+     */
+    public void record(Probe probe, long startNanoTime) {
+        long elapsedNanos = System.nanoTime() - startNanoTime;
+        int index = probe.ordinal();
+        events[index].increment();
+        nanos[index].add(elapsedNanos);
+        updateMax(maxNanos, index, elapsedNanos);
+    }
+
+    /**
+     * Record an event of a probe that started at a time, ends now, and wrote some bytes.
+     *
+     * @param probe         The probe.
+     * @param startNanoTime The {@link System#nanoTime()} when the event started.
+     * @param bytesWritten  The number of bytes written.
+     */
+    public void record(Probe probe, long startNanoTime, long bytesWritten) {
+        record(probe, startNanoTime);
+        addBytes(probe, bytesWritten);
+    }
+
+    /**
+     * Add bytes written by a probe outside of its events, e.g., when a video clip is closed.
+     *
+     * @param probe        The probe.
+     * @param bytesWritten The number of bytes written.
+     */
+    public void addBytes(Probe probe, long bytesWritten) {
+        bytes[probe.ordinal()].add(bytesWritten);
+    }
+
+    /**
+     * Set the current depth of a queue.
+     *
+     * @param queue The queue.
+     * @param depth The depth.
+     */
+    public void setQueueDepth(Queue queue, long depth) {
+        queueDepths.set(queue.ordinal(), depth);
+        updateMax(maxQueueDepths, queue.ordinal(), depth);
+    }
+
+    private static void updateMax(AtomicLongArray maxima, int index, long value) {
+        long max;
+        while (value > (max = maxima.get(index)) && !maxima.compareAndSet(index, max, value)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public long getEvents(Probe probe) {
+        return events[probe.ordinal()].sum();
+    }
+
+    public long getNanos(Probe probe) {
+        return nanos[probe.ordinal()].sum();
+    }
+
+    public long getMaxNanos(Probe probe) {
+        return maxNanos.get(probe.ordinal());
+    }
+
+    public long getBytes(Probe probe) {
+        return bytes[probe.ordinal()].sum();
+    }
+
+    public long getQueueDepth(Queue queue) {
+        return queueDepths.get(queue.ordinal());
+    }
+
+    public long getMaxQueueDepth(Queue queue) {
+        return maxQueueDepths.get(queue.ordinal());
+    }
+
+    /**
+     * Get the time since the counters were reset.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanoTime;
+    }
+
+    /**
+     * Get the time spent on the EDT, i.e., by the probes of the {@link #EDT} thread. The archives written within the
+     * file listener are already part of its time.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getEDTNanos() {
+        long edtNanos = 0;
+        for (Probe probe : Probe.values()) {
+            if (probe.getThread().equals(EDT)) {
+                edtNanos += getNanos(probe);
+            }
+        }
+        return edtNanos;
+    }
+
+    /**
+     * Reset all counters. This method is called when the tracking starts.
+     */
+    public void reset() {
+        for (int i = 0; i < events.length; i++) {
+            events[i].reset();
+            nanos[i].reset();
+            bytes[i].reset();
+            maxNanos.set(i, 0);
+        }
+        for (int i = 0; i < queueDepths.length(); i++) {
+            queueDepths.set(i, 0);
+            maxQueueDepths.set(i, 0);
+        }
+        startNanoTime = System.nanoTime();
+    }
+
+    /**
+     * Get the counters as JSON: the duration and the EDT time of the session, the events, time, mean and maximum time,
+     * and bytes written of each probe, and the current and maximum depth of each queue. The times are in milliseconds.
+     *
+     * @return The counters.
+     */
+    public JsonObject toJson() {
+        double seconds = getElapsedNanos() / 1e9;
+        long edtNanos = getEDTNanos();
+        JsonObject telemetry = new JsonObject();
+        telemetry.addProperty("duration_ms", seconds * 1000);
+        telemetry.addProperty("edt_busy_ms", edtNanos / 1e6);
+        telemetry.addProperty("edt_share", seconds > 0 ? edtNanos / 1e9 / seconds : 0);
+        JsonArray probes = new JsonArray();
+        for (Probe probe : Probe.values()) {
+            long probeEvents = getEvents(probe);
+            JsonObject probeObject = new JsonObject();
+            probeObject.addProperty("name", probe.getName());
+            probeObject.addProperty("thread", probe.getThread());
+            probeObject.addProperty("events", probeEvents);
+            probeObject.addProperty("busy_ms", getNanos(probe) / 1e6);
+            probeObject.addProperty("mean_ms", probeEvents > 0 ? getNanos(probe) / 1e6 / probeEvents : 0);
+            probeObject.addProperty("max_ms", getMaxNanos(probe) / 1e6);
+            probeObject.addProperty("bytes", getBytes(probe));
+            probes.add(probeObject);
+        }
+        telemetry.add("probes", probes);
+        JsonArray queues = new JsonArray();
+        for (Queue queue : Queue.values()) {
+            JsonObject queueObject = new JsonObject();
+            queueObject.addProperty("name", queue.getName());
+            queueObject.addProperty("depth", getQueueDepth(queue));
+            queueObject.addProperty("max_depth", getMaxQueueDepth(queue));
+            queues.add(queueObject);
+        }
+        telemetry.add("queues", queues);
+        return telemetry;
+    }
+
+    /**
+     * Write the counters to {@code telemetry.json} in a directory, see {@link #toJson()}.
+     *
+     * @param directory The directory, e.g., the data output path of the session.
+     */
+    public void writeToJson(String directory) throws IOException {
+        try (FileWriter fileWriter = new FileWriter(directory + "/telemetry.json")) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), fileWriter);
+        }
+    }
+}
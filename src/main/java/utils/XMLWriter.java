@@ -1,6 +1,7 @@
 package utils;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
@@ -15,17 +16,31 @@ import java.io.File;
  */
 public class XMLWriter {
     /**
-     * Write the formatted XML document to the XML file.
+     * Write the formatted XML document to the XML file. The time and the size of the file are recorded in the
+     * {@link TelemetryMonitor}, and as a {@link JFREvents.XMLFlushEvent} if enabled.
      *
      * @param document The XML document.
      * @param filePath The path of the XML file.
      */
     public static void writeToXML(Document document, String filePath) throws TransformerException {
+        long startNanoTime = System.nanoTime();
+        JFREvents.XMLFlushEvent flushEvent = JFREvents.begin(JFREvents.XMLFlushEvent::new);
         TransformerFactory transformerFactory = TransformerFactory.newInstance();
         Transformer transformer = transformerFactory.newTransformer();
         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
         DOMSource source = new DOMSource(document);
-        StreamResult result = new StreamResult(new File(filePath));
-        transformer.transform(source, result);
+        File file = new File(filePath);
+        transformer.transform(source, new StreamResult(file));
+        TelemetryMonitor.getInstance().record(TelemetryMonitor.Probe.XML_WRITE, startNanoTime, file.length());
+        if (flushEvent != null) {
+            flushEvent.path = filePath;
+            flushEvent.bytes = file.length();
+            Node root = document.getDocumentElement();
+            for (Node section = root != null ? root.getFirstChild() : null; section != null;
+                 section = section.getNextSibling()) {
+                flushEvent.elements += section.getChildNodes().getLength();
+            }
+            flushEvent.commit();
+        }
     }
 }